@@ -0,0 +1,36 @@
+package com.song.apollo.vehicle_service.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Entry point for the JMH benchmarks.
+ * <p>
+ * Accepts the usual JMH command line (e.g. a benchmark regex, {@code -prof gc}) and runs the
+ * selected benchmarks once per thread count listed in the {@code jmh.threads} system property
+ * (default {@code 1,4}), so every benchmark is measured single- and multi-threaded.
+ * Results are written as JSON to {@code target/jmh/} for comparison between builds.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        Options commandLine = new CommandLineOptions(args);
+        File resultDir = new File("target/jmh");
+        resultDir.mkdirs();
+        for (String threads : System.getProperty("jmh.threads", "1,4").split(",")) {
+            int count = Integer.parseInt(threads.trim());
+            Options options = new OptionsBuilder()
+                    .parent(commandLine)
+                    .threads(count)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(resultDir, "results-t" + count + ".json").getPath())
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
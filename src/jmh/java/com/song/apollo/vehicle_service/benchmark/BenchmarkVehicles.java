@@ -0,0 +1,35 @@
+package com.song.apollo.vehicle_service.benchmark;
+
+import com.song.apollo.vehicle_service.Vehicle;
+import com.song.apollo.vehicle_service.VinValidator;
+
+import java.math.BigDecimal;
+
+/**
+ * Test data shared by the benchmarks.
+ */
+final class BenchmarkVehicles {
+
+    private BenchmarkVehicles() {
+    }
+
+    /**
+     * @return a valid VIN ending in {@code id} (at most 8 digits), with its check digit filled in.
+     */
+    static String vin(long id) {
+        String vin = String.format("1FTBENCH0%08d", id);
+        return vin.substring(0, 8) + VinValidator.checkDigit(vin) + vin.substring(9);
+    }
+
+    static Vehicle vehicle(String vin) {
+        return Vehicle.builder()
+                .vin(vin)
+                .manufacturerName("Toyota")
+                .modelName("Camry")
+                .description("Reliable mid-size sedan")
+                .horsePower(203)
+                .purchasePrice(new BigDecimal("25999.99"))
+                .fuelType(Vehicle.FuelType.HYBRID)
+                .build();
+    }
+}
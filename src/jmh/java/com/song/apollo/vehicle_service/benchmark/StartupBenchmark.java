@@ -0,0 +1,102 @@
+package com.song.apollo.vehicle_service.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Measures time to the first successful {@code GET /vehicle/{vin}} of the packaged application, with each
+ * fast-start measure added in turn: the {@code prod} profile, Spring AOT and the CDS archive.
+ * <p>
+ * Needs the output of {@code ./mvnw -Pfast-start package} (the extracted application in {@code target/fast-start},
+ * see the README). A small file database is seeded once, as in {@link WarmStartBenchmark}, so the first
+ * request finds a vehicle; every configuration opens the same file. Runs are interleaved so a noisy
+ * moment on the machine does not favour one configuration, and every measurement is appended to
+ * {@code target/startup/results.csv} so runs can be compared between builds.
+ * <p>
+ * Run with {@code ./mvnw -Pbenchmark test-compile exec:exec
+ * -Dbenchmark.main=com.song.apollo.vehicle_service.benchmark.StartupBenchmark -Dbenchmark.args="--runs=5"}.
+ */
+public class StartupBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = WarmStartBenchmark.parse(args);
+        long vehicles = Long.parseLong(options.getOrDefault("vehicles", "1000"));
+        int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+        Path dir = Paths.get(options.getOrDefault("dir", "target/startup")).toAbsolutePath();
+        Path application = Paths.get(options.getOrDefault("app", "target/fast-start")).toAbsolutePath();
+        Path jar = applicationJar(application);
+        String storagePath = dir.resolve("vehicledb").toString();
+
+        WarmStartBenchmark.seed(storagePath, vehicles);
+
+        Map<String, List<String>> configurations = new LinkedHashMap<>();
+        configurations.put("default profile", List.of());
+        configurations.put("prod", List.of("--spring.profiles.active=prod"));
+        configurations.put("prod + AOT", List.of("-Dspring.aot.enabled=true", "--spring.profiles.active=prod"));
+        if (Files.exists(application.resolve("application.jsa"))) {
+            configurations.put("prod + AOT + CDS", List.of("-XX:SharedArchiveFile=application.jsa",
+                    "-Dspring.aot.enabled=true", "--spring.profiles.active=prod"));
+        } else {
+            System.out.printf("No CDS archive in %s, skipping the CDS configuration%n", application);
+        }
+
+        Map<String, List<Long>> results = new LinkedHashMap<>();
+        Path csv = Files.createDirectories(dir).resolve("results.csv");
+        if (!Files.exists(csv)) {
+            Files.writeString(csv, "configuration,run,time_to_first_request_ms\n");
+        }
+        System.out.printf("%n%-20s %6s %22s%n", "configuration", "run", "time to first req ms");
+        for (int run = 1; run <= runs; run++) {
+            for (Map.Entry<String, List<String>> configuration : configurations.entrySet()) {
+                long millis = timeToFirstRequest(application, jar, storagePath, configuration.getValue());
+                results.computeIfAbsent(configuration.getKey(), key -> new ArrayList<>()).add(millis);
+                System.out.printf("%-20s %6d %22d%n", configuration.getKey(), run, millis);
+                Files.writeString(csv, "%s,%d,%d%n".formatted(configuration.getKey(), run, millis),
+                        StandardOpenOption.APPEND);
+            }
+        }
+
+        System.out.printf("%n%-20s %22s%n", "configuration", "median ms");
+        results.forEach((configuration, millis) ->
+                System.out.printf("%-20s %22d%n", configuration, millis.stream().sorted().toList().get(millis.size() / 2)));
+    }
+
+    /**
+     * Starts the application from its extracted directory, as a container would. JVM options in
+     * {@code arguments} go before {@code -jar}, application arguments after it.
+     */
+    private static long timeToFirstRequest(Path application, Path jar, String storagePath, List<String> arguments)
+            throws Exception {
+        int port = WarmStartBenchmark.freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        arguments.stream().filter(argument -> !argument.startsWith("--")).forEach(command::add);
+        command.add("-jar");
+        command.add(jar.getFileName().toString());
+        arguments.stream().filter(argument -> argument.startsWith("--")).forEach(command::add);
+        command.add("--spring.datasource.url=jdbc:h2:file:" + storagePath);
+        command.add("--server.port=" + port);
+        command.add("--logging.level.root=WARN");
+        // CDS only maps the archive when the class path matches the training run, so start from the same directory
+        return WarmStartBenchmark.timeToFirstRequest(new ProcessBuilder(command).directory(application.toFile()), port);
+    }
+
+    private static Path applicationJar(Path application) throws IOException {
+        if (!Files.isDirectory(application)) {
+            throw new IllegalStateException(application + " does not exist, build it with ./mvnw -Pfast-start package");
+        }
+        try (Stream<Path> files = Files.list(application)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".jar"))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No application jar in " + application));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.song.apollo.vehicle_service.benchmark;
+
+import com.song.apollo.vehicle_service.Vehicle;
+import com.song.apollo.vehicle_service.VehicleJsonWriter;
+import org.openjdk.jmh.annotations.*;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures Jackson serialization and deserialization of {@link Vehicle},
+ * including the {@code BigDecimal purchasePrice} field, against the hand-written {@link VehicleJsonWriter}.
+ * <p>
+ * The {@code ...ToStream} and {@code write...} variants encode into a reused stream, as an HTTP response
+ * does, so that {@code -prof gc} shows the allocations of the encoder alone.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VehicleJsonBenchmark {
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+    private Vehicle vehicle;
+    private List<Vehicle> page;
+    private byte[] vehicleJson;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+
+    @Setup
+    public void setUp() {
+        vehicle = BenchmarkVehicles.vehicle(BenchmarkVehicles.vin(1));
+        page = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            page.add(BenchmarkVehicles.vehicle(BenchmarkVehicles.vin(i)));
+        }
+        vehicleJson = jsonMapper.writeValueAsBytes(vehicle);
+    }
+
+    @Benchmark
+    public byte[] serializeVehicle() {
+        return jsonMapper.writeValueAsBytes(vehicle);
+    }
+
+    @Benchmark
+    public byte[] serializePageOf100() {
+        return jsonMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public int serializeVehicleToStream() {
+        out.reset();
+        jsonMapper.writeValue(out, vehicle);
+        return out.size();
+    }
+
+    @Benchmark
+    public int serializePageOf100ToStream() {
+        out.reset();
+        jsonMapper.writeValue(out, page);
+        return out.size();
+    }
+
+    @Benchmark
+    public int writeVehicle() throws IOException {
+        out.reset();
+        try (VehicleJsonWriter writer = new VehicleJsonWriter(out)) {
+            writer.writeVehicle(vehicle);
+        }
+        return out.size();
+    }
+
+    @Benchmark
+    public int writePageOf100() throws IOException {
+        out.reset();
+        try (VehicleJsonWriter writer = new VehicleJsonWriter(out)) {
+            writer.writeArray(page);
+        }
+        return out.size();
+    }
+
+    @Benchmark
+    public Vehicle deserializeVehicle() {
+        return jsonMapper.readValue(vehicleJson, Vehicle.class);
+    }
+}
@@ -0,0 +1,207 @@
+package com.song.apollo.vehicle_service.benchmark;
+
+import com.song.apollo.vehicle_service.Vehicle;
+import com.song.apollo.vehicle_service.VehicleService;
+import com.song.apollo.vehicle_service.VehicleServiceApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HTTP load test comparing platform-thread, virtual-thread and reactive (WebFlux + R2DBC) request execution.
+ * <p>
+ * Each mode runs in its own JVM: the application is started on a random port (with the
+ * VIN cache disabled so every request blocks in JDBC), seeded, and then driven by a closed
+ * loop of concurrent clients issuing 90% {@code GET /vehicle/{vin}} and 10% {@code PUT}.
+ * The parent process prints throughput and p50/p99/p99.9 latency for each mode.
+ * <p>
+ * Run with {@code ./mvnw -Pbenchmark test-compile exec:exec
+ * -Dbenchmark.main=com.song.apollo.vehicle_service.benchmark.VehicleLoadTest
+ * -Dbenchmark.args="--concurrency=400 --requests=50000"}.
+ * The virtual mode requires Java 21+. The reactive mode needs the reactive build on the classpath, i.e.
+ * {@code -Pbenchmark,reactive} and {@code --modes=platform,virtual,reactive}; it has no cache to disable and is
+ * seeded over HTTP.
+ */
+public class VehicleLoadTest {
+    private static final String RESULT_PREFIX = "RESULT ";
+    private static final String REACTIVE_APPLICATION = "com.song.apollo.vehicle_service.reactive.ReactiveVehicleApplication";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        if (options.containsKey("mode")) {
+            System.out.println(RESULT_PREFIX + runMode(options));
+            return;
+        }
+        List<String> results = new ArrayList<>();
+        for (String mode : options.getOrDefault("modes", "platform,virtual").split(",")) {
+            results.add(fork(mode, args));
+        }
+        System.out.printf("%n%-10s %12s %10s %10s %10s %8s%n", "mode", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "errors");
+        results.forEach(System.out::println);
+    }
+
+    private static String fork(String mode, String[] args) throws Exception {
+        List<String> command = new ArrayList<>(List.of(
+                Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                VehicleLoadTest.class.getName(), "--mode=" + mode));
+        command.addAll(Arrays.asList(args));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String result = mode + ": no result";
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = out.readLine()) != null) {
+                if (line.startsWith(RESULT_PREFIX)) {
+                    result = line.substring(RESULT_PREFIX.length());
+                } else if (line.contains("WARN") || line.contains("ERROR")) {
+                    System.out.println("[" + mode + "] " + line);
+                }
+            }
+        }
+        process.waitFor();
+        return result;
+    }
+
+    private static String runMode(Map<String, String> options) throws Exception {
+        String mode = options.get("mode");
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "200"));
+        int requests = Integer.parseInt(options.getOrDefault("requests", "20000"));
+        int seeded = Integer.parseInt(options.getOrDefault("seed", "5000"));
+        if ("virtual".equals(mode) && Runtime.version().feature() < 21) {
+            System.out.println("WARN virtual threads need Java 21+, running on " + Runtime.version());
+        }
+
+        // Devtools would re-run main() in a restart class loader and lose the --mode argument.
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        boolean reactive = "reactive".equals(mode);
+        SpringApplication application = new SpringApplication(
+                reactive ? Class.forName(REACTIVE_APPLICATION) : VehicleServiceApplication.class);
+        if ("virtual".equals(mode)) {
+            application.setAdditionalProfiles("virtual");
+        } else if (reactive) {
+            application.setWebApplicationType(WebApplicationType.REACTIVE);
+            application.setAdditionalProfiles("reactive");
+        }
+        // Flyway only gets its own URL in the reactive build; elsewhere it would create the database without
+        // the datasource's credentials and lock the pool out.
+        String database = reactive
+                ? "--spring.flyway.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"
+                : "--spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE";
+        try (ConfigurableApplicationContext context = application.run(
+                "--server.port=0",
+                database,
+                "--vehicle.reactive.r2dbc.url=r2dbc:pool:h2:mem:///loadtest?options=DB_CLOSE_DELAY=-1",
+                "--vehicle.cache.maximum-size=0",
+                // all load comes from one client; measure the thread model, not the limiter
+                "--vehicle.rate-limit.enabled=false",
+                "--logging.level.root=WARN")) {
+            List<Vehicle> seed = new ArrayList<>(seeded);
+            for (int i = 0; i < seeded; i++) {
+                seed.add(BenchmarkVehicles.vehicle(BenchmarkVehicles.vin(i)));
+            }
+
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/vehicle/";
+            String[] updateBodies = new String[seeded];
+            JsonMapper jsonMapper = JsonMapper.builder().build();
+            for (int i = 0; i < seeded; i++) {
+                updateBodies[i] = jsonMapper.writeValueAsString(seed.get(i));
+            }
+
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            if (reactive) {
+                URI create = URI.create(baseUrl.substring(0, baseUrl.length() - 1));
+                for (String body : updateBodies) {
+                    client.send(HttpRequest.newBuilder(create)
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(body))
+                            .build(), HttpResponse.BodyHandlers.discarding());
+                }
+            } else {
+                context.getBean(VehicleService.class).createVehicles(seed);
+            }
+            int warmup = requests / 10;
+            drive(client, baseUrl, updateBodies, concurrency, warmup, new long[warmup], new AtomicInteger());
+
+            long[] latencies = new long[requests];
+            AtomicInteger errors = new AtomicInteger();
+            long start = System.nanoTime();
+            drive(client, baseUrl, updateBodies, concurrency, requests, latencies, errors);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            Arrays.sort(latencies);
+            return String.format("%-10s %12.0f %10.2f %10.2f %10.2f %8d", mode, requests / seconds,
+                    percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999),
+                    errors.get());
+        }
+    }
+
+    /**
+     * Issues {@code total} requests from {@code concurrency} client threads, recording each latency.
+     */
+    private static void drive(HttpClient client, String baseUrl, String[] updateBodies, int concurrency,
+                              int total, long[] latencies, AtomicInteger errors) throws InterruptedException {
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        for (int c = 0; c < concurrency; c++) {
+            clients.execute(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < total) {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    int index = random.nextInt(updateBodies.length);
+                    HttpRequest.Builder request = HttpRequest.newBuilder(
+                            URI.create(baseUrl + BenchmarkVehicles.vin(index)));
+                    if (random.nextInt(10) == 0) {
+                        request.header("Content-Type", "application/json")
+                                .PUT(HttpRequest.BodyPublishers.ofString(updateBodies[index]));
+                    }
+                    long begin = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() >= 300) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (Exception ex) {
+                        errors.incrementAndGet();
+                    }
+                    latencies[i] = System.nanoTime() - begin;
+                }
+            });
+        }
+        clients.shutdown();
+        clients.awaitTermination(1, TimeUnit.HOURS);
+    }
+
+    private static double percentile(long[] sortedNanos, double p) {
+        int index = (int) Math.min(sortedNanos.length - 1, Math.ceil(p * sortedNanos.length) - 1);
+        return sortedNanos[Math.max(0, index)] / 1e6;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+}
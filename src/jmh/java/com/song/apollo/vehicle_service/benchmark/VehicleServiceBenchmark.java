@@ -0,0 +1,118 @@
+package com.song.apollo.vehicle_service.benchmark;
+
+import com.song.apollo.vehicle_service.Vehicle;
+import com.song.apollo.vehicle_service.VehiclePatch;
+import com.song.apollo.vehicle_service.VehicleRepository;
+import com.song.apollo.vehicle_service.VehicleService;
+import com.song.apollo.vehicle_service.VehicleServiceApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the {@link VehicleService} CRUD paths against an embedded H2 database,
+ * with the full Spring context (transactions, cache) in place but no web layer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VehicleServiceBenchmark {
+    private static final int SEEDED = 10_000;
+
+    private ConfigurableApplicationContext context;
+    private VehicleService vehicleService;
+    private VehicleRepository vehicleRepository;
+    private final AtomicLong nextVin = new AtomicLong(SEEDED);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SpringApplication application = new SpringApplication(VehicleServiceApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        context = application.run(
+                "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                "--logging.level.root=WARN");
+        vehicleService = context.getBean(VehicleService.class);
+        vehicleRepository = context.getBean(VehicleRepository.class);
+
+        List<Vehicle> seed = new ArrayList<>(SEEDED);
+        for (int i = 0; i < SEEDED; i++) {
+            seed.add(BenchmarkVehicles.vehicle(BenchmarkVehicles.vin(i)));
+        }
+        vehicleService.createVehicles(seed);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Vehicle create() {
+        return vehicleService.createVehicle(BenchmarkVehicles.vehicle(BenchmarkVehicles.vin(nextVin.getAndIncrement())));
+    }
+
+    /**
+     * The existsById + merging save create path, kept as a baseline for {@link #create()}.
+     */
+    @Benchmark
+    public Vehicle createWithExistsCheck() {
+        Vehicle v = BenchmarkVehicles.vehicle(BenchmarkVehicles.vin(nextVin.getAndIncrement()));
+        if (vehicleRepository.existsById(v.getVin())) {
+            throw new IllegalStateException("VIN already exists");
+        }
+        return vehicleRepository.save(v);
+    }
+
+    @Benchmark
+    public Optional<Vehicle> getCached() {
+        return vehicleService.getVehicleByVin(randomSeededVin());
+    }
+
+    @Benchmark
+    public Optional<Vehicle> getFromDatabase() {
+        return vehicleRepository.findById(randomSeededVin());
+    }
+
+    @Benchmark
+    public Optional<Vehicle> update() {
+        String vin = randomSeededVin();
+        Vehicle change = BenchmarkVehicles.vehicle(vin);
+        change.setPurchasePrice(BigDecimal.valueOf(ThreadLocalRandom.current().nextInt(10_000, 90_000)));
+        return vehicleService.updateVehicle(vin, change, null);
+    }
+
+    /**
+     * The repricing path of {@code PATCH /vehicle/{vin}}: one UPDATE of the price column, no read; compare with
+     * {@link #update()}, the PUT path.
+     */
+    @Benchmark
+    public Optional<Vehicle> patchPrice() {
+        BigDecimal price = BigDecimal.valueOf(ThreadLocalRandom.current().nextInt(10_000, 90_000));
+        return vehicleService.patchVehicle(randomSeededVin(),
+                new VehiclePatch(Map.of(VehiclePatch.Field.PURCHASE_PRICE, price)), null);
+    }
+
+    @Benchmark
+    public void createThenDelete() {
+        String vin = BenchmarkVehicles.vin(nextVin.getAndIncrement());
+        vehicleService.createVehicle(BenchmarkVehicles.vehicle(vin));
+        vehicleService.deleteVehicle(vin, null);
+    }
+
+    private static String randomSeededVin() {
+        return BenchmarkVehicles.vin(ThreadLocalRandom.current().nextInt(SEEDED));
+    }
+}
@@ -0,0 +1,112 @@
+package com.song.apollo.vehicle_service.benchmark;
+
+import com.song.apollo.vehicle_service.ImportReport;
+import com.song.apollo.vehicle_service.Vehicle;
+import com.song.apollo.vehicle_service.VehicleServiceApplication;
+import com.song.apollo.vehicle_service.VehicleTransfer;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.BufferedWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Measures bulk import and export throughput of {@link VehicleTransfer} against the default in-memory database.
+ * <p>
+ * A gzip-compressed CSV file with the requested number of vehicles is generated once under {@code --dir}.
+ * Each run empties the table, imports the file, exports it again as CSV and NDJSON, and reports
+ * elapsed time and rows per second for every step.
+ * <p>
+ * Run with {@code ./mvnw -Pbenchmark test-compile exec:exec
+ * -Dbenchmark.main=com.song.apollo.vehicle_service.benchmark.VehicleTransferBenchmark
+ * -Dbenchmark.args="--vehicles=1000000 --runs=2"}.
+ */
+public class VehicleTransferBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        long vehicles = Long.parseLong(options.getOrDefault("vehicles", "1000000"));
+        int runs = Integer.parseInt(options.getOrDefault("runs", "2"));
+        Path dir = Paths.get(options.getOrDefault("dir", "target/transfer"));
+        Path source = dir.resolve("vehicles-" + vehicles + ".csv.gz");
+        if (!Files.exists(source)) {
+            Files.createDirectories(dir);
+            generate(source, vehicles);
+        }
+
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(VehicleServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--vehicle.analytics.enabled=" + options.getOrDefault("analytics", "true"),
+                        "--logging.level.root=WARN")) {
+            VehicleTransfer transfer = context.getBean(VehicleTransfer.class);
+            JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+
+            System.out.printf("%n%-14s %6s %10s %12s %10s%n", "step", "run", "rows", "ms", "rows/s");
+            for (int run = 1; run <= runs; run++) {
+                jdbc.execute("truncate table vehicles");
+
+                long start = System.nanoTime();
+                ImportReport report;
+                try (InputStream in = Files.newInputStream(source)) {
+                    report = transfer.importVehicles(VehicleTransfer.Format.CSV, in);
+                }
+                print("import csv", run, report.imported(), start);
+                if (report.rejected() > 0) {
+                    System.out.printf("  %d rows rejected, first: %s%n", report.rejected(), report.rejections().get(0));
+                }
+
+                for (VehicleTransfer.Format format : VehicleTransfer.Format.values()) {
+                    Path target = dir.resolve("export." + format.parameterName() + ".gz");
+                    start = System.nanoTime();
+                    long count;
+                    try (OutputStream out = Files.newOutputStream(target)) {
+                        count = transfer.exportVehicles(format, out);
+                    }
+                    print("export " + format.parameterName(), run, count, start);
+                }
+            }
+        }
+    }
+
+    private static void generate(Path file, long vehicles) throws Exception {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(file), 1 << 16), StandardCharsets.UTF_8), 1 << 16)) {
+            writer.write("vin,manufacturerName,modelName,description,horsePower,purchasePrice,fuelType\n");
+            for (long id = 0; id < vehicles; id++) {
+                Vehicle v = BenchmarkVehicles.vehicle(BenchmarkVehicles.vin(id));
+                writer.write(v.getVin() + ',' + v.getManufacturerName() + ',' + v.getModelName() + ','
+                        + v.getDescription() + ',' + v.getHorsePower() + ',' + v.getPurchasePrice().toPlainString()
+                        + ',' + v.getFuelType().name() + '\n');
+            }
+        }
+    }
+
+    private static void print(String step, int run, long rows, long startNanos) {
+        long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        System.out.printf("%-14s %6d %10d %12d %10d%n", step, run, rows, millis, rows * 1000 / millis);
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+}
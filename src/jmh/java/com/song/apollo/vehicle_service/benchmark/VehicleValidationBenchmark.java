@@ -0,0 +1,55 @@
+package com.song.apollo.vehicle_service.benchmark;
+
+import com.song.apollo.vehicle_service.Vehicle;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures Bean Validation of {@link Vehicle} ({@code @NotBlank}, {@code @Min}, {@code @DecimalMin}, ...)
+ * for a valid vehicle and for one that violates every numeric constraint.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VehicleValidationBenchmark {
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private Vehicle valid;
+    private Vehicle invalid;
+
+    @Setup
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        valid = BenchmarkVehicles.vehicle(BenchmarkVehicles.vin(1));
+        invalid = BenchmarkVehicles.vehicle(BenchmarkVehicles.vin(2));
+        invalid.setHorsePower(-100);
+        invalid.setPurchasePrice(new BigDecimal("-5000.00"));
+        invalid.setDescription(" ");
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Vehicle>> validateValid() {
+        return validator.validate(valid);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Vehicle>> validateInvalid() {
+        return validator.validate(invalid);
+    }
+}
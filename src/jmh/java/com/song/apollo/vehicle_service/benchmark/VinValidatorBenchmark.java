@@ -0,0 +1,62 @@
+package com.song.apollo.vehicle_service.benchmark;
+
+import com.song.apollo.vehicle_service.VinValidator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link VinValidator} on a valid VIN, a lower-case VIN, one with a wrong check digit and one with
+ * a forbidden letter, and {@link VinValidator#normalize(String)} of canonical and lower-case input.
+ * Run with {@code -prof gc} to confirm the canonical paths do not allocate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VinValidatorBenchmark {
+    private String valid;
+    private String lowerCase;
+    private String wrongCheckDigit;
+    private String forbiddenLetter;
+
+    @Setup
+    public void setUp() {
+        valid = "1M8GDM9AXKP042788";
+        lowerCase = valid.toLowerCase();
+        wrongCheckDigit = "1M8GDM9A1KP042788";
+        forbiddenLetter = "1M8GDM9AXKP0427O8";
+    }
+
+    @Benchmark
+    public boolean isValid() {
+        return VinValidator.isValid(valid, true);
+    }
+
+    @Benchmark
+    public boolean isValidLowerCase() {
+        return VinValidator.isValid(lowerCase, true);
+    }
+
+    @Benchmark
+    public boolean isValidWrongCheckDigit() {
+        return VinValidator.isValid(wrongCheckDigit, true);
+    }
+
+    @Benchmark
+    public boolean isValidForbiddenLetter() {
+        return VinValidator.isValid(forbiddenLetter, true);
+    }
+
+    @Benchmark
+    public String normalizeCanonical() {
+        return VinValidator.normalize(valid);
+    }
+
+    @Benchmark
+    public String normalizeLowerCase() {
+        return VinValidator.normalize(lowerCase);
+    }
+}
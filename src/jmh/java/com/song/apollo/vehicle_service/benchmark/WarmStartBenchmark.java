@@ -0,0 +1,155 @@
+package com.song.apollo.vehicle_service.benchmark;
+
+import com.song.apollo.vehicle_service.Vehicle;
+import com.song.apollo.vehicle_service.VehicleServiceApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures time to first request of the {@code durable} profile against a large database file.
+ * <p>
+ * The file is seeded once (reused on later runs if it already holds the requested row count).
+ * Each run then starts the application in a fresh JVM and polls {@code GET /vehicle/{vin}} until
+ * it answers 200, reporting the elapsed time from process launch. Runs alternate between the
+ * default configuration and one with the fleet analytics snapshot disabled, to separate the
+ * snapshot load from the rest of startup.
+ * <p>
+ * Run with {@code ./mvnw -Pbenchmark test-compile exec:exec
+ * -Dbenchmark.main=com.song.apollo.vehicle_service.benchmark.WarmStartBenchmark
+ * -Dbenchmark.args="--vehicles=1000000 --runs=3"}.
+ */
+public class WarmStartBenchmark {
+    private static final int SEED_BATCH_SIZE = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        long vehicles = Long.parseLong(options.getOrDefault("vehicles", "1000000"));
+        int runs = Integer.parseInt(options.getOrDefault("runs", "3"));
+        Path dir = Paths.get(options.getOrDefault("dir", "target/warm-start"));
+        String storagePath = dir.toAbsolutePath().resolve("vehicledb").toString();
+
+        seed(storagePath, vehicles);
+
+        System.out.printf("%n%-26s %6s %22s%n", "configuration", "run", "time to first req ms");
+        for (int run = 1; run <= runs; run++) {
+            System.out.printf("%-26s %6d %22d%n", "analytics enabled", run, timeToFirstRequest(storagePath, true));
+            System.out.printf("%-26s %6d %22d%n", "analytics disabled", run, timeToFirstRequest(storagePath, false));
+        }
+    }
+
+    /**
+     * Creates the schema through the regular startup path and bulk-loads vehicles with JDBC batches.
+     */
+    static void seed(String storagePath, long vehicles) {
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(VehicleServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("durable")
+                .run("--vehicle.storage.path=" + storagePath,
+                        "--vehicle.analytics.enabled=false",
+                        "--logging.level.root=WARN")) {
+            JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+            Long existing = jdbc.queryForObject("select count(*) from vehicles", Long.class);
+            if (existing != null && existing == vehicles) {
+                System.out.printf("Reusing %s with %d vehicles%n", storagePath, existing);
+                return;
+            }
+            jdbc.update("delete from vehicles");
+            long start = System.nanoTime();
+            String sql = "insert into vehicles (vin, manufacturer_name, description, horse_power, model_name,"
+                    + " purchase_price, fuel_type, version) values (?, ?, ?, ?, ?, ?, ?, 0)";
+            for (long from = 0; from < vehicles; from += SEED_BATCH_SIZE) {
+                List<Object[]> batch = new ArrayList<>(SEED_BATCH_SIZE);
+                for (long id = from; id < Math.min(vehicles, from + SEED_BATCH_SIZE); id++) {
+                    Vehicle v = BenchmarkVehicles.vehicle(BenchmarkVehicles.vin(id));
+                    batch.add(new Object[]{v.getVin(), v.getManufacturerName(), v.getDescription(), v.getHorsePower(),
+                            v.getModelName(), v.getPurchasePrice(), v.getFuelType().name()});
+                }
+                jdbc.batchUpdate(sql, batch);
+            }
+            System.out.printf("Seeded %d vehicles in %d s%n", vehicles, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+        }
+    }
+
+    private static long timeToFirstRequest(String storagePath, boolean analytics) throws Exception {
+        int port = freePort();
+        List<String> command = List.of(
+                Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Dspring.devtools.restart.enabled=false",
+                "-cp", System.getProperty("java.class.path"),
+                VehicleServiceApplication.class.getName(),
+                "--spring.profiles.active=durable",
+                "--vehicle.storage.path=" + storagePath,
+                "--vehicle.analytics.enabled=" + analytics,
+                "--server.port=" + port,
+                "--logging.level.root=WARN");
+        return timeToFirstRequest(new ProcessBuilder(command), port);
+    }
+
+    /**
+     * Starts the application and polls {@code GET /vehicle/{vin}} for the first seeded vehicle until it answers 200.
+     *
+     * @return milliseconds from process launch to the first successful response.
+     */
+    static long timeToFirstRequest(ProcessBuilder application, int port) throws Exception {
+        Path log = Files.createTempFile("warm-start", ".log");
+        long start = System.nanoTime();
+        Process process = application.redirectErrorStream(true).redirectOutput(log.toFile()).start();
+        try {
+            HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+            HttpRequest request = HttpRequest.newBuilder(
+                    URI.create("http://localhost:" + port + "/vehicle/" + BenchmarkVehicles.vin(0))).build();
+            while (process.isAlive()) {
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    }
+                } catch (IOException notListeningYet) {
+                    // the server socket is not open yet
+                }
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException("Application exited before serving a request, see " + log);
+        } finally {
+            // SIGTERM: graceful shutdown releases the database file before the next run opens it
+            process.destroy();
+            if (!process.waitFor(60, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+}
@@ -0,0 +1,103 @@
+package com.song.apollo.vehicle_service;
+
+import org.springframework.data.repository.core.support.RepositoryMethodInvocationListener;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounds the number of vehicle requests in flight with a limit that adapts to repository latency
+ * (additive increase, multiplicative decrease).
+ * <p>
+ * Every {@link VehicleRepository} call reports its duration through {@link #afterInvocation}. While the
+ * smoothed latency stays within the target and the service is using at least half of the limit, the limit
+ * grows by about one per limit's worth of calls. Once the smoothed latency exceeds the target, the limit is
+ * cut by 10% at most once per 100 ms, which sheds load before the connection pool queue and the database
+ * fall further behind.
+ */
+final class AdaptiveConcurrencyLimiter implements RepositoryMethodInvocationListener {
+    private static final double DECREASE_FACTOR = 0.9;
+    private static final Duration DECREASE_INTERVAL = Duration.ofMillis(100);
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyTargetNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    /** Current limit as the bits of a {@code double}, so additive increases below one are not lost. */
+    private final AtomicLong limit;
+    private final AtomicLong smoothedLatencyNanos = new AtomicLong();
+    private final AtomicLong lastDecrease;
+
+    AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, Duration latencyTarget,
+                               LongSupplier nanoClock) {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Concurrency limits must satisfy 1 <= min <= initial <= max");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTargetNanos = latencyTarget.toNanos();
+        this.nanoClock = nanoClock;
+        this.limit = new AtomicLong(Double.doubleToLongBits(initialLimit));
+        this.lastDecrease = new AtomicLong(nanoClock.getAsLong() - DECREASE_INTERVAL.toNanos());
+    }
+
+    /**
+     * Admits a request if fewer than {@link #limit()} are in flight. Every admitted request must be
+     * followed by {@link #release()}.
+     */
+    boolean tryAcquire() {
+        int limit = limit();
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    int limit() {
+        return (int) Double.longBitsToDouble(limit.get());
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return exponentially weighted moving average of repository call latency (weight 1/8 per call).
+     */
+    long smoothedLatencyNanos() {
+        return smoothedLatencyNanos.get();
+    }
+
+    @Override
+    public void afterInvocation(RepositoryMethodInvocation invocation) {
+        long sample = invocation.getDuration(TimeUnit.NANOSECONDS);
+        long smoothed = smoothedLatencyNanos.accumulateAndGet(sample, (average, x) -> average + ((x - average) >> 3));
+        if (smoothed > latencyTargetNanos) {
+            long now = nanoClock.getAsLong();
+            long last = lastDecrease.get();
+            if (now - last >= DECREASE_INTERVAL.toNanos() && lastDecrease.compareAndSet(last, now)) {
+                updateLimit(current -> Math.max(minLimit, current * DECREASE_FACTOR));
+            }
+        } else if (inFlight.get() * 2 >= limit()) {
+            updateLimit(current -> Math.min(maxLimit, current + 1 / current));
+        }
+    }
+
+    private void updateLimit(DoubleUnaryOperator update) {
+        limit.updateAndGet(bits -> Double.doubleToLongBits(update.applyAsDouble(Double.longBitsToDouble(bits))));
+    }
+}
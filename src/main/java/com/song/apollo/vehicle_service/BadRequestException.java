@@ -0,0 +1,13 @@
+package com.song.apollo.vehicle_service;
+
+/**
+ * Thrown when a request parameter is syntactically valid but cannot be interpreted
+ * (e.g. a tampered pagination cursor).
+ * <p>
+ * Mapped to 400 Bad Request by {@link GlobalExceptionHandler}.
+ */
+public class BadRequestException extends RuntimeException {
+    public BadRequestException(String message) {
+        super(message);
+    }
+}
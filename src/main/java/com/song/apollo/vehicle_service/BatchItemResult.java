@@ -0,0 +1,22 @@
+package com.song.apollo.vehicle_service;
+
+/**
+ * Outcome of a single item in a batch request.
+ * <p>
+ * {@code status} uses the same HTTP status code the equivalent single-vehicle
+ * endpoint would have returned (e.g. 201, 404, 409, 422).
+ *
+ * @param vin    the VIN the result refers to.
+ * @param status HTTP-style status code for this item.
+ * @param error  error message, or {@code null} on success.
+ */
+public record BatchItemResult(String vin, int status, String error) {
+
+    static BatchItemResult ok(String vin, int status) {
+        return new BatchItemResult(vin, status, null);
+    }
+
+    static BatchItemResult failed(String vin, int status, String error) {
+        return new BatchItemResult(vin, status, error);
+    }
+}
@@ -0,0 +1,105 @@
+package com.song.apollo.vehicle_service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-client token buckets with separate budgets for reads, writes and full-list scans.
+ * <p>
+ * Each bucket is kept as a single "theoretical arrival time" (the generic cell rate algorithm): a request
+ * is admitted if, after adding one emission interval, the arrival time is no more than {@code burst}
+ * intervals ahead of now. That is equivalent to a token bucket refilled at {@code permitsPerSecond} with
+ * {@code burst} capacity, but an admission is a single compare-and-set and needs no refill timer or lock.
+ * <p>
+ * Buckets live in a size-bounded Caffeine cache and expire after a period of inactivity, so clients that
+ * rotate their identity cannot grow the map without bound. An evicted client starts again with a full burst.
+ */
+final class ClientRateLimiter {
+
+    /**
+     * Request classes with independent budgets.
+     */
+    enum Category {
+        READ, WRITE, SCAN
+    }
+
+    /**
+     * Sustained rate and burst capacity of one category.
+     */
+    record Budget(double permitsPerSecond, int burst) {
+        Budget {
+            if (permitsPerSecond <= 0 || burst < 1) {
+                throw new IllegalArgumentException("Rate limit budget needs a positive rate and burst: " + this);
+            }
+        }
+
+        long intervalNanos() {
+            return Math.max(1, Math.round(TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        }
+    }
+
+    private final long[] intervals = new long[Category.values().length];
+    private final long[] tolerances = new long[Category.values().length];
+    private final Cache<String, AtomicLongArray> clients;
+    private final LongSupplier nanoClock;
+
+    ClientRateLimiter(Budget read, Budget write, Budget scan, long maxClients, Duration idleTimeout,
+                      LongSupplier nanoClock) {
+        Budget[] budgets = {read, write, scan};
+        for (Category category : Category.values()) {
+            Budget budget = budgets[category.ordinal()];
+            intervals[category.ordinal()] = budget.intervalNanos();
+            tolerances[category.ordinal()] = budget.intervalNanos() * budget.burst();
+        }
+        this.clients = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(idleTimeout)
+                .build();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Takes one permit from the client's bucket for the category.
+     *
+     * @return {@code 0} if the request is admitted, otherwise the nanoseconds until it would be.
+     */
+    long tryAcquire(String client, Category category) {
+        AtomicLongArray arrivals = clients.get(client, key -> newArrivals());
+        int index = category.ordinal();
+        long interval = intervals[index];
+        long tolerance = tolerances[index];
+        long now = nanoClock.getAsLong();
+        while (true) {
+            long arrival = arrivals.get(index);
+            long next = Math.max(arrival - now, 0) + interval;
+            if (next > tolerance) {
+                return next - tolerance;
+            }
+            if (arrivals.compareAndSet(index, arrival, now + next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * @return approximate number of clients currently tracked.
+     */
+    long trackedClients() {
+        return clients.estimatedSize();
+    }
+
+    private AtomicLongArray newArrivals() {
+        // an arrival time in the past means a full bucket
+        AtomicLongArray arrivals = new AtomicLongArray(Category.values().length);
+        long now = nanoClock.getAsLong();
+        for (int i = 0; i < arrivals.length(); i++) {
+            arrivals.set(i, now - tolerances[i]);
+        }
+        return arrivals;
+    }
+}
@@ -0,0 +1,92 @@
+package com.song.apollo.vehicle_service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * An immutable consistent-hash ring that assigns every VIN to one node.
+ * <p>
+ * Each node is placed on a 64-bit ring at {@code virtualNodes} points, hashed from {@code "<node>#<i>"}; a VIN
+ * belongs to the first point at or after its own hash (wrapping around). Many points per node even out the share
+ * of the VIN space each node owns, and adding or removing a node only moves the VINs between its points and their
+ * predecessors, about {@code 1/n} of all VINs, while every other VIN keeps its owner.
+ * <p>
+ * The hash is FNV-1a followed by the MurmurHash3 finalizer: cheap, independent of the JVM and stable across
+ * releases, so every node computes the same owner for a VIN.
+ */
+public final class ConsistentHashRing {
+    private final NavigableMap<Long, String> points;
+    private final Set<String> nodes;
+    private final int virtualNodes;
+
+    /**
+     * @param nodes        node identifiers (base URLs); duplicates are ignored.
+     * @param virtualNodes points per node, at least 1.
+     * @throws IllegalArgumentException if there are no nodes or {@code virtualNodes} is not positive.
+     */
+    public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("A ring needs at least one node");
+        }
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("virtualNodes must be positive");
+        }
+        TreeMap<Long, String> ring = new TreeMap<>();
+        TreeSet<String> members = new TreeSet<>(nodes);
+        // Sorted insertion makes the rare collision between two nodes' points resolve the same way everywhere.
+        for (String node : members) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.putIfAbsent(hash(node + "#" + i), node);
+            }
+        }
+        this.points = Collections.unmodifiableNavigableMap(ring);
+        this.nodes = Collections.unmodifiableSet(members);
+        this.virtualNodes = virtualNodes;
+    }
+
+    /**
+     * @return the node that owns {@code vin}.
+     */
+    public String owner(String vin) {
+        Map.Entry<Long, String> point = points.ceilingEntry(hash(vin));
+        return point != null ? point.getValue() : points.firstEntry().getValue();
+    }
+
+    /**
+     * @return the members, sorted.
+     */
+    public Set<String> nodes() {
+        return nodes;
+    }
+
+    public int virtualNodes() {
+        return virtualNodes;
+    }
+
+    /**
+     * @return a ring with the same points per node and the given members.
+     */
+    public ConsistentHashRing withNodes(Collection<String> members) {
+        return new ConsistentHashRing(members, virtualNodes);
+    }
+
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
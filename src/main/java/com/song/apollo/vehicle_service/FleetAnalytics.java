@@ -0,0 +1,473 @@
+package com.song.apollo.vehicle_service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory columnar snapshot of the vehicles table for aggregate queries.
+ * <p>
+ * Each attribute is stored in its own primitive array, indexed by a dense slot number:
+ * {@code horsePower} as {@code int}, {@code purchasePrice} as a {@code long} scaled by 100,
+ * and {@code manufacturerName}/{@code modelName}/{@code fuelType} as dictionary codes. Group-by
+ * queries copy the columns they need under a short read lock and scan the copy in parallel with a
+ * fork-join task, so writers only wait for the copy; they never touch the database or allocate a {@link Vehicle}.
+ * <p>
+ * The snapshot is loaded once before the web server starts and is then maintained from
+ * {@link VehicleChangeEvent}s. Deletes move the last slot into the freed one, so the arrays
+ * stay dense. Disable with {@code vehicle.analytics.enabled=false}.
+ */
+@Component
+@ConditionalOnProperty(name = "vehicle.analytics.enabled", havingValue = "true", matchIfMissing = true)
+public class FleetAnalytics implements SmartInitializingSingleton {
+    private static final Logger log = LoggerFactory.getLogger(FleetAnalytics.class);
+    private static final int PRICE_SCALE = 2;
+    private static final int NO_HORSE_POWER = Integer.MIN_VALUE;
+    private static final long NO_PRICE = Long.MIN_VALUE;
+    private static final int SPLIT_THRESHOLD = 1 << 15;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Attributes a query can group by, with the names used in the API.
+     */
+    public enum Dimension {
+        MANUFACTURER("manufacturerName"),
+        MODEL("modelName"),
+        FUEL_TYPE("fuelType");
+
+        private final String parameterName;
+
+        Dimension(String parameterName) {
+            this.parameterName = parameterName;
+        }
+
+        public String parameterName() {
+            return parameterName;
+        }
+
+        /**
+         * @throws BadRequestException if the name is not a supported dimension.
+         */
+        public static Dimension fromParameterName(String name) {
+            for (Dimension dimension : values()) {
+                if (dimension.parameterName.equals(name)) {
+                    return dimension;
+                }
+            }
+            throw new BadRequestException("Unsupported groupBy dimension: " + name);
+        }
+    }
+
+    private final VehicleService vehicleService;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Dictionary manufacturers = new Dictionary();
+    private final Dictionary models = new Dictionary();
+    private final Map<String, Integer> slotByVin = new HashMap<>();
+
+    private String[] vins = new String[INITIAL_CAPACITY];
+    private int[] horsePower = new int[INITIAL_CAPACITY];
+    private long[] priceCents = new long[INITIAL_CAPACITY];
+    private int[] manufacturerCodes = new int[INITIAL_CAPACITY];
+    private int[] modelCodes = new int[INITIAL_CAPACITY];
+    private byte[] fuelCodes = new byte[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * @param vehicleService used once at startup to stream the table into the snapshot.
+     */
+    public FleetAnalytics(VehicleService vehicleService) {
+        this.vehicleService = vehicleService;
+    }
+
+    /**
+     * Loads the snapshot after all beans exist but before the web server accepts requests.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        long start = System.nanoTime();
+        vehicleService.forEachVehicle(this::upsert);
+        log.info("Fleet analytics snapshot loaded: {} vehicles in {} ms", size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @EventListener
+    public void onVehicleChange(VehicleChangeEvent event) {
+        if (event.operation() == VehicleChangeEvent.Operation.DELETED) {
+            remove(event.vin());
+        } else {
+            upsert(event.vehicle());
+        }
+    }
+
+    /**
+     * Inserts or replaces the columns of a vehicle.
+     */
+    public void upsert(Vehicle vehicle) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = slotByVin.get(vehicle.getVin());
+            int slot;
+            if (existing != null) {
+                slot = existing;
+            } else {
+                ensureCapacity(size + 1);
+                slot = size++;
+                slotByVin.put(vehicle.getVin(), slot);
+                vins[slot] = vehicle.getVin();
+            }
+            horsePower[slot] = vehicle.getHorsePower() == null ? NO_HORSE_POWER : vehicle.getHorsePower();
+            priceCents[slot] = priceCents(vehicle);
+            manufacturerCodes[slot] = manufacturers.encode(vehicle.getManufacturerName());
+            modelCodes[slot] = models.encode(vehicle.getModelName());
+            fuelCodes[slot] = (byte) (vehicle.getFuelType() == null ? 0 : vehicle.getFuelType().ordinal() + 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the price in cents, or {@link #NO_PRICE} if there is none or it is too large to aggregate. The API
+     * caps prices well below that, so only rows written around it (e.g. directly in the database) are skipped.
+     */
+    private static long priceCents(Vehicle vehicle) {
+        if (vehicle.getPurchasePrice() == null) {
+            return NO_PRICE;
+        }
+        try {
+            return vehicle.getPurchasePrice().setScale(PRICE_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        } catch (ArithmeticException ex) {
+            log.warn("Purchase price of {} is out of range, leaving it out of fleet statistics", vehicle.getVin());
+            return NO_PRICE;
+        }
+    }
+
+    /**
+     * Removes a vehicle by moving the last slot into its place.
+     */
+    public void remove(String vin) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotByVin.remove(vin);
+            if (slot == null) {
+                return;
+            }
+            int last = --size;
+            if (slot != last) {
+                vins[slot] = vins[last];
+                horsePower[slot] = horsePower[last];
+                priceCents[slot] = priceCents[last];
+                manufacturerCodes[slot] = manufacturerCodes[last];
+                modelCodes[slot] = modelCodes[last];
+                fuelCodes[slot] = fuelCodes[last];
+                slotByVin.put(vins[slot], slot);
+            }
+            vins[last] = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of vehicles in the snapshot.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Computes count, sum, average, min, max and percentiles of purchase price and horsepower per group.
+     *
+     * @param groupBy     dimensions to group by; empty for a single fleet-wide row.
+     * @param percentiles percentiles to compute, each in (0, 100]; empty to skip the value collection pass.
+     * @return one row per non-empty group, ordered by group values.
+     */
+    public List<FleetStatsRow> aggregate(Set<Dimension> groupBy, double[] percentiles) {
+        EnumSet<Dimension> dimensions = groupBy.isEmpty() ? EnumSet.noneOf(Dimension.class) : EnumSet.copyOf(groupBy);
+        boolean collectValues = percentiles.length > 0;
+        Columns columns = copyColumns(dimensions);
+        Map<Long, GroupAccumulator> groups = columns.size() == 0 ? Map.of()
+                : ForkJoinPool.commonPool().invoke(new ScanTask(columns, 0, columns.size(), dimensions, collectValues));
+        List<FleetStatsRow> rows = new ArrayList<>(groups.size());
+        groups.forEach((key, acc) -> rows.add(acc.toRow(describe(columns, key, dimensions), percentiles)));
+        rows.sort(Comparator.comparing(row -> String.join("\u0000", row.group().values())));
+        return rows;
+    }
+
+    /**
+     * Copies the columns a query reads, holding the read lock only for the copy.
+     */
+    private Columns copyColumns(EnumSet<Dimension> dimensions) {
+        lock.readLock().lock();
+        try {
+            boolean byManufacturer = dimensions.contains(Dimension.MANUFACTURER);
+            boolean byModel = dimensions.contains(Dimension.MODEL);
+            return new Columns(size,
+                    Arrays.copyOf(priceCents, size),
+                    Arrays.copyOf(horsePower, size),
+                    byManufacturer ? Arrays.copyOf(manufacturerCodes, size) : null,
+                    byModel ? Arrays.copyOf(modelCodes, size) : null,
+                    dimensions.contains(Dimension.FUEL_TYPE) ? Arrays.copyOf(fuelCodes, size) : null,
+                    byManufacturer ? manufacturers.values() : List.of(),
+                    byModel ? models.values() : List.of());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Map<String, String> describe(Columns columns, long key, EnumSet<Dimension> dimensions) {
+        Map<String, String> group = new LinkedHashMap<>();
+        if (dimensions.contains(Dimension.MANUFACTURER)) {
+            group.put(Dimension.MANUFACTURER.parameterName(), Dictionary.decode(columns.manufacturers(), (int) (key >>> 36)));
+        }
+        if (dimensions.contains(Dimension.MODEL)) {
+            group.put(Dimension.MODEL.parameterName(), Dictionary.decode(columns.models(), (int) ((key >>> 4) & 0xFFFFFFFFL)));
+        }
+        if (dimensions.contains(Dimension.FUEL_TYPE)) {
+            int fuel = (int) (key & 0xF);
+            group.put(Dimension.FUEL_TYPE.parameterName(), fuel == 0 ? null : Vehicle.FuelType.values()[fuel - 1].name());
+        }
+        return group;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= vins.length) {
+            return;
+        }
+        int capacity = Math.max(required, vins.length + (vins.length >> 1));
+        vins = Arrays.copyOf(vins, capacity);
+        horsePower = Arrays.copyOf(horsePower, capacity);
+        priceCents = Arrays.copyOf(priceCents, capacity);
+        manufacturerCodes = Arrays.copyOf(manufacturerCodes, capacity);
+        modelCodes = Arrays.copyOf(modelCodes, capacity);
+        fuelCodes = Arrays.copyOf(fuelCodes, capacity);
+    }
+
+    /**
+     * A private copy of the columns one query reads; columns it does not group by are {@code null}.
+     *
+     * @param manufacturers dictionary values by code, if grouped by manufacturer.
+     * @param models        dictionary values by code, if grouped by model.
+     */
+    private record Columns(int size, long[] priceCents, int[] horsePower, int[] manufacturerCodes, int[] modelCodes,
+                           byte[] fuelCodes, List<String> manufacturers, List<String> models) {
+    }
+
+    /**
+     * Scans a slot range of a {@link Columns} copy, splitting in half until ranges are small enough to aggregate
+     * sequentially.
+     */
+    private static final class ScanTask extends RecursiveTask<Map<Long, GroupAccumulator>> {
+        private final Columns columns;
+        private final int from;
+        private final int to;
+        private final EnumSet<Dimension> dimensions;
+        private final boolean collectValues;
+
+        ScanTask(Columns columns, int from, int to, EnumSet<Dimension> dimensions, boolean collectValues) {
+            this.columns = columns;
+            this.from = from;
+            this.to = to;
+            this.dimensions = dimensions;
+            this.collectValues = collectValues;
+        }
+
+        @Override
+        protected Map<Long, GroupAccumulator> compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int mid = (from + to) >>> 1;
+                ScanTask left = new ScanTask(columns, from, mid, dimensions, collectValues);
+                left.fork();
+                Map<Long, GroupAccumulator> right = new ScanTask(columns, mid, to, dimensions, collectValues).compute();
+                Map<Long, GroupAccumulator> merged = left.join();
+                right.forEach((key, acc) -> merged.merge(key, acc, GroupAccumulator::merge));
+                return merged;
+            }
+            boolean byManufacturer = dimensions.contains(Dimension.MANUFACTURER);
+            boolean byModel = dimensions.contains(Dimension.MODEL);
+            boolean byFuel = dimensions.contains(Dimension.FUEL_TYPE);
+            long[] priceCents = columns.priceCents();
+            int[] horsePower = columns.horsePower();
+            Map<Long, GroupAccumulator> groups = new HashMap<>();
+            for (int slot = from; slot < to; slot++) {
+                long key = (byManufacturer ? (long) columns.manufacturerCodes()[slot] << 36 : 0)
+                        | (byModel ? (columns.modelCodes()[slot] & 0xFFFFFFFFL) << 4 : 0)
+                        | (byFuel ? columns.fuelCodes()[slot] : 0);
+                groups.computeIfAbsent(key, k -> new GroupAccumulator(collectValues))
+                        .add(priceCents[slot], horsePower[slot]);
+            }
+            return groups;
+        }
+    }
+
+    /**
+     * Running aggregates for one group; optionally keeps the raw values for percentiles.
+     */
+    private static final class GroupAccumulator {
+        long count;
+        long priceCount;
+        long priceSum;
+        long priceMin = Long.MAX_VALUE;
+        long priceMax = Long.MIN_VALUE;
+        long hpCount;
+        long hpSum;
+        long hpMin = Long.MAX_VALUE;
+        long hpMax = Long.MIN_VALUE;
+        final LongList prices;
+        final LongList horsePowers;
+
+        GroupAccumulator(boolean collectValues) {
+            prices = collectValues ? new LongList() : null;
+            horsePowers = collectValues ? new LongList() : null;
+        }
+
+        void add(long price, int hp) {
+            count++;
+            if (price != NO_PRICE) {
+                priceCount++;
+                priceSum += price;
+                priceMin = Math.min(priceMin, price);
+                priceMax = Math.max(priceMax, price);
+                if (prices != null) {
+                    prices.add(price);
+                }
+            }
+            if (hp != NO_HORSE_POWER) {
+                hpCount++;
+                hpSum += hp;
+                hpMin = Math.min(hpMin, hp);
+                hpMax = Math.max(hpMax, hp);
+                if (horsePowers != null) {
+                    horsePowers.add(hp);
+                }
+            }
+        }
+
+        GroupAccumulator merge(GroupAccumulator other) {
+            count += other.count;
+            priceCount += other.priceCount;
+            priceSum += other.priceSum;
+            priceMin = Math.min(priceMin, other.priceMin);
+            priceMax = Math.max(priceMax, other.priceMax);
+            hpCount += other.hpCount;
+            hpSum += other.hpSum;
+            hpMin = Math.min(hpMin, other.hpMin);
+            hpMax = Math.max(hpMax, other.hpMax);
+            if (prices != null) {
+                prices.addAll(other.prices);
+                horsePowers.addAll(other.horsePowers);
+            }
+            return this;
+        }
+
+        FleetStatsRow toRow(Map<String, String> group, double[] percentiles) {
+            return new FleetStatsRow(group, count,
+                    summary(priceCount, priceSum, priceMin, priceMax, prices, PRICE_SCALE, percentiles),
+                    summary(hpCount, hpSum, hpMin, hpMax, horsePowers, 0, percentiles));
+        }
+
+        private static FleetStatsRow.MetricSummary summary(long n, long sum, long min, long max, LongList values,
+                                                           int scale, double[] percentiles) {
+            if (n == 0) {
+                return new FleetStatsRow.MetricSummary(null, null, null, null, Map.of());
+            }
+            Map<String, BigDecimal> ranks = new LinkedHashMap<>();
+            if (values != null) {
+                long[] sorted = values.toSortedArray();
+                for (double p : percentiles) {
+                    int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+                    ranks.put("p" + BigDecimal.valueOf(p).stripTrailingZeros().toPlainString(),
+                            BigDecimal.valueOf(sorted[Math.max(0, index)], scale));
+                }
+            }
+            return new FleetStatsRow.MetricSummary(
+                    BigDecimal.valueOf(sum, scale),
+                    BigDecimal.valueOf(sum, scale).divide(BigDecimal.valueOf(n), PRICE_SCALE, RoundingMode.HALF_UP),
+                    BigDecimal.valueOf(min, scale),
+                    BigDecimal.valueOf(max, scale),
+                    ranks);
+        }
+    }
+
+    /**
+     * Append-only string dictionary; code 0 is reserved for {@code null}.
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>(List.of(""));
+
+        int encode(String value) {
+            if (value == null) {
+                return 0;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                values.add(value);
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        /**
+         * @return a copy of the values by code, to decode without holding the lock.
+         */
+        List<String> values() {
+            return List.copyOf(values);
+        }
+
+        static String decode(List<String> values, int code) {
+            return code == 0 ? null : values.get(code);
+        }
+    }
+
+    /**
+     * Minimal growable {@code long} array, to collect percentile inputs without boxing.
+     */
+    private static final class LongList {
+        private long[] values = new long[16];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size << 1);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(LongList other) {
+            if (size + other.size > values.length) {
+                values = Arrays.copyOf(values, Math.max(size + other.size, size << 1));
+            }
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+        }
+
+        long[] toSortedArray() {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.parallelSort(sorted);
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.song.apollo.vehicle_service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * REST Controller for fleet-wide aggregates, served from the {@link FleetAnalytics} snapshot.
+ * <p>
+ * Base URL: /vehicle/stats
+ */
+@RestController
+@RequestMapping("/vehicle/stats")
+@ConditionalOnProperty(name = "vehicle.analytics.enabled", havingValue = "true", matchIfMissing = true)
+public class FleetStatsController {
+    private final FleetAnalytics fleetAnalytics;
+
+    public FleetStatsController(FleetAnalytics fleetAnalytics) {
+        this.fleetAnalytics = fleetAnalytics;
+    }
+
+    /**
+     * GET /vehicle/stats?groupBy=manufacturerName,fuelType&amp;percentiles=50,90,99
+     * Aggregates purchase price and horsepower, optionally per group.
+     *
+     * @param groupBy     dimensions to group by: {@code manufacturerName}, {@code modelName}, {@code fuelType}.
+     * @param percentiles percentiles to compute, each in (0, 100].
+     * @return one row per group (200 OK) or 400 Bad Request for an unknown dimension or invalid percentile.
+     */
+    @GetMapping
+    public List<FleetStatsRow> getStats(@RequestParam(required = false) List<String> groupBy,
+                                        @RequestParam(required = false) List<String> percentiles) {
+        return fleetAnalytics.aggregate(parseGroupBy(groupBy), parsePercentiles(percentiles));
+    }
+
+    private static Set<FleetAnalytics.Dimension> parseGroupBy(List<String> groupBy) {
+        Set<FleetAnalytics.Dimension> dimensions = EnumSet.noneOf(FleetAnalytics.Dimension.class);
+        if (groupBy != null) {
+            groupBy.stream()
+                    .map(String::trim)
+                    .filter(name -> !name.isEmpty())
+                    .map(FleetAnalytics.Dimension::fromParameterName)
+                    .forEach(dimensions::add);
+        }
+        return dimensions;
+    }
+
+    private static double[] parsePercentiles(List<String> percentiles) {
+        if (percentiles == null) {
+            return new double[0];
+        }
+        return percentiles.stream()
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .mapToDouble(FleetStatsController::parsePercentile)
+                .distinct()
+                .sorted()
+                .toArray();
+    }
+
+    private static double parsePercentile(String value) {
+        double p;
+        try {
+            p = Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid percentile: " + value);
+        }
+        if (!(p > 0 && p <= 100)) {
+            throw new BadRequestException("Invalid percentile: " + value);
+        }
+        return p;
+    }
+}
@@ -0,0 +1,35 @@
+package com.song.apollo.vehicle_service;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * One group of a {@code GET /vehicle/stats} response.
+ *
+ * @param group         the grouping dimension values (e.g. {@code manufacturerName -> Tesla}); empty when ungrouped.
+ * @param count         number of vehicles in the group.
+ * @param purchasePrice aggregates over {@code purchasePrice}.
+ * @param horsePower    aggregates over {@code horsePower} (vehicles without horsepower are skipped).
+ */
+public record FleetStatsRow(Map<String, String> group,
+                            long count,
+                            MetricSummary purchasePrice,
+                            MetricSummary horsePower) {
+
+    /**
+     * Aggregates of a single numeric attribute within a group; all fields are
+     * {@code null} when no vehicle in the group has a value.
+     *
+     * @param sum         sum of the values.
+     * @param avg         arithmetic mean, rounded half-up to 2 decimals.
+     * @param min         smallest value.
+     * @param max         largest value.
+     * @param percentiles requested nearest-rank percentiles, keyed like {@code p50}, {@code p99.9}.
+     */
+    public record MetricSummary(BigDecimal sum,
+                                BigDecimal avg,
+                                BigDecimal min,
+                                BigDecimal max,
+                                Map<String, BigDecimal> percentiles) {
+    }
+}
@@ -1,5 +1,11 @@
 package com.song.apollo.vehicle_service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.ConstraintViolationException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -7,6 +13,7 @@ import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -17,15 +24,29 @@ import java.util.Map;
  * This class uses {@link ControllerAdvice} to intercept exceptions thrown by any
  * controller in the application. It transforms these exceptions into consistent,
  * user-friendly JSON error responses with appropriate HTTP status codes.
+ * <p>
+ * Every branch increments the {@code vehicle.api.errors} counter, tagged with the
+ * returned {@code status} and a stable {@code reason}.
  */
 @ControllerAdvice
 public class GlobalExceptionHandler {
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * @param meterRegistry registry for the error counters; a standalone registry is used when
+     *                      metrics are not configured (e.g. in web slice tests).
+     */
+    public GlobalExceptionHandler(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+    }
+
     /**
      * Handles validation failures (e.g. missing fields, negative price).
      * @return Map of field errors (422 Unprocessable Entity).
      */
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String, String>> handleValidationException(MethodArgumentNotValidException ex) {
+        count(HttpStatus.UNPROCESSABLE_ENTITY, "validation");
         Map<String, String> errors = new HashMap<>();
         ex.getBindingResult().getAllErrors().forEach((error) -> {
             String fieldName = ((FieldError) error).getField();
@@ -35,25 +56,104 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errors,HttpStatus.UNPROCESSABLE_ENTITY);
     }
 
+    /**
+     * Handles invalid values in a partial update (validated field by field).
+     * @return Map of field errors (422 Unprocessable Entity).
+     */
+    @ExceptionHandler(ConstraintViolationException.class)
+    public ResponseEntity<Map<String, String>> handleConstraintViolation(ConstraintViolationException ex) {
+        count(HttpStatus.UNPROCESSABLE_ENTITY, "validation");
+        Map<String, String> errors = new HashMap<>();
+        ex.getConstraintViolations().forEach(violation ->
+                errors.put(violation.getPropertyPath().toString(), violation.getMessage()));
+        return new ResponseEntity<>(errors, HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    /**
+     * Handles invalid request parameters such as a malformed VIN in the path.
+     * @return The first violated constraint's message (400 Bad Request).
+     */
+    @ExceptionHandler(HandlerMethodValidationException.class)
+    public ResponseEntity<Map<String, String>> handleParameterValidation(HandlerMethodValidationException ex) {
+        count(HttpStatus.BAD_REQUEST, "invalid_parameter");
+        Map<String, String> error = new HashMap<>();
+        error.put("error", ex.getAllErrors().isEmpty() ? "Invalid request" : ex.getAllErrors().get(0).getDefaultMessage());
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+
     /**
      * Handles malformed JSON (e.g. syntax errors).
      * @return Generic error message (400 Bad Request).
      */
     @ExceptionHandler(HttpMessageNotReadableException.class)
     public ResponseEntity<Map<String, String>> handleMalformedJson(HttpMessageNotReadableException ex) {
+        count(HttpStatus.BAD_REQUEST, "malformed_json");
         Map<String, String> error = new HashMap<>();
         error.put("error", "Malformed JSON request");
         return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
     }
 
+    /**
+     * Handles uninterpretable request parameters (e.g. invalid pagination cursor).
+     * @return Error message (400 Bad Request).
+     */
+    @ExceptionHandler(BadRequestException.class)
+    public ResponseEntity<Map<String, String>> handleBadRequest(BadRequestException ex) {
+        count(HttpStatus.BAD_REQUEST, "bad_request");
+        Map<String, String> error = new HashMap<>();
+        error.put("error", ex.getMessage());
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+
     /**
      * Handles business conflicts (e.g. duplicate VIN).
      * @return Error message (409 Conflict).
      */
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<Map<String, String>> handleConflict(IllegalArgumentException ex) {
+        count(HttpStatus.CONFLICT, "conflict");
         Map<String, String> error = new HashMap<>();
         error.put("error", ex.getMessage());
         return new ResponseEntity<>(error, HttpStatus.CONFLICT);
     }
+
+    /**
+     * Handles primary-key violations raised by the database (e.g. concurrent create of the same VIN).
+     * @return Error message (409 Conflict).
+     */
+    @ExceptionHandler(DuplicateKeyException.class)
+    public ResponseEntity<Map<String, String>> handleDuplicateKey(DuplicateKeyException ex) {
+        count(HttpStatus.CONFLICT, "duplicate_vin");
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "VIN already exists");
+        return new ResponseEntity<>(error, HttpStatus.CONFLICT);
+    }
+
+    /**
+     * Handles failed {@code If-Match} preconditions (the client's ETag is stale).
+     * @return Error message (412 Precondition Failed).
+     */
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<Map<String, String>> handlePreconditionFailed(PreconditionFailedException ex) {
+        count(HttpStatus.PRECONDITION_FAILED, "precondition_failed");
+        Map<String, String> error = new HashMap<>();
+        error.put("error", ex.getMessage());
+        return new ResponseEntity<>(error, HttpStatus.PRECONDITION_FAILED);
+    }
+
+    /**
+     * Handles lost-update races detected by the version column (another write committed first).
+     * @return Error message (412 Precondition Failed).
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, String>> handleOptimisticLockingFailure(OptimisticLockingFailureException ex) {
+        count(HttpStatus.PRECONDITION_FAILED, "concurrent_update");
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "Vehicle has been modified");
+        return new ResponseEntity<>(error, HttpStatus.PRECONDITION_FAILED);
+    }
+
+    private void count(HttpStatus status, String reason) {
+        meterRegistry.counter("vehicle.api.errors", "status", Integer.toString(status.value()), "reason", reason).increment();
+    }
 }
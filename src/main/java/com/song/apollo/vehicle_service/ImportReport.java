@@ -0,0 +1,27 @@
+package com.song.apollo.vehicle_service;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk import ({@code POST /vehicle/import} or the {@code import} command).
+ *
+ * @param imported   number of vehicles created.
+ * @param rejected   number of rows that were not imported.
+ * @param rejections the first rejected rows, up to {@code vehicle.transfer.max-reported-rejections}.
+ */
+public record ImportReport(long imported, long rejected, List<Rejection> rejections) {
+
+    /**
+     * A row that was not imported.
+     * <p>
+     * {@code status} uses the same HTTP status code the single-vehicle endpoint would have
+     * returned for that row (400 unparseable, 409 duplicate VIN, 422 invalid).
+     *
+     * @param row    1-based position of the record in the file, not counting a CSV header.
+     * @param vin    the VIN of the row, or {@code null} if it could not be read.
+     * @param status HTTP-style status code for this row.
+     * @param error  error message.
+     */
+    public record Rejection(long row, String vin, int status, String error) {
+    }
+}
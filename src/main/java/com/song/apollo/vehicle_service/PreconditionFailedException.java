@@ -0,0 +1,13 @@
+package com.song.apollo.vehicle_service;
+
+/**
+ * Thrown when an {@code If-Match} precondition does not hold for the current
+ * version of a vehicle (e.g. another client updated it first).
+ * <p>
+ * Mapped to 412 Precondition Failed by {@link GlobalExceptionHandler}.
+ */
+public class PreconditionFailedException extends RuntimeException {
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,49 @@
+package com.song.apollo.vehicle_service;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Rejects vehicle writes on a read-only replica with 405 Method Not Allowed.
+ * {@code POST /vehicle/lookup} only reads and is let through.
+ * <p>
+ * Enabled with {@code vehicle.storage.read-only=true} (the {@code replica} profile). Writes
+ * must go to the primary instance that owns the database file.
+ */
+@Component
+@ConditionalOnProperty(name = "vehicle.storage.read-only", havingValue = "true")
+public class ReadOnlyReplicaFilter extends OncePerRequestFilter {
+    private static final Set<String> READ_METHODS = Set.of(
+            HttpMethod.GET.name(), HttpMethod.HEAD.name(), HttpMethod.OPTIONS.name());
+    /** Read-only endpoints that take their input as a POST body. */
+    private static final Set<String> READ_ONLY_POST_PATHS = Set.of("/vehicle/lookup");
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return READ_METHODS.contains(request.getMethod()) || !path.startsWith("/vehicle")
+                || HttpMethod.POST.matches(request.getMethod()) && READ_ONLY_POST_PATHS.contains(path);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        response.setStatus(HttpStatus.METHOD_NOT_ALLOWED.value());
+        response.setHeader(HttpHeaders.ALLOW, String.join(", ", HttpMethod.GET.name(), HttpMethod.HEAD.name(),
+                HttpMethod.OPTIONS.name()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"Read-only replica\"}");
+    }
+}
@@ -0,0 +1,69 @@
+package com.song.apollo.vehicle_service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key into one call.
+ * <p>
+ * The first caller for a key runs the loader on its own thread; callers arriving while it runs wait for
+ * and share its result, or its exception. The key is removed as soon as the load completes, successfully
+ * or not, so nothing is cached here and a failed load is retried by the next caller.
+ * <p>
+ * A shared result can be as old as the start of the in-flight load. Callers that must not see a value
+ * from before a write call {@link #forget(Object)} after the write commits, so later arrivals start a
+ * fresh load.
+ *
+ * @param <K> key type.
+ * @param <V> result type.
+ */
+final class SingleFlight<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the result of the in-flight load of {@code key}, or runs {@code loader} if there is none.
+     *
+     * @throws RuntimeException whatever the shared loader threw.
+     */
+    V load(K key, Supplier<V> loader) {
+        CompletableFuture<V> own = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, own);
+        if (existing != null) {
+            return join(existing);
+        }
+        try {
+            V value = loader.get();
+            own.complete(value);
+            return value;
+        } catch (RuntimeException | Error ex) {
+            own.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    /**
+     * Detaches the in-flight load of {@code key}, if any. Its current waiters still get its result.
+     */
+    void forget(K key) {
+        inFlight.remove(key);
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (ex.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+}
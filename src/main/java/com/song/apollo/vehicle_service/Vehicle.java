@@ -1,6 +1,8 @@
 package com.song.apollo.vehicle_service;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
+import jakarta.validation.constraints.DecimalMax;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
@@ -9,6 +11,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.math.BigDecimal;
 
@@ -18,11 +21,31 @@ import java.math.BigDecimal;
  * This class maps to the "vehicles" table in the database and includes
  * validation constraints that are enforced during creation and updates.
  * <p>
+ * Secondary indexes support the filters of {@code GET /vehicle/search}. The composite
+ * manufacturer/fuel index ends with the VIN so that filtered, VIN-ordered pages can be
+ * read straight from the index.
+ * <p>
+ * {@link #version} is maintained by Hibernate for optimistic locking and is exposed to
+ * clients as the {@code ETag} of the vehicle; it is ignored when present in a request body.
+ * <p>
+ * {@link DynamicUpdate} makes Hibernate's UPDATEs set only the columns that changed (plus the version), so a
+ * repricing through PUT or a batch writes one column instead of the whole row.
+ * <p>
+ * The VIN is normalized by {@link VinValidator#normalize(String)} whenever it is set, through the setter
+ * (JSON, CSV) or the builder, so the same vehicle cannot be stored under differently-cased VINs.
+ * <p>
  * Uses Lombok annotations to automatically generate getters, setters,
  * constructors, and builder patterns at compile time.
  */
 @Entity
-@Table(name = "vehicles")
+@DynamicUpdate
+@Table(name = "vehicles", indexes = {
+        @Index(name = "idx_vehicles_manufacturer_fuel", columnList = "manufacturer_name, fuel_type, vin"),
+        @Index(name = "idx_vehicles_model_name", columnList = "model_name"),
+        @Index(name = "idx_vehicles_fuel_type", columnList = "fuel_type"),
+        @Index(name = "idx_vehicles_horse_power", columnList = "horse_power"),
+        @Index(name = "idx_vehicles_purchase_price", columnList = "purchase_price")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -30,6 +53,7 @@ import java.math.BigDecimal;
 public class Vehicle {
     @Id
     @NotBlank(message = "VIN is required")
+    @Vin
     private String vin;
 
     @NotBlank(message = "Manufacturer name is required")
@@ -46,12 +70,21 @@ public class Vehicle {
 
     @NotNull(message = "Purchase price is required")
     @DecimalMin(value = "0.0", inclusive = true, message = "Price cannot be negative")
+    @DecimalMax(value = "9999999999.99", message = "Price cannot exceed 9999999999.99")
     private BigDecimal purchasePrice;
 
     @NotNull(message = "Fuel type is required")
     @Enumerated(EnumType.STRING)
     private FuelType fuelType;
 
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
+    public void setVin(String vin) {
+        this.vin = VinValidator.normalize(vin);
+    }
+
     public enum FuelType {
         GASOLINE,
         DIESEL,
@@ -59,4 +92,10 @@ public class Vehicle {
         HYBRID
     }
 
+    public static class VehicleBuilder {
+        public VehicleBuilder vin(String vin) {
+            this.vin = VinValidator.normalize(vin);
+            return this;
+        }
+    }
 }
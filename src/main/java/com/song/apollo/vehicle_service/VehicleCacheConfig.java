@@ -0,0 +1,164 @@
+package com.song.apollo.vehicle_service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.support.NullValue;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Configures the in-process VIN cache used by {@link VehicleService#getVehicleByVin(String)}.
+ * <p>
+ * Backed by Caffeine (W-TinyLFU admission, size-bounded). Unknown VINs are cached as
+ * {@link NullValue} with a shorter TTL than real vehicles, so scanners probing random
+ * VINs are answered from memory without pinning stale "not found" answers for long.
+ * Hit/miss/eviction statistics are recorded and published under the {@code cache.*} metrics.
+ * <p>
+ * The caching advice wraps the transaction advice, so a transactional write method puts or evicts its VIN only
+ * after it has committed. A miss ({@code @Cacheable(sync = true)}) loads without holding any lock and only
+ * caches its row if no put or evict of that VIN happened since it started (see {@link FencedCaffeineCache}).
+ */
+@Configuration
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1)
+public class VehicleCacheConfig {
+    public static final String VEHICLES_CACHE = "vehicles";
+
+    @Bean
+    public CacheManager cacheManager(@Value("${vehicle.cache.maximum-size:100000}") long maximumSize,
+                                     @Value("${vehicle.cache.ttl:10m}") Duration ttl,
+                                     @Value("${vehicle.cache.negative-ttl:30s}") Duration negativeTtl) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager() {
+            @Override
+            protected org.springframework.cache.Cache adaptCaffeineCache(String name, Cache<Object, Object> cache) {
+                return new FencedCaffeineCache(name, cache, isAllowNullValues());
+            }
+        };
+        cacheManager.setCacheNames(List.of(VEHICLES_CACHE));
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new PositiveNegativeExpiry(ttl.toNanos(), negativeTtl.toNanos()))
+                .recordStats());
+        return cacheManager;
+    }
+
+    /**
+     * A Caffeine cache whose value loader runs outside the cache's locks.
+     * <p>
+     * Caffeine's own {@code get(key, loader)} runs the loader inside a lock on the key's hash bin. A database
+     * query there blocks every put and load of the keys sharing the bin, and deadlocks once the threads blocked
+     * on the bin hold all pool connections while the loader waits for one. Here the loader runs unlocked; its
+     * result is then inserted atomically, and only if no {@link #put} or {@link #evict} touched the key's stripe
+     * since the load started. A load that raced with a write therefore never replaces what the write left behind;
+     * the next miss loads again.
+     */
+    static final class FencedCaffeineCache extends CaffeineCache {
+        private static final int STRIPES = 1024;
+
+        private final AtomicLongArray writes = new AtomicLongArray(STRIPES);
+
+        FencedCaffeineCache(String name, Cache<Object, Object> cache, boolean allowNullValues) {
+            super(name, cache, allowNullValues);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            ValueWrapper cached = get(key);
+            if (cached != null) {
+                return (T) cached.get();
+            }
+            int stripe = stripe(key);
+            long writesBefore = writes.get(stripe);
+            T value;
+            try {
+                value = valueLoader.call();
+            } catch (Exception ex) {
+                throw new ValueRetrievalException(key, valueLoader, ex);
+            }
+            Object stored = toStoreValue(value);
+            getNativeCache().asMap().compute(key,
+                    (k, current) -> current == null && writes.get(stripe) == writesBefore ? stored : current);
+            return value;
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            writes.incrementAndGet(stripe(key));
+            super.put(key, value);
+        }
+
+        @Override
+        public ValueWrapper putIfAbsent(Object key, Object value) {
+            writes.incrementAndGet(stripe(key));
+            return super.putIfAbsent(key, value);
+        }
+
+        @Override
+        public void evict(Object key) {
+            writes.incrementAndGet(stripe(key));
+            super.evict(key);
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            writes.incrementAndGet(stripe(key));
+            return super.evictIfPresent(key);
+        }
+
+        @Override
+        public void clear() {
+            bumpAll();
+            super.clear();
+        }
+
+        @Override
+        public boolean invalidate() {
+            bumpAll();
+            return super.invalidate();
+        }
+
+        private void bumpAll() {
+            for (int i = 0; i < STRIPES; i++) {
+                writes.incrementAndGet(i);
+            }
+        }
+
+        private static int stripe(Object key) {
+            int hash = key.hashCode();
+            return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+        }
+    }
+
+    /**
+     * Expires cached "not found" markers sooner than cached vehicles.
+     * Every write resets the entry's lifetime; reads do not extend it.
+     */
+    private record PositiveNegativeExpiry(long ttlNanos, long negativeTtlNanos) implements Expiry<Object, Object> {
+        @Override
+        public long expireAfterCreate(Object key, Object value, long currentTime) {
+            return value == NullValue.INSTANCE ? negativeTtlNanos : ttlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
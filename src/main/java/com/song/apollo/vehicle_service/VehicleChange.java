@@ -0,0 +1,19 @@
+package com.song.apollo.vehicle_service;
+
+import java.time.Instant;
+
+/**
+ * One entry of the {@link VehicleChangeFeed}, as delivered by {@code GET /vehicle/changes}.
+ *
+ * @param sequence  position in the feed; strictly increasing, starting at 0 when the service starts.
+ * @param operation what happened to the vehicle.
+ * @param vin       the affected VIN.
+ * @param version   the vehicle version after the change, or {@code null} for deletes.
+ * @param timestamp when the change was appended to the feed.
+ */
+public record VehicleChange(long sequence,
+                            VehicleChangeEvent.Operation operation,
+                            String vin,
+                            Long version,
+                            Instant timestamp) {
+}
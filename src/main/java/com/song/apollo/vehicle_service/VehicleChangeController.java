@@ -0,0 +1,244 @@
+package com.song.apollo.vehicle_service;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * REST Controller streaming the {@link VehicleChangeFeed} as Server-Sent Events.
+ * <p>
+ * Each subscriber has its own cursor into the feed and at most one drain task in flight.
+ * Writers only flip a flag and, if the subscriber was idle, submit that task, so a slow
+ * consumer can never stall a write. A consumer that falls further behind than the feed
+ * retains receives a {@code reset} event and continues from the oldest retained change;
+ * it should re-read {@code GET /vehicle} to resynchronise. So does a consumer that asks for a position
+ * beyond the head, e.g. one reconnecting with a {@code Last-Event-ID} from before a restart (sequences
+ * start at 0 again): it continues from the head instead of waiting for the feed to catch up.
+ * <p>
+ * Base URL: /vehicle/changes
+ */
+@RestController
+@RequestMapping("/vehicle/changes")
+public class VehicleChangeController implements DisposableBean {
+    private static final int DRAIN_BATCH_SIZE = 256;
+
+    private final VehicleChangeFeed feed;
+    private final long timeoutMillis;
+    private final int maxSubscribers;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final ExecutorService dispatcher = Executors.newCachedThreadPool(daemonThreads("vehicle-changes-"));
+    private final ScheduledExecutorService heartbeats =
+            Executors.newSingleThreadScheduledExecutor(daemonThreads("vehicle-changes-heartbeat-"));
+
+    /**
+     * @param feed           the change feed to stream.
+     * @param timeout        maximum lifetime of one SSE connection; clients reconnect with {@code Last-Event-ID}.
+     * @param heartbeat      interval of keep-alive comments, used to detect dead connections while idle.
+     * @param maxSubscribers concurrent streams allowed; further subscribers get 503.
+     */
+    public VehicleChangeController(VehicleChangeFeed feed,
+                                   @Value("${vehicle.changes.timeout:30m}") Duration timeout,
+                                   @Value("${vehicle.changes.heartbeat:15s}") Duration heartbeat,
+                                   @Value("${vehicle.changes.max-subscribers:256}") int maxSubscribers) {
+        this.feed = feed;
+        this.timeoutMillis = timeout.toMillis();
+        this.maxSubscribers = maxSubscribers;
+        heartbeats.scheduleWithFixedDelay(this::sendHeartbeats,
+                heartbeat.toMillis(), heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * GET /vehicle/changes?from={sequence}
+     * Streams vehicle mutations as they are committed.
+     * <p>
+     * Each {@code change} event carries the sequence as its SSE id. Without a position the
+     * stream starts with the next change; with {@code Last-Event-ID} (sent automatically by
+     * reconnecting EventSource clients) it resumes right after that event, and with
+     * {@code from} it starts at that sequence. A position beyond the next change starts with a
+     * {@code reset} event and continues with the next change.
+     *
+     * @return SSE stream (200 OK), 400 Bad Request for an invalid position, or 503 if too many subscribers.
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestParam(required = false) Long from,
+                                    @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) {
+        long start = startSequence(from, lastEventId);
+        if (subscriptions.size() >= maxSubscribers) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many change subscribers");
+        }
+        long head = feed.headSequence();
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscription subscription = start > head
+                ? new Subscription(emitter, head, start) : new Subscription(emitter, start, null);
+        subscriptions.add(subscription);
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(ex -> subscription.close());
+        feed.addListener(subscription.listener);
+        subscription.signal();
+        return emitter;
+    }
+
+    /**
+     * @return number of open change streams.
+     */
+    int subscriberCount() {
+        return subscriptions.size();
+    }
+
+    @Override
+    public void destroy() {
+        heartbeats.shutdownNow();
+        dispatcher.shutdownNow();
+        subscriptions.forEach(subscription -> subscription.emitter.complete());
+    }
+
+    private long startSequence(Long from, String lastEventId) {
+        if (from != null) {
+            if (from < 0) {
+                throw new BadRequestException("Invalid from sequence");
+            }
+            return from;
+        }
+        if (lastEventId != null && !lastEventId.isBlank()) {
+            try {
+                return Long.parseLong(lastEventId.strip()) + 1;
+            } catch (NumberFormatException ex) {
+                throw new BadRequestException("Invalid Last-Event-ID");
+            }
+        }
+        return feed.headSequence();
+    }
+
+    private void sendHeartbeats() {
+        for (Subscription subscription : subscriptions) {
+            subscription.heartbeat();
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * One SSE client. {@link #signal()} is called on writer threads and never blocks;
+     * {@link #drain()} runs on the dispatcher and is the only code that advances {@link #cursor}.
+     */
+    private final class Subscription {
+        private final SseEmitter emitter;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final Runnable listener = this::signal;
+        private volatile long cursor;
+        private volatile Long resetFrom;
+
+        /**
+         * @param resetFrom a position the client asked for that the feed has not reached, announced with a
+         *                  {@code reset} event before the first change; {@code null} for none.
+         */
+        Subscription(SseEmitter emitter, long cursor, Long resetFrom) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+            this.resetFrom = resetFrom;
+        }
+
+        void signal() {
+            if (!closed.get() && scheduled.compareAndSet(false, true)) {
+                try {
+                    dispatcher.execute(this::drain);
+                } catch (RuntimeException ex) {
+                    close();
+                }
+            }
+        }
+
+        private void drain() {
+            List<VehicleChange> batch = new ArrayList<>(DRAIN_BATCH_SIZE);
+            try {
+                while (!closed.get()) {
+                    if (resetFrom != null) {
+                        sendReset(resetFrom, cursor);
+                        resetFrom = null;
+                    }
+                    if (feed.isLapped(cursor)) {
+                        long resumeAt = feed.oldestSequence();
+                        sendReset(cursor, resumeAt);
+                        cursor = resumeAt;
+                    }
+                    batch.clear();
+                    long next = feed.read(cursor, DRAIN_BATCH_SIZE, batch);
+                    for (VehicleChange change : batch) {
+                        emitter.send(SseEmitter.event()
+                                .id(Long.toString(change.sequence()))
+                                .name("change")
+                                .data(change, MediaType.APPLICATION_JSON));
+                    }
+                    cursor = next;
+                    if (batch.size() < DRAIN_BATCH_SIZE && !feed.isLapped(cursor)) {
+                        break;
+                    }
+                }
+            } catch (IOException | IllegalStateException ex) {
+                close();
+                return;
+            } finally {
+                scheduled.set(false);
+            }
+            // a change published between the last read and clearing the flag would otherwise go unsignalled
+            if (feed.isPublished(cursor) || feed.isLapped(cursor)) {
+                signal();
+            }
+        }
+
+        private void sendReset(long missedFrom, long resumeAt) throws IOException {
+            emitter.send(SseEmitter.event().name("reset")
+                    .data(Map.of("missedFrom", missedFrom, "resumeAt", resumeAt), MediaType.APPLICATION_JSON));
+        }
+
+        void heartbeat() {
+            if (closed.get()) {
+                return;
+            }
+            try {
+                emitter.send(SseEmitter.event().comment("keep-alive"));
+            } catch (IOException | IllegalStateException ex) {
+                close();
+            }
+        }
+
+        void close() {
+            if (closed.compareAndSet(false, true)) {
+                feed.removeListener(listener);
+                subscriptions.remove(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.song.apollo.vehicle_service;
+
+/**
+ * Application event published by {@link VehicleService} after a vehicle mutation has been committed.
+ * <p>
+ * Listeners run synchronously on the writing thread, so they must be cheap and must not throw.
+ *
+ * @param operation what happened to the vehicle.
+ * @param vin       the affected VIN.
+ * @param vehicle   the vehicle state after the change, or {@code null} for deletes.
+ */
+public record VehicleChangeEvent(Operation operation, String vin, Vehicle vehicle) {
+
+    public enum Operation {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    static VehicleChangeEvent created(Vehicle vehicle) {
+        return new VehicleChangeEvent(Operation.CREATED, vehicle.getVin(), vehicle);
+    }
+
+    static VehicleChangeEvent updated(Vehicle vehicle) {
+        return new VehicleChangeEvent(Operation.UPDATED, vehicle.getVin(), vehicle);
+    }
+
+    static VehicleChangeEvent deleted(String vin) {
+        return new VehicleChangeEvent(Operation.DELETED, vin, null);
+    }
+}
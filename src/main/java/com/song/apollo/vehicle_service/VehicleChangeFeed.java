@@ -0,0 +1,135 @@
+package com.song.apollo.vehicle_service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free log of the most recent vehicle mutations.
+ * <p>
+ * Writers claim a sequence number with a single atomic increment and publish the entry into
+ * slot {@code sequence % capacity}; they never wait for readers. Readers walk the ring from
+ * their own cursor and stop at the first slot that does not hold the expected sequence, which
+ * is either a claimed-but-unpublished entry (they will be signalled once it is published) or an
+ * entry that has already been overwritten. A reader whose cursor falls more than {@code capacity}
+ * entries behind the head has been lapped and must resynchronise; see {@link #isLapped(long)}.
+ * <p>
+ * Entries are appended from {@link VehicleChangeEvent}s, so the feed sees exactly the writes
+ * committed by {@link VehicleService}.
+ */
+@Component
+public class VehicleChangeFeed {
+    private final AtomicReferenceArray<VehicleChange> slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final Clock clock;
+
+    /**
+     * @param capacity number of changes retained; rounded up to a power of two.
+     */
+    @Autowired
+    public VehicleChangeFeed(@Value("${vehicle.changes.capacity:65536}") int capacity) {
+        this(capacity, Clock.systemUTC());
+    }
+
+    VehicleChangeFeed(int capacity, Clock clock) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("vehicle.changes.capacity must be between 1 and 2^30");
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.clock = clock;
+    }
+
+    @EventListener
+    public void onVehicleChange(VehicleChangeEvent event) {
+        Long version = event.vehicle() == null ? null : event.vehicle().getVersion();
+        append(event.operation(), event.vin(), version);
+    }
+
+    /**
+     * Appends a change and signals every listener.
+     *
+     * @return the sequence assigned to the change.
+     */
+    public long append(VehicleChangeEvent.Operation operation, String vin, Long version) {
+        long sequence = head.getAndIncrement();
+        slots.set((int) (sequence & mask), new VehicleChange(sequence, operation, vin, version, clock.instant()));
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+        return sequence;
+    }
+
+    /**
+     * Copies published changes starting at {@code from} into {@code sink}.
+     *
+     * @param from first sequence to read.
+     * @param max  maximum number of changes to copy.
+     * @param sink receives the changes, in sequence order.
+     * @return the sequence to continue reading from next time.
+     */
+    public long read(long from, int max, List<VehicleChange> sink) {
+        long sequence = from;
+        for (int read = 0; read < max; read++, sequence++) {
+            if (!isPublished(sequence)) {
+                break;
+            }
+            sink.add(slots.get((int) (sequence & mask)));
+        }
+        return sequence;
+    }
+
+    /**
+     * @return {@code true} if the change with this sequence is published and still retained.
+     */
+    public boolean isPublished(long sequence) {
+        VehicleChange change = slots.get((int) (sequence & mask));
+        return change != null && change.sequence() == sequence;
+    }
+
+    /**
+     * @return the sequence the next appended change will get.
+     */
+    public long headSequence() {
+        return head.get();
+    }
+
+    /**
+     * @return the oldest sequence still retained in the ring.
+     */
+    public long oldestSequence() {
+        return Math.max(0, head.get() - capacity());
+    }
+
+    /**
+     * @return {@code true} if changes from {@code sequence} onwards are no longer all retained.
+     */
+    public boolean isLapped(long sequence) {
+        return sequence < oldestSequence();
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Registers a callback run on the writing thread after every append. Callbacks must not block.
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+}
@@ -1,11 +1,29 @@
 package com.song.apollo.vehicle_service;
 
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.MappingIterator;
+import tools.jackson.databind.json.JsonMapper;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * REST Controller for managing Vehicle resources.
@@ -14,31 +32,104 @@ import java.util.List;
  * on vehicles. It handles incoming HTTP requests, invokes the business logic
  * via {@link VehicleService}, and returns appropriate HTTP responses.
  * <p>
+ * Single vehicles carry their version as a strong {@code ETag}; pages carry an {@code ETag}
+ * derived from their contents. Matching {@code If-None-Match} requests get 304 Not Modified without
+ * a body, and {@code If-Match} on PUT/PATCH/DELETE turns a lost update into 412 Precondition Failed.
+ * <p>
  * Base URL: /vehicle
  */
 @RestController
 @RequestMapping("/vehicle")
 public class VehicleController {
+    /** Response header carrying the opaque cursor of the next page. */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    /** Media type of JSON Merge Patch (RFC 7396) documents. */
+    public static final String MERGE_PATCH_JSON = "application/merge-patch+json";
+    private static final String PREFER_HEADER = "Prefer";
+    private static final String PREFERENCE_APPLIED_HEADER = "Preference-Applied";
+    private static final String RESPOND_ASYNC = "respond-async";
+
     private final VehicleService vehicleService;
+    private final JsonMapper jsonMapper;
+    private final Validator validator;
+    private VehicleShardRouter shardRouter;
 
     /**
      * Constructor Injection for Service Layer.
      *
      * @param vehicleService the business logical service instance.
+     * @param jsonMapper     the application's JSON mapper, used for streamed requests.
+     * @param validator      Bean Validation validator, used for per-item validation of batch requests.
      */
-    public VehicleController(VehicleService vehicleService) {
+    public VehicleController(VehicleService vehicleService, JsonMapper jsonMapper, Validator validator) {
         this.vehicleService = vehicleService;
+        this.jsonMapper = jsonMapper;
+        this.validator = validator;
+    }
+
+    @Autowired(required = false)
+    void setShardRouter(VehicleShardRouter shardRouter) {
+        this.shardRouter = shardRouter;
     }
 
     /**
-     * GET /vehicle
-     * Retrieves all vehicles.
+     * GET /vehicle?limit={n}&amp;after={cursor}
+     * Retrieves one page of vehicles ordered by VIN.
+     * <p>
+     * When more vehicles exist, the cursor for the next page is returned in the
+     * {@value #NEXT_CURSOR_HEADER} header.
      *
-     * @return List of vehicles (200 OK).
+     * @param limit page size (default 100, max {@value VehicleService#MAX_PAGE_SIZE}).
+     * @param after cursor returned by the previous page.
+     * @return List of vehicles (200 OK), 304 Not Modified if the page ETag matches {@code If-None-Match},
+     * or 400 Bad Request for an invalid cursor.
      */
     @GetMapping
-    public List<Vehicle> getAllVehicles() {
-        return vehicleService.getAllVehicles();
+    public ResponseEntity<List<Vehicle>> getVehicles(@RequestParam(defaultValue = "100") int limit,
+                                                     @RequestParam(required = false) String after) {
+        return toResponse(vehicleService.getVehicles(VehiclePage.decodeCursor(after), limit));
+    }
+
+    /**
+     * GET /vehicle/search?manufacturerName=..&amp;fuelType=..&amp;minHorsePower=..&amp;maxPrice=..&amp;limit=..&amp;after=..
+     * Retrieves one page of vehicles matching all supplied filters, ordered by VIN.
+     * <p>
+     * Pagination works like {@code GET /vehicle}: follow the {@value #NEXT_CURSOR_HEADER} header.
+     *
+     * @param criteria filters bound from query parameters.
+     * @return List of matching vehicles (200 OK), 422 for unparseable filters.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<Vehicle>> searchVehicles(VehicleSearchCriteria criteria,
+                                                        @RequestParam(defaultValue = "100") int limit,
+                                                        @RequestParam(required = false) String after) {
+        return toResponse(vehicleService.searchVehicles(criteria, VehiclePage.decodeCursor(after), limit));
+    }
+
+    /**
+     * GET /vehicle (Accept: application/x-ndjson)
+     * Streams every vehicle as newline-delimited JSON.
+     * <p>
+     * Rows are written to the socket as they are read from the database cursor,
+     * so memory use is independent of the table size.
+     *
+     * @return Stream of vehicles, one JSON document per line (200 OK).
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamVehicles() {
+        StreamingResponseBody body = out -> {
+            try (VehicleJsonWriter writer = new VehicleJsonWriter(out)) {
+                vehicleService.forEachVehicle(v -> {
+                    try {
+                        writer.writeVehicle(v);
+                        writer.writeByte('\n');
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
     /**
@@ -46,38 +137,107 @@ public class VehicleController {
      * Creates a new vehicle.
      *
      * @param vehicle Request body (validated).
-     * @return Created vehicle (201 Created).
+     * @return Created vehicle with its ETag (201 Created).
      * @throws IllegalArgumentException if VIN exists.
      */
     @PostMapping
     public ResponseEntity<Vehicle> createVehicle(@Valid @RequestBody Vehicle vehicle) {
         Vehicle createdVehicle = vehicleService.createVehicle(vehicle);
-        return new ResponseEntity<>(createdVehicle, HttpStatus.CREATED);
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(etag(createdVehicle)).body(createdVehicle);
     }
 
     /**
      * GET /vehicle/{vin}
      * Retrieves a vehicle by VIN.
      *
-     * @return Vehicle (200 OK) or 404 Not Found.
+     * @return Vehicle with its ETag (200 OK), 304 Not Modified if it matches {@code If-None-Match}, 400 Bad Request
+     * for a malformed VIN, or 404 Not Found.
      */
     @GetMapping("/{vin}")
-    public ResponseEntity<Vehicle> getVehicleById(@PathVariable String vin) {
-        return vehicleService.getVehicleByVin(vin)
-                .map(ResponseEntity::ok)
+    public ResponseEntity<Vehicle> getVehicleById(@PathVariable @Vin String vin) {
+        return vehicleService.getVehicleByVin(VinValidator.normalize(vin))
+                .map(v -> ResponseEntity.ok().eTag(etag(v)).body(v))
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * POST /vehicle/lookup
+     * Retrieves many vehicles by VIN in one request, e.g. {@code ["VIN1","VIN2"]}.
+     * <p>
+     * Resolved with one database query per {@value VehicleService#BATCH_CHUNK_SIZE} VINs instead of one per VIN.
+     *
+     * @param vins up to {@value VehicleService#MAX_PAGE_SIZE} VINs.
+     * @return One result per VIN, in request order; missing VINs have status 404 (200 OK).
+     * @throws BadRequestException if the list is too long or contains a malformed VIN.
+     */
+    @PostMapping(path = "/lookup", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<VehicleLookupResult> lookupVehicles(@RequestBody List<String> vins) {
+        if (vins.size() > VehicleService.MAX_PAGE_SIZE) {
+            throw new BadRequestException("At most " + VehicleService.MAX_PAGE_SIZE + " VINs per lookup");
+        }
+        List<String> normalized = new ArrayList<>(vins.size());
+        for (String vin : vins) {
+            String canonical = VinValidator.normalize(vin);
+            if (!VinValidator.isValid(canonical, true)) {
+                throw new BadRequestException("Invalid VIN: " + vin);
+            }
+            normalized.add(canonical);
+        }
+        return vehicleService.getVehiclesByVin(normalized);
+    }
+
     /**
      * PUT /vehicle/{vin}
      * Updates an existing vehicle.
+     * <p>
+     * With {@code Prefer: respond-async} and write-behind enabled, an unconditional update is only logged
+     * and written to the database shortly after; the response is then 202 Accepted without an ETag, since
+     * the new version is not known yet.
      *
-     * @return Updated vehicle (200 OK) or 404 Not Found.
+     * @param ifMatch optional ETag the client last saw; the update only applies to that version.
+     * @param prefer  optional preferences; {@code respond-async} asks for a write-behind update.
+     * @return Updated vehicle with its new ETag (200 OK), the accepted vehicle (202 Accepted), 400 Bad Request
+     * for a malformed VIN, 404 Not Found, or 412 Precondition Failed.
      */
     @PutMapping("/{vin}")
-    public ResponseEntity<Vehicle> updateVehicle(@PathVariable String vin, @Valid @RequestBody Vehicle vehicle) {
-        return vehicleService.updateVehicle(vin, vehicle)
-                .map(ResponseEntity::ok)
+    public ResponseEntity<Vehicle> updateVehicle(@PathVariable @Vin String vin, @Valid @RequestBody Vehicle vehicle,
+                                                 @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                 @RequestHeader(name = PREFER_HEADER, required = false) String prefer) {
+        vin = VinValidator.normalize(vin);
+        if (ifMatch == null && prefersAsync(prefer) && vehicleService.isWriteBehindEnabled()) {
+            return vehicleService.getVehicleByVin(vin)
+                    .map(current -> ResponseEntity.accepted()
+                            .header(PREFERENCE_APPLIED_HEADER, RESPOND_ASYNC)
+                            .body(vehicleService.queueUpdate(current, vehicle)))
+                    .orElse(ResponseEntity.notFound().build());
+        }
+        return vehicleService.updateVehicle(vin, vehicle, expectedVersion(ifMatch))
+                .map(v -> ResponseEntity.ok().eTag(etag(v)).body(v))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * PATCH /vehicle/{vin}
+     * Changes only the fields present in a JSON Merge Patch, e.g. {@code {"purchasePrice": 27500}}.
+     * <p>
+     * Only the supplied fields are validated, and only their columns are written, in a single UPDATE
+     * that does not read the vehicle first.
+     *
+     * @param patch   merge-patch document ({@value #MERGE_PATCH_JSON}, or plain JSON).
+     * @param ifMatch optional ETag the client last saw; the patch only applies to that version.
+     * @return Patched vehicle with its new ETag (200 OK), 400 Bad Request for a malformed VIN or an unknown
+     * property, 404 Not Found, 412 Precondition Failed, or 422 Unprocessable Entity for invalid values.
+     */
+    @PatchMapping(path = "/{vin}", consumes = {MERGE_PATCH_JSON, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Vehicle> patchVehicle(@PathVariable @Vin String vin, @RequestBody JsonNode patch,
+                                                @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        VehiclePatch vehiclePatch = VehiclePatch.read(patch, jsonMapper);
+        Set<ConstraintViolation<Vehicle>> violations = vehiclePatch.validate(validator);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+        return vehicleService.patchVehicle(VinValidator.normalize(vin), vehiclePatch, expectedVersion(ifMatch))
+                .map(v -> ResponseEntity.ok().eTag(etag(v)).body(v))
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -85,13 +245,225 @@ public class VehicleController {
      * DELETE /vehicle/{vin}
      * Deletes a vehicle by VIN.
      *
-     * @return 204 No Content (Strict requirement).
+     * @param ifMatch optional ETag the client last saw; the delete only applies to that version.
+     * @return 204 No Content (Strict requirement), 400 Bad Request for a malformed VIN, or 412 Precondition Failed.
      */
     @DeleteMapping("/{vin}")
-    public ResponseEntity<Void> deleteVehicle(@PathVariable String vin) {
-        vehicleService.deleteVehicle(vin);
+    public ResponseEntity<Void> deleteVehicle(@PathVariable @Vin String vin,
+                                              @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        vehicleService.deleteVehicle(VinValidator.normalize(vin), expectedVersion(ifMatch));
         return ResponseEntity.noContent().build();
     }
 
+    /**
+     * POST /vehicle/batch
+     * Creates many vehicles in one request. Accepts a JSON array or NDJSON.
+     * <p>
+     * Invalid items, including {@code null} elements, are reported individually (422) and do not stop the others.
+     * In the sharded mode, so are the VINs another member owns (421), unless the request comes from a member.
+     *
+     * @param vehicles up to {@value VehicleService#MAX_BATCH_SIZE} vehicles.
+     * @param from     the member that sent the request ({@value VehicleShardRouter#HOP_HEADER}), if any.
+     * @return One result per vehicle, in request order (200 OK).
+     * @throws BadRequestException if the batch is too large.
+     */
+    @PostMapping(path = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<BatchItemResult> createVehicles(@RequestBody List<Vehicle> vehicles,
+                                                @RequestHeader(name = VehicleShardRouter.HOP_HEADER, required = false) String from) {
+        checkBatchSize(vehicles);
+        return validateThen(vehicles, from == null, vehicleService::createVehicles);
+    }
+
+    @PostMapping(path = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public List<BatchItemResult> createVehiclesNdjson(InputStream body,
+                                                      @RequestHeader(name = VehicleShardRouter.HOP_HEADER, required = false) String from) {
+        return createVehicles(readNdjson(body, Vehicle.class), from);
+    }
+
+    /**
+     * PUT /vehicle/batch
+     * Updates many vehicles in one request. Accepts a JSON array or NDJSON.
+     * <p>
+     * In the sharded mode, VINs another member owns are rejected individually (421).
+     *
+     * @param vehicles up to {@value VehicleService#MAX_BATCH_SIZE} vehicles.
+     * @param from     the member that sent the request ({@value VehicleShardRouter#HOP_HEADER}), if any.
+     * @return One result per vehicle, in request order (200 OK).
+     * @throws BadRequestException if the batch is too large.
+     */
+    @PutMapping(path = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<BatchItemResult> updateVehicles(@RequestBody List<Vehicle> vehicles,
+                                                @RequestHeader(name = VehicleShardRouter.HOP_HEADER, required = false) String from) {
+        checkBatchSize(vehicles);
+        return validateThen(vehicles, from == null, vehicleService::updateVehicles);
+    }
+
+    @PutMapping(path = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public List<BatchItemResult> updateVehiclesNdjson(InputStream body,
+                                                      @RequestHeader(name = VehicleShardRouter.HOP_HEADER, required = false) String from) {
+        return updateVehicles(readNdjson(body, Vehicle.class), from);
+    }
+
+    /**
+     * DELETE /vehicle/batch
+     * Deletes many vehicles in one request. Accepts a JSON array of VINs or NDJSON of VIN strings.
+     * <p>
+     * VINs are normalized like the one of {@code DELETE /vehicle/{vin}}; missing and malformed VINs are reported
+     * individually (422) and do not stop the others. In the sharded mode, so are the VINs another member owns
+     * (421), unless the request comes from a member.
+     *
+     * @param vins up to {@value VehicleService#MAX_BATCH_SIZE} VINs.
+     * @param from the member that sent the request ({@value VehicleShardRouter#HOP_HEADER}), if any.
+     * @return One result per VIN, in request order (200 OK).
+     * @throws BadRequestException if the batch is too large.
+     */
+    @DeleteMapping(path = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<BatchItemResult> deleteVehicles(@RequestBody List<String> vins,
+                                                @RequestHeader(name = VehicleShardRouter.HOP_HEADER, required = false) String from) {
+        checkBatchSize(vins);
+        BatchItemResult[] results = new BatchItemResult[vins.size()];
+        List<String> valid = new ArrayList<>(vins.size());
+        for (int i = 0; i < vins.size(); i++) {
+            String vin = VinValidator.normalize(vins.get(i));
+            if (vin == null) {
+                results[i] = BatchItemResult.failed(null, HttpStatus.UNPROCESSABLE_ENTITY.value(), "VIN is required");
+            } else if (!VinValidator.isValid(vin, true)) {
+                results[i] = BatchItemResult.failed(vin, HttpStatus.UNPROCESSABLE_ENTITY.value(), Vin.MESSAGE);
+            } else if (from == null && shardRouter != null && !shardRouter.owns(vin)) {
+                results[i] = BatchItemResult.failed(vin, HttpStatus.MISDIRECTED_REQUEST.value(),
+                        "VIN belongs to shard " + shardRouter.owner(vin));
+            } else {
+                valid.add(vin);
+            }
+        }
+        return merge(results, vehicleService.deleteVehicles(valid));
+    }
+
+    @DeleteMapping(path = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public List<BatchItemResult> deleteVehiclesNdjson(InputStream body,
+                                                      @RequestHeader(name = VehicleShardRouter.HOP_HEADER, required = false) String from) {
+        return deleteVehicles(readNdjson(body, String.class), from);
+    }
 
+    /**
+     * Validates each vehicle, hands the valid ones to the service and merges
+     * both sets of results back into request order.
+     *
+     * @param ownedOnly whether to reject the VINs another shard owns; false for requests from other members,
+     *                  which may already know a newer ring than this instance.
+     */
+    private List<BatchItemResult> validateThen(List<Vehicle> vehicles, boolean ownedOnly,
+                                               Function<List<Vehicle>, List<BatchItemResult>> operation) {
+        BatchItemResult[] results = new BatchItemResult[vehicles.size()];
+        List<Vehicle> valid = new ArrayList<>(vehicles.size());
+        for (int i = 0; i < vehicles.size(); i++) {
+            Vehicle v = vehicles.get(i);
+            if (v == null) {
+                results[i] = BatchItemResult.failed(null, HttpStatus.UNPROCESSABLE_ENTITY.value(), "Vehicle is required");
+                continue;
+            }
+            Set<ConstraintViolation<Vehicle>> violations = validator.validate(v);
+            if (violations.isEmpty() && ownedOnly && shardRouter != null && !shardRouter.owns(v.getVin())) {
+                results[i] = BatchItemResult.failed(v.getVin(), HttpStatus.MISDIRECTED_REQUEST.value(),
+                        "VIN belongs to shard " + shardRouter.owner(v.getVin()));
+            } else if (violations.isEmpty()) {
+                valid.add(v);
+            } else {
+                String error = violations.stream()
+                        .map(cv -> cv.getPropertyPath() + ": " + cv.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining("; "));
+                results[i] = BatchItemResult.failed(v.getVin(), HttpStatus.UNPROCESSABLE_ENTITY.value(), error);
+            }
+        }
+        return merge(results, operation.apply(valid));
+    }
+
+    /**
+     * Fills the items not rejected up front with the service's results, which are in the same order.
+     */
+    private static List<BatchItemResult> merge(BatchItemResult[] results, List<BatchItemResult> processed) {
+        for (int i = 0, next = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                results[i] = processed.get(next++);
+            }
+        }
+        return List.of(results);
+    }
+
+    /**
+     * Strong ETag of a single vehicle, e.g. {@code "3"}; {@code null} (no header) for unversioned data.
+     */
+    private static String etag(Vehicle v) {
+        return v.getVersion() == null ? null : "\"" + v.getVersion() + "\"";
+    }
+
+    /**
+     * Parses an {@code If-Match} header into the expected version.
+     * <p>
+     * Only a single strong ETag issued by {@link #etag(Vehicle)} can match; weak or foreign tags
+     * never match a version and therefore fail the precondition.
+     *
+     * @return the expected version, or {@code null} if the header is absent or {@code *}.
+     * @throws PreconditionFailedException if the header cannot match any version.
+     */
+    private static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.strip().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.strip();
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.valueOf(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException ignored) {
+                // falls through to the precondition failure below
+            }
+        }
+        throw new PreconditionFailedException("Vehicle has been modified");
+    }
+
+    /**
+     * @return whether a {@code Prefer} header asks for {@code respond-async}, among any other preferences.
+     */
+    private static boolean prefersAsync(String prefer) {
+        if (prefer == null) {
+            return false;
+        }
+        for (String preference : prefer.split(",")) {
+            if (preference.strip().equalsIgnoreCase(RESPOND_ASYNC)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ResponseEntity<List<Vehicle>> toResponse(VehiclePage page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(page.etag());
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.vehicles());
+    }
+
+    private static void checkBatchSize(List<?> items) {
+        if (items.size() > VehicleService.MAX_BATCH_SIZE) {
+            throw new BadRequestException("At most " + VehicleService.MAX_BATCH_SIZE + " items per batch");
+        }
+    }
+
+    /**
+     * Reads an NDJSON batch, stopping as soon as it holds more than {@value VehicleService#MAX_BATCH_SIZE} items.
+     */
+    private <T> List<T> readNdjson(InputStream body, Class<T> type) {
+        try (MappingIterator<T> values = jsonMapper.readerFor(type).readValues(body)) {
+            List<T> items = new ArrayList<>();
+            while (values.hasNextValue()) {
+                items.add(values.nextValue());
+                checkBatchSize(items);
+            }
+            return items;
+        } catch (JacksonException ex) {
+            throw new BadRequestException("Malformed JSON request");
+        }
+    }
 }
@@ -0,0 +1,139 @@
+package com.song.apollo.vehicle_service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpMethod;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Read/write splitting between the primary database and read replicas.
+ * <p>
+ * Enabled by listing replica JDBC URLs in {@code vehicle.datasource.replica-urls}; they share the driver,
+ * credentials and {@code spring.datasource.hikari.*} pool settings of the primary. The application's
+ * {@link DataSource} is then a {@link LazyConnectionDataSourceProxy} over the primary whose read-only
+ * target is a {@link ReplicaRoutingDataSource}: transactions marked {@code @Transactional(readOnly = true)}
+ * (including Spring Data's read methods) run on a replica, everything else on the primary. Flyway and
+ * Hibernate schema validation use the primary.
+ * <p>
+ * Replicas lag behind the primary. After a client's successful write, its reads go to the primary for
+ * {@code vehicle.datasource.read-your-writes} (default 5s), so it always sees its own changes. Clients are
+ * identified like in {@link VehicleRateLimitFilter}. Reads that continue on another thread, such as a
+ * streamed NDJSON response, always use a replica.
+ */
+@Configuration
+@ConditionalOnProperty(name = "vehicle.datasource.replica-urls")
+public class VehicleDataSourceConfig {
+    private static final String HIKARI_PREFIX = "spring.datasource.hikari";
+
+    @Bean
+    @ConfigurationProperties(HIKARI_PREFIX)
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+        return primary;
+    }
+
+    @Bean
+    ReplicaRoutingDataSource replicaDataSource(HikariDataSource primaryDataSource, DataSourceProperties properties,
+                                               Environment environment,
+                                               @Value("${vehicle.datasource.replica-urls}") List<String> replicaUrls) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            HikariDataSource replica = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(url.trim())
+                    .build();
+            Binder.get(environment).bind(HIKARI_PREFIX, Bindable.ofInstance(replica));
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaDataSource);
+        return dataSource;
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(
+            @Value("${vehicle.datasource.read-your-writes:5s}") Duration window,
+            @Value("${vehicle.rate-limit.client-header:}") String clientHeader) {
+        return new ReadYourWritesFilter(window, clientHeader);
+    }
+
+    /**
+     * Remembers which clients wrote recently and pins their reads to the primary until the window passes.
+     */
+    static final class ReadYourWritesFilter extends OncePerRequestFilter {
+        private static final Set<String> READ_METHODS = Set.of(
+                HttpMethod.GET.name(), HttpMethod.HEAD.name(), HttpMethod.OPTIONS.name());
+        private static final String LOOKUP_PATH = "/vehicle/lookup";
+
+        private final Cache<String, Boolean> recentWriters;
+        private final String clientHeader;
+
+        ReadYourWritesFilter(Duration window, String clientHeader) {
+            this.recentWriters = Caffeine.newBuilder()
+                    .maximumSize(100_000)
+                    .expireAfterWrite(window)
+                    .build();
+            this.clientHeader = clientHeader;
+        }
+
+        @Override
+        protected boolean shouldNotFilter(HttpServletRequest request) {
+            return !path(request).startsWith("/vehicle");
+        }
+
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                throws ServletException, IOException {
+            String client = clientHeader.isEmpty() ? null : request.getHeader(clientHeader);
+            if (client == null || client.isBlank()) {
+                client = request.getRemoteAddr();
+            }
+            ReplicaRoutingDataSource.usePrimary(recentWriters.getIfPresent(client) != null);
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                ReplicaRoutingDataSource.usePrimary(false);
+            }
+            boolean write = !READ_METHODS.contains(request.getMethod()) && !path(request).equals(LOOKUP_PATH);
+            if (write && response.getStatus() < 400) {
+                recentWriters.put(client, Boolean.TRUE);
+            }
+        }
+
+        private static String path(HttpServletRequest request) {
+            return request.getRequestURI().substring(request.getContextPath().length());
+        }
+    }
+}
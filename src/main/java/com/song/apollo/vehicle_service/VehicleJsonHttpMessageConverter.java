@@ -0,0 +1,73 @@
+package com.song.apollo.vehicle_service;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractSmartHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Writes {@link Vehicle} and collections of vehicles as {@code application/json} with
+ * {@link VehicleJsonWriter} instead of reflective Jackson serialization.
+ * <p>
+ * Registered ahead of the Jackson converter by {@link VehicleWebConfig}. Only vehicle responses are claimed;
+ * request bodies and every other type are still handled by Jackson.
+ */
+public class VehicleJsonHttpMessageConverter extends AbstractSmartHttpMessageConverter<Object> {
+
+    public VehicleJsonHttpMessageConverter() {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Vehicle.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(ResolvableType type, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(ResolvableType type, Class<?> valueClass, MediaType mediaType) {
+        if (!canWrite(mediaType)) {
+            return false;
+        }
+        if (Vehicle.class.isAssignableFrom(valueClass)) {
+            return true;
+        }
+        // the element type is only known from the declared return type, e.g. ResponseEntity<List<Vehicle>>
+        return Collection.class.isAssignableFrom(valueClass)
+                && type.asCollection().getGeneric(0).resolve() == Vehicle.class;
+    }
+
+    @Override
+    public Object read(ResolvableType type, HttpInputMessage inputMessage, Map<String, Object> hints) {
+        throw new HttpMessageNotReadableException("Vehicles are read by the Jackson converter", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Object value, ResolvableType type, HttpOutputMessage outputMessage,
+                                 Map<String, Object> hints) throws IOException {
+        try (VehicleJsonWriter writer = new VehicleJsonWriter(outputMessage.getBody())) {
+            if (value instanceof Vehicle vehicle) {
+                writer.writeVehicle(vehicle);
+            } else {
+                @SuppressWarnings("unchecked")
+                Collection<Vehicle> vehicles = (Collection<Vehicle>) value;
+                writer.writeArray(vehicles);
+            }
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.song.apollo.vehicle_service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Hand-written UTF-8 JSON encoder for {@link Vehicle}, producing exactly the bytes the application's
+ * Jackson mapper would.
+ * <p>
+ * Property names (with their separators) are encoded once, {@link Vehicle.FuelType} constants are
+ * written from pre-encoded bytes, and integers are written digit by digit into the buffer, so a vehicle
+ * is encoded without reflection and without intermediate {@code String}s. Output goes through an 8 KB
+ * buffer borrowed from a small shared pool and returned on {@link #close()}.
+ * <p>
+ * The property order, {@code null} handling and string escaping follow the defaults of the Spring Boot
+ * managed {@code JsonMapper}; {@code VehicleJsonWriterTest} compares both outputs byte for byte. If the
+ * mapper configuration or the {@link Vehicle} properties change, this class must change with them.
+ * <p>
+ * Instances are not thread-safe; use one per response.
+ */
+public final class VehicleJsonWriter implements Closeable {
+    private static final int BUFFER_SIZE = 8 * 1024;
+    /** Largest single write, a surrogate pair escaped as two {@code \\uXXXX} sequences. */
+    private static final int MAX_CHAR_BYTES = 12;
+    private static final BlockingQueue<byte[]> BUFFERS = new ArrayBlockingQueue<>(64);
+
+    private static final byte[] VIN = ascii("{\"vin\":");
+    private static final byte[] MANUFACTURER_NAME = ascii(",\"manufacturerName\":");
+    private static final byte[] DESCRIPTION = ascii(",\"description\":");
+    private static final byte[] HORSE_POWER = ascii(",\"horsePower\":");
+    private static final byte[] MODEL_NAME = ascii(",\"modelName\":");
+    private static final byte[] PURCHASE_PRICE = ascii(",\"purchasePrice\":");
+    private static final byte[] FUEL_TYPE = ascii(",\"fuelType\":");
+    private static final byte[] VERSION = ascii(",\"version\":");
+    private static final byte[] NULL = ascii("null");
+    private static final byte[][] FUEL_TYPES = Arrays.stream(Vehicle.FuelType.values())
+            .map(fuelType -> ascii("\"" + fuelType.name() + "\""))
+            .toArray(byte[][]::new);
+
+    private static final byte[] HEX = ascii("0123456789ABCDEF");
+    /** Per ASCII character: 0 = literal, -1 = {@code \\u00XX}, otherwise the character after the backslash. */
+    private static final int[] ESCAPES = new int[128];
+
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            ESCAPES[c] = -1;
+        }
+        ESCAPES['"'] = '"';
+        ESCAPES['\\'] = '\\';
+        ESCAPES['\b'] = 'b';
+        ESCAPES['\t'] = 't';
+        ESCAPES['\f'] = 'f';
+        ESCAPES['\n'] = 'n';
+        ESCAPES['\r'] = 'r';
+    }
+
+    private final OutputStream out;
+    private byte[] buffer;
+    private int position;
+
+    /**
+     * @param out destination; flushed but not closed by {@link #close()}.
+     */
+    public VehicleJsonWriter(OutputStream out) {
+        this.out = out;
+        byte[] pooled = BUFFERS.poll();
+        this.buffer = pooled != null ? pooled : new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * Writes one vehicle as a JSON object.
+     */
+    public void writeVehicle(Vehicle vehicle) throws IOException {
+        write(VIN);
+        writeString(vehicle.getVin());
+        write(MANUFACTURER_NAME);
+        writeString(vehicle.getManufacturerName());
+        write(DESCRIPTION);
+        writeString(vehicle.getDescription());
+        write(HORSE_POWER);
+        if (vehicle.getHorsePower() == null) {
+            write(NULL);
+        } else {
+            writeLong(vehicle.getHorsePower());
+        }
+        write(MODEL_NAME);
+        writeString(vehicle.getModelName());
+        write(PURCHASE_PRICE);
+        writeDecimal(vehicle.getPurchasePrice());
+        write(FUEL_TYPE);
+        write(vehicle.getFuelType() == null ? NULL : FUEL_TYPES[vehicle.getFuelType().ordinal()]);
+        write(VERSION);
+        if (vehicle.getVersion() == null) {
+            write(NULL);
+        } else {
+            writeLong(vehicle.getVersion());
+        }
+        writeByte('}');
+    }
+
+    /**
+     * Writes the vehicles as a JSON array, encoding each element straight into the output buffer.
+     */
+    public void writeArray(Iterable<? extends Vehicle> vehicles) throws IOException {
+        writeByte('[');
+        boolean first = true;
+        for (Vehicle vehicle : vehicles) {
+            if (!first) {
+                writeByte(',');
+            }
+            writeVehicle(vehicle);
+            first = false;
+        }
+        writeByte(']');
+    }
+
+    /**
+     * Writes a single ASCII byte, e.g. the line separator of NDJSON output.
+     */
+    public void writeByte(int b) throws IOException {
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    /**
+     * Writes buffered bytes to the underlying stream and flushes it.
+     */
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    /**
+     * Writes buffered bytes and returns the buffer to the pool. The underlying stream is left open.
+     */
+    @Override
+    public void close() throws IOException {
+        if (buffer == null) {
+            return;
+        }
+        try {
+            flushBuffer();
+        } finally {
+            BUFFERS.offer(buffer);
+            buffer = null;
+        }
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        if (position + bytes.length > buffer.length) {
+            flushBuffer();
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            write(NULL);
+            return;
+        }
+        writeByte('"');
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            if (position + MAX_CHAR_BYTES > buffer.length) {
+                flushBuffer();
+            }
+            byte[] buf = buffer;
+            int pos = position;
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                int escape = ESCAPES[c];
+                if (escape == 0) {
+                    buf[pos++] = (byte) c;
+                } else if (escape > 0) {
+                    buf[pos++] = '\\';
+                    buf[pos++] = (byte) escape;
+                } else {
+                    pos = writeUnicodeEscape(buf, pos, c);
+                }
+            } else if (c < 0x800) {
+                buf[pos++] = (byte) (0xC0 | (c >> 6));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buf[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                buf[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buf[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // an unpaired surrogate cannot be encoded as UTF-8
+                pos = writeUnicodeEscape(buf, pos, c);
+            } else {
+                buf[pos++] = (byte) (0xE0 | (c >> 12));
+                buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+            position = pos;
+        }
+        writeByte('"');
+    }
+
+    private static int writeUnicodeEscape(byte[] buf, int pos, char c) {
+        buf[pos++] = '\\';
+        buf[pos++] = 'u';
+        buf[pos++] = HEX[(c >> 12) & 0xF];
+        buf[pos++] = HEX[(c >> 8) & 0xF];
+        buf[pos++] = HEX[(c >> 4) & 0xF];
+        buf[pos++] = HEX[c & 0xF];
+        return pos;
+    }
+
+    private void writeLong(long value) throws IOException {
+        if (position + 20 > buffer.length) {
+            flushBuffer();
+        }
+        if (value == Long.MIN_VALUE) {
+            writeAscii(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int digits = digits(value);
+        int end = position + digits;
+        for (int pos = end - 1; pos >= position; pos--) {
+            buffer[pos] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position = end;
+    }
+
+    /**
+     * Writes a decimal exactly like {@link BigDecimal#toString()}, which the instance caches after its first
+     * call, so repeated encoding of the same entity allocates nothing here.
+     */
+    private void writeDecimal(BigDecimal value) throws IOException {
+        if (value == null) {
+            write(NULL);
+            return;
+        }
+        writeAscii(value.toString());
+    }
+
+    private void writeAscii(String value) throws IOException {
+        int length = value.length();
+        if (position + length > buffer.length) {
+            flushBuffer();
+            if (length > buffer.length) {
+                out.write(ascii(value));
+                return;
+            }
+        }
+        for (int i = 0; i < length; i++) {
+            buffer[position++] = (byte) value.charAt(i);
+        }
+    }
+
+    private static int digits(long value) {
+        int digits = 1;
+        for (long limit = 10; digits < 19 && value >= limit; limit *= 10) {
+            digits++;
+        }
+        return digits;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,19 @@
+package com.song.apollo.vehicle_service;
+
+/**
+ * Outcome of one VIN in a multi-VIN lookup.
+ *
+ * @param vin     the requested VIN.
+ * @param status  200 if the vehicle exists, 404 if it does not.
+ * @param vehicle the vehicle, or {@code null} if it does not exist.
+ */
+public record VehicleLookupResult(String vin, int status, Vehicle vehicle) {
+
+    static VehicleLookupResult found(Vehicle vehicle) {
+        return new VehicleLookupResult(vehicle.getVin(), 200, vehicle);
+    }
+
+    static VehicleLookupResult missing(String vin) {
+        return new VehicleLookupResult(vin, 404, null);
+    }
+}
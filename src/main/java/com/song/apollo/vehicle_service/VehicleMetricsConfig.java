@@ -0,0 +1,102 @@
+package com.song.apollo.vehicle_service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.hibernate.autoconfigure.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Request-level instrumentation that Spring Boot does not provide out of the box.
+ * <p>
+ * Endpoint latency ({@code http.server.requests}), repository call timers
+ * ({@code spring.data.repository.invocations}) and connection-pool wait time
+ * ({@code hikaricp.connections.acquire}) are auto-configured; their percentiles are enabled
+ * in {@code application.properties}. This class adds {@code vehicle.jdbc.statements}, the number
+ * of SQL statements Hibernate prepared while serving each request, tagged by method and URI pattern.
+ * It costs one thread-local increment per statement.
+ * <p>
+ * Only statements issued on the request thread are counted; streamed NDJSON responses that read
+ * from the database on an async thread report the statements of the initial dispatch only.
+ */
+@Configuration
+public class VehicleMetricsConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer statementCountingCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, StatementCounter.INSTANCE);
+    }
+
+    @Bean
+    public StatementCountFilter statementCountFilter(MeterRegistry meterRegistry) {
+        return new StatementCountFilter(meterRegistry);
+    }
+
+    /**
+     * Counts statements prepared on the current thread while a request is being served.
+     */
+    static final class StatementCounter implements StatementInspector {
+        static final StatementCounter INSTANCE = new StatementCounter();
+        private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+        @Override
+        public String inspect(String sql) {
+            int[] count = COUNT.get();
+            if (count != null) {
+                count[0]++;
+            }
+            return sql;
+        }
+
+        static int[] begin() {
+            int[] count = new int[1];
+            COUNT.set(count);
+            return count;
+        }
+
+        static void end() {
+            COUNT.remove();
+        }
+    }
+
+    /**
+     * Records the per-request statement count once the handler has completed.
+     */
+    static final class StatementCountFilter extends OncePerRequestFilter {
+        private final MeterRegistry meterRegistry;
+
+        StatementCountFilter(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                throws ServletException, IOException {
+            int[] count = StatementCounter.begin();
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                StatementCounter.end();
+                Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                DistributionSummary.builder("vehicle.jdbc.statements")
+                        .description("SQL statements prepared per HTTP request")
+                        .baseUnit("statements")
+                        .tag("method", request.getMethod())
+                        .tag("uri", pattern == null ? "UNKNOWN" : pattern.toString())
+                        .publishPercentiles(0.5, 0.99, 0.999)
+                        .register(meterRegistry)
+                        .record(count[0]);
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.song.apollo.vehicle_service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * A single page of vehicles returned by keyset pagination.
+ * <p>
+ * The cursor is opaque to clients: it encodes the last VIN of the page, and is
+ * passed back as the {@code after} parameter to fetch the next page.
+ * <p>
+ * The page's {@link #etag() ETag} is derived from the VIN and version of every vehicle on it,
+ * so it changes whenever a vehicle on the page is created, updated or deleted.
+ *
+ * @param vehicles   vehicles on this page, ordered by VIN.
+ * @param nextCursor cursor for the next page, or {@code null} if this is the last page.
+ */
+public record VehiclePage(List<Vehicle> vehicles, String nextCursor) {
+
+    /**
+     * Computes a strong entity tag for the page contents.
+     *
+     * @return a quoted ETag value, e.g. {@code "q8Zl1V0Tj6DDp9Ol0t1wSw"}.
+     */
+    public String etag() {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+        for (Vehicle v : vehicles) {
+            digest.update(v.getVin().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(v.getVersion()).getBytes(StandardCharsets.US_ASCII));
+            digest.update((byte) 0);
+        }
+        if (nextCursor != null) {
+            digest.update(nextCursor.getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] hash = Arrays.copyOf(digest.digest(), 16);
+        return '"' + Base64.getUrlEncoder().withoutPadding().encodeToString(hash) + '"';
+    }
+
+    /**
+     * Encodes a VIN into an opaque, URL-safe cursor.
+     *
+     * @param vin the last VIN of a page.
+     * @return the cursor token.
+     */
+    public static String encodeCursor(String vin) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(vin.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor produced by {@link #encodeCursor(String)}.
+     *
+     * @param cursor the cursor token, may be {@code null}.
+     * @return the VIN the cursor points after, or {@code null} for the first page.
+     * @throws BadRequestException if the cursor is not a valid token.
+     */
+    public static String decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.song.apollo.vehicle_service;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * A JSON Merge Patch (RFC 7396) of a {@link Vehicle}: the fields a client supplied, already converted.
+ * <p>
+ * Vehicle documents are flat, so a patch is simply a subset of the writable properties. Every property is
+ * required, so {@code null} (which removes a member in merge-patch terms) fails validation like a missing
+ * field in a PUT. {@code vin} and {@code version} are ignored, as in a PUT body; unknown properties are
+ * rejected, so a misspelt property is not silently dropped.
+ *
+ * @param fields the supplied values by field, in declaration order.
+ */
+public record VehiclePatch(Map<Field, Object> fields) {
+
+    /**
+     * The properties a patch can change, with their column in the {@code vehicles} table.
+     */
+    public enum Field {
+        MANUFACTURER_NAME("manufacturerName", "manufacturer_name", String.class,
+                (v, value) -> v.setManufacturerName((String) value)),
+        DESCRIPTION("description", "description", String.class,
+                (v, value) -> v.setDescription((String) value)),
+        HORSE_POWER("horsePower", "horse_power", Integer.class,
+                (v, value) -> v.setHorsePower((Integer) value)),
+        MODEL_NAME("modelName", "model_name", String.class,
+                (v, value) -> v.setModelName((String) value)),
+        PURCHASE_PRICE("purchasePrice", "purchase_price", BigDecimal.class,
+                (v, value) -> v.setPurchasePrice((BigDecimal) value)),
+        FUEL_TYPE("fuelType", "fuel_type", Vehicle.FuelType.class,
+                (v, value) -> v.setFuelType((Vehicle.FuelType) value));
+
+        private final String property;
+        private final String column;
+        private final Class<?> type;
+        private final BiConsumer<Vehicle, Object> setter;
+
+        Field(String property, String column, Class<?> type, BiConsumer<Vehicle, Object> setter) {
+            this.property = property;
+            this.column = column;
+            this.type = type;
+            this.setter = setter;
+        }
+
+        public String property() {
+            return property;
+        }
+
+        public String column() {
+            return column;
+        }
+
+        public Class<?> type() {
+            return type;
+        }
+
+        static Field forProperty(String property) {
+            for (Field field : values()) {
+                if (field.property.equals(property)) {
+                    return field;
+                }
+            }
+            return null;
+        }
+    }
+
+    public VehiclePatch {
+        Map<Field, Object> copy = new EnumMap<>(Field.class);
+        copy.putAll(fields);
+        fields = Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * @return a patch that sets every writable field to its value in {@code vehicle}, i.e. a full replacement.
+     */
+    public static VehiclePatch of(Vehicle vehicle) {
+        Map<Field, Object> fields = new EnumMap<>(Field.class);
+        fields.put(Field.MANUFACTURER_NAME, vehicle.getManufacturerName());
+        fields.put(Field.DESCRIPTION, vehicle.getDescription());
+        fields.put(Field.HORSE_POWER, vehicle.getHorsePower());
+        fields.put(Field.MODEL_NAME, vehicle.getModelName());
+        fields.put(Field.PURCHASE_PRICE, vehicle.getPurchasePrice());
+        fields.put(Field.FUEL_TYPE, vehicle.getFuelType());
+        return new VehiclePatch(fields);
+    }
+
+    /**
+     * Converts a merge-patch document into the supplied fields.
+     *
+     * @throws BadRequestException if the document is not an object, names an unknown property or holds a value
+     *                             of the wrong type.
+     */
+    public static VehiclePatch read(JsonNode document, JsonMapper jsonMapper) {
+        if (document == null || !document.isObject()) {
+            throw new BadRequestException("A merge patch must be a JSON object");
+        }
+        Map<Field, Object> fields = new EnumMap<>(Field.class);
+        for (Map.Entry<String, JsonNode> member : document.properties()) {
+            String property = member.getKey();
+            if (property.equals("vin") || property.equals("version")) {
+                continue;
+            }
+            Field field = Field.forProperty(property);
+            if (field == null) {
+                throw new BadRequestException("Unknown property: " + property);
+            }
+            try {
+                fields.put(field, member.getValue().isNull() ? null : jsonMapper.treeToValue(member.getValue(), field.type));
+            } catch (JacksonException ex) {
+                throw new BadRequestException("Invalid value for " + property);
+            }
+        }
+        return new VehiclePatch(fields);
+    }
+
+    /**
+     * Checks the supplied values against the constraints declared on {@link Vehicle}, and only those.
+     */
+    public Set<ConstraintViolation<Vehicle>> validate(Validator validator) {
+        Set<ConstraintViolation<Vehicle>> violations = new HashSet<>();
+        fields.forEach((field, value) -> violations.addAll(validator.validateValue(Vehicle.class, field.property, value)));
+        return violations;
+    }
+
+    /**
+     * Sets the supplied fields on {@code vehicle}.
+     */
+    public void applyTo(Vehicle vehicle) {
+        fields.forEach((field, value) -> field.setter.accept(vehicle, value));
+    }
+
+    public boolean isEmpty() {
+        return fields.isEmpty();
+    }
+}
@@ -0,0 +1,78 @@
+package com.song.apollo.vehicle_service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import java.time.Duration;
+
+/**
+ * Configures per-client rate limiting and adaptive load shedding for the vehicle API
+ * (see {@link VehicleRateLimitFilter}).
+ * <p>
+ * Enabled with {@code vehicle.rate-limit.enabled=true}. Budgets are set per category with
+ * {@code vehicle.rate-limit.<read|write|scan>.rate} (permits per second) and {@code .burst}. Clients are told
+ * apart by remote address unless {@code vehicle.rate-limit.client-header} names a header that the gateway in
+ * front of the service sets (and overwrites) on every request.
+ */
+@Configuration
+@ConditionalOnProperty(name = "vehicle.rate-limit.enabled", havingValue = "true")
+public class VehicleRateLimitConfig {
+
+    @Bean
+    ClientRateLimiter clientRateLimiter(@Value("${vehicle.rate-limit.read.rate:100}") double readRate,
+                                        @Value("${vehicle.rate-limit.read.burst:200}") int readBurst,
+                                        @Value("${vehicle.rate-limit.write.rate:20}") double writeRate,
+                                        @Value("${vehicle.rate-limit.write.burst:50}") int writeBurst,
+                                        @Value("${vehicle.rate-limit.scan.rate:5}") double scanRate,
+                                        @Value("${vehicle.rate-limit.scan.burst:20}") int scanBurst,
+                                        @Value("${vehicle.rate-limit.max-clients:100000}") long maxClients,
+                                        @Value("${vehicle.rate-limit.idle-timeout:10m}") Duration idleTimeout) {
+        return new ClientRateLimiter(new ClientRateLimiter.Budget(readRate, readBurst),
+                new ClientRateLimiter.Budget(writeRate, writeBurst), new ClientRateLimiter.Budget(scanRate, scanBurst),
+                maxClients, idleTimeout, System::nanoTime);
+    }
+
+    @Bean
+    AdaptiveConcurrencyLimiter adaptiveConcurrencyLimiter(
+            @Value("${vehicle.rate-limit.concurrency.initial-limit:32}") int initialLimit,
+            @Value("${vehicle.rate-limit.concurrency.min-limit:8}") int minLimit,
+            @Value("${vehicle.rate-limit.concurrency.max-limit:256}") int maxLimit,
+            @Value("${vehicle.rate-limit.concurrency.latency-target:50ms}") Duration latencyTarget) {
+        return new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, latencyTarget, System::nanoTime);
+    }
+
+    @Bean
+    public VehicleRateLimitFilter vehicleRateLimitFilter(ClientRateLimiter clientRateLimiter,
+                                                         AdaptiveConcurrencyLimiter adaptiveConcurrencyLimiter,
+                                                         @Value("${vehicle.rate-limit.client-header:}") String clientHeader,
+                                                         @Value("${vehicle.sharding.enabled:false}") boolean shardingEnabled,
+                                                         @Value("${vehicle.sharding.secret:}") String shardSecret,
+                                                         MeterRegistry meterRegistry) {
+        return new VehicleRateLimitFilter(clientRateLimiter, adaptiveConcurrencyLimiter, clientHeader,
+                shardingEnabled ? shardSecret : null, meterRegistry);
+    }
+
+    /**
+     * Feeds the duration of every repository call to the concurrency limiter, the same hook Spring Boot
+     * uses for the {@code spring.data.repository.invocations} timer.
+     */
+    @Bean
+    static BeanPostProcessor repositoryLatencyListener(ObjectProvider<AdaptiveConcurrencyLimiter> limiter) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(
+                            factory -> factory.addInvocationListener(limiter.getObject()));
+                }
+                return bean;
+            }
+        };
+    }
+}
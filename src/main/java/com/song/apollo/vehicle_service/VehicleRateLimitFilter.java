@@ -0,0 +1,149 @@
+package com.song.apollo.vehicle_service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throttles {@code /vehicle} requests before they reach the controllers.
+ * <p>
+ * Each request is first charged to its client's budget in {@link ClientRateLimiter}: a write for any
+ * method other than GET/HEAD/OPTIONS (except the multi-VIN lookup), a scan for the list, search and export
+ * endpoints, and a read for everything else. Clients are identified by the remote address, or by the
+ * configured header when one is set; that header must come from a trusted gateway, as a client could
+ * otherwise rotate it to get a fresh budget. Over budget, the request is
+ * answered with 429 Too Many Requests and a {@code Retry-After} in seconds.
+ * <p>
+ * Admitted requests then need a slot in {@link AdaptiveConcurrencyLimiter}; when none is free the request
+ * is shed with 503 Service Unavailable. A streamed response (NDJSON, export, change feed) holds its slot
+ * only until the handler returns and writing continues asynchronously.
+ * <p>
+ * Every decision is counted in {@code vehicle.ratelimit.requests}, tagged with {@code category} and
+ * {@code outcome} ({@code allowed}, {@code limited} or {@code shed}). The current concurrency limit,
+ * the requests in flight and the number of tracked clients are published as gauges.
+ * <p>
+ * In the sharded mode, requests forwarded by another shard were charged to their client there and only need
+ * a concurrency slot. A request counts as forwarded only if it carries the members' secret as well as
+ * {@link VehicleShardRouter#HOP_HEADER}. The filter runs just before {@link VehicleShardFilter}.
+ */
+public class VehicleRateLimitFilter extends OncePerRequestFilter implements Ordered {
+    private static final Set<String> READ_METHODS = Set.of(
+            HttpMethod.GET.name(), HttpMethod.HEAD.name(), HttpMethod.OPTIONS.name());
+    private static final Set<String> SCAN_PATHS = Set.of("/vehicle", "/vehicle/search", "/vehicle/export");
+    private static final String LOOKUP_PATH = "/vehicle/lookup";
+
+    private final ClientRateLimiter rateLimiter;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final String clientHeader;
+    private final String shardSecret;
+    private final Counter[][] counters;
+
+    /**
+     * @param shardSecret the members' secret in the sharded mode, or {@code null}. Hops from members that present
+     *                    it in {@link VehicleShardRouter#SECRET_HEADER} skip the client budget.
+     */
+    VehicleRateLimitFilter(ClientRateLimiter rateLimiter, AdaptiveConcurrencyLimiter concurrencyLimiter,
+                           String clientHeader, String shardSecret, MeterRegistry meterRegistry) {
+        this.rateLimiter = rateLimiter;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.clientHeader = clientHeader;
+        this.shardSecret = shardSecret;
+        String[] outcomes = {"allowed", "limited", "shed"};
+        ClientRateLimiter.Category[] categories = ClientRateLimiter.Category.values();
+        this.counters = new Counter[categories.length][outcomes.length];
+        for (ClientRateLimiter.Category category : categories) {
+            for (int i = 0; i < outcomes.length; i++) {
+                counters[category.ordinal()][i] = Counter.builder("vehicle.ratelimit.requests")
+                        .description("Vehicle API requests by rate limiter decision")
+                        .tag("category", category.name().toLowerCase(Locale.ROOT))
+                        .tag("outcome", outcomes[i])
+                        .register(meterRegistry);
+            }
+        }
+        Gauge.builder("vehicle.concurrency.limit", concurrencyLimiter, AdaptiveConcurrencyLimiter::limit)
+                .description("Current adaptive limit on vehicle requests in flight")
+                .register(meterRegistry);
+        Gauge.builder("vehicle.concurrency.in.flight", concurrencyLimiter, AdaptiveConcurrencyLimiter::inFlight)
+                .description("Vehicle requests currently holding a concurrency slot")
+                .register(meterRegistry);
+        Gauge.builder("vehicle.ratelimit.clients", rateLimiter, ClientRateLimiter::trackedClients)
+                .description("Clients with a rate limit bucket")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE - 1;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !path(request).startsWith("/vehicle");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ClientRateLimiter.Category category = category(request);
+        boolean charged = request.getHeader(VehicleShardRouter.HOP_HEADER) == null
+                || !VehicleShardRouter.secretMatches(shardSecret, request.getHeader(VehicleShardRouter.SECRET_HEADER));
+        long waitNanos = charged ? rateLimiter.tryAcquire(client(request), category) : 0;
+        if (waitNanos > 0) {
+            counters[category.ordinal()][1].increment();
+            long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, retryAfter, "Rate limit exceeded");
+            return;
+        }
+        if (!concurrencyLimiter.tryAcquire()) {
+            counters[category.ordinal()][2].increment();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, 1, "Server overloaded");
+            return;
+        }
+        counters[category.ordinal()][0].increment();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            concurrencyLimiter.release();
+        }
+    }
+
+    private String client(HttpServletRequest request) {
+        String client = clientHeader.isEmpty() ? null : request.getHeader(clientHeader);
+        return client == null || client.isBlank() ? request.getRemoteAddr() : client;
+    }
+
+    private static ClientRateLimiter.Category category(HttpServletRequest request) {
+        String path = path(request);
+        if (!READ_METHODS.contains(request.getMethod())) {
+            return path.equals(LOOKUP_PATH) ? ClientRateLimiter.Category.READ : ClientRateLimiter.Category.WRITE;
+        }
+        return SCAN_PATHS.contains(path) ? ClientRateLimiter.Category.SCAN : ClientRateLimiter.Category.READ;
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds, String error)
+            throws IOException {
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"" + error + "\"}");
+    }
+}
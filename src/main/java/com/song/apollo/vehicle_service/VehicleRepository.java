@@ -1,8 +1,21 @@
 package com.song.apollo.vehicle_service;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
 /**
  * Repository interface for {@link Vehicle} persistence.
  * <p>
@@ -10,7 +23,72 @@ import org.springframework.stereotype.Repository;
  * without needing boilerplate code. Spring Data JPA generates the implementation at runtime.
  * <p>
  * The ID type is {@link String} because the Vehicle entity uses the VIN as its primary key.
+ * <p>
+ * Extends {@link JpaSpecificationExecutor} so filtered searches can be composed from
+ * {@link VehicleSpecifications} and executed as a single query.
  */
 @Repository
-public interface VehicleRepository extends JpaRepository<Vehicle, String> {
+public interface VehicleRepository extends JpaRepository<Vehicle, String>, JpaSpecificationExecutor<Vehicle>,
+        VehicleRepositoryCustom {
+
+    /**
+     * Returns which of the given VINs are already stored, in a single IN-query
+     * that only touches the primary-key index.
+     *
+     * @param vins candidate VINs.
+     * @return the subset of {@code vins} that exist.
+     */
+    @Query("select v.vin from Vehicle v where v.vin in :vins")
+    Set<String> findExistingVins(@Param("vins") Collection<String> vins);
+
+    /**
+     * Deletes a vehicle with a single DELETE, without loading it first. Must run inside a read-write transaction.
+     *
+     * @param vin the VIN to delete.
+     * @return the number of rows removed: 1, or 0 if the VIN did not exist.
+     */
+    @Modifying
+    @Query("delete from Vehicle v where v.vin = :vin")
+    int deleteByVin(@Param("vin") String vin);
+
+    /**
+     * Returns the first page of vehicles in VIN order.
+     *
+     * @param limit maximum number of rows to fetch.
+     * @return vehicles ordered by VIN.
+     */
+    List<Vehicle> findByOrderByVinAsc(Limit limit);
+
+    /**
+     * Returns the page of vehicles that follows the given VIN (keyset pagination).
+     * Uses the primary-key index, so the cost does not grow with the page number.
+     *
+     * @param vin   exclusive lower bound (the last VIN of the previous page).
+     * @param limit maximum number of rows to fetch.
+     * @return vehicles ordered by VIN.
+     */
+    List<Vehicle> findByVinGreaterThanOrderByVinAsc(String vin, Limit limit);
+
+    /**
+     * Streams every vehicle in VIN order using a JDBC cursor instead of materializing the table.
+     * <p>
+     * Must be consumed inside a transaction and closed by the caller.
+     *
+     * @return a lazily-fetched stream of vehicles.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Vehicle> streamAllByOrderByVinAsc();
+
+    /**
+     * Streams every stored VIN, unordered, using a JDBC cursor. Must be consumed inside a transaction and
+     * closed by the caller.
+     *
+     * @return a lazily-fetched stream of VINs.
+     */
+    @Query("select v.vin from Vehicle v")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<String> streamAllVins();
 }
@@ -0,0 +1,42 @@
+package com.song.apollo.vehicle_service;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Custom persistence operations for {@link Vehicle} that Spring Data cannot derive.
+ * <p>
+ * Implemented by {@link VehicleRepositoryCustomImpl} and mixed into {@link VehicleRepository}.
+ */
+public interface VehicleRepositoryCustom {
+
+    /**
+     * Inserts a new vehicle with a single INSERT statement.
+     * <p>
+     * Unlike {@code save}, which merges entities with an assigned id and therefore SELECTs first,
+     * this persists and flushes immediately, so a primary-key violation surfaces from this call.
+     *
+     * @param vehicle a vehicle whose VIN is not yet stored.
+     * @throws org.springframework.dao.DuplicateKeyException if the VIN already exists.
+     */
+    void insert(Vehicle vehicle);
+
+    /**
+     * Inserts new vehicles with {@code persist}, bypassing the SELECT that {@code save}/{@code merge}
+     * issues for entities with an assigned id. Statements are grouped by Hibernate JDBC batching.
+     *
+     * @param vehicles vehicles whose VINs are not yet stored.
+     */
+    void insertAll(Collection<Vehicle> vehicles);
+
+    /**
+     * Applies a patch with one {@code UPDATE ... WHERE vin = ?} that sets only the patched columns and bumps the
+     * version, without loading the vehicle first. The updated row is read back by the same statement.
+     *
+     * @param vin             the vehicle to change.
+     * @param patch           validated fields to set; must not be empty.
+     * @param expectedVersion if not {@code null}, the UPDATE only matches this version.
+     * @return the vehicle after the update, or empty if no row matched the VIN (and version).
+     */
+    Optional<Vehicle> update(String vin, VehiclePatch patch, Long expectedVersion);
+}
@@ -0,0 +1,83 @@
+package com.song.apollo.vehicle_service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * JPA implementation of {@link VehicleRepositoryCustom}.
+ */
+class VehicleRepositoryCustomImpl implements VehicleRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public void insert(Vehicle vehicle) {
+        try {
+            entityManager.persist(vehicle);
+            entityManager.flush();
+        } catch (ConstraintViolationException ex) {
+            if (ex.getKind() == ConstraintViolationException.ConstraintKind.UNIQUE) {
+                throw new DuplicateKeyException("VIN already exists", ex);
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Persists, flushes and then clears the persistence context, so a large chunk
+     * does not stay attached to the session after its INSERTs have been sent.
+     */
+    @Override
+    @Transactional
+    public void insertAll(Collection<Vehicle> vehicles) {
+        for (Vehicle vehicle : vehicles) {
+            entityManager.persist(vehicle);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    /**
+     * Uses H2's data change delta table ({@code SELECT * FROM FINAL TABLE (UPDATE ...)}) so the new row comes
+     * back in the same round trip; on PostgreSQL this would be {@code UPDATE ... RETURNING *}. The transaction
+     * is read-write, so it always runs on the primary.
+     */
+    @Override
+    @Transactional
+    public Optional<Vehicle> update(String vin, VehiclePatch patch, Long expectedVersion) {
+        StringBuilder sql = new StringBuilder("select * from final table (update vehicles set ");
+        int parameter = 1;
+        for (VehiclePatch.Field field : patch.fields().keySet()) {
+            sql.append(field.column()).append(" = ?").append(parameter++).append(", ");
+        }
+        sql.append("version = version + 1 where vin = ?").append(parameter++);
+        if (expectedVersion != null) {
+            sql.append(" and version = ?").append(parameter);
+        }
+        sql.append(')');
+
+        Query query = entityManager.createNativeQuery(sql.toString(), Vehicle.class);
+        parameter = 1;
+        for (Map.Entry<VehiclePatch.Field, Object> field : patch.fields().entrySet()) {
+            Object value = field.getValue();
+            query.setParameter(parameter++, value instanceof Enum<?> constant ? constant.name() : value);
+        }
+        query.setParameter(parameter++, vin);
+        if (expectedVersion != null) {
+            query.setParameter(parameter, expectedVersion);
+        }
+        @SuppressWarnings("unchecked")
+        List<Vehicle> updated = query.getResultList();
+        return updated.stream().findFirst();
+    }
+}
@@ -0,0 +1,24 @@
+package com.song.apollo.vehicle_service;
+
+import java.math.BigDecimal;
+
+/**
+ * Filters accepted by {@code GET /vehicle/search}. Every field is optional;
+ * supplied filters are combined with AND, and range bounds are inclusive.
+ *
+ * @param manufacturerName exact manufacturer name.
+ * @param modelName        exact model name.
+ * @param fuelType         fuel type.
+ * @param minHorsePower    lower horsepower bound.
+ * @param maxHorsePower    upper horsepower bound.
+ * @param minPrice         lower purchase price bound.
+ * @param maxPrice         upper purchase price bound.
+ */
+public record VehicleSearchCriteria(String manufacturerName,
+                                    String modelName,
+                                    Vehicle.FuelType fuelType,
+                                    Integer minHorsePower,
+                                    Integer maxHorsePower,
+                                    BigDecimal minPrice,
+                                    BigDecimal maxPrice) {
+}
@@ -1,90 +1,656 @@
 package com.song.apollo.vehicle_service;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.song.apollo.vehicle_service.VehicleCacheConfig.VEHICLES_CACHE;
 
 /**
  * Service layer responsible for the business logic of Vehicle management.
  * Acts as an intermediary between the Controller and the Repository, handling
  * validation, data manipulation, and transaction flow.
+ * <p>
+ * Single-VIN lookups are served through the {@value VehicleCacheConfig#VEHICLES_CACHE} cache;
+ * every write method keeps it coherent by putting what it wrote: the new row on create and update, single or
+ * batched, and "not found" on delete. A write never leaves a VIN uncached, so the next lookup cannot fill the
+ * cache from a read replica that has not caught up with the write yet.
+ * <p>
+ * Every committed mutation is also announced as a {@link VehicleChangeEvent}, which derived views
+ * such as {@link FleetAnalytics} use to stay up to date incrementally.
+ * <p>
+ * When a {@link VinIndex} is present, creates and deletes keep it in sync, and VINs it rules out are answered
+ * as not found without a query.
  */
 @Service
 public class VehicleService {
+    /** Upper bound for a single page, regardless of what the client asks for. */
+    public static final int MAX_PAGE_SIZE = 1000;
+    /** Number of vehicles handled per query and per transaction in batch operations. */
+    public static final int BATCH_CHUNK_SIZE = 500;
+    /** Upper bound for the items of one batch request; larger loads go through {@code POST /vehicle/import}. */
+    public static final int MAX_BATCH_SIZE = 10_000;
+
     private final VehicleRepository vehicleRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SingleFlight<String, Optional<Vehicle>> vinLookups = new SingleFlight<>();
+    private volatile VinBatchLoader batchLoader;
+    private VehicleWriteBehind writeBehind;
+    private VinIndex vinIndex;
+    private Cache vehicleCache;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     /**
      * Constructs a new VehicleService with the required repository dependency.
      *
-     * @param vehicleRepository the repository used for data access.
+     * @param vehicleRepository  the repository used for data access.
+     * @param transactionManager the transaction manager used to commit batch chunks independently
+     *                           and to run single-vehicle writes on the primary.
+     * @param eventPublisher     publisher for {@link VehicleChangeEvent}s.
      */
-    public VehicleService(VehicleRepository vehicleRepository) {
+    public VehicleService(VehicleRepository vehicleRepository, PlatformTransactionManager transactionManager,
+                          ApplicationEventPublisher eventPublisher) {
         this.vehicleRepository = vehicleRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
     }
 
     /**
      * Creates and persists a new vehicle in the system.
      * <p>
-     * Checks if a vehicle with the given VIN already exists before saving.
+     * Issues a single INSERT and relies on the primary-key constraint to reject duplicates,
+     * which avoids a separate existence query and is safe under concurrent creates of the same VIN.
      *
      * @param v the vehicle entity to be created.
      * @return the saved vehicle entity.
-     * @throws IllegalArgumentException if a vehicle with the provided VIN already exists.
+     * @throws org.springframework.dao.DuplicateKeyException if a vehicle with the provided VIN already exists.
      */
+    @CachePut(cacheNames = VEHICLES_CACHE, key = "#result.vin")
     public Vehicle createVehicle(Vehicle v) {
-        if (vehicleRepository.existsById(v.getVin())) {
-            throw new IllegalArgumentException("VIN already exists");
-        } else {
-            return vehicleRepository.save(v);
+        vehicleRepository.insert(v);
+        if (vinIndex != null) {
+            vinIndex.add(v.getVin());
         }
+        eventPublisher.publishEvent(VehicleChangeEvent.created(v));
+        return v;
     }
 
     /**
      * Updates an existing vehicle by VIN.
+     * <p>
+     * The UPDATE is guarded by the version column, so a concurrent write between the read
+     * and the save fails with an {@link org.springframework.dao.OptimisticLockingFailureException}
+     * instead of being silently overwritten. The read and the save share a read-write transaction,
+     * so the read goes to the primary even when read replicas are configured.
      *
-     * @param vin target vehicle VIN.
-     * @param v   updated vehicle data.
+     * @param vin             target vehicle VIN.
+     * @param v               updated vehicle data.
+     * @param expectedVersion version the client last saw (from {@code If-Match}), or {@code null} for no precondition.
      * @return updated vehicle or empty if not found.
+     * @throws PreconditionFailedException if the current version differs from {@code expectedVersion}.
+     */
+    @CachePut(cacheNames = VEHICLES_CACHE, key = "#vin")
+    public Optional<Vehicle> updateVehicle(String vin, Vehicle v, Long expectedVersion) {
+        discardQueuedUpdate(vin);
+        Optional<Vehicle> updated = transactionTemplate.execute(status -> vehicleRepository.findById(vin)
+                .map(existingVehicle -> {
+                    checkVersion(existingVehicle, expectedVersion);
+                    copyFields(v, existingVehicle);
+                    return vehicleRepository.save(existingVehicle);
+                }));
+        updated.ifPresent(saved -> eventPublisher.publishEvent(VehicleChangeEvent.updated(saved)));
+        return updated;
+    }
+
+    /**
+     * Changes only the supplied fields of a vehicle.
+     * <p>
+     * Costs a single statement: an UPDATE of the patched columns, guarded by the VIN (and the expected version),
+     * that also returns the new row. The vehicle is not read first, so there is no read/write race to lose.
+     * Only when the statement matches nothing and a version was expected does a second query tell 404 from 412.
+     * Both run in one read-write transaction, so neither is sent to a read replica that may lag behind.
+     * <p>
+     * A pending write-behind update of the VIN holds every field, so it is merged with the patch and written
+     * synchronously through {@link #updateVehicle(String, Vehicle, Long)} instead.
+     *
+     * @param vin             target vehicle VIN.
+     * @param patch           validated fields to change.
+     * @param expectedVersion version the client last saw (from {@code If-Match}), or {@code null} for no precondition.
+     * @return the patched vehicle or empty if not found.
+     * @throws PreconditionFailedException if the current version differs from {@code expectedVersion}.
      */
-    public Optional<Vehicle> updateVehicle(String vin, Vehicle v) {
-        return vehicleRepository.findById(vin).map(existingVehicle ->
-        {
-            existingVehicle.setManufacturerName(v.getManufacturerName());
-            existingVehicle.setDescription(v.getDescription());
-            existingVehicle.setHorsePower(v.getHorsePower());
-            existingVehicle.setModelName(v.getModelName());
-            existingVehicle.setPurchasePrice(v.getPurchasePrice());
-            existingVehicle.setFuelType(v.getFuelType());
-            return vehicleRepository.save(existingVehicle);
+    @CachePut(cacheNames = VEHICLES_CACHE, key = "#vin")
+    public Optional<Vehicle> patchVehicle(String vin, VehiclePatch patch, Long expectedVersion) {
+        Vehicle queued = writeBehind == null ? null : writeBehind.pending(vin);
+        if (queued != null) {
+            Vehicle merged = withFields(vin, null, queued);
+            patch.applyTo(merged);
+            return updateVehicle(vin, merged, expectedVersion);
+        }
+        if (patch.isEmpty()) {
+            Optional<Vehicle> current = transactionTemplate.execute(status -> vehicleRepository.findById(vin));
+            current.ifPresent(v -> checkVersion(v, expectedVersion));
+            return current;
+        }
+        Optional<Vehicle> patched = transactionTemplate.execute(status -> {
+            Optional<Vehicle> row = vehicleRepository.update(vin, patch, expectedVersion);
+            if (row.isEmpty() && expectedVersion != null && vehicleRepository.existsById(vin)) {
+                throw new PreconditionFailedException("Vehicle has been modified");
+            }
+            return row;
         });
+        patched.ifPresent(v -> eventPublisher.publishEvent(VehicleChangeEvent.updated(v)));
+        return patched;
+    }
+
+    /**
+     * Accepts an update that is written to the database later by {@link VehicleWriteBehind}.
+     * <p>
+     * The update is durable when this method returns, and {@link #getVehicleByVin(String)} returns it
+     * from then on. The version is only incremented when the update is flushed.
+     *
+     * @param current the vehicle as last read, which must exist.
+     * @param v       updated vehicle data.
+     * @return the vehicle as it will be stored, with the version of {@code current}.
+     * @throws IllegalStateException if write-behind is not enabled.
+     */
+    @CachePut(cacheNames = VEHICLES_CACHE, key = "#current.vin")
+    public Vehicle queueUpdate(Vehicle current, Vehicle v) {
+        if (writeBehind == null) {
+            throw new IllegalStateException("Write-behind is not enabled");
+        }
+        Vehicle update = withFields(current.getVin(), null, v);
+        writeBehind.accept(update);
+        return withFields(current.getVin(), current.getVersion(), update);
+    }
+
+    /**
+     * @return whether {@link #queueUpdate(Vehicle, Vehicle)} is available.
+     */
+    public boolean isWriteBehindEnabled() {
+        return writeBehind != null;
+    }
+
+    @Autowired(required = false)
+    void setWriteBehind(VehicleWriteBehind writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    @Autowired(required = false)
+    void setVinIndex(VinIndex vinIndex) {
+        this.vinIndex = vinIndex;
+    }
+
+    @Autowired(required = false)
+    void setCacheManager(CacheManager cacheManager) {
+        this.vehicleCache = cacheManager.getCache(VEHICLES_CACHE);
+    }
+
+    /**
+     * Creates many vehicles at once.
+     * <p>
+     * Each chunk of {@value #BATCH_CHUNK_SIZE} vehicles costs one duplicate-VIN query plus
+     * JDBC-batched INSERTs, and commits in its own transaction. A failing chunk does not
+     * roll back the chunks before it. The duplicate-VIN query is skipped when the {@link VinIndex}
+     * rules out every VIN of the chunk, as it does for a bulk load of new vehicles.
+     * <p>
+     * If a concurrent writer inserts one of the VINs between the query and the INSERTs, the chunk rolls back
+     * and its vehicles are inserted again one at a time, so only the colliding VINs are reported as 409.
+     *
+     * @param vehicles already-validated vehicles to create.
+     * @return one result per input vehicle, in input order (201 created, 409 duplicate, 500 failed).
+     */
+    public List<BatchItemResult> createVehicles(List<Vehicle> vehicles) {
+        List<BatchItemResult> results = new ArrayList<>(vehicles.size());
+        Set<String> created = new HashSet<>();
+        for (List<Vehicle> chunk : chunks(vehicles)) {
+            BatchItemResult[] chunkResults = new BatchItemResult[chunk.size()];
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    List<String> candidates = mightExist(vins(chunk));
+                    Set<String> existing = candidates.isEmpty()
+                            ? Set.of() : vehicleRepository.findExistingVins(candidates);
+                    Set<String> seen = new HashSet<>(created);
+                    List<Vehicle> toInsert = new ArrayList<>(chunk.size());
+                    for (int i = 0; i < chunk.size(); i++) {
+                        Vehicle v = chunk.get(i);
+                        if (existing.contains(v.getVin()) || !seen.add(v.getVin())) {
+                            chunkResults[i] = BatchItemResult.failed(v.getVin(), 409, "VIN already exists");
+                        } else {
+                            toInsert.add(v);
+                            chunkResults[i] = BatchItemResult.ok(v.getVin(), 201);
+                        }
+                    }
+                    vehicleRepository.insertAll(toInsert);
+                });
+            } catch (DataIntegrityViolationException ex) {
+                // A concurrent writer inserted one of these VINs between the check and the INSERT.
+                insertOneByOne(chunk, chunkResults);
+            } catch (DataAccessException ex) {
+                failPending(chunk, chunkResults, 201, 500, "Batch chunk failed");
+            }
+            for (int i = 0; i < chunk.size(); i++) {
+                if (chunkResults[i].status() == 201) {
+                    created.add(chunk.get(i).getVin());
+                    if (vinIndex != null) {
+                        vinIndex.add(chunk.get(i).getVin());
+                    }
+                    eventPublisher.publishEvent(VehicleChangeEvent.created(chunk.get(i)));
+                    cache(chunk.get(i).getVin(), chunk.get(i));
+                }
+            }
+            results.addAll(Arrays.asList(chunkResults));
+        }
+        return results;
+    }
+
+    /**
+     * Retries the pending inserts of a rolled-back chunk, each in its own transaction.
+     */
+    private void insertOneByOne(List<Vehicle> chunk, BatchItemResult[] results) {
+        for (int i = 0; i < chunk.size(); i++) {
+            if (results[i] == null) {
+                results[i] = BatchItemResult.failed(chunk.get(i).getVin(), 500, "Batch chunk failed");
+            } else if (results[i].status() == 201) {
+                Vehicle v = chunk.get(i);
+                // The rolled-back persist left a version behind, which would make the vehicle look detached.
+                v.setVersion(null);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> vehicleRepository.insert(v));
+                } catch (DuplicateKeyException ex) {
+                    results[i] = BatchItemResult.failed(v.getVin(), 409, "VIN already exists");
+                } catch (DataAccessException ex) {
+                    results[i] = BatchItemResult.failed(v.getVin(), 500, "Batch chunk failed");
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates many existing vehicles at once.
+     * <p>
+     * Each chunk loads its rows with one IN-query and writes the changes as JDBC-batched UPDATEs.
+     *
+     * @param vehicles already-validated vehicles carrying the new field values.
+     * @return one result per input vehicle, in input order (200 updated, 404 unknown VIN).
+     */
+    public List<BatchItemResult> updateVehicles(List<Vehicle> vehicles) {
+        vehicles.forEach(v -> discardQueuedUpdate(v.getVin()));
+        return writeUpdates(vehicles, true);
+    }
+
+    /**
+     * Writes updates accepted by {@link #queueUpdate(Vehicle, Vehicle)}, like {@link #updateVehicles(List)}
+     * but without caching the rows; {@link VehicleWriteBehind} evicts them itself once they are no longer pending.
+     *
+     * @param vehicles the pending updates, at most one per VIN.
+     * @return one result per input vehicle, in input order (200 updated, 404 deleted since, 500 failed).
+     */
+    public List<BatchItemResult> applyQueuedUpdates(List<Vehicle> vehicles) {
+        return writeUpdates(vehicles, false);
+    }
+
+    private List<BatchItemResult> writeUpdates(List<Vehicle> vehicles, boolean cacheWritten) {
+        List<BatchItemResult> results = new ArrayList<>(vehicles.size());
+        for (List<Vehicle> chunk : chunks(vehicles)) {
+            BatchItemResult[] chunkResults = new BatchItemResult[chunk.size()];
+            List<Vehicle> updated = new ArrayList<>(chunk.size());
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    Map<String, Vehicle> stored = vehicleRepository.findAllById(vins(chunk)).stream()
+                            .collect(Collectors.toMap(Vehicle::getVin, Function.identity()));
+                    for (int i = 0; i < chunk.size(); i++) {
+                        Vehicle v = chunk.get(i);
+                        Vehicle existingVehicle = stored.get(v.getVin());
+                        if (existingVehicle == null) {
+                            chunkResults[i] = BatchItemResult.failed(v.getVin(), 404, "Vehicle not found");
+                        } else {
+                            copyFields(v, existingVehicle);
+                            updated.add(existingVehicle);
+                            chunkResults[i] = BatchItemResult.ok(v.getVin(), 200);
+                        }
+                    }
+                });
+                updated.forEach(vehicle -> eventPublisher.publishEvent(VehicleChangeEvent.updated(vehicle)));
+                if (cacheWritten) {
+                    updated.forEach(vehicle -> cache(vehicle.getVin(), vehicle));
+                }
+            } catch (DataAccessException ex) {
+                failPending(chunk, chunkResults, 200, 500, "Batch chunk failed");
+            }
+            results.addAll(Arrays.asList(chunkResults));
+        }
+        return results;
+    }
+
+    /**
+     * Deletes many vehicles at once.
+     * <p>
+     * Each chunk costs one existence query and a single {@code DELETE ... WHERE vin IN (...)};
+     * VINs the {@link VinIndex} rules out are reported as 404 without either.
+     *
+     * @param vins VINs to delete.
+     * @return one result per input VIN, in input order (204 deleted, 404 unknown VIN).
+     */
+    public List<BatchItemResult> deleteVehicles(List<String> vins) {
+        vins.forEach(this::discardQueuedUpdate);
+        List<BatchItemResult> results = new ArrayList<>(vins.size());
+        for (int from = 0; from < vins.size(); from += BATCH_CHUNK_SIZE) {
+            List<String> chunk = vins.subList(from, Math.min(from + BATCH_CHUNK_SIZE, vins.size()));
+            List<String> candidates = mightExist(chunk);
+            Map<String, Long> removalStamps = removalStamps(candidates);
+            try {
+                Set<String> existing = candidates.isEmpty() ? Set.of() : transactionTemplate.execute(status -> {
+                    Set<String> found = vehicleRepository.findExistingVins(candidates);
+                    vehicleRepository.deleteAllByIdInBatch(found);
+                    return found;
+                });
+                existing.forEach(vin -> {
+                    if (vinIndex != null) {
+                        vinIndex.remove(vin, removalStamps.get(vin));
+                    }
+                    eventPublisher.publishEvent(VehicleChangeEvent.deleted(vin));
+                    cache(vin, null);
+                });
+                for (String vin : chunk) {
+                    results.add(existing.contains(vin)
+                            ? BatchItemResult.ok(vin, 204)
+                            : BatchItemResult.failed(vin, 404, "Vehicle not found"));
+                }
+            } catch (DataAccessException ex) {
+                chunk.forEach(vin -> results.add(BatchItemResult.failed(vin, 500, "Batch chunk failed")));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Retrieves one page of vehicles ordered by VIN.
+     * <p>
+     * Uses keyset pagination: one extra row is fetched to find out whether a next page exists,
+     * so no COUNT query is needed.
+     *
+     * @param afterVin exclusive lower bound, or {@code null} for the first page.
+     * @param limit    requested page size, clamped to [1, {@value #MAX_PAGE_SIZE}].
+     * @return the page and the cursor for the next one.
+     */
+    @Transactional(readOnly = true)
+    public VehiclePage getVehicles(String afterVin, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        Limit fetch = Limit.of(pageSize + 1);
+        List<Vehicle> rows = afterVin == null
+                ? vehicleRepository.findByOrderByVinAsc(fetch)
+                : vehicleRepository.findByVinGreaterThanOrderByVinAsc(afterVin, fetch);
+        return toPage(rows, pageSize);
     }
 
     /**
-     * Retrieves a complete list of all vehicles currently stored in the database.
+     * Searches vehicles by attribute filters, one page at a time.
+     * <p>
+     * All filters and the keyset bound are combined into a single query ordered by VIN;
+     * like {@link #getVehicles(String, int)}, one extra row is fetched to detect a next page.
      *
-     * @return a {@link List} of all {@link Vehicle} entities.
+     * @param criteria filters to apply (null fields are ignored).
+     * @param afterVin exclusive lower bound, or {@code null} for the first page.
+     * @param limit    requested page size, clamped to [1, {@value #MAX_PAGE_SIZE}].
+     * @return the matching page and the cursor for the next one.
      */
-    public List<Vehicle> getAllVehicles() {
-        return vehicleRepository.findAll();
+    @Transactional(readOnly = true)
+    public VehiclePage searchVehicles(VehicleSearchCriteria criteria, String afterVin, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<Vehicle> rows = vehicleRepository.findBy(VehicleSpecifications.matching(criteria, afterVin),
+                query -> query.sortBy(Sort.by("vin")).limit(pageSize + 1).all());
+        return toPage(rows, pageSize);
+    }
+
+    /**
+     * Visits every vehicle in VIN order without loading the table into memory.
+     * <p>
+     * Rows are read through a database cursor and detached after the action runs,
+     * so the persistence context never holds more than one entity.
+     *
+     * @param action callback invoked once per vehicle.
+     */
+    @Transactional(readOnly = true)
+    public void forEachVehicle(Consumer<Vehicle> action) {
+        try (Stream<Vehicle> vehicles = vehicleRepository.streamAllByOrderByVinAsc()) {
+            vehicles.forEach(v -> {
+                action.accept(v);
+                entityManager.detach(v);
+            });
+        }
     }
 
     /**
      * Retrieves a specific vehicle by its unique VIN.
+     * <p>
+     * On a cache miss, concurrent lookups of the same VIN share a single {@code findById} query
+     * (see {@link SingleFlight}), so a burst of requests for a popular VIN costs one database round trip.
+     * The query runs in the repository's own read-only transaction (and so on a read replica, if configured);
+     * the method itself is not transactional, so callers waiting on a shared query hold no connection.
+     * An update accepted by {@link #queueUpdate(Vehicle, Vehicle)} and not yet written is applied on top.
+     * A VIN the {@link VinIndex} rules out is not queried at all.
+     * <p>
+     * Writes put or evict only after they commit, and a miss ({@code sync}) only caches its row if no put or
+     * evict of the VIN happened since it started (see {@link VehicleCacheConfig}), so a load can never cache the
+     * state from before a write that has already been applied to the cache. No lock is held while loading.
      *
      * @param vin the Vehicle Identification Number to search for.
      * @return an {@link Optional} containing the found vehicle, or empty if no vehicle matches the VIN.
      */
+    @Cacheable(cacheNames = VEHICLES_CACHE, key = "#vin", sync = true)
     public Optional<Vehicle> getVehicleByVin(String vin) {
-        return vehicleRepository.findById(vin);
+        if (vinIndex != null && !vinIndex.mightContain(vin)) {
+            return Optional.empty();
+        }
+        VinBatchLoader batchLoader = this.batchLoader;
+        Optional<Vehicle> stored = vinLookups.load(vin,
+                () -> batchLoader == null ? vehicleRepository.findById(vin) : batchLoader.load(vin));
+        Vehicle queued = writeBehind == null ? null : writeBehind.pending(vin);
+        return queued == null ? stored : stored.map(v -> withFields(vin, v.getVersion(), queued));
+    }
+
+    /**
+     * Optionally merges single-VIN cache misses from concurrent requests into shared {@code IN} queries.
+     *
+     * @param batchWindow how long the first miss waits for others to join its query; zero (the default)
+     *                    queries every VIN on its own.
+     */
+    @Value("${vehicle.lookup.batch-window:0ms}")
+    void setLookupBatchWindow(Duration batchWindow) {
+        this.batchLoader = batchWindow.isZero() ? null
+                : new VinBatchLoader(vehicleRepository::findAllById, BATCH_CHUNK_SIZE, batchWindow);
+    }
+
+    /**
+     * Retrieves many vehicles by VIN with one {@code IN} query per {@value #BATCH_CHUNK_SIZE} distinct VINs
+     * that the {@link VinIndex} does not rule out.
+     *
+     * @param vins the VINs to look up; duplicates are queried once.
+     * @return one result per requested VIN, in request order, with status 404 for VINs that do not exist.
+     */
+    @Transactional(readOnly = true)
+    public List<VehicleLookupResult> getVehiclesByVin(List<String> vins) {
+        List<String> distinct = mightExist(List.copyOf(new LinkedHashSet<>(vins)));
+        Map<String, Vehicle> found = new HashMap<>(distinct.size() * 2);
+        for (int from = 0; from < distinct.size(); from += BATCH_CHUNK_SIZE) {
+            vehicleRepository.findAllById(distinct.subList(from, Math.min(from + BATCH_CHUNK_SIZE, distinct.size())))
+                    .forEach(v -> found.put(v.getVin(), v));
+        }
+        List<VehicleLookupResult> results = new ArrayList<>(vins.size());
+        for (String vin : vins) {
+            Vehicle vehicle = found.get(vin);
+            results.add(vehicle == null ? VehicleLookupResult.missing(vin) : VehicleLookupResult.found(vehicle));
+        }
+        return results;
+    }
+
+    /**
+     * Makes lookups that start after a committed change query the database again instead of joining
+     * a query that may have read the previous state.
+     */
+    @EventListener
+    public void onVehicleChange(VehicleChangeEvent event) {
+        vinLookups.forget(event.vin());
     }
 
     /**
      * Permanently removes a vehicle from the system.
+     * <p>
+     * With an expected version, the vehicle is read and deleted in one read-write transaction, so the version
+     * is checked against the primary rather than a read replica.
+     * <p>
+     * Deleting an unknown VIN succeeds without a change event, so change-feed subscribers only hear about
+     * vehicles that existed.
      *
-     * @param vin the Vehicle Identification Number of the vehicle to delete.
+     * @param vin             the Vehicle Identification Number of the vehicle to delete.
+     * @param expectedVersion version the client last saw (from {@code If-Match}), or {@code null} for no precondition.
+     * @throws PreconditionFailedException if a version is expected and the vehicle is missing or has another version.
      */
-    public void deleteVehicle(String vin) {
-        vehicleRepository.deleteById(vin);
+    public void deleteVehicle(String vin, Long expectedVersion) {
+        discardQueuedUpdate(vin);
+        long removalStamp = vinIndex == null ? 0 : vinIndex.removalStamp(vin);
+        boolean removed;
+        if (expectedVersion == null) {
+            removed = transactionTemplate.execute(status -> vehicleRepository.deleteByVin(vin) > 0);
+        } else {
+            transactionTemplate.executeWithoutResult(status -> {
+                Vehicle existing = vehicleRepository.findById(vin)
+                        .orElseThrow(() -> new PreconditionFailedException("Vehicle does not exist"));
+                checkVersion(existing, expectedVersion);
+                vehicleRepository.delete(existing);
+            });
+            removed = true;
+        }
+        cache(vin, null);
+        if (!removed) {
+            return;
+        }
+        if (vinIndex != null) {
+            vinIndex.remove(vin, removalStamp);
+        }
+        eventPublisher.publishEvent(VehicleChangeEvent.deleted(vin));
+    }
+
+    private static void checkVersion(Vehicle current, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(current.getVersion())) {
+            throw new PreconditionFailedException("Vehicle has been modified");
+        }
+    }
+
+    /**
+     * @return the VINs the {@link VinIndex} does not rule out, in order (all of them without an index).
+     */
+    private List<String> mightExist(List<String> vins) {
+        return vinIndex == null ? vins : vins.stream().filter(vinIndex::mightContain).toList();
+    }
+
+    private Map<String, Long> removalStamps(List<String> vins) {
+        Map<String, Long> stamps = new HashMap<>(vins.size() * 2);
+        if (vinIndex != null) {
+            vins.forEach(vin -> stamps.put(vin, vinIndex.removalStamp(vin)));
+        }
+        return stamps;
+    }
+
+    /**
+     * Caches a VIN written outside of a cache-annotated method, once its transaction has committed.
+     *
+     * @param vehicle the row as written, or {@code null} for a deleted VIN (cached as not found).
+     */
+    private void cache(String vin, Vehicle vehicle) {
+        if (vehicleCache != null) {
+            vehicleCache.put(vin, vehicle);
+        }
+    }
+
+    private void discardQueuedUpdate(String vin) {
+        if (writeBehind != null) {
+            writeBehind.discard(vin);
+        }
+    }
+
+    private static Vehicle withFields(String vin, Long version, Vehicle fields) {
+        Vehicle vehicle = Vehicle.builder().vin(vin).version(version).build();
+        copyFields(fields, vehicle);
+        return vehicle;
+    }
+
+    private static void copyFields(Vehicle source, Vehicle target) {
+        target.setManufacturerName(source.getManufacturerName());
+        target.setDescription(source.getDescription());
+        target.setHorsePower(source.getHorsePower());
+        target.setModelName(source.getModelName());
+        target.setPurchasePrice(source.getPurchasePrice());
+        target.setFuelType(source.getFuelType());
+    }
+
+    /**
+     * Trims a result fetched with {@code pageSize + 1} rows to the page and derives the next cursor.
+     */
+    private static VehiclePage toPage(List<Vehicle> rows, int pageSize) {
+        if (rows.size() <= pageSize) {
+            return new VehiclePage(rows, null);
+        }
+        List<Vehicle> page = rows.subList(0, pageSize);
+        return new VehiclePage(page, VehiclePage.encodeCursor(page.get(pageSize - 1).getVin()));
+    }
+
+    private static List<List<Vehicle>> chunks(List<Vehicle> vehicles) {
+        List<List<Vehicle>> chunks = new ArrayList<>();
+        for (int from = 0; from < vehicles.size(); from += BATCH_CHUNK_SIZE) {
+            chunks.add(vehicles.subList(from, Math.min(from + BATCH_CHUNK_SIZE, vehicles.size())));
+        }
+        return chunks;
+    }
+
+    private static List<String> vins(List<Vehicle> vehicles) {
+        return vehicles.stream().map(Vehicle::getVin).toList();
+    }
+
+    /**
+     * Replaces the optimistic success results of a rolled-back chunk with the given failure.
+     */
+    private static void failPending(List<Vehicle> chunk, BatchItemResult[] results,
+                                    int successStatus, int status, String error) {
+        for (int i = 0; i < chunk.size(); i++) {
+            if (results[i] == null || results[i].status() == successStatus) {
+                results[i] = BatchItemResult.failed(chunk.get(i).getVin(), status, error);
+            }
+        }
     }
 }
@@ -6,7 +6,14 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 @SpringBootApplication
 public class VehicleServiceApplication {
 
+	/**
+	 * Starts the web application, or runs a bulk {@code export}/{@code import} when given as the first
+	 * argument (see {@link VehicleTransferCommand}).
+	 */
 	public static void main(String[] args) {
+		if (VehicleTransferCommand.handles(args)) {
+			System.exit(VehicleTransferCommand.run(args));
+		}
 		SpringApplication.run(VehicleServiceApplication.class, args);
 	}
 
@@ -0,0 +1,41 @@
+package com.song.apollo.vehicle_service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Configures the sharded deployment mode, in which every instance owns a share of the VIN space
+ * (see {@link VehicleShardRouter} and {@link VehicleShardFilter}).
+ * <p>
+ * Enabled with {@code vehicle.sharding.enabled=true} (the {@code sharded} profile). Members are listed in
+ * {@code vehicle.sharding.nodes} and placed on the ring {@code vehicle.sharding.virtual-nodes} times each. All members
+ * share {@code vehicle.sharding.secret}, which is required.
+ */
+@Configuration
+@ConditionalOnProperty(name = "vehicle.sharding.enabled", havingValue = "true")
+public class VehicleShardConfig {
+
+    @Bean
+    public VehicleShardRouter vehicleShardRouter(@Value("${vehicle.sharding.self:}") String self,
+                                                 @Value("${vehicle.sharding.nodes:}") List<String> nodes,
+                                                 @Value("${vehicle.sharding.virtual-nodes:128}") int virtualNodes,
+                                                 @Value("${vehicle.sharding.timeout:5s}") Duration timeout,
+                                                 @Value("${vehicle.sharding.secret:}") String secret,
+                                                 VehicleService vehicleService, JsonMapper jsonMapper,
+                                                 MeterRegistry meterRegistry) {
+        return new VehicleShardRouter(self, nodes, virtualNodes, timeout, secret, vehicleService, jsonMapper, meterRegistry);
+    }
+
+    @Bean
+    public VehicleShardFilter vehicleShardFilter(VehicleShardRouter router, JsonMapper jsonMapper,
+                                                 MeterRegistry meterRegistry) {
+        return new VehicleShardFilter(router, jsonMapper, meterRegistry);
+    }
+}
@@ -0,0 +1,56 @@
+package com.song.apollo.vehicle_service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * REST Controller for the shard ring of the sharded deployment mode (see {@link VehicleShardRouter}).
+ * <p>
+ * Base URL: /vehicle/shards
+ */
+@RestController
+@RequestMapping("/vehicle/shards")
+@ConditionalOnProperty(name = "vehicle.sharding.enabled", havingValue = "true")
+public class VehicleShardController {
+    private final VehicleShardRouter router;
+
+    public VehicleShardController(VehicleShardRouter router) {
+        this.router = router;
+    }
+
+    /**
+     * GET /vehicle/shards
+     *
+     * @return this instance's URL and the ring members (200 OK).
+     */
+    @GetMapping
+    public VehicleShardRouter.Membership getMembership() {
+        return router.membership();
+    }
+
+    /**
+     * PUT /vehicle/shards
+     * Replaces the ring members, e.g. {@code ["http://localhost:8081","http://localhost:8082"]}, on every old and
+     * new member, and moves each vehicle to its new owner. Returns once the vehicles have moved.
+     * <p>
+     * Requires the members' secret in {@value VehicleShardRouter#SECRET_HEADER}; {@link VehicleShardFilter}
+     * answers 403 Forbidden without it.
+     *
+     * @param nodes base URLs of all members after the change.
+     * @return the new membership (200 OK), 400 Bad Request for an empty list or an invalid URL,
+     * or 403 Forbidden without the secret.
+     */
+    @PutMapping
+    public VehicleShardRouter.Membership updateMembership(@RequestBody List<String> nodes,
+                                                          @RequestHeader(name = VehicleShardRouter.HOP_HEADER, required = false) String from) {
+        return router.updateMembership(nodes, from == null);
+    }
+}
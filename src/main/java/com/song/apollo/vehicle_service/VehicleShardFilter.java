@@ -0,0 +1,381 @@
+package com.song.apollo.vehicle_service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.databind.node.ArrayNode;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Routes {@code /vehicle} requests to the shard that owns their VINs (see {@link VehicleShardRouter}).
+ * <p>
+ * {@code /vehicle/{vin}} (any method) and {@code POST /vehicle} (by the {@code vin} of the body) are served here
+ * when this instance owns the VIN and otherwise forwarded to the owner with their method, headers and body; the
+ * owner's response is relayed unchanged. {@code GET /vehicle} and {@code GET /vehicle/search} are sent to every
+ * member in parallel: each returns its first page after the cursor, and the pages are merged by VIN into one page
+ * with the usual {@code ETag} and {@code X-Next-Cursor}, so clients page through the whole cluster as through a
+ * single instance. If a member answers with an error, that response is relayed; if it cannot be reached, the
+ * request fails with 503.
+ * <p>
+ * Everything else (batch, lookup, NDJSON stream, export/import, statistics, change feed) is served from this
+ * instance's data only; batch and import reject the VINs of other members item by item. Requests from other
+ * members carry {@link VehicleShardRouter#HOP_HEADER} and are never routed again. They, and
+ * {@code PUT /vehicle/shards}, must carry the members' secret in {@link VehicleShardRouter#SECRET_HEADER} and are
+ * rejected with 403 otherwise.
+ * <p>
+ * Runs after {@link VehicleRateLimitFilter}, so a client is charged once, on the instance it called. Every request
+ * is counted in {@code vehicle.shard.requests}, tagged with its {@code route} ({@code local}, {@code forwarded} or
+ * {@code scatter}).
+ */
+public class VehicleShardFilter extends OncePerRequestFilter implements Ordered {
+    /** Headers the JDK client sets itself and refuses to copy. */
+    private static final Set<String> RESTRICTED_REQUEST_HEADERS = Set.of(
+            "connection", "content-length", "expect", "host", "upgrade", "transfer-encoding", "keep-alive", "te");
+    private static final Set<String> HOP_BY_HOP_RESPONSE_HEADERS = Set.of(
+            "connection", "content-length", "transfer-encoding", "keep-alive");
+    /** Only members may send these; a client's values are never passed on. */
+    private static final Set<String> MEMBER_HEADERS = Set.of(
+            VehicleShardRouter.HOP_HEADER.toLowerCase(Locale.ROOT), VehicleShardRouter.SECRET_HEADER.toLowerCase(Locale.ROOT));
+    private static final Set<String> SCATTER_PATHS = Set.of("/vehicle", "/vehicle/search");
+    private static final String SHARDS_PATH = "/vehicle/shards";
+    private static final String VEHICLE_PREFIX = "/vehicle/";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    private final VehicleShardRouter router;
+    private final JsonMapper jsonMapper;
+    private final MeterRegistry meterRegistry;
+    private final Counter local;
+    private final Counter forwarded;
+    private final Counter scatter;
+
+    VehicleShardFilter(VehicleShardRouter router, JsonMapper jsonMapper, MeterRegistry meterRegistry) {
+        this.router = router;
+        this.jsonMapper = jsonMapper;
+        this.meterRegistry = meterRegistry;
+        this.local = counter(meterRegistry, "local");
+        this.forwarded = counter(meterRegistry, "forwarded");
+        this.scatter = counter(meterRegistry, "scatter");
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String route) {
+        return Counter.builder("vehicle.shard.requests")
+                .description("Vehicle API requests by shard route")
+                .tag("route", route)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !path(request).startsWith("/vehicle");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = path(request);
+        boolean hop = request.getHeader(VehicleShardRouter.HOP_HEADER) != null;
+        if ((hop || (path.equals(SHARDS_PATH) && HttpMethod.PUT.matches(request.getMethod())))
+                && !router.authenticates(request.getHeader(VehicleShardRouter.SECRET_HEADER))) {
+            forbidden(response);
+            return;
+        }
+        if (hop) {
+            chain.doFilter(request, response);
+            return;
+        }
+        String vin = null;
+        byte[] body = null;
+        if (SCATTER_PATHS.contains(path) && HttpMethod.GET.matches(request.getMethod()) && !acceptsNdjson(request)) {
+            scatterGather(request, response, chain);
+            return;
+        }
+        if (path.startsWith(VEHICLE_PREFIX) && path.indexOf('/', VEHICLE_PREFIX.length()) < 0) {
+            vin = VinValidator.normalize(path.substring(VEHICLE_PREFIX.length()));
+        } else if (path.equals("/vehicle") && HttpMethod.POST.matches(request.getMethod())) {
+            body = request.getInputStream().readAllBytes();
+            vin = bodyVin(body);
+            request = new CachedBodyRequest(request, body);
+        }
+
+        if (vin != null && VinValidator.isValid(vin, true)) {
+            String owner = router.owner(vin);
+            if (!owner.equals(router.self())) {
+                forwarded.increment();
+                forward(owner, request, body, response);
+                return;
+            }
+        }
+        local.increment();
+        chain.doFilter(request, response);
+    }
+
+    /**
+     * Relays the request to {@code node} and its response back to the client.
+     */
+    private void forward(String node, HttpServletRequest request, byte[] body, HttpServletResponse response)
+            throws IOException {
+        if (body == null) {
+            body = request.getInputStream().readAllBytes();
+        }
+        HttpRequest.Builder builder = router.request(node, pathAndQuery(request), router.timeout())
+                .method(request.getMethod(), body.length == 0
+                        ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofByteArray(body));
+        for (String name : Collections.list(request.getHeaderNames())) {
+            String lowerCaseName = name.toLowerCase(Locale.ROOT);
+            if (!RESTRICTED_REQUEST_HEADERS.contains(lowerCaseName) && !MEMBER_HEADERS.contains(lowerCaseName)) {
+                for (String value : Collections.list(request.getHeaders(name))) {
+                    builder.header(name, value);
+                }
+            }
+        }
+        HttpResponse<InputStream> relayed;
+        try {
+            relayed = router.httpClient().send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (IOException ex) {
+            unavailable(response, node);
+            return;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            unavailable(response, node);
+            return;
+        }
+        response.setStatus(relayed.statusCode());
+        relayed.headers().map().forEach((name, values) -> {
+            if (!HOP_BY_HOP_RESPONSE_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                values.forEach(value -> response.addHeader(name, value));
+            }
+        });
+        try (InputStream in = relayed.body()) {
+            in.transferTo(response.getOutputStream());
+        }
+    }
+
+    /**
+     * Fetches the page after the cursor from every member and merges them into the first {@code limit} vehicles
+     * by VIN. The merged page is complete: no member can hold a VIN between the cursor and the last merged VIN
+     * that it did not return.
+     */
+    private void scatterGather(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        int pageSize;
+        try {
+            String limit = request.getParameter("limit");
+            pageSize = Math.max(1, Math.min(limit == null ? DEFAULT_PAGE_SIZE : Integer.parseInt(limit),
+                    VehicleService.MAX_PAGE_SIZE));
+        } catch (NumberFormatException ex) {
+            // let the controller reject it
+            local.increment();
+            chain.doFilter(request, response);
+            return;
+        }
+        scatter.increment();
+
+        String pathAndQuery = pathAndQuery(request);
+        List<String> nodes = List.copyOf(router.ring().nodes());
+        List<CompletableFuture<HttpResponse<byte[]>>> calls = new ArrayList<>(nodes.size());
+        for (String node : nodes) {
+            HttpRequest part = router.request(node, pathAndQuery, router.timeout())
+                    .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                    .build();
+            calls.add(router.httpClient().sendAsync(part, HttpResponse.BodyHandlers.ofByteArray()));
+        }
+
+        List<JsonNode> merged = new ArrayList<>();
+        boolean more = false;
+        for (int i = 0; i < nodes.size(); i++) {
+            HttpResponse<byte[]> part;
+            try {
+                part = calls.get(i).join();
+            } catch (CompletionException ex) {
+                unavailable(response, nodes.get(i));
+                return;
+            }
+            if (part.statusCode() != HttpStatus.OK.value()) {
+                relay(part, response);
+                return;
+            }
+            try {
+                jsonMapper.readTree(part.body()).forEach(merged::add);
+            } catch (JacksonException ex) {
+                unavailable(response, nodes.get(i));
+                return;
+            }
+            more |= part.headers().firstValue(VehicleController.NEXT_CURSOR_HEADER).isPresent();
+        }
+        merged.sort(Comparator.comparing(vehicle -> vehicle.get("vin").asString()));
+        more |= merged.size() > pageSize;
+        List<JsonNode> vehicles = merged.subList(0, Math.min(pageSize, merged.size()));
+
+        List<Vehicle> versions = new ArrayList<>(vehicles.size());
+        for (JsonNode vehicle : vehicles) {
+            JsonNode version = vehicle.get("version");
+            versions.add(Vehicle.builder()
+                    .vin(vehicle.get("vin").asString())
+                    .version(version == null || version.isNull() ? null : version.asLong())
+                    .build());
+        }
+        String nextCursor = more && !vehicles.isEmpty()
+                ? VehiclePage.encodeCursor(versions.get(versions.size() - 1).getVin()) : null;
+        String etag = new VehiclePage(versions, nextCursor).etag();
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        if (nextCursor != null) {
+            response.setHeader(VehicleController.NEXT_CURSOR_HEADER, nextCursor);
+        }
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+        ArrayNode page = jsonMapper.createArrayNode();
+        page.addAll(vehicles);
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        jsonMapper.writeValue(response.getOutputStream(), page);
+    }
+
+    private String bodyVin(byte[] body) {
+        try {
+            JsonNode vin = jsonMapper.readTree(body).get("vin");
+            return vin != null && vin.isString() ? VinValidator.normalize(vin.asString()) : null;
+        } catch (JacksonException ex) {
+            // malformed JSON is rejected by the controller
+            return null;
+        }
+    }
+
+    private static void relay(HttpResponse<byte[]> part, HttpServletResponse response) throws IOException {
+        response.setStatus(part.statusCode());
+        part.headers().firstValue(HttpHeaders.CONTENT_TYPE).ifPresent(response::setContentType);
+        response.getOutputStream().write(part.body());
+    }
+
+    private void unavailable(HttpServletResponse response, String node) throws IOException {
+        meterRegistry.counter("vehicle.api.errors", "status", Integer.toString(HttpStatus.SERVICE_UNAVAILABLE.value()),
+                "reason", "shard_unavailable").increment();
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"Shard unavailable: " + node + "\"}");
+    }
+
+    private void forbidden(HttpServletResponse response) throws IOException {
+        meterRegistry.counter("vehicle.api.errors", "status", Integer.toString(HttpStatus.FORBIDDEN.value()),
+                "reason", "shard_secret").increment();
+        response.setStatus(HttpStatus.FORBIDDEN.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"Missing or wrong " + VehicleShardRouter.SECRET_HEADER + "\"}");
+    }
+
+    /**
+     * Same comparison as Spring's {@code checkNotModified} for strong tags: any listed tag or {@code *}.
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String candidate = tag.strip();
+            if (candidate.equals("*") || candidate.equals(etag) || candidate.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean acceptsNdjson(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return accept != null && accept.contains(MediaType.APPLICATION_NDJSON_VALUE);
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static String pathAndQuery(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return request.getQueryString() == null ? path : path + "?" + request.getQueryString();
+    }
+
+    /**
+     * A request whose body has already been read, so it can still be handed to the controller.
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package com.song.apollo.vehicle_service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.server.context.WebServerInitializedEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Ring membership and rebalancing for the sharded deployment mode ({@code vehicle.sharding.enabled=true}).
+ * <p>
+ * Every instance owns the VINs that {@link ConsistentHashRing} assigns to its base URL and only stores those;
+ * {@link VehicleShardFilter} forwards requests for other VINs to their owner. The members come from
+ * {@code vehicle.sharding.nodes}; this instance's own URL from {@code vehicle.sharding.self}, or
+ * {@code http://localhost:<port>} once the web server has started. With no members configured the instance
+ * starts as a ring of one.
+ * <p>
+ * {@link #updateMembership} replaces the members when nodes join or leave: the new ring is passed on to every
+ * old and new member, and each of them hands the vehicles it no longer owns to their new owner, a page at a time
+ * through {@code POST /vehicle/batch}, deleting them locally once the owner has them. A moved vehicle starts again
+ * at version 0 on its new owner. While vehicles are moving, a request for one of them can briefly see 404.
+ * <p>
+ * Members prove themselves to each other with {@code vehicle.sharding.secret}, sent in {@link #SECRET_HEADER} on
+ * every request between them. Only requests carrying it may change the ring or skip routing as a hop.
+ */
+public class VehicleShardRouter implements ApplicationListener<WebServerInitializedEvent> {
+    /** Marks a request sent by another member; it is served from local data and never routed again. */
+    public static final String HOP_HEADER = "X-Vehicle-Shard-Hop";
+    /** Carries the secret shared by all members (see {@link #authenticates(String)}). */
+    public static final String SECRET_HEADER = "X-Vehicle-Shard-Secret";
+    private static final Logger log = LoggerFactory.getLogger(VehicleShardRouter.class);
+
+    private final VehicleService vehicleService;
+    private final JsonMapper jsonMapper;
+    private final HttpClient httpClient;
+    private final Duration timeout;
+    private final String secret;
+    private final List<String> configuredNodes;
+    private final int virtualNodes;
+    private final Counter rebalanced;
+    private volatile String self;
+    private volatile ConsistentHashRing ring;
+
+    /**
+     * @param self         this instance's base URL, or blank to derive it from the web server port.
+     * @param nodes        base URLs of all members, including this instance; empty for a ring of one.
+     * @param virtualNodes points per member on the ring.
+     * @param timeout      timeout of a forwarded single-vehicle request and of each node's part of a scatter-gather.
+     * @param secret       secret shared by all members.
+     * @throws IllegalArgumentException if {@code secret} is blank.
+     */
+    public VehicleShardRouter(String self, List<String> nodes, int virtualNodes, Duration timeout, String secret,
+                              VehicleService vehicleService, JsonMapper jsonMapper, MeterRegistry meterRegistry) {
+        if (secret.isBlank()) {
+            throw new IllegalArgumentException("vehicle.sharding.secret is required in the sharded mode");
+        }
+        this.vehicleService = vehicleService;
+        this.jsonMapper = jsonMapper;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+        this.timeout = timeout;
+        this.secret = secret;
+        this.configuredNodes = nodes.stream().filter(node -> !node.isBlank()).map(VehicleShardRouter::baseUrl).toList();
+        this.virtualNodes = virtualNodes;
+        this.rebalanced = Counter.builder("vehicle.shard.rebalanced")
+                .description("Vehicles handed to another shard after a membership change")
+                .register(meterRegistry);
+        Gauge.builder("vehicle.shard.nodes", this, router -> router.ring == null ? 0 : router.ring.nodes().size())
+                .description("Members of the shard ring")
+                .register(meterRegistry);
+        if (!self.isBlank()) {
+            initialize(baseUrl(self));
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(WebServerInitializedEvent event) {
+        if (self == null && event.getApplicationContext().getServerNamespace() == null) {
+            initialize("http://localhost:" + event.getWebServer().getPort());
+        }
+    }
+
+    private void initialize(String self) {
+        this.self = self;
+        this.ring = new ConsistentHashRing(configuredNodes.isEmpty() ? List.of(self) : configuredNodes, virtualNodes);
+        log.info("Shard {} joined ring {}", self, ring.nodes());
+    }
+
+    public String self() {
+        return self;
+    }
+
+    public ConsistentHashRing ring() {
+        return ring;
+    }
+
+    /**
+     * @return the base URL of the member that owns {@code vin}.
+     */
+    public String owner(String vin) {
+        return ring.owner(vin);
+    }
+
+    /**
+     * @return whether this instance owns {@code vin}; always true before it has joined a ring, e.g. when the
+     * application runs as a command instead of a server.
+     */
+    public boolean owns(String vin) {
+        ConsistentHashRing current = ring;
+        return current == null || current.owner(vin).equals(self);
+    }
+
+    /**
+     * @param presented the value of {@link #SECRET_HEADER}, or {@code null} if the request had none.
+     * @return whether it is the members' secret.
+     */
+    public boolean authenticates(String presented) {
+        return secretMatches(secret, presented);
+    }
+
+    /**
+     * Compares in constant time, so the response time does not reveal how much of a guess was right.
+     */
+    static boolean secretMatches(String secret, String presented) {
+        return secret != null && !secret.isEmpty() && presented != null && MessageDigest.isEqual(
+                secret.getBytes(StandardCharsets.UTF_8), presented.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public Membership membership() {
+        ConsistentHashRing current = ring;
+        return new Membership(self, current.nodes(), current.virtualNodes());
+    }
+
+    /**
+     * Replaces the ring members and moves the vehicles this instance no longer owns.
+     *
+     * @param nodes     base URLs of the new members.
+     * @param propagate whether to pass the new members on to every old and new member first (false when the
+     *                  change came from another member).
+     * @return the new membership.
+     * @throws BadRequestException if {@code nodes} is empty or holds something other than an http(s) URL.
+     */
+    public synchronized Membership updateMembership(Collection<String> nodes, boolean propagate) {
+        Set<String> members = new LinkedHashSet<>();
+        for (String node : nodes) {
+            URI uri;
+            try {
+                uri = URI.create(baseUrl(node));
+            } catch (IllegalArgumentException ex) {
+                throw new BadRequestException("Invalid node URL: " + node);
+            }
+            if (uri.getHost() == null || !("http".equals(uri.getScheme()) || "https".equals(uri.getScheme()))) {
+                throw new BadRequestException("Invalid node URL: " + node);
+            }
+            members.add(uri.toString());
+        }
+        if (members.isEmpty()) {
+            throw new BadRequestException("A ring needs at least one node");
+        }
+
+        ConsistentHashRing previous = ring;
+        ring = previous.withNodes(members);
+        log.info("Shard {} changed ring from {} to {}", self, previous.nodes(), ring.nodes());
+        if (propagate) {
+            Set<String> affected = new LinkedHashSet<>(previous.nodes());
+            affected.addAll(members);
+            affected.remove(self);
+            for (String node : affected) {
+                notifyMember(node, members);
+            }
+        }
+        rebalance();
+        return membership();
+    }
+
+    private void notifyMember(String node, Set<String> members) {
+        try {
+            HttpResponse<String> response = httpClient.send(request(node, "/vehicle/shards", null)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .PUT(HttpRequest.BodyPublishers.ofString(jsonMapper.writeValueAsString(members)))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                log.warn("Shard {} rejected ring {}: {} {}", node, members, response.statusCode(), response.body());
+            }
+        } catch (IOException ex) {
+            log.warn("Shard {} is unreachable, it keeps its old ring: {}", node, ex.toString());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Hands every local vehicle that another member owns to that member.
+     * <p>
+     * Vehicles the owner reports as created are deleted here, and so are those it already holds with the same
+     * data. The rest (owner unreachable or failing, or holding different data under the VIN) stay until the next
+     * rebalance.
+     *
+     * @return the number of vehicles handed off.
+     */
+    long rebalance() {
+        long moved = 0;
+        String after = null;
+        VehiclePage page;
+        do {
+            page = vehicleService.getVehicles(after, VehicleService.MAX_PAGE_SIZE);
+            Map<String, List<Vehicle>> outgoing = new LinkedHashMap<>();
+            for (Vehicle v : page.vehicles()) {
+                String owner = ring.owner(v.getVin());
+                if (!owner.equals(self)) {
+                    outgoing.computeIfAbsent(owner, node -> new ArrayList<>()).add(v);
+                }
+            }
+            for (Map.Entry<String, List<Vehicle>> batch : outgoing.entrySet()) {
+                List<String> handedOff = handOff(batch.getKey(), batch.getValue());
+                if (!handedOff.isEmpty()) {
+                    vehicleService.deleteVehicles(handedOff);
+                    moved += handedOff.size();
+                }
+            }
+            after = VehiclePage.decodeCursor(page.nextCursor());
+        } while (after != null);
+        if (moved > 0) {
+            rebalanced.increment(moved);
+            log.info("Shard {} handed {} vehicles to other shards", self, moved);
+        }
+        return moved;
+    }
+
+    /**
+     * @return the VINs the owner now stores: created, or already there with the same data.
+     */
+    private List<String> handOff(String node, List<Vehicle> vehicles) {
+        try {
+            HttpResponse<String> response = httpClient.send(request(node, "/vehicle/batch", null)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .POST(HttpRequest.BodyPublishers.ofString(jsonMapper.writeValueAsString(vehicles)))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                log.warn("Shard {} refused {} vehicles: {} {}", node, vehicles.size(), response.statusCode(), response.body());
+                return List.of();
+            }
+            List<BatchItemResult> results = jsonMapper.readValue(response.body(), new TypeReference<>() {
+            });
+            List<String> handedOff = new ArrayList<>(results.size());
+            List<String> conflicts = new ArrayList<>();
+            for (BatchItemResult result : results) {
+                if (result.status() == HttpStatus.CREATED.value()) {
+                    handedOff.add(result.vin());
+                } else if (result.status() == HttpStatus.CONFLICT.value()) {
+                    conflicts.add(result.vin());
+                }
+            }
+            if (!conflicts.isEmpty()) {
+                handedOff.addAll(alreadyThere(node, vehicles, conflicts));
+            }
+            return handedOff;
+        } catch (IOException | JacksonException ex) {
+            log.warn("Handing {} vehicles to shard {} failed: {}", vehicles.size(), node, ex.toString());
+            return List.of();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return List.of();
+        }
+    }
+
+    /**
+     * Looks up the VINs the owner already had when they were handed to it, e.g. because an earlier rebalance
+     * stopped between the hand-off and the local delete.
+     *
+     * @return those of {@code vins} that the owner holds with the same data as here. Versions are not compared,
+     * as a moved vehicle starts again at version 0.
+     */
+    private List<String> alreadyThere(String node, List<Vehicle> vehicles, List<String> vins)
+            throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(request(node, "/vehicle/lookup", null)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofString(jsonMapper.writeValueAsString(vins)))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            log.warn("Shard {} could not look up {} vehicles it already has, keeping them here: {} {}",
+                    node, vins.size(), response.statusCode(), response.body());
+            return List.of();
+        }
+        Map<String, Vehicle> local = new HashMap<>();
+        vehicles.forEach(v -> local.put(v.getVin(), v));
+        List<VehicleLookupResult> results = jsonMapper.readValue(response.body(), new TypeReference<>() {
+        });
+        List<String> same = new ArrayList<>(results.size());
+        for (VehicleLookupResult result : results) {
+            if (result.vehicle() != null && sameData(local.get(result.vin()), result.vehicle())) {
+                same.add(result.vin());
+            } else {
+                log.warn("Shard {} holds different data for VIN {}, keeping the vehicle here until it is resolved",
+                        node, result.vin());
+            }
+        }
+        return same;
+    }
+
+    private static boolean sameData(Vehicle local, Vehicle remote) {
+        return local != null
+                && Objects.equals(local.getManufacturerName(), remote.getManufacturerName())
+                && Objects.equals(local.getModelName(), remote.getModelName())
+                && Objects.equals(local.getDescription(), remote.getDescription())
+                && Objects.equals(local.getHorsePower(), remote.getHorsePower())
+                && local.getFuelType() == remote.getFuelType()
+                && (local.getPurchasePrice() == null ? remote.getPurchasePrice() == null
+                : remote.getPurchasePrice() != null && local.getPurchasePrice().compareTo(remote.getPurchasePrice()) == 0);
+    }
+
+    HttpClient httpClient() {
+        return httpClient;
+    }
+
+    /**
+     * Starts a request to another member, marked with {@link #HOP_HEADER} and carrying {@link #SECRET_HEADER}.
+     *
+     * @param pathAndQuery e.g. {@code /vehicle/search?fuelType=DIESEL}.
+     * @param timeout      response timeout, or {@code null} for none.
+     */
+    HttpRequest.Builder request(String node, String pathAndQuery, Duration timeout) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(node + pathAndQuery))
+                .header(HOP_HEADER, self)
+                .header(SECRET_HEADER, secret);
+        return timeout == null ? request : request.timeout(timeout);
+    }
+
+    Duration timeout() {
+        return timeout;
+    }
+
+    private static String baseUrl(String node) {
+        String url = node.strip();
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    /**
+     * @param self         this instance's base URL.
+     * @param nodes        base URLs of all members, sorted.
+     * @param virtualNodes points per member on the ring.
+     */
+    public record Membership(String self, Set<String> nodes, int virtualNodes) {
+    }
+}
@@ -0,0 +1,56 @@
+package com.song.apollo.vehicle_service;
+
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JPA {@link Specification} factories for {@link Vehicle} queries.
+ * <p>
+ * Predicates are only added for supplied filters, so every combination of
+ * {@link VehicleSearchCriteria} compiles to a single SQL statement that can use
+ * the indexes declared on {@link Vehicle}.
+ */
+public final class VehicleSpecifications {
+
+    private VehicleSpecifications() {
+    }
+
+    /**
+     * @param criteria search filters (null fields are ignored).
+     * @param afterVin exclusive VIN lower bound for keyset pagination, or {@code null}.
+     * @return a specification matching all supplied filters.
+     */
+    public static Specification<Vehicle> matching(VehicleSearchCriteria criteria, String afterVin) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (criteria.manufacturerName() != null) {
+                predicates.add(cb.equal(root.get("manufacturerName"), criteria.manufacturerName()));
+            }
+            if (criteria.modelName() != null) {
+                predicates.add(cb.equal(root.get("modelName"), criteria.modelName()));
+            }
+            if (criteria.fuelType() != null) {
+                predicates.add(cb.equal(root.get("fuelType"), criteria.fuelType()));
+            }
+            if (criteria.minHorsePower() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("horsePower"), criteria.minHorsePower()));
+            }
+            if (criteria.maxHorsePower() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("horsePower"), criteria.maxHorsePower()));
+            }
+            if (criteria.minPrice() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("purchasePrice"), criteria.minPrice()));
+            }
+            if (criteria.maxPrice() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("purchasePrice"), criteria.maxPrice()));
+            }
+            if (afterVin != null) {
+                predicates.add(cb.greaterThan(root.get("vin"), afterVin));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+}
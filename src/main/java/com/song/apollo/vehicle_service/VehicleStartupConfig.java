@@ -0,0 +1,30 @@
+package com.song.apollo.vehicle_service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Keeps the beans that must run at startup eager when {@code spring.main.lazy-initialization} is on
+ * (the {@code prod} profile):
+ * <ul>
+ *     <li>the {@link DataSource} and {@link EntityManagerFactory}, so Flyway migrates and Hibernate validates the
+ *     schema before the instance reports ready, and a broken database fails the start instead of the first request;</li>
+ *     <li>{@link SmartInitializingSingleton}s such as {@link FleetAnalytics}, whose callback is only invoked
+ *     for singletons created during startup.</li>
+ * </ul>
+ * Everything else (controllers, import/export, the change feed, caches) is created on first use.
+ */
+@Configuration(proxyBeanMethods = false)
+public class VehicleStartupConfig {
+
+    @Bean
+    static LazyInitializationExcludeFilter eagerStartupBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(DataSource.class, EntityManagerFactory.class,
+                SmartInitializingSingleton.class);
+    }
+}
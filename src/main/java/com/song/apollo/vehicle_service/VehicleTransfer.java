@@ -0,0 +1,468 @@
+package com.song.apollo.vehicle_service;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectReader;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Bulk export and import of the vehicle table as gzip-compressed NDJSON or CSV.
+ * <p>
+ * Export reads through the same database cursor as the NDJSON stream of {@code GET /vehicle}
+ * and writes each row straight into the gzip stream. Import parses one record at a time,
+ * validates it against the {@link Vehicle} constraints and hands valid rows to
+ * {@link VehicleService#createVehicles(List)} in chunks of {@value VehicleService#BATCH_CHUNK_SIZE},
+ * each committed in its own transaction. Memory use is bounded by one chunk in both directions,
+ * regardless of the file size.
+ * <p>
+ * Import accepts plain or gzip-compressed input (detected from the gzip magic bytes). Rows that
+ * cannot be parsed, fail validation or carry an existing VIN are rejected individually and do
+ * not stop the import. In the sharded mode, so are rows whose VIN another member owns (421).
+ */
+@Service
+public class VehicleTransfer {
+    /** CSV columns, named like the JSON properties of {@link Vehicle}. */
+    static final List<String> CSV_COLUMNS = List.of(
+            "vin", "manufacturerName", "modelName", "description", "horsePower", "purchasePrice", "fuelType");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final VehicleService vehicleService;
+    private final JsonMapper jsonMapper;
+    private final Validator validator;
+    private final int maxReportedRejections;
+    private VehicleShardRouter shardRouter;
+
+    /**
+     * @param maxReportedRejections number of rejected rows listed in an {@link ImportReport}; all of them are counted.
+     */
+    public VehicleTransfer(VehicleService vehicleService, JsonMapper jsonMapper, Validator validator,
+                           @Value("${vehicle.transfer.max-reported-rejections:1000}") int maxReportedRejections) {
+        this.vehicleService = vehicleService;
+        this.jsonMapper = jsonMapper;
+        this.validator = validator;
+        this.maxReportedRejections = maxReportedRejections;
+    }
+
+    @Autowired(required = false)
+    void setShardRouter(VehicleShardRouter shardRouter) {
+        this.shardRouter = shardRouter;
+    }
+
+    /**
+     * Supported file formats.
+     */
+    public enum Format {
+        NDJSON("ndjson"),
+        CSV("csv");
+
+        private final String parameterName;
+
+        Format(String parameterName) {
+            this.parameterName = parameterName;
+        }
+
+        public String parameterName() {
+            return parameterName;
+        }
+
+        /**
+         * @throws BadRequestException if the name is not a supported format.
+         */
+        public static Format fromParameterName(String name) {
+            for (Format format : values()) {
+                if (format.parameterName.equalsIgnoreCase(name)) {
+                    return format;
+                }
+            }
+            throw new BadRequestException("Unknown format: " + name);
+        }
+
+        /**
+         * Infers the format from a file name such as {@code fleet.csv.gz}; anything that is not CSV is NDJSON.
+         */
+        public static Format fromFileName(String fileName) {
+            String name = fileName.toLowerCase(Locale.ROOT);
+            if (name.endsWith(".gz")) {
+                name = name.substring(0, name.length() - 3);
+            }
+            return name.endsWith(".csv") ? CSV : NDJSON;
+        }
+    }
+
+    /**
+     * Writes every vehicle, in VIN order, as a gzip-compressed file.
+     * <p>
+     * NDJSON lines are identical to the documents returned by the REST API. CSV starts with a
+     * header row of {@link #CSV_COLUMNS}.
+     *
+     * @param format output format.
+     * @param out    destination; finished but not closed.
+     * @return number of vehicles written.
+     */
+    public long exportVehicles(Format format, OutputStream out) throws IOException {
+        GZIPOutputStream gzip = new GZIPOutputStream(out, BUFFER_SIZE);
+        long[] count = {0};
+        try {
+            if (format == Format.CSV) {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), BUFFER_SIZE);
+                writeCsvRecord(writer, CSV_COLUMNS);
+                vehicleService.forEachVehicle(v -> {
+                    try {
+                        writeCsvRecord(writer, csvValues(v));
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                    count[0]++;
+                });
+                writer.flush();
+            } else {
+                try (VehicleJsonWriter writer = new VehicleJsonWriter(gzip)) {
+                    vehicleService.forEachVehicle(v -> {
+                        try {
+                            writer.writeVehicle(v);
+                            writer.writeByte('\n');
+                        } catch (IOException ex) {
+                            throw new UncheckedIOException(ex);
+                        }
+                        count[0]++;
+                    });
+                }
+            }
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        gzip.finish();
+        return count[0];
+    }
+
+    /**
+     * Imports vehicles from a plain or gzip-compressed file.
+     *
+     * @param format input format.
+     * @param in     source; read to the end but not closed.
+     * @return counts and the first rejected rows.
+     * @throws BadRequestException if a CSV header names an unknown column.
+     */
+    public ImportReport importVehicles(Format format, InputStream in) throws IOException {
+        return importVehicles(format, in, rejection -> {
+        });
+    }
+
+    /**
+     * Imports vehicles from a plain or gzip-compressed file, reporting every rejected row.
+     *
+     * @param format     input format.
+     * @param in         source; read to the end but not closed.
+     * @param onRejected receives every rejected row while the import runs; rows rejected by the database
+     *                   (duplicate VINs) are reported when their chunk is written, after later unparseable rows.
+     * @return counts and the first rejected rows.
+     * @throws BadRequestException if a CSV header names an unknown column.
+     */
+    public ImportReport importVehicles(Format format, InputStream in, Consumer<ImportReport.Rejection> onRejected)
+            throws IOException {
+        Reader reader = new InputStreamReader(decompressIfNeeded(in), StandardCharsets.UTF_8);
+        Importer importer = new Importer(onRejected);
+        if (format == Format.CSV) {
+            importCsv(reader, importer);
+        } else {
+            importNdjson(reader, importer);
+        }
+        importer.flush();
+        return new ImportReport(importer.imported, importer.rejected, importer.reported);
+    }
+
+    private void importNdjson(Reader reader, Importer importer) throws IOException {
+        ObjectReader vehicleReader = jsonMapper.readerFor(Vehicle.class);
+        BufferedReader lines = new BufferedReader(reader, BUFFER_SIZE);
+        long row = 0;
+        for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+            if (line.isBlank()) {
+                continue;
+            }
+            row++;
+            Vehicle vehicle;
+            try {
+                vehicle = vehicleReader.readValue(line);
+            } catch (JacksonException ex) {
+                importer.reject(row, null, HttpStatus.BAD_REQUEST.value(), "Malformed JSON");
+                continue;
+            }
+            importer.accept(row, vehicle);
+        }
+    }
+
+    private void importCsv(Reader reader, Importer importer) throws IOException {
+        CsvParser parser = new CsvParser(reader);
+        List<String> header = parser.next();
+        if (header == null) {
+            return;
+        }
+        int[] columns = new int[header.size()];
+        int vinField = -1;
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i) == null ? "" : header.get(i).strip();
+            columns[i] = CSV_COLUMNS.indexOf(name);
+            if (columns[i] < 0) {
+                throw new BadRequestException("Unknown CSV column: " + name);
+            }
+            if (columns[i] == 0) {
+                vinField = i;
+            }
+        }
+        long row = 0;
+        for (List<String> record = parser.next(); record != null; record = parser.next()) {
+            if (record.size() == 1 && record.get(0) == null) {
+                continue; // blank line
+            }
+            row++;
+            String vin = vinField >= 0 && vinField < record.size() ? record.get(vinField) : null;
+            if (record.size() != columns.length) {
+                importer.reject(row, vin, HttpStatus.BAD_REQUEST.value(),
+                        "Expected " + columns.length + " fields but found " + record.size());
+                continue;
+            }
+            Vehicle vehicle = new Vehicle();
+            try {
+                for (int i = 0; i < columns.length; i++) {
+                    setCsvValue(vehicle, CSV_COLUMNS.get(columns[i]), record.get(i));
+                }
+            } catch (IllegalArgumentException ex) {
+                importer.reject(row, vin, HttpStatus.BAD_REQUEST.value(), ex.getMessage());
+                continue;
+            }
+            importer.accept(row, vehicle);
+        }
+    }
+
+    private static List<String> csvValues(Vehicle v) {
+        return List.of(
+                nullToEmpty(v.getVin()),
+                nullToEmpty(v.getManufacturerName()),
+                nullToEmpty(v.getModelName()),
+                nullToEmpty(v.getDescription()),
+                v.getHorsePower() == null ? "" : v.getHorsePower().toString(),
+                v.getPurchasePrice() == null ? "" : v.getPurchasePrice().toPlainString(),
+                v.getFuelType() == null ? "" : v.getFuelType().name());
+    }
+
+    /**
+     * @throws IllegalArgumentException with a row-level message if the value cannot be converted.
+     */
+    private static void setCsvValue(Vehicle vehicle, String column, String value) {
+        try {
+            switch (column) {
+                case "vin" -> vehicle.setVin(value);
+                case "manufacturerName" -> vehicle.setManufacturerName(value);
+                case "modelName" -> vehicle.setModelName(value);
+                case "description" -> vehicle.setDescription(value);
+                case "horsePower" -> vehicle.setHorsePower(value == null ? null : Integer.valueOf(value.strip()));
+                case "purchasePrice" -> vehicle.setPurchasePrice(value == null ? null : new BigDecimal(value.strip()));
+                case "fuelType" -> vehicle.setFuelType(value == null ? null
+                        : Vehicle.FuelType.valueOf(value.strip().toUpperCase(Locale.ROOT)));
+                default -> throw new IllegalStateException("Unmapped CSV column: " + column);
+            }
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid " + column + ": " + value);
+        }
+    }
+
+    /**
+     * Writes one RFC 4180 record; fields containing separators, quotes or line breaks are quoted.
+     */
+    private static void writeCsvRecord(Writer writer, List<String> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String value = values.get(i);
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write('\n');
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static InputStream decompressIfNeeded(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+        if (first == (GZIPInputStream.GZIP_MAGIC & 0xff) && second == (GZIPInputStream.GZIP_MAGIC >>> 8)) {
+            return new GZIPInputStream(buffered, BUFFER_SIZE);
+        }
+        return buffered;
+    }
+
+    /**
+     * Validates parsed rows and writes them in chunks, keeping the counts and the reported rejections.
+     */
+    private final class Importer {
+        private final Consumer<ImportReport.Rejection> onRejected;
+        private final List<ImportReport.Rejection> reported = new ArrayList<>();
+        private final List<Vehicle> chunk = new ArrayList<>(VehicleService.BATCH_CHUNK_SIZE);
+        private final long[] chunkRows = new long[VehicleService.BATCH_CHUNK_SIZE];
+        private long imported;
+        private long rejected;
+
+        Importer(Consumer<ImportReport.Rejection> onRejected) {
+            this.onRejected = onRejected;
+        }
+
+        void accept(long row, Vehicle vehicle) {
+            Set<ConstraintViolation<Vehicle>> violations = validator.validate(vehicle);
+            if (!violations.isEmpty()) {
+                String error = violations.stream()
+                        .map(cv -> cv.getPropertyPath() + ": " + cv.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining("; "));
+                reject(row, vehicle.getVin(), HttpStatus.UNPROCESSABLE_ENTITY.value(), error);
+                return;
+            }
+            if (shardRouter != null && !shardRouter.owns(vehicle.getVin())) {
+                reject(row, vehicle.getVin(), HttpStatus.MISDIRECTED_REQUEST.value(),
+                        "VIN belongs to shard " + shardRouter.owner(vehicle.getVin()));
+                return;
+            }
+            chunkRows[chunk.size()] = row;
+            chunk.add(vehicle);
+            if (chunk.size() == VehicleService.BATCH_CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        void reject(long row, String vin, int status, String error) {
+            ImportReport.Rejection rejection = new ImportReport.Rejection(row, vin, status, error);
+            rejected++;
+            if (reported.size() < maxReportedRejections) {
+                reported.add(rejection);
+            }
+            onRejected.accept(rejection);
+        }
+
+        void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            List<BatchItemResult> results = vehicleService.createVehicles(chunk);
+            for (int i = 0; i < results.size(); i++) {
+                BatchItemResult result = results.get(i);
+                if (result.error() == null) {
+                    imported++;
+                } else {
+                    reject(chunkRows[i], result.vin(), result.status(), result.error());
+                }
+            }
+            chunk.clear();
+        }
+    }
+
+    /**
+     * Minimal streaming RFC 4180 reader: quoted fields may contain separators, doubled quotes
+     * and line breaks. Empty fields are returned as {@code null}.
+     */
+    private static final class CsvParser {
+        private final Reader reader;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private final StringBuilder field = new StringBuilder();
+        private int position;
+        private int limit;
+
+        CsvParser(Reader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * @return the fields of the next record, or {@code null} at the end of the input.
+         */
+        List<String> next() throws IOException {
+            int c = read();
+            if (c == -1) {
+                return null;
+            }
+            List<String> fields = new ArrayList<>(CSV_COLUMNS.size());
+            boolean quoted = false;
+            field.setLength(0);
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        fields.add(fieldValue());
+                        return fields;
+                    }
+                    if (c == '"') {
+                        c = read();
+                        if (c != '"') {
+                            quoted = false;
+                            continue;
+                        }
+                    }
+                    field.append((char) c);
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(fieldValue());
+                } else if (c == '\n' || c == -1) {
+                    fields.add(fieldValue());
+                    return fields;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+        }
+
+        private String fieldValue() {
+            String value = field.isEmpty() ? null : field.toString();
+            field.setLength(0);
+            return value;
+        }
+
+        private int read() throws IOException {
+            if (position == limit) {
+                limit = reader.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position++];
+        }
+    }
+}
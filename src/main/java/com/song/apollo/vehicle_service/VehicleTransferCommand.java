@@ -0,0 +1,138 @@
+package com.song.apollo.vehicle_service;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Command-line entry point for {@link VehicleTransfer}, dispatched from {@link VehicleServiceApplication#main}.
+ * <pre>
+ * java -jar vehicle-service.jar export --file=fleet.ndjson.gz [--format=csv] [Spring options]
+ * java -jar vehicle-service.jar import --file=fleet.csv.gz [--format=csv] [--rejects=rejected.ndjson] [Spring options]
+ * </pre>
+ * The format defaults to the file extension. The application context starts without a web server;
+ * remaining arguments such as {@code --spring.profiles.active=durable} are passed to Spring.
+ * Every rejected row of an import is written to the {@code --rejects} file as NDJSON.
+ */
+final class VehicleTransferCommand {
+    private static final Set<String> COMMANDS = Set.of("export", "import");
+    private static final Set<String> OPTIONS = Set.of("file", "format", "rejects");
+
+    private VehicleTransferCommand() {
+    }
+
+    static boolean handles(String[] args) {
+        return args.length > 0 && COMMANDS.contains(args[0]);
+    }
+
+    /**
+     * @return the process exit code: 0 on success, 1 on failure, 2 on a usage error.
+     */
+    static int run(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        List<String> springArgs = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            int eq = arg.indexOf('=');
+            String name = arg.startsWith("--") && eq > 2 ? arg.substring(2, eq) : null;
+            if (name != null && OPTIONS.contains(name)) {
+                options.put(name, arg.substring(eq + 1));
+            } else {
+                springArgs.add(arg);
+            }
+        }
+        String file = options.get("file");
+        if (file == null) {
+            System.err.println("Usage: " + args[0] + " --file=<path> [--format=ndjson|csv] [--rejects=<path>]");
+            return 2;
+        }
+        VehicleTransfer.Format format;
+        try {
+            format = options.containsKey("format")
+                    ? VehicleTransfer.Format.fromParameterName(options.get("format"))
+                    : VehicleTransfer.Format.fromFileName(file);
+        } catch (BadRequestException ex) {
+            System.err.println(ex.getMessage());
+            return 2;
+        }
+
+        // The analytics snapshot would load the whole table at startup for nothing.
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(VehicleServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("vehicle.analytics.enabled=false")
+                .run(springArgs.toArray(String[]::new));
+        int status;
+        try {
+            VehicleTransfer transfer = context.getBean(VehicleTransfer.class);
+            if (args[0].equals("export")) {
+                export(transfer, format, Paths.get(file));
+            } else {
+                importFile(transfer, context.getBean(JsonMapper.class), format, Paths.get(file), options.get("rejects"));
+            }
+            status = 0;
+        } catch (IOException | RuntimeException ex) {
+            System.err.println(args[0] + " failed: " + ex);
+            status = 1;
+        }
+        int exitCode = status;
+        return SpringApplication.exit(context, () -> exitCode);
+    }
+
+    private static void export(VehicleTransfer transfer, VehicleTransfer.Format format, Path file) throws IOException {
+        long start = System.nanoTime();
+        long count;
+        try (OutputStream out = Files.newOutputStream(file)) {
+            count = transfer.exportVehicles(format, out);
+        }
+        System.out.printf("Exported %d vehicles to %s in %d ms%n", count, file, elapsedMillis(start));
+    }
+
+    private static void importFile(VehicleTransfer transfer, JsonMapper jsonMapper, VehicleTransfer.Format format,
+                                   Path file, String rejects) throws IOException {
+        long start = System.nanoTime();
+        ImportReport report;
+        try (InputStream in = Files.newInputStream(file)) {
+            if (rejects == null) {
+                report = transfer.importVehicles(format, in);
+            } else {
+                try (BufferedWriter rejected = Files.newBufferedWriter(Paths.get(rejects))) {
+                    report = transfer.importVehicles(format, in, rejection -> {
+                        try {
+                            rejected.write(jsonMapper.writeValueAsString(rejection));
+                            rejected.newLine();
+                        } catch (IOException ex) {
+                            throw new UncheckedIOException(ex);
+                        }
+                    });
+                }
+            }
+        }
+        System.out.printf("Imported %d vehicles from %s in %d ms, rejected %d%n",
+                report.imported(), file, elapsedMillis(start), report.rejected());
+        if (rejects == null) {
+            report.rejections().forEach(r -> System.out.printf("  row %d (%s): %d %s%n", r.row(), r.vin(), r.status(), r.error()));
+        } else if (report.rejected() > 0) {
+            System.out.println("Rejected rows written to " + rejects);
+        }
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
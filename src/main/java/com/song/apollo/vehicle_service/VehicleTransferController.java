@@ -0,0 +1,71 @@
+package com.song.apollo.vehicle_service;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * REST Controller for bulk export and import of the whole fleet through {@link VehicleTransfer}.
+ * <p>
+ * Base URL: /vehicle
+ */
+@RestController
+@RequestMapping("/vehicle")
+public class VehicleTransferController {
+    /** Media type of exported files and of compressed import bodies. */
+    public static final String APPLICATION_GZIP_VALUE = "application/gzip";
+
+    private final VehicleTransfer vehicleTransfer;
+
+    public VehicleTransferController(VehicleTransfer vehicleTransfer) {
+        this.vehicleTransfer = vehicleTransfer;
+    }
+
+    /**
+     * GET /vehicle/export?format=ndjson|csv
+     * Downloads every vehicle as a gzip-compressed file, streamed from a database cursor.
+     *
+     * @param format {@code ndjson} (default) or {@code csv}.
+     * @return the compressed file as an attachment (200 OK), or 400 Bad Request for an unknown format.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportVehicles(@RequestParam(defaultValue = "ndjson") String format) {
+        VehicleTransfer.Format fileFormat = VehicleTransfer.Format.fromParameterName(format);
+        ContentDisposition attachment = ContentDisposition.attachment()
+                .filename("vehicles." + fileFormat.parameterName() + ".gz")
+                .build();
+        StreamingResponseBody body = out -> vehicleTransfer.exportVehicles(fileFormat, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(APPLICATION_GZIP_VALUE))
+                .header(HttpHeaders.CONTENT_DISPOSITION, attachment.toString())
+                .body(body);
+    }
+
+    /**
+     * POST /vehicle/import?format=ndjson|csv
+     * Creates vehicles from an NDJSON or CSV file, plain or gzip-compressed.
+     * <p>
+     * Rows that cannot be parsed, are invalid or carry an existing VIN are skipped and reported;
+     * all other rows are committed in chunks as the body is read.
+     *
+     * @param format {@code ndjson} (default) or {@code csv}.
+     * @return imported and rejected counts with the first rejected rows (200 OK),
+     * or 400 Bad Request for an unknown format or CSV column.
+     */
+    @PostMapping(path = "/import", consumes = {APPLICATION_GZIP_VALUE, MediaType.APPLICATION_NDJSON_VALUE,
+            "text/csv", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ImportReport importVehicles(@RequestParam(defaultValue = "ndjson") String format,
+                                       InputStream body) throws IOException {
+        return vehicleTransfer.importVehicles(VehicleTransfer.Format.fromParameterName(format), body);
+    }
+}
@@ -0,0 +1,21 @@
+package com.song.apollo.vehicle_service;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverters;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Spring MVC customizations for the vehicle API.
+ * <p>
+ * {@link VehicleJsonHttpMessageConverter} is added as a custom converter rather than declared as a bean:
+ * Spring Boot treats any {@code application/json} converter bean as a replacement for the Jackson converter,
+ * whereas custom converters are consulted before the defaults and leave Jackson in place for everything else.
+ */
+@Configuration
+public class VehicleWebConfig implements WebMvcConfigurer {
+
+    @Override
+    public void configureMessageConverters(HttpMessageConverters.ServerBuilder builder) {
+        builder.addCustomConverter(new VehicleJsonHttpMessageConverter());
+    }
+}
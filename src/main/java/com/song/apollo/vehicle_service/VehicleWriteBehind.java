@@ -0,0 +1,283 @@
+package com.song.apollo.vehicle_service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.song.apollo.vehicle_service.VehicleCacheConfig.VEHICLES_CACHE;
+
+/**
+ * Write-behind buffer for single-vehicle updates that clients accept to see applied later
+ * ({@code PUT /vehicle/{vin}} with {@code Prefer: respond-async}).
+ * <p>
+ * An accepted update is appended to a {@link WriteAheadLog} and synced (in groups, see
+ * {@link WriteAheadLog#sync(long)}) before the request returns, then kept as the VIN's pending update.
+ * A newer update to the same VIN replaces the pending one, so a VIN repriced ten times between flushes
+ * costs one UPDATE. Every {@code vehicle.write-behind.flush-interval} a background thread writes all
+ * pending updates with {@link VehicleService#applyQueuedUpdates(List)}, checkpoints the log and only then
+ * forgets them. Single-VIN reads see pending updates on top of the stored vehicle.
+ * <p>
+ * On startup the log is replayed, so updates accepted before a crash are applied by the first flush.
+ * A synchronous write to a VIN supersedes its pending update: {@link #discard(String)} drops it and records
+ * the drop in the log, so neither the next flush nor a replay can overwrite the newer write.
+ * <p>
+ * Enabled with {@code vehicle.write-behind.enabled=true}.
+ */
+@Component
+@ConditionalOnProperty(name = "vehicle.write-behind.enabled", havingValue = "true")
+public class VehicleWriteBehind implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(VehicleWriteBehind.class);
+    private static final byte UPDATE = 1;
+    private static final byte DISCARD = 2;
+
+    private final ObjectProvider<VehicleService> vehicleService;
+    private final Cache cache;
+    private final WriteAheadLog writeAheadLog;
+    private final Duration flushInterval;
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Counter applied;
+    private final Counter dropped;
+    private volatile ScheduledExecutorService flusher;
+
+    /**
+     * @param vehicleService service that writes flushed updates; looked up lazily because it depends on this bean.
+     * @param directory      directory of the write-ahead log; must not be shared with another instance.
+     * @param segmentSize    size of each memory-mapped log segment.
+     * @param flushInterval  delay between flushes of pending updates to the database.
+     */
+    public VehicleWriteBehind(ObjectProvider<VehicleService> vehicleService, CacheManager cacheManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${vehicle.write-behind.directory:./data/write-behind}") Path directory,
+                              @Value("${vehicle.write-behind.segment-size:16MB}") DataSize segmentSize,
+                              @Value("${vehicle.write-behind.flush-interval:100ms}") Duration flushInterval) {
+        this.vehicleService = vehicleService;
+        this.cache = cacheManager.getCache(VEHICLES_CACHE);
+        this.flushInterval = flushInterval;
+        try {
+            this.writeAheadLog = new WriteAheadLog(directory, Math.toIntExact(segmentSize.toBytes()));
+            writeAheadLog.replay(this::recover);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot open write-behind log in " + directory, ex);
+        }
+        if (!pending.isEmpty()) {
+            log.info("Recovered {} pending vehicle updates from {}", pending.size(), directory);
+        }
+        this.applied = Counter.builder("vehicle.write-behind.updates")
+                .description("Write-behind vehicle updates by flush outcome")
+                .tag("outcome", "applied")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("vehicle.write-behind.updates")
+                .description("Write-behind vehicle updates by flush outcome")
+                .tag("outcome", "dropped")
+                .register(meterRegistry);
+        Gauge.builder("vehicle.write-behind.pending", pending, Map::size)
+                .description("Accepted vehicle updates not yet written to the database")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Durably records an update and makes it the VIN's pending update.
+     *
+     * @param vehicle the full new state of an existing vehicle (its version is ignored).
+     */
+    public void accept(Vehicle vehicle) {
+        long sequence;
+        try {
+            synchronized (this) {
+                sequence = writeAheadLog.append(encode(UPDATE, vehicle));
+                pending.put(vehicle.getVin(), new Pending(sequence, vehicle));
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        writeAheadLog.sync(sequence);
+    }
+
+    /**
+     * @return the VIN's update that has been accepted but not yet written, or {@code null}.
+     */
+    public Vehicle pending(String vin) {
+        Pending update = pending.get(vin);
+        return update == null ? null : update.vehicle();
+    }
+
+    /**
+     * Drops the VIN's pending update ahead of a synchronous write. Waits for a running flush to finish.
+     */
+    public void discard(String vin) {
+        if (!pending.containsKey(vin)) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            long sequence;
+            synchronized (this) {
+                if (pending.remove(vin) == null) {
+                    return;
+                }
+                sequence = writeAheadLog.append(encode(DISCARD, Vehicle.builder().vin(vin).build()));
+            }
+            writeAheadLog.sync(sequence);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Writes every pending update to the database. Called periodically; failed flushes are retried next time.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            long upTo;
+            List<Pending> batch;
+            synchronized (this) {
+                upTo = writeAheadLog.lastSequence();
+                batch = List.copyOf(pending.values());
+            }
+            if (!batch.isEmpty()) {
+                List<BatchItemResult> results = vehicleService.getObject()
+                        .applyQueuedUpdates(batch.stream().map(Pending::vehicle).toList());
+                if (results.stream().anyMatch(result -> result.status() >= 500)) {
+                    log.warn("Flushing {} pending vehicle updates failed, retrying in {}", batch.size(), flushInterval);
+                    return;
+                }
+                results.forEach(result -> (result.status() == 200 ? applied : dropped).increment());
+            }
+            writeAheadLog.checkpoint(upTo);
+            for (Pending update : batch) {
+                pending.remove(update.vehicle().getVin(), update);
+                cache.evict(update.vehicle().getVin());
+            }
+        } catch (IOException ex) {
+            log.warn("Cannot checkpoint write-behind log", ex);
+        } catch (RuntimeException ex) {
+            log.warn("Flushing pending vehicle updates failed, retrying in {}", flushInterval, ex);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public void start() {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "vehicle-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::flush, 0, flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+        flusher = executor;
+    }
+
+    /**
+     * Stops the flusher and writes what is still pending; anything that fails is replayed on the next start.
+     */
+    @Override
+    public void stop() {
+        ScheduledExecutorService executor = flusher;
+        flusher = null;
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            flush();
+        }
+        writeAheadLog.close();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return flusher != null;
+    }
+
+    /**
+     * Starts flushing before the web server accepts requests and stops after it has drained them.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 2048;
+    }
+
+    private void recover(byte[] record, long sequence) {
+        Vehicle vehicle = decode(record);
+        if (record[0] == UPDATE) {
+            pending.put(vehicle.getVin(), new Pending(sequence, vehicle));
+        } else {
+            pending.remove(vehicle.getVin());
+        }
+    }
+
+    static byte[] encode(byte type, Vehicle vehicle) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type);
+            out.writeUTF(vehicle.getVin());
+            if (type == UPDATE) {
+                out.writeUTF(vehicle.getManufacturerName());
+                out.writeUTF(vehicle.getDescription());
+                out.writeInt(vehicle.getHorsePower() == null ? -1 : vehicle.getHorsePower());
+                out.writeUTF(vehicle.getModelName());
+                out.writeUTF(vehicle.getPurchasePrice().toString());
+                out.writeUTF(vehicle.getFuelType().name());
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    static Vehicle decode(byte[] record) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            byte type = in.readByte();
+            Vehicle.VehicleBuilder vehicle = Vehicle.builder().vin(in.readUTF());
+            if (type == UPDATE) {
+                vehicle.manufacturerName(in.readUTF())
+                        .description(in.readUTF());
+                int horsePower = in.readInt();
+                vehicle.horsePower(horsePower < 0 ? null : horsePower)
+                        .modelName(in.readUTF())
+                        .purchasePrice(new BigDecimal(in.readUTF()))
+                        .fuelType(Vehicle.FuelType.valueOf(in.readUTF()));
+            }
+            return vehicle.build();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private record Pending(long sequence, Vehicle vehicle) {
+    }
+}
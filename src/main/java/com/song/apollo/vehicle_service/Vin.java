@@ -0,0 +1,40 @@
+package com.song.apollo.vehicle_service;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The annotated string must be a 17-character ISO 3779 Vehicle Identification Number: digits and the
+ * letters A-Z except I, O and Q, in either case, with a valid check digit in position 9.
+ * <p>
+ * {@code null} is valid; combine with {@code @NotBlank} to require a VIN.
+ *
+ * @see VinValidator
+ */
+@Documented
+@Constraint(validatedBy = VinValidator.class)
+@Target({ElementType.FIELD, ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Vin {
+
+    /** The default message, for callers that check VINs with {@link VinValidator} directly. */
+    String MESSAGE = "VIN must be 17 letters and digits (no I, O or Q) with a valid check digit";
+
+    String message() default MESSAGE;
+
+    /**
+     * Whether position 9 must hold the check digit. Mandatory in North America; VINs assigned elsewhere
+     * may carry another character there.
+     */
+    boolean checkDigit() default true;
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
@@ -0,0 +1,94 @@
+package com.song.apollo.vehicle_service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Merges single-VIN lookups that arrive within a short window into one {@code IN} query
+ * (the DataLoader pattern).
+ * <p>
+ * The first lookup of a window becomes its leader: it waits for the window to pass, takes every VIN
+ * queued in the meantime and runs the batch query on its own thread, then completes the other
+ * callers' futures. No scheduler thread is involved. Each lookup pays up to one window of extra
+ * latency, in exchange for one database round trip per window instead of one per request.
+ */
+final class VinBatchLoader {
+    private final Function<List<String>, List<Vehicle>> batchQuery;
+    private final int maxBatchSize;
+    private final long windowNanos;
+    private Map<String, CompletableFuture<Optional<Vehicle>>> pending;
+
+    /**
+     * @param batchQuery   loads the vehicles that exist among up to {@code maxBatchSize} VINs, in any order.
+     * @param maxBatchSize largest number of VINs passed to one query.
+     * @param window       how long the first lookup of a batch waits for others.
+     */
+    VinBatchLoader(Function<List<String>, List<Vehicle>> batchQuery, int maxBatchSize, Duration window) {
+        this.batchQuery = batchQuery;
+        this.maxBatchSize = maxBatchSize;
+        this.windowNanos = window.toNanos();
+    }
+
+    Optional<Vehicle> load(String vin) {
+        CompletableFuture<Optional<Vehicle>> result;
+        boolean leader;
+        synchronized (this) {
+            leader = pending == null;
+            if (leader) {
+                pending = new HashMap<>();
+            }
+            result = pending.computeIfAbsent(vin, key -> new CompletableFuture<>());
+        }
+        if (leader) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(windowNanos);
+            } catch (InterruptedException ex) {
+                // run the batch now rather than strand the callers waiting on it
+                Thread.currentThread().interrupt();
+            }
+            Map<String, CompletableFuture<Optional<Vehicle>>> batch;
+            synchronized (this) {
+                batch = pending;
+                pending = null;
+            }
+            run(batch);
+        }
+        try {
+            return result.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (ex.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    private void run(Map<String, CompletableFuture<Optional<Vehicle>>> batch) {
+        List<String> vins = new ArrayList<>(batch.keySet());
+        for (int from = 0; from < vins.size(); from += maxBatchSize) {
+            List<String> chunk = vins.subList(from, Math.min(from + maxBatchSize, vins.size()));
+            try {
+                for (Vehicle vehicle : batchQuery.apply(chunk)) {
+                    CompletableFuture<Optional<Vehicle>> future = batch.get(vehicle.getVin());
+                    if (future != null) {
+                        future.complete(Optional.of(vehicle));
+                    }
+                }
+                chunk.forEach(vin -> batch.get(vin).complete(Optional.empty()));
+            } catch (RuntimeException | Error ex) {
+                chunk.forEach(vin -> batch.get(vin).completeExceptionally(ex));
+            }
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package com.song.apollo.vehicle_service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.Stream;
+
+/**
+ * Off-heap set of the stored VINs, so lookups of VINs that do not exist are answered without a query.
+ * <p>
+ * A VIN is 17 characters from a 33-letter alphabet, so it packs losslessly into 87 bits. Each VIN takes one
+ * 12-byte slot ({@code long} + {@code int}) of an open-addressing hash table with linear probing, held in a
+ * direct {@link ByteBuffer}: a million vehicles cost 16-24 MB outside the heap and no objects for the GC to trace.
+ * Deletes shift the following entries back instead of leaving tombstones. Lookups read optimistically
+ * ({@link StampedLock}) and only take the read lock if a write raced with them.
+ * <p>
+ * The index is a superset of the table: {@link VehicleService} adds a VIN once its INSERT has committed, and a
+ * committed delete only removes the VIN if no create of a VIN in the same stripe happened since the delete
+ * began. "Absent" is therefore definite while "present" still needs the query. VINs that are not 17 valid
+ * characters are never indexed and always reported as possibly present. The table stops growing at 2^27
+ * slots (1.5 GB); past about 100 million VINs the index gives up and reports every VIN as possibly present.
+ * <p>
+ * Loaded once at startup with a VIN-only cursor over the table. It only sees writes made through this
+ * instance's {@link VehicleService}; disable it ({@code vehicle.vin-index.enabled=false}) where other processes
+ * write to the database, e.g. on the read-only replicas of the {@code replica} profile.
+ */
+@Component
+@ConditionalOnProperty(name = "vehicle.vin-index.enabled", havingValue = "true", matchIfMissing = true)
+public class VinIndex implements SmartInitializingSingleton {
+    private static final Logger log = LoggerFactory.getLogger(VinIndex.class);
+    private static final String ALPHABET = "0123456789ABCDEFGHJKLMNPRSTUVWXYZ";
+    private static final byte[] CODES = new byte[128];
+    private static final int SLOT_BYTES = Long.BYTES + Integer.BYTES;
+    private static final int MIN_CAPACITY = 1024;
+    private static final int MAX_CAPACITY = 1 << 27;
+    private static final int STRIPES = 1024;
+
+    static {
+        Arrays.fill(CODES, (byte) -1);
+        for (int i = 0; i < ALPHABET.length(); i++) {
+            CODES[ALPHABET.charAt(i)] = (byte) i;
+        }
+    }
+
+    private final VehicleRepository vehicleRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxCapacity;
+    private final StampedLock lock = new StampedLock();
+    private final long[] stripeVersions = new long[STRIPES];
+    private final Counter skippedLookups;
+    /** Volatile so an optimistic reader never sees a table that is not fully published. */
+    private volatile ByteBuffer slots = ByteBuffer.allocateDirect(MIN_CAPACITY * SLOT_BYTES);
+    private int size;
+    private volatile boolean ready;
+    /** Set once the table is at its maximum capacity and too full to take another VIN. */
+    private volatile boolean saturated;
+
+    /**
+     * @param vehicleRepository  used once at startup to stream every stored VIN into the index.
+     * @param transactionManager transaction for the startup cursor; not read-only, so it reads the primary.
+     */
+    @Autowired
+    public VinIndex(VehicleRepository vehicleRepository, PlatformTransactionManager transactionManager,
+                    MeterRegistry meterRegistry) {
+        this(vehicleRepository, transactionManager, meterRegistry, MAX_CAPACITY);
+    }
+
+    VinIndex(VehicleRepository vehicleRepository, PlatformTransactionManager transactionManager,
+             MeterRegistry meterRegistry, int maxCapacity) {
+        this.maxCapacity = maxCapacity;
+        this.vehicleRepository = vehicleRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.skippedLookups = Counter.builder("vehicle.vin-index.skipped-lookups")
+                .description("VIN lookups answered as not found without a database query")
+                .register(meterRegistry);
+        Gauge.builder("vehicle.vin-index.size", this, VinIndex::size)
+                .description("VINs in the off-heap VIN index")
+                .register(meterRegistry);
+        Gauge.builder("vehicle.vin-index.memory", this, index -> index.slots.capacity())
+                .description("Off-heap memory used by the VIN index")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Streams every stored VIN into the index before the web server accepts requests. Until then, every
+     * VIN is reported as possibly present.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            long stamp = lock.writeLock();
+            try {
+                resize(capacityFor(vehicleRepository.count()));
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            try (Stream<String> vins = vehicleRepository.streamAllVins()) {
+                vins.forEach(this::add);
+            }
+        });
+        ready = true;
+        log.info("VIN index loaded: {} VINs, {} KB off-heap in {} ms", size(), slots.capacity() / 1024,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * @return {@code false} only if {@code vin} is certainly not stored; counts such answers in
+     * {@code vehicle.vin-index.skipped-lookups}.
+     */
+    public boolean mightContain(String vin) {
+        if (!ready || saturated || !packable(vin)) {
+            return true;
+        }
+        long high = digits(vin, 0, 9);
+        long low = digits(vin, 9, 17);
+        int top = top(high);
+        long word = word(high, low);
+        long stamp = lock.tryOptimisticRead();
+        boolean found = find(slots, word, top) >= 0;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                found = find(slots, word, top) >= 0;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        if (!found) {
+            skippedLookups.increment();
+        }
+        return found;
+    }
+
+    /**
+     * Records a VIN whose INSERT has committed.
+     */
+    public void add(String vin) {
+        if (!packable(vin)) {
+            return;
+        }
+        long high = digits(vin, 0, 9);
+        long low = digits(vin, 9, 17);
+        int top = top(high);
+        long word = word(high, low);
+        long stamp = lock.writeLock();
+        try {
+            int hash = hash(word, top);
+            stripeVersions[stripe(hash)]++;
+            int slot = find(slots, word, top);
+            if (slot >= 0) {
+                return;
+            }
+            if (size + 1 > capacity(slots) / 4 * 3) {
+                if (capacity(slots) >= maxCapacity) {
+                    saturate();
+                    return;
+                }
+                resize(capacity(slots) * 2);
+                slot = find(slots, word, top);
+            }
+            put(slots, -slot - 1, word, top);
+            size++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Call before deleting {@code vin} and pass the result to {@link #remove(String, long)} once the delete
+     * has committed.
+     */
+    public long removalStamp(String vin) {
+        if (!packable(vin)) {
+            return 0;
+        }
+        long high = digits(vin, 0, 9);
+        int stripe = stripe(hash(word(high, digits(vin, 9, 17)), top(high)));
+        long stamp = lock.readLock();
+        try {
+            return stripeVersions[stripe];
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Forgets a VIN whose delete has committed, unless a create in its stripe happened since
+     * {@code removalStamp} was taken (that create may have re-inserted it; the VIN then stays in the index).
+     */
+    public void remove(String vin, long removalStamp) {
+        if (!packable(vin)) {
+            return;
+        }
+        long high = digits(vin, 0, 9);
+        long low = digits(vin, 9, 17);
+        int top = top(high);
+        long word = word(high, low);
+        long stamp = lock.writeLock();
+        try {
+            if (stripeVersions[stripe(hash(word, top))] != removalStamp) {
+                return;
+            }
+            int slot = find(slots, word, top);
+            if (slot >= 0) {
+                delete(slot);
+                size--;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return number of indexed VINs.
+     */
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Backward-shift deletion: moves later entries of the probe run into the hole until the run ends
+     * or an entry already sits at or after its home slot.
+     */
+    private void delete(int hole) {
+        ByteBuffer table = slots;
+        int mask = capacity(table) - 1;
+        for (int next = (hole + 1) & mask; ; next = (next + 1) & mask) {
+            int top = table.getInt(next * SLOT_BYTES + Long.BYTES);
+            if (top == 0) {
+                break;
+            }
+            long word = table.getLong(next * SLOT_BYTES);
+            int home = hash(word, top) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                put(table, hole, word, top);
+                hole = next;
+            }
+        }
+        put(table, hole, 0, 0);
+    }
+
+    private void resize(int capacity) {
+        if (capacity <= capacity(slots)) {
+            return;
+        }
+        ByteBuffer old = slots;
+        ByteBuffer table = ByteBuffer.allocateDirect(capacity * SLOT_BYTES);
+        for (int slot = 0; slot < capacity(old); slot++) {
+            int top = old.getInt(slot * SLOT_BYTES + Long.BYTES);
+            if (top != 0) {
+                long word = old.getLong(slot * SLOT_BYTES);
+                put(table, -find(table, word, top) - 1, word, top);
+            }
+        }
+        slots = table;
+    }
+
+    /**
+     * @return the slot holding the key, or {@code -(empty slot) - 1} where it would be inserted.
+     */
+    private static int find(ByteBuffer table, long word, int top) {
+        int mask = capacity(table) - 1;
+        for (int slot = hash(word, top) & mask; ; slot = (slot + 1) & mask) {
+            int storedTop = table.getInt(slot * SLOT_BYTES + Long.BYTES);
+            if (storedTop == 0) {
+                return -slot - 1;
+            }
+            if (storedTop == top && table.getLong(slot * SLOT_BYTES) == word) {
+                return slot;
+            }
+        }
+    }
+
+    private static void put(ByteBuffer table, int slot, long word, int top) {
+        table.putLong(slot * SLOT_BYTES, word);
+        table.putInt(slot * SLOT_BYTES + Long.BYTES, top);
+    }
+
+    private static int capacity(ByteBuffer table) {
+        return table.capacity() / SLOT_BYTES;
+    }
+
+    /**
+     * Gives up on ruling VINs out for good: the VIN that did not fit is not recorded, so "absent" is no longer
+     * definite, even after deletes make room.
+     */
+    private void saturate() {
+        if (!saturated) {
+            saturated = true;
+            log.warn("VIN index is full at {} VINs; every VIN is now reported as possibly present", size);
+        }
+    }
+
+    private int capacityFor(long vins) {
+        long capacity = MIN_CAPACITY;
+        while (capacity / 4 * 3 < vins && capacity < maxCapacity) {
+            capacity <<= 1;
+        }
+        return (int) capacity;
+    }
+
+    private static boolean packable(String vin) {
+        if (vin == null || vin.length() != VinValidator.LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < VinValidator.LENGTH; i++) {
+            char c = vin.charAt(i);
+            if (c >= CODES.length || CODES[c] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads characters {@code [from, to)} as a base-33 number: below 33^9 < 2^46 for nine characters and
+     * 33^8 < 2^41 for eight.
+     */
+    private static long digits(String vin, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            value = value * ALPHABET.length() + CODES[vin.charAt(i)];
+        }
+        return value;
+    }
+
+    /**
+     * The 23 high bits of the first nine characters, plus one so that 0 can mark an empty slot.
+     */
+    private static int top(long high) {
+        return (int) (high >>> 23) + 1;
+    }
+
+    /**
+     * The 23 low bits of the first nine characters above the 41 bits of the last eight.
+     */
+    private static long word(long high, long low) {
+        return (high & ((1L << 23) - 1)) << 41 | low;
+    }
+
+    private static int hash(long word, int top) {
+        long h = word ^ top * 0xC2B2AE3D27D4EB4FL;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private static int stripe(int hash) {
+        return (hash >>> 16) & (STRIPES - 1);
+    }
+}
@@ -0,0 +1,117 @@
+package com.song.apollo.vehicle_service;
+
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Validates and normalizes Vehicle Identification Numbers (ISO 3779, with the North American check digit).
+ * <p>
+ * Each character is looked up in a table holding its transliteration value (letters map to 1-9,
+ * digits to themselves, I, O and Q are invalid), and the weighted sum modulo 11 must match the check
+ * digit ({@code X} for 10). Neither {@link #isValid(CharSequence, boolean)} nor {@link #normalize(String)}
+ * allocates for a VIN that is already in canonical form.
+ */
+public final class VinValidator implements ConstraintValidator<Vin, CharSequence> {
+    /** Length of every VIN. */
+    public static final int LENGTH = 17;
+    private static final int CHECK_DIGIT_INDEX = 8;
+    private static final int[] WEIGHTS = {8, 7, 6, 5, 4, 3, 2, 10, 0, 9, 8, 7, 6, 5, 4, 3, 2};
+    /** Transliteration value per ASCII character, -1 for characters not allowed in a VIN. */
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        String letters = "ABCDEFGHJKLMNPRSTUVWXYZ";
+        byte[] letterValues = {1, 2, 3, 4, 5, 6, 7, 8, 1, 2, 3, 4, 5, 7, 9, 2, 3, 4, 5, 6, 7, 8, 9};
+        for (int i = 0; i < letters.length(); i++) {
+            char letter = letters.charAt(i);
+            VALUES[letter] = letterValues[i];
+            VALUES[Character.toLowerCase(letter)] = letterValues[i];
+        }
+        for (char digit = '0'; digit <= '9'; digit++) {
+            VALUES[digit] = (byte) (digit - '0');
+        }
+    }
+
+    private boolean checkDigit = true;
+
+    @Override
+    public void initialize(Vin constraint) {
+        this.checkDigit = constraint.checkDigit();
+    }
+
+    @Override
+    public boolean isValid(CharSequence value, ConstraintValidatorContext context) {
+        return value == null || isValid(value, checkDigit);
+    }
+
+    /**
+     * @param vin             the VIN to check, in upper or lower case.
+     * @param checkCheckDigit whether position 9 must hold the check digit.
+     * @return whether {@code vin} is a well-formed VIN.
+     */
+    public static boolean isValid(CharSequence vin, boolean checkCheckDigit) {
+        if (vin == null || vin.length() != LENGTH) {
+            return false;
+        }
+        int sum = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            char c = vin.charAt(i);
+            int value = c < VALUES.length ? VALUES[c] : -1;
+            if (value < 0) {
+                return false;
+            }
+            sum += value * WEIGHTS[i];
+        }
+        if (!checkCheckDigit) {
+            return true;
+        }
+        char actual = vin.charAt(CHECK_DIGIT_INDEX);
+        return (actual == 'x' ? 'X' : actual) == checkDigit(sum);
+    }
+
+    /**
+     * Computes the check digit for position 9 of a VIN; the character currently in that position is ignored.
+     *
+     * @throws IllegalArgumentException if {@code vin} is not 17 valid VIN characters.
+     */
+    public static char checkDigit(CharSequence vin) {
+        if (!isValid(vin, false)) {
+            throw new IllegalArgumentException("Not a VIN: " + vin);
+        }
+        int sum = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            sum += VALUES[vin.charAt(i)] * WEIGHTS[i];
+        }
+        return checkDigit(sum);
+    }
+
+    /**
+     * Returns the canonical form of a VIN: surrounding whitespace removed, letters upper-cased.
+     * Returns {@code vin} itself when it is already canonical (or {@code null}); does not validate.
+     */
+    public static String normalize(String vin) {
+        if (vin == null) {
+            return null;
+        }
+        int length = vin.length();
+        if (length > 0 && (Character.isWhitespace(vin.charAt(0)) || Character.isWhitespace(vin.charAt(length - 1)))) {
+            return normalize(vin.strip());
+        }
+        for (int i = 0; i < length; i++) {
+            char c = vin.charAt(i);
+            if (c >= 'a' && c <= 'z') {
+                return vin.toUpperCase(Locale.ROOT);
+            }
+        }
+        return vin;
+    }
+
+    private static char checkDigit(int sum) {
+        int remainder = sum % 11;
+        return remainder == 10 ? 'X' : (char) ('0' + remainder);
+    }
+}
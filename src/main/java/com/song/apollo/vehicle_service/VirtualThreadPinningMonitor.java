@@ -0,0 +1,108 @@
+package com.song.apollo.vehicle_service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reports virtual threads that stay pinned to their carrier thread while blocking
+ * (e.g. inside a {@code synchronized} block in the JDBC driver or connection pool).
+ * <p>
+ * Pinned virtual threads occupy a carrier, so enough of them cap throughput just like a
+ * platform thread pool would. This monitor listens to the JFR {@code jdk.VirtualThreadPinned}
+ * event in-process, records every occurrence in the {@code vehicle.threads.pinned} timer and
+ * logs the stack trace the first time each distinct pinning site is seen.
+ * <p>
+ * Enabled with {@code vehicle.virtual-threads.pinning-monitor.enabled=true} (on in the
+ * {@code virtual} profile). The JFR event only exists on Java 21+; on older runtimes the
+ * monitor starts but never fires.
+ */
+@Component
+@ConditionalOnProperty(name = "vehicle.virtual-threads.pinning-monitor.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 12;
+
+    private final Duration threshold;
+    private final Timer pinnedTimer;
+    private final Set<String> reportedSites = ConcurrentHashMap.newKeySet();
+    private volatile RecordingStream stream;
+
+    /**
+     * @param threshold     minimum pinned duration worth reporting.
+     * @param meterRegistry registry receiving the {@code vehicle.threads.pinned} timer.
+     */
+    public VirtualThreadPinningMonitor(@Value("${vehicle.virtual-threads.pinning-monitor.threshold:20ms}") Duration threshold,
+                                       MeterRegistry meterRegistry) {
+        this.threshold = threshold;
+        this.pinnedTimer = Timer.builder("vehicle.threads.pinned")
+                .description("Time virtual threads spent pinned to their carrier while blocked")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        RecordingStream recording = new RecordingStream();
+        recording.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        recording.onEvent(PINNED_EVENT, this::onPinned);
+        recording.startAsync();
+        stream = recording;
+        log.info("Virtual thread pinning monitor started (threshold {})", threshold);
+    }
+
+    @Override
+    public void stop() {
+        RecordingStream recording = stream;
+        stream = null;
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return stream != null;
+    }
+
+    /**
+     * @return number of pinning events recorded since startup.
+     */
+    public long pinnedCount() {
+        return pinnedTimer.count();
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedTimer.record(event.getDuration());
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return;
+        }
+        String site = frame(stackTrace.getFrames().get(0));
+        if (reportedSites.add(site)) {
+            StringBuilder trace = new StringBuilder();
+            stackTrace.getFrames().stream()
+                    .limit(LOGGED_FRAMES)
+                    .forEach(frame -> trace.append("\n\tat ").append(frame(frame)));
+            log.warn("Virtual thread pinned for {} ms at {}{}", event.getDuration().toMillis(), site, trace);
+        }
+    }
+
+    private static String frame(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + ":" + frame.getLineNumber();
+    }
+}
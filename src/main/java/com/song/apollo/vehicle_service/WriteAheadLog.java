@@ -0,0 +1,208 @@
+package com.song.apollo.vehicle_service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.ObjLongConsumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of opaque records in memory-mapped segment files, with group commit.
+ * <p>
+ * Each record is framed as {@code length, sequence, CRC32C, payload}. {@link #append(byte[])} only copies
+ * the record into the mapped segment; {@link #sync(long)} makes it durable. Concurrent callers of
+ * {@code sync} share one {@code msync}: whoever holds the sync lock forces everything appended so far,
+ * and the callers queued behind it usually find their record already covered.
+ * <p>
+ * {@link #checkpoint(long)} records that everything up to a sequence has been applied elsewhere; segments
+ * holding only such records are deleted, and {@link #replay(ObjLongConsumer)} skips them. After a crash,
+ * replay stops at the first torn or corrupt record of each segment, and new records go to a fresh segment.
+ */
+final class WriteAheadLog implements AutoCloseable {
+    private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES + Integer.BYTES;
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+    private final Object syncLock = new Object();
+    private MappedByteBuffer current;
+    private long lastSequence;
+    private long checkpointSequence;
+    private volatile long durableSequence;
+
+    /**
+     * Opens the log in {@code directory}, creating it if needed, and starts a new segment after the last
+     * valid record found on disk.
+     *
+     * @param segmentSize size of each segment file; a record must fit into one segment.
+     */
+    WriteAheadLog(Path directory, int segmentSize) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+        this.checkpointSequence = Files.exists(checkpoint) ? ByteBuffer.wrap(Files.readAllBytes(checkpoint)).getLong() : 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .forEach(file -> segments.put(firstSequence(file), file));
+        }
+        this.lastSequence = checkpointSequence;
+        replay((payload, sequence) -> lastSequence = sequence);
+        this.durableSequence = lastSequence;
+        openSegment(lastSequence + 1);
+    }
+
+    /**
+     * Copies a record into the current segment, rolling over to a new one when it is full.
+     *
+     * @return the record's sequence number; pass it to {@link #sync(long)} before relying on the record.
+     */
+    synchronized long append(byte[] payload) throws IOException {
+        int size = HEADER_BYTES + payload.length;
+        if (size > segmentSize) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes does not fit into a log segment");
+        }
+        if (current.remaining() < size) {
+            current.force();
+            openSegment(lastSequence + 1);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        current.putInt(payload.length).putLong(++lastSequence).putInt((int) crc.getValue()).put(payload);
+        return lastSequence;
+    }
+
+    /**
+     * Blocks until the record with the given sequence, and every record before it, is on disk.
+     */
+    void sync(long sequence) {
+        if (durableSequence >= sequence) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (durableSequence >= sequence) {
+                return;
+            }
+            MappedByteBuffer segment;
+            long appended;
+            synchronized (this) {
+                segment = current;
+                appended = lastSequence;
+            }
+            // earlier segments were forced when the log rolled over
+            segment.force();
+            durableSequence = appended;
+        }
+    }
+
+    /**
+     * @return sequence of the last appended record, or of the checkpoint if nothing was appended since.
+     */
+    synchronized long lastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Marks every record up to {@code sequence} as applied and deletes the segments that hold nothing else.
+     */
+    synchronized void checkpoint(long sequence) throws IOException {
+        if (sequence <= checkpointSequence) {
+            return;
+        }
+        Path tmp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, sequence));
+            channel.force(true);
+        }
+        Files.move(tmp, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        checkpointSequence = sequence;
+        List<Long> applied = new ArrayList<>();
+        for (Long next : segments.keySet()) {
+            Long first = segments.lowerKey(next);
+            if (first != null && next - 1 <= sequence) {
+                applied.add(first);
+            }
+        }
+        for (Long first : applied) {
+            Files.deleteIfExists(segments.remove(first));
+        }
+    }
+
+    /**
+     * Passes every valid record after the last checkpoint to {@code consumer}, in sequence order.
+     */
+    synchronized void replay(ObjLongConsumer<byte[]> consumer) throws IOException {
+        for (Map.Entry<Long, Path> segment : segments.entrySet()) {
+            if (segment.getValue().equals(currentPath())) {
+                continue;
+            }
+            ByteBuffer records;
+            try (FileChannel channel = FileChannel.open(segment.getValue(), StandardOpenOption.READ)) {
+                records = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            long expected = segment.getKey();
+            while (records.remaining() >= HEADER_BYTES) {
+                int length = records.getInt();
+                long sequence = records.getLong();
+                int checksum = records.getInt();
+                if (length <= 0 || length > records.remaining() || sequence != expected) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                records.get(payload);
+                CRC32C crc = new CRC32C();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                if (sequence > checkpointSequence) {
+                    consumer.accept(payload, sequence);
+                }
+                expected++;
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        current.force();
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        Path file = directory.resolve(String.format("%020d%s", firstSequence, SEGMENT_SUFFIX));
+        // a segment with this name holds no valid record, or the log would have continued after it
+        Files.deleteIfExists(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            current = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        segments.put(firstSequence, file);
+    }
+
+    private Path currentPath() {
+        return current == null ? null : segments.lastEntry().getValue();
+    }
+
+    private static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException ex) {
+            throw new UncheckedIOException(new IOException("Unexpected file in write-ahead log: " + segment));
+        }
+    }
+}
@@ -0,0 +1,18 @@
+-- Baseline schema, equivalent to what Hibernate generated from Vehicle with ddl-auto=update.
+CREATE TABLE IF NOT EXISTS vehicles (
+    vin               VARCHAR(255)   NOT NULL,
+    manufacturer_name VARCHAR(255)   NOT NULL,
+    description       VARCHAR(255)   NOT NULL,
+    horse_power       INTEGER        CHECK (horse_power >= 1),
+    model_name        VARCHAR(255)   NOT NULL,
+    purchase_price    NUMERIC(38, 2) NOT NULL,
+    fuel_type         ENUM ('DIESEL', 'ELECTRIC', 'GASOLINE', 'HYBRID') NOT NULL,
+    version           BIGINT,
+    PRIMARY KEY (vin)
+);
+
+CREATE INDEX IF NOT EXISTS idx_vehicles_manufacturer_fuel ON vehicles (manufacturer_name, fuel_type, vin);
+CREATE INDEX IF NOT EXISTS idx_vehicles_model_name ON vehicles (model_name);
+CREATE INDEX IF NOT EXISTS idx_vehicles_fuel_type ON vehicles (fuel_type);
+CREATE INDEX IF NOT EXISTS idx_vehicles_horse_power ON vehicles (horse_power);
+CREATE INDEX IF NOT EXISTS idx_vehicles_purchase_price ON vehicles (purchase_price);
@@ -0,0 +1,47 @@
+-- Brings VINs stored before validation (VinValidator) to the canonical form every request now uses:
+-- surrounding spaces removed, letters upper-cased. Rows that cannot be fixed here are left untouched and
+-- listed in vin_migration_report:
+--   COLLISION    another row already has (or would get) the same canonical VIN
+--   MALFORMED    not 17 characters from 0-9 and A-Z without I, O and Q
+--   CHECK_DIGIT  position 9 does not hold the ISO 3779 check digit
+CREATE TABLE IF NOT EXISTS vin_migration_report (
+    vin            VARCHAR(255) NOT NULL,
+    normalized_vin VARCHAR(255) NOT NULL,
+    problem        VARCHAR(16)  NOT NULL,
+    PRIMARY KEY (vin)
+);
+
+INSERT INTO vin_migration_report (vin, normalized_vin, problem)
+SELECT v.vin, UPPER(TRIM(v.vin)), 'COLLISION'
+FROM vehicles v
+WHERE v.vin <> UPPER(TRIM(v.vin))
+  AND EXISTS (SELECT 1 FROM vehicles o WHERE o.vin <> v.vin AND UPPER(TRIM(o.vin)) = UPPER(TRIM(v.vin)));
+
+UPDATE vehicles
+SET vin = UPPER(TRIM(vin))
+WHERE vin <> UPPER(TRIM(vin))
+  AND vin NOT IN (SELECT vin FROM vin_migration_report);
+
+INSERT INTO vin_migration_report (vin, normalized_vin, problem)
+SELECT vin, vin, 'MALFORMED'
+FROM vehicles
+WHERE NOT REGEXP_LIKE(vin, '^[0-9A-HJ-NPR-Z]{17}$')
+  AND vin NOT IN (SELECT vin FROM vin_migration_report);
+
+-- Letters transliterate to a single digit each, so the weighted sum works on the translated string.
+INSERT INTO vin_migration_report (vin, normalized_vin, problem)
+SELECT vin, vin, 'CHECK_DIGIT'
+FROM (SELECT vin,
+             MOD(CAST(SUBSTRING(t, 1, 1) AS INT) * 8 + CAST(SUBSTRING(t, 2, 1) AS INT) * 7
+                     + CAST(SUBSTRING(t, 3, 1) AS INT) * 6 + CAST(SUBSTRING(t, 4, 1) AS INT) * 5
+                     + CAST(SUBSTRING(t, 5, 1) AS INT) * 4 + CAST(SUBSTRING(t, 6, 1) AS INT) * 3
+                     + CAST(SUBSTRING(t, 7, 1) AS INT) * 2 + CAST(SUBSTRING(t, 8, 1) AS INT) * 10
+                     + CAST(SUBSTRING(t, 10, 1) AS INT) * 9 + CAST(SUBSTRING(t, 11, 1) AS INT) * 8
+                     + CAST(SUBSTRING(t, 12, 1) AS INT) * 7 + CAST(SUBSTRING(t, 13, 1) AS INT) * 6
+                     + CAST(SUBSTRING(t, 14, 1) AS INT) * 5 + CAST(SUBSTRING(t, 15, 1) AS INT) * 4
+                     + CAST(SUBSTRING(t, 16, 1) AS INT) * 3 + CAST(SUBSTRING(t, 17, 1) AS INT) * 2, 11) AS remainder
+      FROM (SELECT vin, TRANSLATE(vin, 'ABCDEFGHJKLMNPRSTUVWXYZ', '12345678123457923456789') AS t
+            FROM vehicles
+            WHERE REGEXP_LIKE(vin, '^[0-9A-HJ-NPR-Z]{17}$')) translated) summed
+WHERE SUBSTRING(vin, 9, 1) <> CASE remainder WHEN 10 THEN 'X' ELSE CAST(remainder AS VARCHAR) END
+  AND vin NOT IN (SELECT vin FROM vin_migration_report);
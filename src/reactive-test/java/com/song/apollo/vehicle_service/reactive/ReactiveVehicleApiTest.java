@@ -0,0 +1,139 @@
+package com.song.apollo.vehicle_service.reactive;
+
+import com.song.apollo.vehicle_service.Vehicle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(classes = ReactiveVehicleApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.flyway.url=jdbc:h2:mem:reactivedb;DB_CLOSE_DELAY=-1",
+                "vehicle.reactive.r2dbc.url=r2dbc:pool:h2:mem:///reactivedb?options=DB_CLOSE_DELAY=-1"})
+@ActiveProfiles("reactive")
+public class ReactiveVehicleApiTest {
+
+    @LocalServerPort
+    private int port;
+
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        client = WebTestClient.bindToServer().baseUrl("http://localhost:" + port).build();
+    }
+
+    @Test
+    void vehicle_ShouldBeCreatedReadPatchedAndDeleted_WithVersionETags() {
+        String vin = "1HGCM82663A000148";
+        client.post().uri("/vehicle").contentType(MediaType.APPLICATION_JSON).bodyValue(vehicle(vin))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"0\"");
+        client.post().uri("/vehicle").contentType(MediaType.APPLICATION_JSON).bodyValue(vehicle(vin))
+                .exchange()
+                .expectStatus().isEqualTo(409)
+                .expectBody().jsonPath("$.error").isEqualTo("VIN already exists");
+
+        client.get().uri("/vehicle/{vin}", vin.toLowerCase()).exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.modelName").isEqualTo("Accord");
+        client.get().uri("/vehicle/{vin}", vin).header(HttpHeaders.IF_NONE_MATCH, "\"0\"").exchange()
+                .expectStatus().isNotModified();
+
+        client.patch().uri("/vehicle/{vin}", vin).header(HttpHeaders.IF_MATCH, "\"0\"")
+                .contentType(MediaType.valueOf("application/merge-patch+json"))
+                .bodyValue("{\"purchasePrice\": 21000.00, \"fuelType\": \"HYBRID\"}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1\"")
+                .expectBody()
+                .jsonPath("$.purchasePrice").isEqualTo(21000.00)
+                .jsonPath("$.fuelType").isEqualTo("HYBRID")
+                .jsonPath("$.modelName").isEqualTo("Accord");
+        client.patch().uri("/vehicle/{vin}", vin).header(HttpHeaders.IF_MATCH, "\"0\"")
+                .contentType(MediaType.APPLICATION_JSON).bodyValue("{\"horsePower\": 200}")
+                .exchange()
+                .expectStatus().isEqualTo(412);
+
+        client.delete().uri("/vehicle/{vin}", vin).header(HttpHeaders.IF_MATCH, "\"1\"").exchange()
+                .expectStatus().isNoContent();
+        client.get().uri("/vehicle/{vin}", vin).exchange().expectStatus().isNotFound();
+        client.put().uri("/vehicle/{vin}", vin).contentType(MediaType.APPLICATION_JSON).bodyValue(vehicle(vin))
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void errors_ShouldMatchTheMvcApi() {
+        client.get().uri("/vehicle/NOT-A-VIN").exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.error").exists();
+
+        Vehicle invalid = vehicle("1HGCM82683A000149");
+        invalid.setHorsePower(-1);
+        client.post().uri("/vehicle").contentType(MediaType.APPLICATION_JSON).bodyValue(invalid)
+                .exchange()
+                .expectStatus().isEqualTo(422)
+                .expectBody().jsonPath("$.horsePower").exists();
+
+        client.post().uri("/vehicle").contentType(MediaType.APPLICATION_JSON).bodyValue("{\"vin\": ")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.error").isEqualTo("Malformed JSON request");
+
+        client.get().uri("/vehicle?after=***").exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.error").isEqualTo("Invalid cursor");
+    }
+
+    @Test
+    void list_ShouldPageByCursor_AndStreamNdjson() {
+        List<String> vins = List.of("1HGCM82643A000150", "1HGCM82663A000151", "1HGCM82683A000152");
+        for (String vin : vins) {
+            client.post().uri("/vehicle").contentType(MediaType.APPLICATION_JSON).bodyValue(vehicle(vin))
+                    .exchange().expectStatus().isCreated();
+        }
+
+        List<String> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            String uri = cursor == null ? "/vehicle?limit=2" : "/vehicle?limit=2&after=" + cursor;
+            var result = client.get().uri(uri).exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().exists(HttpHeaders.ETAG)
+                    .expectBodyList(Vehicle.class).returnResult();
+            result.getResponseBody().forEach(v -> paged.add(v.getVin()));
+            cursor = result.getResponseHeaders().getFirst("X-Next-Cursor");
+        } while (cursor != null);
+        assertThat(paged).containsSubsequence(vins);
+
+        List<Vehicle> streamed = client.get().uri("/vehicle").accept(MediaType.APPLICATION_NDJSON).exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(Vehicle.class).getResponseBody().collectList().block();
+        assertThat(streamed).extracting(Vehicle::getVin).containsExactlyElementsOf(paged);
+    }
+
+    private static Vehicle vehicle(String vin) {
+        return Vehicle.builder()
+                .vin(vin)
+                .manufacturerName("Honda")
+                .description("Sedan")
+                .horsePower(190)
+                .modelName("Accord")
+                .purchasePrice(new BigDecimal("20000.00"))
+                .fuelType(Vehicle.FuelType.GASOLINE)
+                .build();
+    }
+}
@@ -0,0 +1,94 @@
+package com.song.apollo.vehicle_service.reactive;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Non-blocking variant of the vehicle service: the {@code /vehicle} API on WebFlux functional endpoints and
+ * R2DBC, built with {@code ./mvnw -Preactive}.
+ * <p>
+ * It serves the single-vehicle operations, the paged list and the NDJSON stream with the same statuses,
+ * headers and error bodies as {@code VehicleController}, on a few event-loop threads instead of a thread per
+ * request. Batch, search, lookup, export/import, statistics and the change feed are only served by the
+ * MVC application.
+ * <p>
+ * Only this package is scanned, and the {@code reactive} profile (see {@code application-reactive.properties})
+ * switches off the JDBC {@code DataSource}, so JPA and the MVC application's beans are not started; Flyway
+ * migrates the schema over its own JDBC connection. The class is limited to that profile because the MVC
+ * application's component scan also finds it.
+ */
+@SpringBootApplication
+@Profile("reactive")
+public class ReactiveVehicleApplication {
+
+    public static void main(String[] args) {
+        SpringApplication application = new SpringApplication(ReactiveVehicleApplication.class);
+        application.setWebApplicationType(WebApplicationType.REACTIVE);
+        application.setAdditionalProfiles("reactive");
+        application.run(args);
+    }
+
+    /**
+     * @param url      R2DBC URL, pooled by default ({@code r2dbc:pool:h2:...}).
+     * @param user     database user, shared with Flyway.
+     * @param password database password, shared with Flyway.
+     */
+    @Bean
+    public ConnectionFactory connectionFactory(@Value("${vehicle.reactive.r2dbc.url}") String url,
+                                               @Value("${spring.flyway.user}") String user,
+                                               @Value("${spring.flyway.password}") String password) {
+        return ConnectionFactories.get(ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, user)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build());
+    }
+
+    @Bean
+    public ReactiveVehicleRepository reactiveVehicleRepository(ConnectionFactory connectionFactory) {
+        return new ReactiveVehicleRepository(DatabaseClient.create(connectionFactory));
+    }
+
+    @Bean
+    public VehicleHandler vehicleHandler(ReactiveVehicleRepository repository, Validator validator,
+                                         JsonMapper jsonMapper, ObjectProvider<MeterRegistry> meterRegistry) {
+        return new VehicleHandler(repository, validator, jsonMapper, meterRegistry);
+    }
+
+    /**
+     * The {@code /vehicle} routes. {@code GET /vehicle} streams NDJSON only when the client asks for it, like the
+     * {@code produces} condition of the MVC controller.
+     */
+    @Bean
+    public RouterFunction<ServerResponse> vehicleRoutes(VehicleHandler handler) {
+        return RouterFunctions.route()
+                .GET("/vehicle", ReactiveVehicleApplication::acceptsNdjson, handler::stream)
+                .GET("/vehicle", handler::list)
+                .GET("/vehicle/{vin}", handler::get)
+                .POST("/vehicle", handler::create)
+                .PUT("/vehicle/{vin}", handler::update)
+                .PATCH("/vehicle/{vin}", handler::patch)
+                .DELETE("/vehicle/{vin}", handler::delete)
+                .build();
+    }
+
+    private static boolean acceptsNdjson(ServerRequest request) {
+        return request.headers().accept().stream().anyMatch(MediaType.APPLICATION_NDJSON::equalsTypeAndSubtype);
+    }
+}
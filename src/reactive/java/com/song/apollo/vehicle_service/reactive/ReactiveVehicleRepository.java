@@ -0,0 +1,157 @@
+package com.song.apollo.vehicle_service.reactive;
+
+import com.song.apollo.vehicle_service.Vehicle;
+import com.song.apollo.vehicle_service.VehiclePatch;
+import io.r2dbc.spi.Readable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * R2DBC access to the {@code vehicles} table, with the statements the JPA repository issues written out.
+ * <p>
+ * Every statement runs in auto-commit mode on a pooled connection and never blocks the calling thread.
+ * Updates use H2's data change delta table ({@code SELECT ... FROM FINAL TABLE (UPDATE ...)}), so the VIN and
+ * version guard, the version increment and reading back the new row take one statement, as in
+ * {@code VehicleRepositoryCustom#update}.
+ */
+public class ReactiveVehicleRepository {
+    private static final String COLUMNS = "vin, manufacturer_name, description, horse_power, model_name, "
+            + "purchase_price, cast(fuel_type as varchar) as fuel_type, version";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveVehicleRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Vehicle> findById(String vin) {
+        return databaseClient.sql("select " + COLUMNS + " from vehicles where vin = :vin")
+                .bind("vin", vin)
+                .map(ReactiveVehicleRepository::toVehicle)
+                .one();
+    }
+
+    public Mono<Boolean> existsById(String vin) {
+        return databaseClient.sql("select count(*) from vehicles where vin = :vin")
+                .bind("vin", vin)
+                .map(row -> row.get(0, Long.class) > 0)
+                .one();
+    }
+
+    /**
+     * @param afterVin exclusive lower bound (keyset pagination), or {@code null} for the first page.
+     * @param limit    maximum number of rows.
+     * @return vehicles ordered by VIN.
+     */
+    public Flux<Vehicle> findPage(String afterVin, int limit) {
+        GenericExecuteSpec query = afterVin == null
+                ? databaseClient.sql("select " + COLUMNS + " from vehicles order by vin limit :limit")
+                : databaseClient.sql("select " + COLUMNS + " from vehicles where vin > :after order by vin limit :limit")
+                        .bind("after", afterVin);
+        return query.bind("limit", limit)
+                .map(ReactiveVehicleRepository::toVehicle)
+                .all();
+    }
+
+    /**
+     * Every vehicle in VIN order. Rows are only fetched as fast as the subscriber requests them, so a slow
+     * client holds back the cursor instead of filling memory.
+     */
+    public Flux<Vehicle> findAll() {
+        return databaseClient.sql("select " + COLUMNS + " from vehicles order by vin")
+                .map(ReactiveVehicleRepository::toVehicle)
+                .all();
+    }
+
+    /**
+     * Inserts a new vehicle with version 0; a VIN that already exists fails with
+     * {@link org.springframework.dao.DuplicateKeyException}.
+     *
+     * @return {@code vehicle}, with its version set.
+     */
+    public Mono<Vehicle> insert(Vehicle vehicle) {
+        GenericExecuteSpec insert = databaseClient.sql("insert into vehicles (vin, manufacturer_name, description, "
+                        + "horse_power, model_name, purchase_price, fuel_type, version) values (:vin, :manufacturer_name, "
+                        + ":description, :horse_power, :model_name, :purchase_price, cast(:fuel_type as varchar), 0)")
+                .bind("vin", vehicle.getVin());
+        for (Map.Entry<VehiclePatch.Field, Object> field : VehiclePatch.of(vehicle).fields().entrySet()) {
+            insert = bind(insert, field.getKey(), field.getValue());
+        }
+        return insert.fetch().rowsUpdated().map(rows -> {
+            vehicle.setVersion(0L);
+            return vehicle;
+        });
+    }
+
+    /**
+     * Sets the patched columns and increments the version in one statement.
+     *
+     * @param patch           fields to set; must not be empty.
+     * @param expectedVersion if not {@code null}, only this version is updated.
+     * @return the vehicle after the update, or empty if no row matched the VIN (and version).
+     */
+    public Mono<Vehicle> update(String vin, VehiclePatch patch, Long expectedVersion) {
+        StringBuilder sql = new StringBuilder("select ").append(COLUMNS).append(" from final table (update vehicles set ");
+        for (VehiclePatch.Field field : patch.fields().keySet()) {
+            sql.append(field.column()).append(" = ").append(parameter(field)).append(", ");
+        }
+        sql.append("version = version + 1 where vin = :vin");
+        if (expectedVersion != null) {
+            sql.append(" and version = :version");
+        }
+        sql.append(')');
+
+        GenericExecuteSpec update = databaseClient.sql(sql.toString()).bind("vin", vin);
+        if (expectedVersion != null) {
+            update = update.bind("version", expectedVersion);
+        }
+        for (Map.Entry<VehiclePatch.Field, Object> field : patch.fields().entrySet()) {
+            update = bind(update, field.getKey(), field.getValue());
+        }
+        return update.map(ReactiveVehicleRepository::toVehicle).one();
+    }
+
+    /**
+     * @param expectedVersion if not {@code null}, only this version is deleted.
+     * @return the number of deleted rows (0 or 1).
+     */
+    public Mono<Long> delete(String vin, Long expectedVersion) {
+        GenericExecuteSpec delete = expectedVersion == null
+                ? databaseClient.sql("delete from vehicles where vin = :vin")
+                : databaseClient.sql("delete from vehicles where vin = :vin and version = :version")
+                        .bind("version", expectedVersion);
+        return delete.bind("vin", vin).fetch().rowsUpdated();
+    }
+
+    /**
+     * r2dbc-h2 cannot convert a bound string to an ENUM column, so enum values go through a varchar cast.
+     */
+    private static String parameter(VehiclePatch.Field field) {
+        return field.type().isEnum() ? "cast(:" + field.column() + " as varchar)" : ":" + field.column();
+    }
+
+    private static GenericExecuteSpec bind(GenericExecuteSpec spec, VehiclePatch.Field field, Object value) {
+        if (value == null) {
+            return spec.bindNull(field.column(), field.type().isEnum() ? String.class : field.type());
+        }
+        return spec.bind(field.column(), value instanceof Enum<?> constant ? constant.name() : value);
+    }
+
+    private static Vehicle toVehicle(Readable row) {
+        return Vehicle.builder()
+                .vin(row.get("vin", String.class))
+                .manufacturerName(row.get("manufacturer_name", String.class))
+                .description(row.get("description", String.class))
+                .horsePower(row.get("horse_power", Integer.class))
+                .modelName(row.get("model_name", String.class))
+                .purchasePrice(row.get("purchase_price", BigDecimal.class))
+                .fuelType(Vehicle.FuelType.valueOf(row.get("fuel_type", String.class)))
+                .version(row.get("version", Long.class))
+                .build();
+    }
+}
@@ -0,0 +1,305 @@
+package com.song.apollo.vehicle_service.reactive;
+
+import com.song.apollo.vehicle_service.BadRequestException;
+import com.song.apollo.vehicle_service.PreconditionFailedException;
+import com.song.apollo.vehicle_service.Vehicle;
+import com.song.apollo.vehicle_service.VehicleController;
+import com.song.apollo.vehicle_service.VehiclePage;
+import com.song.apollo.vehicle_service.VehiclePatch;
+import com.song.apollo.vehicle_service.VehicleService;
+import com.song.apollo.vehicle_service.Vin;
+import com.song.apollo.vehicle_service.VinValidator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Handler functions for the reactive {@code /vehicle} routes.
+ * <p>
+ * Mirrors {@code VehicleController}: single vehicles carry their version as a strong {@code ETag}, pages an
+ * {@code ETag} over their contents and an {@code X-Next-Cursor} header, and writes honour {@code If-Match}.
+ * Errors get the bodies and statuses of {@code GlobalExceptionHandler} and are counted on the same
+ * {@code vehicle.api.errors} counter.
+ * <p>
+ * There is no cache, VIN index or change feed here; every request is one or two statements against the
+ * database, none of which blocks an event-loop thread.
+ */
+public class VehicleHandler {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    private final ReactiveVehicleRepository repository;
+    private final Validator validator;
+    private final JsonMapper jsonMapper;
+    private final MeterRegistry meterRegistry;
+
+    public VehicleHandler(ReactiveVehicleRepository repository, Validator validator, JsonMapper jsonMapper,
+                          ObjectProvider<MeterRegistry> meterRegistry) {
+        this.repository = repository;
+        this.validator = validator;
+        this.jsonMapper = jsonMapper;
+        this.meterRegistry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+    }
+
+    /**
+     * GET /vehicle?limit={n}&amp;after={cursor}: one page in VIN order, fetching one extra row to detect a next
+     * page.
+     */
+    public Mono<ServerResponse> list(ServerRequest request) {
+        return handle(() -> {
+            int pageSize = Math.max(1, Math.min(limit(request), VehicleService.MAX_PAGE_SIZE));
+            String afterVin = VehiclePage.decodeCursor(request.queryParam("after").orElse(null));
+            return repository.findPage(afterVin, pageSize + 1).collectList().flatMap(rows -> {
+                VehiclePage page = toPage(rows, pageSize);
+                return request.checkNotModified(page.etag()).switchIfEmpty(Mono.defer(() -> {
+                    ServerResponse.BodyBuilder response = ServerResponse.ok().eTag(page.etag());
+                    if (page.nextCursor() != null) {
+                        response.header(VehicleController.NEXT_CURSOR_HEADER, page.nextCursor());
+                    }
+                    return response.contentType(MediaType.APPLICATION_JSON).bodyValue(page.vehicles());
+                }));
+            });
+        });
+    }
+
+    /**
+     * GET /vehicle with {@code Accept: application/x-ndjson}: every vehicle, one JSON document per line, with
+     * backpressure from the client down to the database cursor.
+     */
+    public Mono<ServerResponse> stream(ServerRequest request) {
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_NDJSON).body(repository.findAll(), Vehicle.class);
+    }
+
+    /**
+     * GET /vehicle/{vin}
+     */
+    public Mono<ServerResponse> get(ServerRequest request) {
+        return handle(() -> repository.findById(vin(request))
+                .flatMap(v -> request.checkNotModified(etag(v))
+                        .switchIfEmpty(Mono.defer(() -> ServerResponse.ok().eTag(etag(v))
+                                .contentType(MediaType.APPLICATION_JSON).bodyValue(v))))
+                .switchIfEmpty(Mono.defer(() -> ServerResponse.notFound().build())));
+    }
+
+    /**
+     * POST /vehicle: 201 with the new ETag, 422 for invalid fields, 409 if the VIN exists.
+     */
+    public Mono<ServerResponse> create(ServerRequest request) {
+        return handle(() -> body(request, Vehicle.class)
+                .flatMap(vehicle -> {
+                    validate(vehicle);
+                    return repository.insert(vehicle);
+                })
+                .flatMap(v -> ServerResponse.status(HttpStatus.CREATED).eTag(etag(v))
+                        .contentType(MediaType.APPLICATION_JSON).bodyValue(v)));
+    }
+
+    /**
+     * PUT /vehicle/{vin}: replaces every writable field in one statement.
+     */
+    public Mono<ServerResponse> update(ServerRequest request) {
+        return handle(() -> {
+            String vin = vin(request);
+            Long expectedVersion = expectedVersion(request);
+            return body(request, Vehicle.class).flatMap(vehicle -> {
+                vehicle.setVin(vin);
+                validate(vehicle);
+                return updated(vin, repository.update(vin, VehiclePatch.of(vehicle), expectedVersion), expectedVersion);
+            });
+        });
+    }
+
+    /**
+     * PATCH /vehicle/{vin}: a JSON Merge Patch, validated and applied field by field.
+     */
+    public Mono<ServerResponse> patch(ServerRequest request) {
+        return handle(() -> {
+            String vin = vin(request);
+            Long expectedVersion = expectedVersion(request);
+            return body(request, JsonNode.class).flatMap(document -> {
+                VehiclePatch patch = VehiclePatch.read(document, jsonMapper);
+                Set<ConstraintViolation<Vehicle>> violations = patch.validate(validator);
+                if (!violations.isEmpty()) {
+                    throw new ConstraintViolationException(violations);
+                }
+                if (patch.isEmpty()) {
+                    return updated(vin, repository.findById(vin).map(v -> checkVersion(v, expectedVersion)), null);
+                }
+                return updated(vin, repository.update(vin, patch, expectedVersion), expectedVersion);
+            });
+        });
+    }
+
+    /**
+     * DELETE /vehicle/{vin}: 204, or 412 if a version is expected and the vehicle is missing or newer.
+     */
+    public Mono<ServerResponse> delete(ServerRequest request) {
+        return handle(() -> {
+            String vin = vin(request);
+            Long expectedVersion = expectedVersion(request);
+            return repository.delete(vin, expectedVersion).flatMap(deleted -> {
+                if (deleted == 0 && expectedVersion != null) {
+                    return repository.existsById(vin).flatMap(exists -> Mono.error(new PreconditionFailedException(
+                            exists ? "Vehicle has been modified" : "Vehicle does not exist")));
+                }
+                return ServerResponse.noContent().build();
+            });
+        });
+    }
+
+    /**
+     * The response for an update: 200 with the new ETag, or, if no row matched, 412 when a version was expected
+     * and the vehicle exists, 404 otherwise.
+     */
+    private Mono<ServerResponse> updated(String vin, Mono<Vehicle> result, Long expectedVersion) {
+        return result
+                .flatMap(v -> ServerResponse.ok().eTag(etag(v)).contentType(MediaType.APPLICATION_JSON).bodyValue(v))
+                .switchIfEmpty(Mono.defer(() -> expectedVersion == null
+                        ? ServerResponse.notFound().build()
+                        : repository.existsById(vin).flatMap(exists -> exists
+                                ? Mono.error(new PreconditionFailedException("Vehicle has been modified"))
+                                : ServerResponse.notFound().build())));
+    }
+
+    /**
+     * Runs a handler so that exceptions thrown while assembling it, and errors it emits, become error responses.
+     */
+    private Mono<ServerResponse> handle(Supplier<Mono<ServerResponse>> handler) {
+        return Mono.defer(handler).onErrorResume(this::error);
+    }
+
+    private <T> Mono<T> body(ServerRequest request, Class<T> type) {
+        return request.bodyToMono(type)
+                .switchIfEmpty(Mono.error(() -> new DecodingException("Request body is missing")));
+    }
+
+    private void validate(Vehicle vehicle) {
+        Set<ConstraintViolation<Vehicle>> violations = validator.validate(vehicle);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+    }
+
+    private Mono<ServerResponse> error(Throwable ex) {
+        if (ex instanceof ConstraintViolationException violation) {
+            count(HttpStatus.UNPROCESSABLE_ENTITY, "validation");
+            Map<String, String> errors = new HashMap<>();
+            violation.getConstraintViolations().forEach(v -> errors.put(v.getPropertyPath().toString(), v.getMessage()));
+            return ServerResponse.status(HttpStatus.UNPROCESSABLE_ENTITY).contentType(MediaType.APPLICATION_JSON).bodyValue(errors);
+        }
+        if (ex instanceof InvalidVinException) {
+            return error(HttpStatus.BAD_REQUEST, "invalid_parameter", Vin.MESSAGE);
+        }
+        if (ex instanceof DecodingException || ex instanceof ServerWebInputException) {
+            return error(HttpStatus.BAD_REQUEST, "malformed_json", "Malformed JSON request");
+        }
+        if (ex instanceof BadRequestException) {
+            return error(HttpStatus.BAD_REQUEST, "bad_request", ex.getMessage());
+        }
+        if (ex instanceof DuplicateKeyException) {
+            return error(HttpStatus.CONFLICT, "duplicate_vin", "VIN already exists");
+        }
+        if (ex instanceof PreconditionFailedException) {
+            return error(HttpStatus.PRECONDITION_FAILED, "precondition_failed", ex.getMessage());
+        }
+        if (ex instanceof ResponseStatusException status) {
+            return ServerResponse.status(status.getStatusCode()).build();
+        }
+        return Mono.error(ex);
+    }
+
+    private Mono<ServerResponse> error(HttpStatusCode status, String reason, String message) {
+        count(status, reason);
+        return ServerResponse.status(status).contentType(MediaType.APPLICATION_JSON).bodyValue(Map.of("error", message));
+    }
+
+    private void count(HttpStatusCode status, String reason) {
+        meterRegistry.counter("vehicle.api.errors", "status", Integer.toString(status.value()), "reason", reason).increment();
+    }
+
+    private static int limit(ServerRequest request) {
+        String limit = request.queryParam("limit").orElse(null);
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        try {
+            return Integer.parseInt(limit);
+        } catch (NumberFormatException ex) {
+            throw new BadRequestException("Invalid limit");
+        }
+    }
+
+    private static String vin(ServerRequest request) {
+        String vin = VinValidator.normalize(request.pathVariable("vin"));
+        if (!VinValidator.isValid(vin, true)) {
+            throw new InvalidVinException();
+        }
+        return vin;
+    }
+
+    private static Vehicle checkVersion(Vehicle current, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(current.getVersion())) {
+            throw new PreconditionFailedException("Vehicle has been modified");
+        }
+        return current;
+    }
+
+    /**
+     * Strong ETag of a single vehicle, e.g. {@code "3"}.
+     */
+    private static String etag(Vehicle v) {
+        return "\"" + v.getVersion() + "\"";
+    }
+
+    /**
+     * Parses {@code If-Match} like the MVC controller: absent or {@code *} expects nothing, a single strong ETag
+     * expects its version, and anything else cannot match.
+     */
+    private static Long expectedVersion(ServerRequest request) {
+        String ifMatch = request.headers().firstHeader(HttpHeaders.IF_MATCH);
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.strip().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.strip();
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.valueOf(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException ignored) {
+                // falls through to the precondition failure below
+            }
+        }
+        throw new PreconditionFailedException("Vehicle has been modified");
+    }
+
+    private static VehiclePage toPage(List<Vehicle> rows, int pageSize) {
+        if (rows.size() <= pageSize) {
+            return new VehiclePage(rows, null);
+        }
+        List<Vehicle> vehicles = rows.subList(0, pageSize);
+        return new VehiclePage(vehicles, VehiclePage.encodeCursor(vehicles.get(pageSize - 1).getVin()));
+    }
+
+    private static final class InvalidVinException extends RuntimeException {
+    }
+}
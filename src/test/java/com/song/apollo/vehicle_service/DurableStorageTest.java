@@ -0,0 +1,78 @@
+package com.song.apollo.vehicle_service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DurableStorageTest {
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    void durableProfile_ShouldKeepDataAcrossRestarts_AndReplicaShouldServeReadsOnly() throws Exception {
+        String storagePath = "--vehicle.storage.path=" + dataDir.resolve("vehicledb");
+
+        try (ConfigurableApplicationContext primary = start(storagePath, "durable")) {
+            primary.getBean(VehicleService.class).createVehicle(vehicle("1HGCM82693A000113"));
+        }
+
+        try (ConfigurableApplicationContext primary = start(storagePath, "durable")) {
+            assertThat(primary.getBean(VehicleService.class).getVehicleByVin("1HGCM82693A000113")).isPresent();
+            String appliedVersion = primary.getBean(JdbcTemplate.class).queryForObject(
+                    "select max(\"version\") from \"flyway_schema_history\" where \"success\"", String.class);
+            assertThat(appliedVersion).isEqualTo("2");
+
+            try (ConfigurableApplicationContext replica = start(storagePath, "durable", "replica")) {
+                String baseUrl = "http://localhost:" + replica.getEnvironment().getProperty("local.server.port");
+                HttpClient client = HttpClient.newHttpClient();
+
+                HttpResponse<String> read = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/vehicle/1HGCM82693A000113")).build(),
+                        HttpResponse.BodyHandlers.ofString());
+                HttpResponse<String> lookup = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/vehicle/lookup"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString("[\"1HGCM82693A000113\"]")).build(),
+                        HttpResponse.BodyHandlers.ofString());
+                HttpResponse<String> write = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/vehicle/1HGCM82693A000113"))
+                        .DELETE().build(), HttpResponse.BodyHandlers.ofString());
+
+                assertThat(read.statusCode()).isEqualTo(200);
+                assertThat(read.body()).contains("1HGCM82693A000113");
+                assertThat(lookup.statusCode()).isEqualTo(200);
+                assertThat(lookup.body()).contains("\"status\":200");
+                assertThat(write.statusCode()).isEqualTo(405);
+                assertThat(write.headers().firstValue("Allow")).contains("GET, HEAD, OPTIONS");
+            }
+            assertThat(primary.getBean(VehicleService.class).getVehicleByVin("1HGCM82693A000113")).isPresent();
+        }
+    }
+
+    private static ConfigurableApplicationContext start(String storagePath, String... profiles) {
+        return new SpringApplicationBuilder(VehicleServiceApplication.class)
+                .profiles(profiles)
+                .run("--server.port=0", storagePath, "--spring.devtools.restart.enabled=false");
+    }
+
+    private static Vehicle vehicle(String vin) {
+        return Vehicle.builder()
+                .vin(vin)
+                .manufacturerName("Volvo")
+                .modelName("XC90")
+                .description("SUV")
+                .horsePower(250)
+                .purchasePrice(new BigDecimal("55000.00"))
+                .fuelType(Vehicle.FuelType.HYBRID)
+                .build();
+    }
+}
@@ -0,0 +1,145 @@
+package com.song.apollo.vehicle_service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+public class FleetAnalyticsTest {
+    private static final String[] MANUFACTURERS = {"Toyota", "Tesla", "Ford", "BMW"};
+
+    @Mock
+    private VehicleService vehicleService;
+    private FleetAnalytics fleetAnalytics;
+
+    @BeforeEach
+    void setUp() {
+        fleetAnalytics = new FleetAnalytics(vehicleService);
+    }
+
+    @Test
+    void afterSingletonsInstantiated_ShouldLoadSnapshot() {
+        doAnswer(invocation -> {
+            Consumer<Vehicle> consumer = invocation.getArgument(0);
+            consumer.accept(vehicle(1, "Toyota", 200, "100.00", Vehicle.FuelType.GASOLINE));
+            consumer.accept(vehicle(2, "Tesla", 300, "200.00", Vehicle.FuelType.ELECTRIC));
+            return null;
+        }).when(vehicleService).forEachVehicle(any());
+
+        fleetAnalytics.afterSingletonsInstantiated();
+
+        assertEquals(2, fleetAnalytics.size());
+        FleetStatsRow total = fleetAnalytics.aggregate(Set.of(), new double[0]).get(0);
+        assertEquals(2, total.count());
+        assertEquals(new BigDecimal("300.00"), total.purchasePrice().sum());
+        assertEquals(new BigDecimal("150.00"), total.purchasePrice().avg());
+        assertEquals(new BigDecimal("250.00"), total.horsePower().avg());
+    }
+
+    @Test
+    void onVehicleChange_ShouldApplyUpdatesAndDeletes() {
+        fleetAnalytics.onVehicleChange(VehicleChangeEvent.created(vehicle(1, "Toyota", 200, "100.00", Vehicle.FuelType.GASOLINE)));
+        fleetAnalytics.onVehicleChange(VehicleChangeEvent.created(vehicle(2, "Tesla", 300, "200.00", Vehicle.FuelType.ELECTRIC)));
+        fleetAnalytics.onVehicleChange(VehicleChangeEvent.updated(vehicle(1, "Toyota", 250, "150.00", Vehicle.FuelType.HYBRID)));
+        fleetAnalytics.onVehicleChange(VehicleChangeEvent.deleted(vin(2)));
+        fleetAnalytics.onVehicleChange(VehicleChangeEvent.deleted("UNKNOWN"));
+
+        List<FleetStatsRow> rows = fleetAnalytics.aggregate(EnumSet.of(FleetAnalytics.Dimension.FUEL_TYPE), new double[0]);
+
+        assertEquals(1, rows.size());
+        assertEquals(Map.of("fuelType", "HYBRID"), rows.get(0).group());
+        assertEquals(new BigDecimal("150.00"), rows.get(0).purchasePrice().max());
+        assertEquals(new BigDecimal("250"), rows.get(0).horsePower().max());
+    }
+
+    @Test
+    void aggregate_ShouldSkipMissingHorsePower() {
+        fleetAnalytics.upsert(vehicle(1, "Ford", null, "10.00", null));
+
+        FleetStatsRow row = fleetAnalytics.aggregate(EnumSet.of(FleetAnalytics.Dimension.FUEL_TYPE), new double[]{50}).get(0);
+
+        assertEquals(1, row.count());
+        assertNull(row.group().get("fuelType"));
+        assertNull(row.horsePower().sum());
+        assertEquals(new BigDecimal("10.00"), row.purchasePrice().percentiles().get("p50"));
+    }
+
+    @Test
+    void upsert_ShouldLeaveOutOfRangePricesOutOfStatistics() {
+        fleetAnalytics.upsert(vehicle(1, "Ford", 100, "92233720368547758.08", Vehicle.FuelType.GASOLINE));
+        fleetAnalytics.upsert(vehicle(2, "Ford", 200, "10.00", Vehicle.FuelType.GASOLINE));
+
+        FleetStatsRow row = fleetAnalytics.aggregate(Set.of(), new double[0]).get(0);
+
+        assertEquals(2, row.count());
+        assertEquals(new BigDecimal("10.00"), row.purchasePrice().sum());
+        assertEquals(new BigDecimal("300"), row.horsePower().sum());
+    }
+
+    @Test
+    void aggregate_ShouldMatchNaiveComputation_AcrossParallelSplits() {
+        List<Vehicle> fleet = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            Vehicle v = vehicle(i, MANUFACTURERS[i % MANUFACTURERS.length], 100 + i % 400,
+                    BigDecimal.valueOf(1_000_000 + i * 37L % 5_000_000, 2).toPlainString(),
+                    Vehicle.FuelType.values()[i % Vehicle.FuelType.values().length]);
+            fleet.add(v);
+            fleetAnalytics.upsert(v);
+        }
+        Set<String> removed = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            fleetAnalytics.remove(vin(i * 7));
+            removed.add(vin(i * 7));
+        }
+        List<Vehicle> remaining = fleet.stream().filter(v -> !removed.contains(v.getVin())).toList();
+
+        List<FleetStatsRow> rows = fleetAnalytics.aggregate(EnumSet.of(FleetAnalytics.Dimension.MANUFACTURER), new double[]{50, 99});
+
+        Map<String, List<Vehicle>> expected = remaining.stream().collect(Collectors.groupingBy(Vehicle::getManufacturerName));
+        assertThat(rows).extracting(row -> row.group().get("manufacturerName")).containsExactly("BMW", "Ford", "Tesla", "Toyota");
+        for (FleetStatsRow row : rows) {
+            List<Vehicle> group = expected.get(row.group().get("manufacturerName"));
+            List<BigDecimal> prices = group.stream().map(Vehicle::getPurchasePrice).sorted().toList();
+            assertEquals(group.size(), row.count());
+            assertEquals(prices.stream().reduce(BigDecimal.ZERO, BigDecimal::add), row.purchasePrice().sum());
+            assertEquals(prices.get(0), row.purchasePrice().min());
+            assertEquals(prices.get(prices.size() - 1), row.purchasePrice().max());
+            assertEquals(prices.get((int) Math.ceil(0.5 * prices.size()) - 1), row.purchasePrice().percentiles().get("p50"));
+            assertEquals(prices.get((int) Math.ceil(0.99 * prices.size()) - 1), row.purchasePrice().percentiles().get("p99"));
+            assertEquals(group.stream().mapToLong(Vehicle::getHorsePower).sum(), row.horsePower().sum().longValueExact());
+        }
+    }
+
+    private static String vin(int i) {
+        return String.format("VIN%014d", i);
+    }
+
+    private static Vehicle vehicle(int i, String manufacturer, Integer horsePower, String price, Vehicle.FuelType fuelType) {
+        return Vehicle.builder()
+                .vin(vin(i))
+                .manufacturerName(manufacturer)
+                .modelName("Model")
+                .horsePower(horsePower)
+                .purchasePrice(new BigDecimal(price))
+                .fuelType(fuelType)
+                .build();
+    }
+}
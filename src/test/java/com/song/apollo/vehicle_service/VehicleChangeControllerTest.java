@@ -0,0 +1,103 @@
+package com.song.apollo.vehicle_service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = VehicleChangeController.class, properties = "vehicle.changes.capacity=4")
+@Import(VehicleChangeFeed.class)
+public class VehicleChangeControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private VehicleChangeFeed feed;
+
+    @Test
+    void streamChanges_ShouldReplayFromSequence_AndPushNewChanges() throws Exception {
+        long first = feed.append(VehicleChangeEvent.Operation.CREATED, "V1", 0L);
+        feed.append(VehicleChangeEvent.Operation.UPDATED, "V1", 1L);
+
+        MvcResult result = mockMvc.perform(get("/vehicle/changes").param("from", Long.toString(first)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        awaitContent(result, "id:" + (first + 1));
+
+        long deleted = feed.append(VehicleChangeEvent.Operation.DELETED, "V1", null);
+        String body = awaitContent(result, "id:" + deleted);
+
+        assertThat(body).contains("event:change", "\"operation\":\"CREATED\"", "\"version\":1", "\"operation\":\"DELETED\"");
+        assertThat(body.indexOf("id:" + first)).isLessThan(body.indexOf("id:" + deleted));
+    }
+
+    @Test
+    void streamChanges_ShouldResumeAfterLastEventId() throws Exception {
+        long seen = feed.append(VehicleChangeEvent.Operation.CREATED, "SEEN", 0L);
+        long missed = feed.append(VehicleChangeEvent.Operation.CREATED, "MISSED", 0L);
+
+        MvcResult result = mockMvc.perform(get("/vehicle/changes").header("Last-Event-ID", Long.toString(seen)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = awaitContent(result, "id:" + missed);
+
+        assertThat(body).doesNotContain("SEEN");
+    }
+
+    @Test
+    void streamChanges_ShouldSendReset_WhenCursorWasLapped() throws Exception {
+        long start = feed.headSequence();
+        for (int i = 0; i < 6; i++) {
+            feed.append(VehicleChangeEvent.Operation.CREATED, "LAP-" + i, 0L);
+        }
+
+        MvcResult result = mockMvc.perform(get("/vehicle/changes").param("from", Long.toString(start)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = awaitContent(result, "LAP-5");
+
+        assertThat(body).startsWith("event:reset");
+        assertThat(body).contains("\"resumeAt\":" + (start + 2)).doesNotContain("LAP-1\"");
+    }
+
+    @Test
+    void streamChanges_ShouldSendReset_AndStartAtHead_WhenLastEventIdIsAhead() throws Exception {
+        long head = feed.append(VehicleChangeEvent.Operation.CREATED, "BEFORE", 0L) + 1;
+
+        MvcResult result = mockMvc.perform(get("/vehicle/changes").header("Last-Event-ID", Long.toString(head + 100)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        awaitContent(result, "event:reset");
+        long next = feed.append(VehicleChangeEvent.Operation.CREATED, "AFTER", 0L);
+        String body = awaitContent(result, "id:" + next);
+
+        assertThat(body).startsWith("event:reset")
+                .contains("\"missedFrom\":" + (head + 101), "\"resumeAt\":" + head, "AFTER")
+                .doesNotContain("BEFORE");
+    }
+
+    @Test
+    void streamChanges_ShouldReturn400_WhenLastEventIdIsInvalid() throws Exception {
+        mockMvc.perform(get("/vehicle/changes").header("Last-Event-ID", "abc"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static String awaitContent(MvcResult result, String expected) throws Exception {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        String body = result.getResponse().getContentAsString();
+        // an event is written in several parts, so also wait for the blank line that ends it
+        while (!(body.contains(expected) && body.endsWith("\n\n")) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            body = result.getResponse().getContentAsString();
+        }
+        assertThat(body).contains(expected);
+        return body;
+    }
+}
@@ -0,0 +1,106 @@
+package com.song.apollo.vehicle_service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VehicleChangeFeedTest {
+    private static final Instant NOW = Instant.parse("2025-01-01T00:00:00Z");
+
+    private final VehicleChangeFeed feed = new VehicleChangeFeed(4, Clock.fixed(NOW, ZoneOffset.UTC));
+
+    @Test
+    void onVehicleChange_ShouldAppendVinOperationAndVersion() {
+        Vehicle v = Vehicle.builder().vin("V1").version(3L).build();
+
+        feed.onVehicleChange(VehicleChangeEvent.updated(v));
+        feed.onVehicleChange(VehicleChangeEvent.deleted("V1"));
+
+        List<VehicleChange> changes = new ArrayList<>();
+        assertEquals(2, feed.read(0, 10, changes));
+        assertThat(changes).containsExactly(
+                new VehicleChange(0, VehicleChangeEvent.Operation.UPDATED, "V1", 3L, NOW),
+                new VehicleChange(1, VehicleChangeEvent.Operation.DELETED, "V1", null, NOW));
+    }
+
+    @Test
+    void read_ShouldResumeFromCursor_AndRespectMax() {
+        for (int i = 0; i < 3; i++) {
+            feed.append(VehicleChangeEvent.Operation.CREATED, "V" + i, 0L);
+        }
+
+        List<VehicleChange> changes = new ArrayList<>();
+        long next = feed.read(1, 1, changes);
+
+        assertEquals(2, next);
+        assertThat(changes).extracting(VehicleChange::vin).containsExactly("V1");
+        assertEquals(3, feed.read(3, 10, new ArrayList<>()));
+    }
+
+    @Test
+    void isLapped_ShouldReportOverwrittenCursor() {
+        for (int i = 0; i < 6; i++) {
+            feed.append(VehicleChangeEvent.Operation.CREATED, "V" + i, 0L);
+        }
+
+        assertTrue(feed.isLapped(1));
+        assertFalse(feed.isLapped(2));
+        assertEquals(2, feed.oldestSequence());
+        List<VehicleChange> changes = new ArrayList<>();
+        assertEquals(0, feed.read(0, 10, changes));
+        assertThat(changes).isEmpty();
+    }
+
+    @Test
+    void constructor_ShouldRoundCapacityUpToPowerOfTwo() {
+        assertEquals(8, new VehicleChangeFeed(5).capacity());
+        assertEquals(1, new VehicleChangeFeed(1).capacity());
+    }
+
+    @Test
+    void append_ShouldAssignUniqueSequences_AndSignalListeners_UnderConcurrency() throws Exception {
+        VehicleChangeFeed large = new VehicleChangeFeed(1 << 16);
+        AtomicInteger signals = new AtomicInteger();
+        large.addListener(signals::incrementAndGet);
+        int threads = 8;
+        int perThread = 5_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = 0; i < perThread; i++) {
+                    large.append(VehicleChangeEvent.Operation.CREATED, "V", 0L);
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        List<VehicleChange> changes = new ArrayList<>();
+        assertEquals(threads * perThread, large.read(0, Integer.MAX_VALUE, changes));
+        for (int i = 0; i < changes.size(); i++) {
+            assertEquals(i, changes.get(i).sequence());
+        }
+        assertEquals(threads * perThread, signals.get());
+    }
+}
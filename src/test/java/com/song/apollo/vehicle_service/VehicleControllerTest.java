@@ -3,21 +3,38 @@ package com.song.apollo.vehicle_service;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import org.springframework.boot.test.autoconfigure.*;
 import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
 
 @WebMvcTest(VehicleController.class)
 public class VehicleControllerTest {
@@ -28,12 +45,18 @@ public class VehicleControllerTest {
     @MockitoBean
     private VehicleService vehicleService;
 
+    @Autowired
+    private RequestMappingHandlerAdapter handlerAdapter;
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     @Test
     void createVehicle_ShouldReturn201_WhenValid() throws Exception {
         Vehicle v = Vehicle.builder()
-                .vin("V123")
+                .vin("1HGCM82683A000104")
                 .manufacturerName("Ford")
                 .description("Desc")
                 .horsePower(100)
@@ -53,7 +76,7 @@ public class VehicleControllerTest {
     @Test
     void createVehicle_ShouldReturn422_WhenPriceIsNegative() throws Exception {
         Vehicle v = Vehicle.builder()
-                .vin("V123")
+                .vin("1HGCM82683A000104")
                 .manufacturerName("Ford")
                 .description("Desc")
                 .horsePower(100)
@@ -67,9 +90,27 @@ public class VehicleControllerTest {
                 .andExpect(status().isUnprocessableEntity());
     }
 
+    @Test
+    void createVehicle_ShouldReturn422_WhenPriceIsTooLarge() throws Exception {
+        Vehicle v = Vehicle.builder()
+                .vin("1HGCM82683A000104")
+                .manufacturerName("Ford")
+                .description("Desc")
+                .horsePower(100)
+                .modelName("Fiesta")
+                .fuelType(Vehicle.FuelType.GASOLINE)
+                .purchasePrice(new BigDecimal("92233720368547758.08"))
+                .build();
+        mockMvc.perform(post("/vehicle")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(v)))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.purchasePrice").value("Price cannot exceed 9999999999.99"));
+    }
+
     @Test
     void deleteVehicle_ShouldReturn204() throws Exception {
-        mockMvc.perform(delete("/vehicle/V123"))
+        mockMvc.perform(delete("/vehicle/1HGCM82683A000104"))
                 .andExpect(status().isNoContent());
     }
 
@@ -77,7 +118,7 @@ public class VehicleControllerTest {
     void createVehicle_ShouldReturnBadRequest_WhenJsonIsMalformed() throws Exception {
         String malformedJson = """
             {
-                "vin": "VIN123",
+                "vin": "1HGCM82653A000108",
                 "manufacturerName": "Tesla"
             """;
         mockMvc.perform(post("/vehicle")
@@ -90,7 +131,7 @@ public class VehicleControllerTest {
     @Test
     void createVehicle_ShouldReturnConflict_WhenVinAlreadyExists() throws Exception {
         Vehicle requestVehicle = Vehicle.builder()
-                .vin("DUPLICATE-VIN")
+                .vin("1HGCM82613A000106")
                 .manufacturerName("Ford")
                 .modelName("Mustang")
                 .description("Muscle Car")
@@ -110,42 +151,218 @@ public class VehicleControllerTest {
     }
 
     @Test
-    void getAllVehicles_ShouldReturnList() throws Exception {
-        Vehicle v1 = Vehicle.builder().vin("V1").manufacturerName("Ford").build();
-        Vehicle v2 = Vehicle.builder().vin("V2").manufacturerName("Tesla").build();
+    void createVehicle_ShouldReturnConflict_WhenPrimaryKeyIsViolated() throws Exception {
+        Vehicle requestVehicle = Vehicle.builder()
+                .vin("1HGCM82613A000106")
+                .manufacturerName("Ford")
+                .modelName("Mustang")
+                .description("Muscle Car")
+                .horsePower(450)
+                .purchasePrice(new BigDecimal("40000.00"))
+                .fuelType(Vehicle.FuelType.GASOLINE)
+                .build();
+
+        when(vehicleService.createVehicle(any(Vehicle.class)))
+                .thenThrow(new DuplicateKeyException("duplicate key"));
+
+        mockMvc.perform(post("/vehicle")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestVehicle)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value("VIN already exists"));
+    }
 
-        when(vehicleService.getAllVehicles()).thenReturn(Arrays.asList(v1, v2));
+    @Test
+    void getVehicles_ShouldReturnList() throws Exception {
+        Vehicle v1 = Vehicle.builder().vin("1HGCM82623A000101").manufacturerName("Ford").build();
+        Vehicle v2 = Vehicle.builder().vin("1HGCM82643A000102").manufacturerName("Tesla").build();
+
+        when(vehicleService.getVehicles(null, 100)).thenReturn(new VehiclePage(Arrays.asList(v1, v2), null));
 
         mockMvc.perform(get("/vehicle"))
                 .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(VehicleController.NEXT_CURSOR_HEADER))
                 .andExpect(jsonPath("$.size()").value(2))
-                .andExpect(jsonPath("$[0].vin").value("V1"))
+                .andExpect(jsonPath("$[0].vin").value("1HGCM82623A000101"))
                 .andExpect(jsonPath("$[1].manufacturerName").value("Tesla"));
     }
 
+    @Test
+    void vehicleResponses_ShouldUseVehicleConverter_AndMatchJacksonBytes() throws Exception {
+        Vehicle v1 = Vehicle.builder().vin("1HGCM82623A000101").manufacturerName("Ford").description("Line\nbreak \"quoted\" é")
+                .horsePower(100).modelName("Fiesta").purchasePrice(new BigDecimal("19999.90"))
+                .fuelType(Vehicle.FuelType.GASOLINE).version(4L).build();
+        Vehicle v2 = Vehicle.builder().vin("1HGCM82643A000102").build();
+        when(vehicleService.getVehicles(null, 100)).thenReturn(new VehiclePage(List.of(v1, v2), null));
+        when(vehicleService.getVehicleByVin("1HGCM82623A000101")).thenReturn(Optional.of(v1));
+
+        List<HttpMessageConverter<?>> converters = handlerAdapter.getMessageConverters();
+        assertThat(converters).hasAtLeastOneElementOfType(VehicleJsonHttpMessageConverter.class);
+        assertThat(converters.stream().filter(c -> c.canWrite(Vehicle.class, MediaType.APPLICATION_JSON)).findFirst())
+                .containsInstanceOf(VehicleJsonHttpMessageConverter.class);
+
+        byte[] page = mockMvc.perform(get("/vehicle"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getContentAsByteArray();
+        byte[] single = mockMvc.perform(get("/vehicle/1HGCM82623A000101"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertThat(page).isEqualTo(jsonMapper.writeValueAsBytes(List.of(v1, v2)));
+        assertThat(single).isEqualTo(jsonMapper.writeValueAsBytes(v1));
+    }
+
+    @Test
+    void lookupVehicles_ShouldReturnResultsInRequestOrder() throws Exception {
+        Vehicle v1 = Vehicle.builder().vin("1HGCM82623A000101").manufacturerName("Ford").build();
+        when(vehicleService.getVehiclesByVin(List.of("1HGCM82643A000102", "1HGCM82623A000101")))
+                .thenReturn(List.of(VehicleLookupResult.missing("1HGCM82643A000102"), VehicleLookupResult.found(v1)));
+
+        mockMvc.perform(post("/vehicle/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"1HGCM82643A000102\",\"1HGCM82623A000101\"]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].vin").value("1HGCM82643A000102"))
+                .andExpect(jsonPath("$[0].status").value(404))
+                .andExpect(jsonPath("$[0].vehicle").isEmpty())
+                .andExpect(jsonPath("$[1].status").value(200))
+                .andExpect(jsonPath("$[1].vehicle.manufacturerName").value("Ford"));
+    }
+
+    @Test
+    void lookupVehicles_ShouldReturn400_WhenTooManyBlankOrMalformedVins() throws Exception {
+        List<String> tooMany = new ArrayList<>();
+        for (int i = 0; i <= VehicleService.MAX_PAGE_SIZE; i++) {
+            tooMany.add("V" + i);
+        }
+
+        mockMvc.perform(post("/vehicle/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(tooMany)))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/vehicle/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"1HGCM82623A000101\",\" \"]"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/vehicle/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"1HGCM82623A000101\",\"1HGCM82623A00010I\"]"))
+                .andExpect(status().isBadRequest());
+        verify(vehicleService, never()).getVehiclesByVin(any());
+    }
+
+    @Test
+    void getVehicles_ShouldPassCursorAndReturnNextCursor() throws Exception {
+        Vehicle v3 = Vehicle.builder().vin("1HGCM82663A000103").build();
+        String next = VehiclePage.encodeCursor("1HGCM82663A000103");
+
+        when(vehicleService.getVehicles("1HGCM82643A000102", 1)).thenReturn(new VehiclePage(List.of(v3), next));
+
+        mockMvc.perform(get("/vehicle")
+                        .param("limit", "1")
+                        .param("after", VehiclePage.encodeCursor("1HGCM82643A000102")))
+                .andExpect(status().isOk())
+                .andExpect(header().string(VehicleController.NEXT_CURSOR_HEADER, next))
+                .andExpect(jsonPath("$[0].vin").value("1HGCM82663A000103"));
+    }
+
+    @Test
+    void getVehicles_ShouldReturn400_WhenCursorIsInvalid() throws Exception {
+        mockMvc.perform(get("/vehicle").param("after", "not*a*cursor"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid cursor"));
+    }
+
+    @Test
+    void searchVehicles_ShouldBindFilters() throws Exception {
+        VehicleSearchCriteria expected = new VehicleSearchCriteria("Tesla", null, Vehicle.FuelType.ELECTRIC,
+                300, null, null, new BigDecimal("90000"));
+        when(vehicleService.searchVehicles(expected, null, 20))
+                .thenReturn(new VehiclePage(List.of(Vehicle.builder().vin("1HGCM82633A000107").build()), "next"));
+
+        mockMvc.perform(get("/vehicle/search")
+                        .param("manufacturerName", "Tesla")
+                        .param("fuelType", "ELECTRIC")
+                        .param("minHorsePower", "300")
+                        .param("maxPrice", "90000")
+                        .param("limit", "20"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(VehicleController.NEXT_CURSOR_HEADER, "next"))
+                .andExpect(jsonPath("$[0].vin").value("1HGCM82633A000107"));
+    }
+
+    @Test
+    void searchVehicles_ShouldReturn422_WhenFuelTypeIsUnknown() throws Exception {
+        mockMvc.perform(get("/vehicle/search").param("fuelType", "STEAM"))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.fuelType").exists());
+    }
+
+    @Test
+    void streamVehicles_ShouldWriteNdjson() throws Exception {
+        Vehicle v1 = Vehicle.builder().vin("1HGCM82623A000101").build();
+        Vehicle v2 = Vehicle.builder().vin("1HGCM82643A000102").build();
+        doAnswer(invocation -> {
+            Consumer<Vehicle> action = invocation.getArgument(0);
+            action.accept(v1);
+            action.accept(v2);
+            return null;
+        }).when(vehicleService).forEachVehicle(any());
+
+        MvcResult result = mockMvc.perform(get("/vehicle").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("1HGCM82623A000101", objectMapper.readTree(lines[0]).get("vin").asString());
+        assertEquals("1HGCM82643A000102", objectMapper.readTree(lines[1]).get("vin").asString());
+    }
+
     @Test
     void getVehicleById_ShouldReturn200_WhenFound() throws Exception {
-        Vehicle v = Vehicle.builder().vin("V123").manufacturerName("Ford").build();
+        Vehicle v = Vehicle.builder().vin("1HGCM82683A000104").manufacturerName("Ford").build();
 
-        when(vehicleService.getVehicleByVin("V123")).thenReturn(Optional.of(v));
+        when(vehicleService.getVehicleByVin("1HGCM82683A000104")).thenReturn(Optional.of(v));
 
-        mockMvc.perform(get("/vehicle/V123"))
+        mockMvc.perform(get("/vehicle/1HGCM82683A000104"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.vin").value("V123"));
+                .andExpect(jsonPath("$.vin").value("1HGCM82683A000104"));
     }
 
     @Test
     void getVehicleById_ShouldReturn404_WhenNotFound() throws Exception {
-        when(vehicleService.getVehicleByVin("UNKNOWN")).thenReturn(Optional.empty());
+        when(vehicleService.getVehicleByVin("1HGCM826X3A000105")).thenReturn(Optional.empty());
 
-        mockMvc.perform(get("/vehicle/UNKNOWN"))
+        mockMvc.perform(get("/vehicle/1HGCM826X3A000105"))
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void getVehicleById_ShouldNormalizeVin_AndReturn400_WhenMalformed() throws Exception {
+        Vehicle v = Vehicle.builder().vin("1HGCM82683A000104").manufacturerName("Ford").build();
+        when(vehicleService.getVehicleByVin("1HGCM82683A000104")).thenReturn(Optional.of(v));
+
+        mockMvc.perform(get("/vehicle/1hgcm82683a000104"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.vin").value("1HGCM82683A000104"));
+        mockMvc.perform(get("/vehicle/1HGCM82603A000104"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").exists());
+        mockMvc.perform(delete("/vehicle/NOT-A-VIN"))
+                .andExpect(status().isBadRequest());
+        verify(vehicleService, never()).deleteVehicle(any(), any());
+    }
+
     @Test
     void updateVehicle_ShouldReturn200_WhenUpdated() throws Exception {
         Vehicle updateInfo = Vehicle.builder()
-                .vin("V123")
+                .vin("1HGCM82683A000104")
                 .manufacturerName("NewName")
                 .description("NewDesc")
                 .horsePower(200)
@@ -154,10 +371,10 @@ public class VehicleControllerTest {
                 .fuelType(Vehicle.FuelType.ELECTRIC)
                 .build();
 
-        when(vehicleService.updateVehicle(eq("V123"), any(Vehicle.class)))
+        when(vehicleService.updateVehicle(eq("1HGCM82683A000104"), any(Vehicle.class), isNull()))
                 .thenReturn(Optional.of(updateInfo));
 
-        mockMvc.perform(put("/vehicle/V123")
+        mockMvc.perform(put("/vehicle/1HGCM82683A000104")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(updateInfo)))
                 .andExpect(status().isOk())
@@ -167,7 +384,7 @@ public class VehicleControllerTest {
     @Test
     void updateVehicle_ShouldReturn404_WhenNotFound() throws Exception {
         Vehicle updateInfo = Vehicle.builder()
-                .vin("UNKNOWN")
+                .vin("1HGCM826X3A000105")
                 .manufacturerName("NewName")
                 .description("Desc")
                 .horsePower(100)
@@ -176,14 +393,240 @@ public class VehicleControllerTest {
                 .fuelType(Vehicle.FuelType.GASOLINE)
                 .build();
 
-        when(vehicleService.updateVehicle(eq("UNKNOWN"), any(Vehicle.class)))
+        when(vehicleService.updateVehicle(eq("1HGCM826X3A000105"), any(Vehicle.class), isNull()))
                 .thenReturn(Optional.empty());
 
-        mockMvc.perform(put("/vehicle/UNKNOWN")
+        mockMvc.perform(put("/vehicle/1HGCM826X3A000105")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(updateInfo)))
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void getVehicleById_ShouldReturnETag_AndHonourIfNoneMatch() throws Exception {
+        Vehicle v = Vehicle.builder().vin("1HGCM82683A000104").manufacturerName("Ford").version(3L).build();
+        when(vehicleService.getVehicleByVin("1HGCM82683A000104")).thenReturn(Optional.of(v));
 
+        mockMvc.perform(get("/vehicle/1HGCM82683A000104"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(jsonPath("$.version").value(3));
+
+        mockMvc.perform(get("/vehicle/1HGCM82683A000104").header("If-None-Match", "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        mockMvc.perform(get("/vehicle/1HGCM82683A000104").header("If-None-Match", "\"2\""))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void getVehicles_ShouldReturn304_WhenPageETagMatches() throws Exception {
+        VehiclePage page = new VehiclePage(List.of(Vehicle.builder().vin("1HGCM82623A000101").version(0L).build()), null);
+        when(vehicleService.getVehicles(null, 100)).thenReturn(page);
+
+        mockMvc.perform(get("/vehicle"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", page.etag()));
+
+        mockMvc.perform(get("/vehicle").header("If-None-Match", page.etag()))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void updateVehicle_ShouldPassIfMatchVersion_AndReturn412_WhenStale() throws Exception {
+        Vehicle updateInfo = Vehicle.builder()
+                .vin("1HGCM82683A000104")
+                .manufacturerName("NewName")
+                .description("NewDesc")
+                .horsePower(200)
+                .modelName("NewModel")
+                .purchasePrice(BigDecimal.valueOf(30000))
+                .fuelType(Vehicle.FuelType.ELECTRIC)
+                .build();
+        Vehicle saved = Vehicle.builder().vin("1HGCM82683A000104").manufacturerName("NewName").version(4L).build();
+        when(vehicleService.updateVehicle(eq("1HGCM82683A000104"), any(Vehicle.class), eq(3L))).thenReturn(Optional.of(saved));
+        when(vehicleService.updateVehicle(eq("1HGCM82683A000104"), any(Vehicle.class), eq(2L)))
+                .thenThrow(new PreconditionFailedException("Vehicle has been modified"));
+
+        mockMvc.perform(put("/vehicle/1HGCM82683A000104")
+                        .header("If-Match", "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updateInfo)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""));
+
+        mockMvc.perform(put("/vehicle/1HGCM82683A000104")
+                        .header("If-Match", "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updateInfo)))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.error").value("Vehicle has been modified"));
+    }
+
+    @Test
+    void patchVehicle_ShouldPassOnlySuppliedFields_AndReturnNewETag() throws Exception {
+        Vehicle patched = Vehicle.builder().vin("1HGCM82683A000104").purchasePrice(new BigDecimal("27500")).version(4L).build();
+        when(vehicleService.patchVehicle(eq("1HGCM82683A000104"), any(VehiclePatch.class), eq(3L)))
+                .thenReturn(Optional.of(patched));
+
+        mockMvc.perform(patch("/vehicle/1hgcm82683a000104")
+                        .header("If-Match", "\"3\"")
+                        .contentType(VehicleController.MERGE_PATCH_JSON)
+                        .content("{\"purchasePrice\": 27500, \"version\": 9}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""))
+                .andExpect(jsonPath("$.purchasePrice").value(27500));
+
+        verify(vehicleService).patchVehicle("1HGCM82683A000104",
+                new VehiclePatch(Map.of(VehiclePatch.Field.PURCHASE_PRICE, new BigDecimal("27500"))), 3L);
+    }
+
+    @Test
+    void patchVehicle_ShouldValidateOnlySuppliedFields() throws Exception {
+        mockMvc.perform(patch("/vehicle/1HGCM82683A000104")
+                        .contentType(VehicleController.MERGE_PATCH_JSON)
+                        .content("{\"purchasePrice\": -1, \"modelName\": null}"))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.purchasePrice").value("Price cannot be negative"))
+                .andExpect(jsonPath("$.modelName").value("Model name is required"))
+                .andExpect(jsonPath("$.manufacturerName").doesNotExist());
+
+        mockMvc.perform(patch("/vehicle/1HGCM82683A000104")
+                        .contentType(VehicleController.MERGE_PATCH_JSON)
+                        .content("{\"purchasPrice\": 100}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Unknown property: purchasPrice"));
+        mockMvc.perform(patch("/vehicle/1HGCM82683A000104")
+                        .contentType(VehicleController.MERGE_PATCH_JSON)
+                        .content("{\"horsePower\": \"lots\"}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(patch("/vehicle/1HGCM82683A000104")
+                        .contentType(VehicleController.MERGE_PATCH_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+        verify(vehicleService, never()).patchVehicle(any(), any(), any());
+    }
+
+    @Test
+    void deleteVehicle_ShouldReturn412_WhenIfMatchIsStaleOrWeak() throws Exception {
+        doThrow(new PreconditionFailedException("Vehicle has been modified"))
+                .when(vehicleService).deleteVehicle("1HGCM82683A000104", 1L);
+
+        mockMvc.perform(delete("/vehicle/1HGCM82683A000104").header("If-Match", "\"1\""))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(delete("/vehicle/1HGCM82683A000104").header("If-Match", "W/\"2\""))
+                .andExpect(status().isPreconditionFailed());
+        verify(vehicleService, never()).deleteVehicle("1HGCM82683A000104", 2L);
+    }
+
+    @Test
+    void createVehicles_ShouldReportInvalidItemsAndKeepOrder() throws Exception {
+        Vehicle valid = Vehicle.builder()
+                .vin("1HGCM82623A000101")
+                .manufacturerName("Ford")
+                .description("Desc")
+                .horsePower(100)
+                .modelName("Fiesta")
+                .purchasePrice(BigDecimal.valueOf(20000))
+                .fuelType(Vehicle.FuelType.GASOLINE)
+                .build();
+        Vehicle invalid = Vehicle.builder().vin("1HGCM82643A000102").build();
+
+        when(vehicleService.createVehicles(any()))
+                .thenReturn(List.of(new BatchItemResult("1HGCM82623A000101", 201, null)));
+
+        mockMvc.perform(post("/vehicle/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(invalid, valid))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].vin").value("1HGCM82643A000102"))
+                .andExpect(jsonPath("$[0].status").value(422))
+                .andExpect(jsonPath("$[1].vin").value("1HGCM82623A000101"))
+                .andExpect(jsonPath("$[1].status").value(201));
+    }
+
+    @Test
+    void createVehicles_ShouldRejectNullItems() throws Exception {
+        when(vehicleService.createVehicles(List.of())).thenReturn(List.of());
+
+        mockMvc.perform(post("/vehicle/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[null]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(422))
+                .andExpect(jsonPath("$[0].error").value("Vehicle is required"));
+    }
+
+    @Test
+    void createVehicles_ShouldAcceptNdjson() throws Exception {
+        Vehicle v = Vehicle.builder()
+                .vin("1HGCM82623A000101")
+                .manufacturerName("Ford")
+                .description("Desc")
+                .horsePower(100)
+                .modelName("Fiesta")
+                .purchasePrice(BigDecimal.valueOf(20000))
+                .fuelType(Vehicle.FuelType.GASOLINE)
+                .build();
+        String line = objectMapper.writeValueAsString(v);
+
+        when(vehicleService.createVehicles(any()))
+                .thenAnswer(i -> i.<List<Vehicle>>getArgument(0).stream()
+                        .map(x -> new BatchItemResult(x.getVin(), 201, null)).toList());
+
+        mockMvc.perform(post("/vehicle/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(line + "\n" + line.replace("1HGCM82623A000101", "1HGCM82643A000102") + "\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(2))
+                .andExpect(jsonPath("$[1].vin").value("1HGCM82643A000102"));
+    }
+
+    @Test
+    void deleteVehicles_ShouldReturnPerVinResults() throws Exception {
+        when(vehicleService.deleteVehicles(List.of("1HGCM82623A000101", "1HGCM82643A000102")))
+                .thenReturn(List.of(new BatchItemResult("1HGCM82623A000101", 204, null),
+                        new BatchItemResult("1HGCM82643A000102", 404, "Vehicle not found")));
+
+        mockMvc.perform(delete("/vehicle/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"1HGCM82623A000101\",\"1HGCM82643A000102\"]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[1].status").value(404));
+    }
+
+    @Test
+    void batches_ShouldBeRejected_WhenLargerThanMaxBatchSize() throws Exception {
+        String vins = String.join(",", Collections.nCopies(VehicleService.MAX_BATCH_SIZE + 1, "\"1HGCM82623A000101\""));
+
+        mockMvc.perform(delete("/vehicle/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + vins + "]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("At most " + VehicleService.MAX_BATCH_SIZE + " items per batch"));
+        mockMvc.perform(delete("/vehicle/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(vins.replace(',', '\n')))
+                .andExpect(status().isBadRequest());
+        verify(vehicleService, never()).deleteVehicles(any());
+    }
+
+    @Test
+    void deleteVehicles_ShouldNormalizeVins_AndRejectInvalidOnesPerItem() throws Exception {
+        when(vehicleService.deleteVehicles(List.of("1HGCM82623A000101", "1HGCM82643A000102")))
+                .thenReturn(List.of(new BatchItemResult("1HGCM82623A000101", 204, null),
+                        new BatchItemResult("1HGCM82643A000102", 204, null)));
+
+        mockMvc.perform(delete("/vehicle/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\" 1hgcm82623a000101 \",null,\"VIN-1\",\"1HGCM82643A000102\"]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].vin").value("1HGCM82623A000101"))
+                .andExpect(jsonPath("$[0].status").value(204))
+                .andExpect(jsonPath("$[1].status").value(422))
+                .andExpect(jsonPath("$[2].vin").value("VIN-1"))
+                .andExpect(jsonPath("$[2].status").value(422))
+                .andExpect(jsonPath("$[3].status").value(204));
+    }
 }
@@ -0,0 +1,107 @@
+package com.song.apollo.vehicle_service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jackson.autoconfigure.JacksonAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(classes = JacksonAutoConfiguration.class)
+public class VehicleJsonWriterTest {
+
+    @Autowired
+    private JsonMapper jsonMapper;
+
+    @Test
+    void writeVehicle_ShouldMatchJacksonOutput() throws IOException {
+        Vehicle vehicle = vehicle("VIN-1", "Reliable mid-size sedan", new BigDecimal("25999.99"));
+        vehicle.setVersion(3L);
+
+        assertSameBytes(vehicle);
+    }
+
+    @Test
+    void writeVehicle_ShouldMatchJacksonForNullsEscapesAndUnicode() throws IOException {
+        assertSameBytes(new Vehicle());
+        for (String text : List.of("quote \" backslash \\ slash /", "\b\t\n\f\r", "\u0000\u0001\u001f\u007f",
+                "café 中文 €", "emoji 🚗", "lone \ud83d high", "lone \ude97 low", "\ud83d")) {
+            assertSameBytes(vehicle(text, text, new BigDecimal("1.00")));
+        }
+    }
+
+    @Test
+    void writeVehicle_ShouldMatchBigDecimalToString() throws IOException {
+        List<BigDecimal> prices = List.of(
+                BigDecimal.ZERO, new BigDecimal("0.00"), new BigDecimal("0.5"), new BigDecimal("0.000001"),
+                new BigDecimal("0.0000001"), new BigDecimal("0E-10"), new BigDecimal("1E+3"), new BigDecimal("-12.30"),
+                new BigDecimal("1234567890123456.78"), new BigDecimal("9223372036854775807"),
+                new BigDecimal(BigInteger.ONE.shiftLeft(70), 2), new BigDecimal("42"));
+        for (BigDecimal price : prices) {
+            assertSameBytes(vehicle("VIN", "d", price));
+        }
+        Vehicle extremes = vehicle("VIN", "d", BigDecimal.ONE);
+        extremes.setHorsePower(Integer.MIN_VALUE);
+        extremes.setVersion(Long.MAX_VALUE);
+        assertSameBytes(extremes);
+        extremes.setHorsePower(Integer.MAX_VALUE);
+        extremes.setVersion(Long.MIN_VALUE);
+        assertSameBytes(extremes);
+    }
+
+    @Test
+    void writeArray_ShouldMatchJacksonAcrossBufferBoundaries() throws IOException {
+        List<Vehicle> vehicles = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Vehicle v = vehicle("VIN-" + i, "é🚗".repeat(i % 7) + "x".repeat(i * 37 % 9000),
+                    BigDecimal.valueOf(i * 1001L, 2));
+            v.setVersion((long) i);
+            vehicles.add(v);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (VehicleJsonWriter writer = new VehicleJsonWriter(out)) {
+            writer.writeArray(vehicles);
+        }
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(jsonMapper.writeValueAsString(vehicles));
+        assertThat(write(List.of())).isEqualTo("[]");
+    }
+
+    private void assertSameBytes(Vehicle vehicle) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (VehicleJsonWriter writer = new VehicleJsonWriter(out)) {
+            writer.writeVehicle(vehicle);
+        }
+        assertThat(out.toByteArray()).as(jsonMapper.writeValueAsString(vehicle))
+                .isEqualTo(jsonMapper.writeValueAsBytes(vehicle));
+    }
+
+    private static String write(List<Vehicle> vehicles) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (VehicleJsonWriter writer = new VehicleJsonWriter(out)) {
+            writer.writeArray(vehicles);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static Vehicle vehicle(String vin, String description, BigDecimal price) {
+        return Vehicle.builder()
+                .vin(vin)
+                .manufacturerName("Toyota")
+                .modelName("Camry")
+                .description(description)
+                .horsePower(203)
+                .purchasePrice(price)
+                .fuelType(Vehicle.FuelType.HYBRID)
+                .build();
+    }
+}
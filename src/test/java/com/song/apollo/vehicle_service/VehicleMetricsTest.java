@@ -0,0 +1,97 @@
+package com.song.apollo.vehicle_service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class VehicleMetricsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Test
+    void request_ShouldRecordStatementCountAndRepositoryTimer() throws Exception {
+        mockMvc.perform(post("/vehicle")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"vin":"1HGCM82673A000109","manufacturerName":"Volvo","description":"SUV","horsePower":250,
+                                 "modelName":"XC90","purchasePrice":55000.00,"fuelType":"HYBRID"}"""))
+                .andExpect(status().isCreated());
+        cacheManager.getCache(VehicleCacheConfig.VEHICLES_CACHE).clear();
+        mockMvc.perform(get("/vehicle/1HGCM82673A000109")).andExpect(status().isOk());
+
+        DistributionSummary statements = meterRegistry.get("vehicle.jdbc.statements")
+                .tag("method", "GET")
+                .tag("uri", "/vehicle/{vin}")
+                .summary();
+        assertThat(statements.count()).isPositive();
+        assertThat(statements.max()).isEqualTo(1);
+        assertThat(meterRegistry.get("spring.data.repository.invocations")
+                .tag("repository", "VehicleRepository")
+                .tag("method", "findById")
+                .timer().count()).isPositive();
+    }
+
+    @Test
+    void patch_ShouldCostOneStatement() throws Exception {
+        mockMvc.perform(post("/vehicle")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"vin":"1HGCM82643A000147","manufacturerName":"Volvo","description":"SUV","horsePower":250,
+                                 "modelName":"XC90","purchasePrice":55000.00,"fuelType":"HYBRID"}"""))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(patch("/vehicle/1HGCM82643A000147")
+                        .header("If-Match", "\"0\"")
+                        .contentType(VehicleController.MERGE_PATCH_JSON)
+                        .content("{\"purchasePrice\":52500.00}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""))
+                .andExpect(jsonPath("$.purchasePrice").value(52500.00))
+                .andExpect(jsonPath("$.modelName").value("XC90"));
+        mockMvc.perform(get("/vehicle/1HGCM82643A000147"))
+                .andExpect(jsonPath("$.purchasePrice").value(52500.00));
+
+        DistributionSummary statements = meterRegistry.get("vehicle.jdbc.statements")
+                .tag("method", "PATCH")
+                .tag("uri", "/vehicle/{vin}")
+                .summary();
+        assertThat(statements.max()).isEqualTo(1);
+    }
+
+    @Test
+    void errorHandler_ShouldCountEachBranch() throws Exception {
+        double before = errors("422", "validation");
+
+        mockMvc.perform(post("/vehicle")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isUnprocessableEntity());
+
+        assertThat(errors("422", "validation")).isEqualTo(before + 1);
+    }
+
+    private double errors(String status, String reason) {
+        return meterRegistry.counter("vehicle.api.errors", "status", status, "reason", reason).count();
+    }
+}
@@ -0,0 +1,52 @@
+package com.song.apollo.vehicle_service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.h2console.autoconfigure.H2ConsoleAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:prod-profile")
+@AutoConfigureMockMvc
+@ActiveProfiles("prod")
+public class VehicleProdProfileTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ConfigurableApplicationContext applicationContext;
+
+    @Test
+    void prodProfile_ShouldDisableApiDocsAndH2Console() throws Exception {
+        mockMvc.perform(get("/v3/api-docs")).andExpect(status().isNotFound());
+        assertThat(applicationContext.getBeanNamesForType(H2ConsoleAutoConfiguration.class)).isEmpty();
+    }
+
+    @Test
+    void prodProfile_ShouldCreateBeansLazily_ExceptStartupOnes() throws Exception {
+        assertThat(applicationContext.getBeanFactory().containsSingleton("fleetAnalytics")).isTrue();
+        assertThat(applicationContext.getBeanFactory().containsSingleton("vehicleTransfer")).isFalse();
+
+        mockMvc.perform(post("/vehicle")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"vin":"1HGCM82613A000137","manufacturerName":"Volvo","description":"SUV","horsePower":250,
+                                 "modelName":"XC90","purchasePrice":55000.00,"fuelType":"HYBRID"}"""))
+                .andExpect(status().isCreated());
+        mockMvc.perform(get("/vehicle/1HGCM82613A000137"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.modelName").value("XC90"));
+        mockMvc.perform(get("/vehicle/stats"))
+                .andExpect(jsonPath("$[0].count").value(1));
+    }
+}
@@ -0,0 +1,119 @@
+package com.song.apollo.vehicle_service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.data.repository.core.support.RepositoryMethodInvocationListener.RepositoryMethodInvocation;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "vehicle.rate-limit.enabled=true",
+        "vehicle.rate-limit.scan.rate=0.5",
+        "vehicle.rate-limit.scan.burst=2",
+        "vehicle.rate-limit.client-header=X-Client-Id"})
+@AutoConfigureMockMvc
+public class VehicleRateLimitTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    @Test
+    void scans_ShouldBeLimitedPerClient_WithRetryAfter() throws Exception {
+        double limitedBefore = requests("scan", "limited");
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/vehicle").header("X-Client-Id", "looping-integrator")).andExpect(status().isOk());
+        }
+        mockMvc.perform(get("/vehicle").header("X-Client-Id", "looping-integrator"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "2"))
+                .andExpect(jsonPath("$.error").value("Rate limit exceeded"));
+
+        // other clients and the same client's single-vehicle reads have their own budgets
+        mockMvc.perform(get("/vehicle").header("X-Client-Id", "well-behaved")).andExpect(status().isOk());
+        mockMvc.perform(get("/vehicle/1HGCM82633A000110").header("X-Client-Id", "looping-integrator"))
+                .andExpect(status().isNotFound());
+
+        assertThat(requests("scan", "limited")).isEqualTo(limitedBefore + 1);
+        assertThat(concurrencyLimiter.inFlight()).isZero();
+        assertThat(concurrencyLimiter.smoothedLatencyNanos()).isPositive();
+        assertThat(meterRegistry.get("vehicle.concurrency.limit").gauge().value()).isPositive();
+    }
+
+    @Test
+    void tokenBucket_ShouldAdmitBurstThenRefillAtRate() {
+        AtomicLong clock = new AtomicLong(-TimeUnit.HOURS.toNanos(1));
+        ClientRateLimiter.Budget tenPerSecond = new ClientRateLimiter.Budget(10, 3);
+        ClientRateLimiter limiter = new ClientRateLimiter(tenPerSecond, tenPerSecond, tenPerSecond,
+                100, Duration.ofMinutes(1), clock::get);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire("a", ClientRateLimiter.Category.READ)).isZero();
+        }
+        assertThat(limiter.tryAcquire("a", ClientRateLimiter.Category.READ))
+                .isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(limiter.tryAcquire("a", ClientRateLimiter.Category.WRITE)).isZero();
+        assertThat(limiter.tryAcquire("b", ClientRateLimiter.Category.READ)).isZero();
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(limiter.tryAcquire("a", ClientRateLimiter.Category.READ)).isZero();
+        assertThat(limiter.tryAcquire("a", ClientRateLimiter.Category.READ)).isPositive();
+
+        // an idle client never accumulates more than its burst
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(5));
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire("a", ClientRateLimiter.Category.READ)).isZero();
+        }
+        assertThat(limiter.tryAcquire("a", ClientRateLimiter.Category.READ)).isPositive();
+    }
+
+    @Test
+    void concurrencyLimit_ShouldDecreaseOnSlowRepositoryAndRecoverWhenFast() throws Exception {
+        AtomicLong clock = new AtomicLong();
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 2, 20, Duration.ofMillis(50), clock::get);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(limiter.tryAcquire()).isTrue();
+        }
+        assertThat(limiter.tryAcquire()).isFalse();
+
+        for (int i = 0; i < 50; i++) {
+            clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+            limiter.afterInvocation(invocation(Duration.ofMillis(500)));
+        }
+        assertThat(limiter.limit()).isEqualTo(2);
+        limiter.release();
+        assertThat(limiter.tryAcquire()).isFalse();
+
+        for (int i = 0; i < 500; i++) {
+            limiter.afterInvocation(invocation(Duration.ofMillis(1)));
+        }
+        assertThat(limiter.limit()).isBetween(10, 20);
+        assertThat(limiter.tryAcquire()).isTrue();
+    }
+
+    private static RepositoryMethodInvocation invocation(Duration duration) throws NoSuchMethodException {
+        return new RepositoryMethodInvocation(VehicleRepository.class,
+                VehicleRepository.class.getMethod("findById", Object.class), null, duration.toNanos());
+    }
+
+    private double requests(String category, String outcome) {
+        return meterRegistry.counter("vehicle.ratelimit.requests", "category", category, "outcome", outcome).count();
+    }
+}
@@ -0,0 +1,136 @@
+package com.song.apollo.vehicle_service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs against two H2 databases: the primary migrated by Flyway and a "replica" that never receives the
+ * primary's writes, which makes replication lag easy to observe. The VIN index is off because the replica
+ * holds a row the primary never had, which a real replica cannot.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary",
+        "vehicle.vin-index.enabled=false",
+        "vehicle.datasource.replica-urls=" + VehicleReadReplicaTest.REPLICA_URL,
+        "vehicle.datasource.read-your-writes=1m",
+        "vehicle.rate-limit.client-header=X-Client-Id"})
+@AutoConfigureMockMvc
+public class VehicleReadReplicaTest {
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+    static {
+        try (Connection connection = DriverManager.getConnection(REPLICA_URL, "sa", "password");
+             Statement statement = connection.createStatement()) {
+            statement.execute("RUNSCRIPT FROM 'classpath:db/migration/V1__create_vehicles.sql'");
+            statement.execute("INSERT INTO vehicles (vin, manufacturer_name, description, horse_power, model_name, "
+                    + "purchase_price, fuel_type, version) "
+                    + "VALUES ('1HGCM82653A000111', 'Saab', 'Sedan', 150, '9-3', 20000.00, 'GASOLINE', 0), "
+                    + "('1HGCM82643A000116', 'Volvo', 'Wagon', 190, 'V60', 42000.00, 'GASOLINE', 0)");
+        } catch (SQLException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void reads_ShouldUseReplica_UntilClientHasWritten() throws Exception {
+        mockMvc.perform(get("/vehicle/1HGCM82653A000111").header("X-Client-Id", "reader"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/vehicle").header("X-Client-Id", "reader"))
+                .andExpect(jsonPath("$[*].vin", hasItem("1HGCM82653A000111")));
+
+        mockMvc.perform(post("/vehicle").header("X-Client-Id", "writer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"vin":"1HGCM82673A000112","manufacturerName":"Volvo","description":"SUV","horsePower":250,
+                                 "modelName":"XC90","purchasePrice":55000.00,"fuelType":"HYBRID"}"""))
+                .andExpect(status().isCreated());
+
+        // the writer reads its own write from the primary; other clients still see the lagging replica
+        mockMvc.perform(get("/vehicle").header("X-Client-Id", "writer"))
+                .andExpect(jsonPath("$[*].vin", hasItem("1HGCM82673A000112")))
+                .andExpect(jsonPath("$[*].vin", not(hasItem("1HGCM82653A000111"))));
+        mockMvc.perform(get("/vehicle").header("X-Client-Id", "reader"))
+                .andExpect(jsonPath("$[*].vin", hasItem("1HGCM82653A000111")))
+                .andExpect(jsonPath("$[*].vin", not(hasItem("1HGCM82673A000112"))));
+    }
+
+    @Test
+    void writes_ShouldReadFromPrimary_WhenClientHasNotWrittenRecently() throws Exception {
+        mockMvc.perform(post("/vehicle").header("X-Client-Id", "creator")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"vin":"1HGCM82693A000113","manufacturerName":"Volvo","description":"Wagon","horsePower":190,
+                                 "modelName":"V60","purchasePrice":42000.00,"fuelType":"GASOLINE"}"""))
+                .andExpect(status().isCreated());
+
+        // each client below has not written before, so only the write path itself keeps it off the replica
+        mockMvc.perform(put("/vehicle/1HGCM82693A000113").header("X-Client-Id", "editor")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"vin":"1HGCM82693A000113","manufacturerName":"Volvo","description":"Wagon","horsePower":250,
+                                 "modelName":"V60","purchasePrice":45000.00,"fuelType":"HYBRID"}"""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""));
+        mockMvc.perform(patch("/vehicle/1HGCM82693A000113").header("X-Client-Id", "patcher")
+                        .header("If-Match", "\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"horsePower\":260}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"2\""));
+        mockMvc.perform(delete("/vehicle/1HGCM82693A000113").header("X-Client-Id", "deleter")
+                        .header("If-Match", "\"2\""))
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    void batchWrites_ShouldNotLetOtherClientsCacheTheReplicasOlderCopy() throws Exception {
+        // the replica holds the vehicle as it was before the batch update below
+        mockMvc.perform(post("/vehicle").header("X-Client-Id", "fleet-admin")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"vin":"1HGCM82643A000116","manufacturerName":"Volvo","description":"Wagon","horsePower":190,
+                                 "modelName":"V60","purchasePrice":42000.00,"fuelType":"GASOLINE"}"""))
+                .andExpect(status().isCreated());
+        mockMvc.perform(put("/vehicle/batch").header("X-Client-Id", "fleet-admin")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [{"vin":"1HGCM82643A000116","manufacturerName":"Volvo","description":"Wagon","horsePower":250,
+                                  "modelName":"V60","purchasePrice":45000.00,"fuelType":"HYBRID"}]"""))
+                .andExpect(jsonPath("$[0].status").value(200));
+
+        mockMvc.perform(get("/vehicle/1HGCM82643A000116").header("X-Client-Id", "reader"))
+                .andExpect(jsonPath("$.horsePower").value(250));
+        mockMvc.perform(get("/vehicle/1HGCM82643A000116").header("X-Client-Id", "fleet-admin"))
+                .andExpect(jsonPath("$.horsePower").value(250));
+
+        mockMvc.perform(delete("/vehicle/batch").header("X-Client-Id", "fleet-admin")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"1HGCM82643A000116\"]"))
+                .andExpect(jsonPath("$[0].status").value(204));
+        mockMvc.perform(get("/vehicle/1HGCM82643A000116").header("X-Client-Id", "reader"))
+                .andExpect(status().isNotFound());
+    }
+}
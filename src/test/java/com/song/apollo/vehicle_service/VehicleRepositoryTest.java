@@ -0,0 +1,154 @@
+package com.song.apollo.vehicle_service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class VehicleRepositoryTest {
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        vehicleRepository.deleteAllInBatch();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void insert_ShouldIssueSingleStatement() {
+        vehicleRepository.insert(vehicle("1HGCM82683A000118"));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertTrue(vehicleRepository.existsById("1HGCM82683A000118"));
+    }
+
+    @Test
+    void existsThenSave_ShouldIssueTwoStatements() {
+        Vehicle v = vehicle("1HGCM82663A000120");
+        assertFalse(vehicleRepository.existsById(v.getVin()));
+        vehicleRepository.save(v);
+
+        // the null @Version marks the entity as new, so save() persists without a merge SELECT
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void insert_ShouldThrow_WhenVinExists() {
+        vehicleRepository.insert(vehicle("1HGCM826X3A000119"));
+
+        assertThrows(DuplicateKeyException.class, () -> vehicleRepository.insert(vehicle("1HGCM826X3A000119")));
+    }
+
+    @Test
+    void update_ShouldSetPatchedColumnsInSingleStatement_AndMatchExpectedVersion() {
+        vehicleRepository.insert(vehicle("1HGCM82603A000145"));
+        statistics.clear();
+        VehiclePatch price = new VehiclePatch(Map.of(VehiclePatch.Field.PURCHASE_PRICE, new BigDecimal("23999.00")));
+
+        Optional<Vehicle> patched = vehicleRepository.update("1HGCM82603A000145", price, 0L);
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertThat(patched).get().satisfies(v -> {
+            assertThat(v.getPurchasePrice()).isEqualByComparingTo("23999.00");
+            assertEquals("Camry", v.getModelName());
+            assertEquals(1L, v.getVersion());
+        });
+        assertThat(vehicleRepository.update("1HGCM82603A000145", price, 0L)).isEmpty();
+        assertThat(vehicleRepository.update("1HGCM82623A000146", price, null)).isEmpty();
+        assertThat(vehicleRepository.update("1HGCM82603A000145",
+                new VehiclePatch(Map.of(VehiclePatch.Field.FUEL_TYPE, Vehicle.FuelType.HYBRID)), null))
+                .get().extracting(Vehicle::getFuelType, Vehicle::getVersion)
+                .containsExactly(Vehicle.FuelType.HYBRID, 2L);
+    }
+
+    @Test
+    void search_ShouldCombineAllFiltersInOneQuery() {
+        vehicleRepository.insertAll(List.of(
+                vehicle("1HGCM82603A000114", "Tesla", "Model 3", Vehicle.FuelType.ELECTRIC, 283, "42000.00"),
+                vehicle("1HGCM82623A000115", "Tesla", "Model S", Vehicle.FuelType.ELECTRIC, 670, "89000.00"),
+                vehicle("1HGCM82643A000116", "Tesla", "Model Y", Vehicle.FuelType.ELECTRIC, 384, "47000.00"),
+                vehicle("1HGCM82663A000117", "Toyota", "Prius", Vehicle.FuelType.HYBRID, 194, "28000.00")));
+        statistics.clear();
+
+        VehicleSearchCriteria criteria = new VehicleSearchCriteria("Tesla", null, Vehicle.FuelType.ELECTRIC,
+                300, null, null, new BigDecimal("90000"));
+        List<Vehicle> found = vehicleRepository.findBy(VehicleSpecifications.matching(criteria, null),
+                q -> q.sortBy(Sort.by("vin")).all());
+        List<Vehicle> afterS2 = vehicleRepository.findBy(VehicleSpecifications.matching(criteria, "1HGCM82623A000115"),
+                q -> q.sortBy(Sort.by("vin")).all());
+
+        assertThat(found).extracting(Vehicle::getVin).containsExactly("1HGCM82623A000115", "1HGCM82643A000116");
+        assertThat(afterS2).extracting(Vehicle::getVin).containsExactly("1HGCM82643A000116");
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void searchByManufacturerAndFuelType_ShouldUseCompositeIndex() {
+        String plan = explain("SELECT * FROM vehicles WHERE manufacturer_name = 'Tesla' AND fuel_type = 'ELECTRIC' ORDER BY vin");
+
+        assertThat(plan).containsIgnoringCase("idx_vehicles_manufacturer_fuel");
+    }
+
+    @Test
+    void searchByPriceRange_ShouldUsePriceIndex() {
+        String plan = explain("SELECT * FROM vehicles WHERE purchase_price BETWEEN 10000 AND 20000");
+
+        assertThat(plan).containsIgnoringCase("idx_vehicles_purchase_price");
+    }
+
+    @Test
+    void searchByHorsePowerRange_ShouldUseHorsePowerIndex() {
+        String plan = explain("SELECT * FROM vehicles WHERE horse_power >= 500");
+
+        assertThat(plan).containsIgnoringCase("idx_vehicles_horse_power");
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+    }
+
+    private static Vehicle vehicle(String vin) {
+        return vehicle(vin, "Toyota", "Camry", Vehicle.FuelType.GASOLINE, 203, "25000.00");
+    }
+
+    private static Vehicle vehicle(String vin, String manufacturer, String model, Vehicle.FuelType fuelType,
+                                   int horsePower, String price) {
+        return Vehicle.builder()
+                .vin(vin)
+                .manufacturerName(manufacturer)
+                .modelName(model)
+                .description("Test vehicle")
+                .horsePower(horsePower)
+                .purchasePrice(new BigDecimal(price))
+                .fuelType(fuelType)
+                .build();
+    }
+}
@@ -0,0 +1,250 @@
+package com.song.apollo.vehicle_service;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+public class VehicleServiceCacheTest {
+
+    @Autowired
+    private VehicleService vehicleService;
+    @Autowired
+    private CacheManager cacheManager;
+    @MockitoSpyBean
+    private VehicleRepository vehicleRepository;
+
+    @BeforeEach
+    void setUp() {
+        vehicleRepository.deleteAllInBatch();
+        cacheManager.getCache(VehicleCacheConfig.VEHICLES_CACHE).clear();
+        clearInvocations(vehicleRepository);
+    }
+
+    @Test
+    void getVehicleByVin_ShouldHitCache_AfterCreate() {
+        vehicleService.createVehicle(vehicle("1HGCM82683A000121", "25000.00"));
+
+        assertThat(vehicleService.getVehicleByVin("1HGCM82683A000121")).isPresent();
+        assertThat(vehicleService.getVehicleByVin("1HGCM82683A000121")).isPresent();
+
+        verify(vehicleRepository, never()).findById(any());
+    }
+
+    @Test
+    void getVehicleByVin_ShouldCacheMisses() {
+        // deleted behind the service's back, so the VIN index still lists it and the miss reaches the database
+        vehicleService.createVehicle(vehicle("1HGCM82693A000127", "25000.00"));
+        vehicleRepository.deleteAllInBatch();
+        cacheManager.getCache(VehicleCacheConfig.VEHICLES_CACHE).clear();
+
+        assertThat(vehicleService.getVehicleByVin("1HGCM82693A000127")).isEmpty();
+        assertThat(vehicleService.getVehicleByVin("1HGCM82693A000127")).isEmpty();
+
+        verify(vehicleRepository, times(1)).findById("1HGCM82693A000127");
+    }
+
+    @Test
+    void vinIndex_ShouldAnswerUnknownVinsWithoutQuery_AndFollowCreatesAndDeletes() {
+        assertThat(vehicleService.getVehicleByVin("1HGCM82633A000138")).isEmpty();
+        assertThat(vehicleService.getVehiclesByVin(List.of("1HGCM82653A000139")))
+                .extracting(VehicleLookupResult::status).containsExactly(404);
+        verify(vehicleRepository, never()).findById(any());
+        verify(vehicleRepository, never()).findAllById(any());
+
+        vehicleService.createVehicle(vehicle("1HGCM82633A000138", "25000.00"));
+        cacheManager.getCache(VehicleCacheConfig.VEHICLES_CACHE).clear();
+        assertThat(vehicleService.getVehicleByVin("1HGCM82633A000138")).isPresent();
+
+        vehicleService.deleteVehicle("1HGCM82633A000138", null);
+        clearInvocations(vehicleRepository);
+        assertThat(vehicleService.getVehicleByVin("1HGCM82633A000138")).isEmpty();
+        verify(vehicleRepository, never()).findById(any());
+    }
+
+    @Test
+    void createVehicles_ShouldSkipDuplicateQuery_WhenIndexRulesOutEveryVin() {
+        vehicleService.createVehicle(vehicle("1HGCM82613A000140", "25000.00"));
+
+        assertThat(vehicleService.createVehicles(List.of(vehicle("1HGCM82633A000141", "1.00"),
+                vehicle("1HGCM82653A000142", "2.00")))).extracting(BatchItemResult::status).containsExactly(201, 201);
+        verify(vehicleRepository, never()).findExistingVins(any());
+
+        assertThat(vehicleService.createVehicles(List.of(vehicle("1HGCM82673A000143", "1.00"),
+                vehicle("1HGCM82613A000140", "2.00")))).extracting(BatchItemResult::status).containsExactly(201, 409);
+        verify(vehicleRepository).findExistingVins(List.of("1HGCM82613A000140"));
+        assertThat(vehicleService.deleteVehicles(List.of("1HGCM82693A000144", "1HGCM82673A000143")))
+                .extracting(BatchItemResult::status).containsExactly(404, 204);
+        verify(vehicleRepository).findExistingVins(List.of("1HGCM82673A000143"));
+    }
+
+    @Test
+    void getVehicleByVin_ShouldSeeCreate_AfterCachedMiss() {
+        assertThat(vehicleService.getVehicleByVin("1HGCM82673A000126")).isEmpty();
+
+        vehicleService.createVehicle(vehicle("1HGCM82673A000126", "1000.00"));
+
+        assertThat(vehicleService.getVehicleByVin("1HGCM82673A000126")).isPresent();
+    }
+
+    @Test
+    void getVehicleByVin_ShouldNotReturnStaleData_AfterUpdate() {
+        vehicleService.createVehicle(vehicle("1HGCM826X3A000122", "25000.00"));
+        assertThat(vehicleService.getVehicleByVin("1HGCM826X3A000122")).isPresent();
+
+        vehicleService.updateVehicle("1HGCM826X3A000122", vehicle("1HGCM826X3A000122", "19999.99"), null);
+
+        Optional<Vehicle> reloaded = vehicleService.getVehicleByVin("1HGCM826X3A000122");
+        assertThat(reloaded).isPresent();
+        assertThat(reloaded.get().getPurchasePrice()).isEqualByComparingTo("19999.99");
+    }
+
+    @Test
+    void updateVehicle_ShouldBumpCachedVersion_AndRejectStaleExpectedVersion() {
+        assertThat(vehicleService.createVehicle(vehicle("1HGCM82653A000125", "25000.00")).getVersion()).isZero();
+
+        assertThat(vehicleService.updateVehicle("1HGCM82653A000125", vehicle("1HGCM82653A000125", "24000.00"), 0L))
+                .map(Vehicle::getVersion).contains(1L);
+        assertThat(vehicleService.getVehicleByVin("1HGCM82653A000125")).map(Vehicle::getVersion).contains(1L);
+
+        assertThatThrownBy(() -> vehicleService.updateVehicle("1HGCM82653A000125", vehicle("1HGCM82653A000125", "1.00"), 0L))
+                .isInstanceOf(PreconditionFailedException.class);
+        assertThat(vehicleService.getVehicleByVin("1HGCM82653A000125").get().getPurchasePrice()).isEqualByComparingTo("24000.00");
+    }
+
+    @Test
+    void getVehicleByVin_ShouldNotReturnStaleData_AfterDelete() {
+        vehicleService.createVehicle(vehicle("1HGCM82613A000123", "25000.00"));
+        assertThat(vehicleService.getVehicleByVin("1HGCM82613A000123")).isPresent();
+
+        vehicleService.deleteVehicle("1HGCM82613A000123", null);
+
+        assertThat(vehicleService.getVehicleByVin("1HGCM82613A000123")).isEmpty();
+    }
+
+    @Test
+    void getVehicleByVin_ShouldNotReturnStaleData_AfterBatchDelete() {
+        vehicleService.createVehicle(vehicle("1HGCM82633A000124", "25000.00"));
+        assertThat(vehicleService.getVehicleByVin("1HGCM82633A000124")).isPresent();
+
+        vehicleService.deleteVehicles(List.of("1HGCM82633A000124"));
+
+        assertThat(vehicleService.getVehicleByVin("1HGCM82633A000124")).isEmpty();
+    }
+
+    @Test
+    void getVehicleByVin_ShouldNotCacheARowReadBeforeAConcurrentUpdate() throws Exception {
+        vehicleService.createVehicle(vehicle("1HGCM82603A000145", "25000.00"));
+        cacheManager.getCache(VehicleCacheConfig.VEHICLES_CACHE).clear();
+        AtomicBoolean first = new AtomicBoolean(true);
+        CountDownLatch read = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            Optional<Vehicle> row = vehicleRepository.findAllById(List.of("1HGCM82603A000145")).stream().findFirst();
+            if (first.compareAndSet(true, false)) {
+                // hold the old row until the update below has committed
+                read.countDown();
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                while (vehicleRepository.findAllById(List.of("1HGCM82603A000145")).get(0).getVersion() == 0
+                        && System.nanoTime() < deadline) {
+                    Thread.sleep(10);
+                }
+            }
+            return row;
+        }).when(vehicleRepository).findById("1HGCM82603A000145");
+
+        Thread lookup = new Thread(() -> vehicleService.getVehicleByVin("1HGCM82603A000145"));
+        lookup.start();
+        assertThat(read.await(5, TimeUnit.SECONDS)).isTrue();
+        vehicleService.updateVehicle("1HGCM82603A000145", vehicle("1HGCM82603A000145", "19999.99"), null);
+        lookup.join();
+
+        assertThat(vehicleService.getVehicleByVin("1HGCM82603A000145")).map(Vehicle::getVersion).contains(1L);
+    }
+
+    @Test
+    void getVehicleByVin_ShouldNotHoldWritesToTheVin_WhileLoading() throws Exception {
+        vehicleService.createVehicle(vehicle("1HGCM82643A000150", "25000.00"));
+        cacheManager.getCache(VehicleCacheConfig.VEHICLES_CACHE).clear();
+        AtomicBoolean first = new AtomicBoolean(true);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch updated = new CountDownLatch(1);
+        AtomicBoolean updatedWhileLoading = new AtomicBoolean();
+        doAnswer(invocation -> {
+            Optional<Vehicle> row = vehicleRepository.findAllById(List.of("1HGCM82643A000150")).stream().findFirst();
+            if (first.compareAndSet(true, false)) {
+                // the update below reads and writes this VIN while the lookup still holds its row
+                loading.countDown();
+                updatedWhileLoading.set(updated.await(5, TimeUnit.SECONDS));
+            }
+            return row;
+        }).when(vehicleRepository).findById("1HGCM82643A000150");
+
+        Thread lookup = new Thread(() -> vehicleService.getVehicleByVin("1HGCM82643A000150"));
+        lookup.start();
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        vehicleService.updateVehicle("1HGCM82643A000150", vehicle("1HGCM82643A000150", "19999.99"), null);
+        updated.countDown();
+        lookup.join();
+
+        assertThat(updatedWhileLoading).isTrue();
+        assertThat(vehicleService.getVehicleByVin("1HGCM82643A000150")).map(Vehicle::getVersion).contains(1L);
+    }
+
+    @Test
+    void batchWrites_ShouldOnlyEvictTheirOwnVins() {
+        vehicleService.createVehicle(vehicle("1HGCM82623A000146", "25000.00"));
+        vehicleService.createVehicle(vehicle("1HGCM82643A000147", "25000.00"));
+        vehicleService.getVehicleByVin("1HGCM82623A000146");
+        vehicleService.getVehicleByVin("1HGCM82643A000147");
+
+        vehicleService.updateVehicles(List.of(vehicle("1HGCM82623A000146", "1.00")));
+        vehicleService.createVehicles(List.of(vehicle("1HGCM82663A000148", "1.00")));
+
+        clearInvocations(vehicleRepository);
+        assertThat(vehicleService.getVehicleByVin("1HGCM82643A000147")).isPresent();
+        verify(vehicleRepository, never()).findById(any());
+        assertThat(vehicleService.getVehicleByVin("1HGCM82623A000146").get().getPurchasePrice()).isEqualByComparingTo("1.00");
+        assertThat(vehicleService.getVehicleByVin("1HGCM82663A000148")).isPresent();
+    }
+
+    @Test
+    void cache_ShouldRecordStats() {
+        CaffeineCache cache = (CaffeineCache) cacheManager.getCache(VehicleCacheConfig.VEHICLES_CACHE);
+        CacheStats before = cache.getNativeCache().stats();
+
+        vehicleService.getVehicleByVin("1HGCM82603A000128");
+        vehicleService.getVehicleByVin("1HGCM82603A000128");
+
+        CacheStats delta = cache.getNativeCache().stats().minus(before);
+        assertThat(delta.missCount()).isEqualTo(1);
+        assertThat(delta.hitCount()).isEqualTo(1);
+    }
+
+    private static Vehicle vehicle(String vin, String price) {
+        return Vehicle.builder()
+                .vin(vin)
+                .manufacturerName("Toyota")
+                .modelName("Camry")
+                .description("Sedan")
+                .horsePower(203)
+                .purchasePrice(new BigDecimal(price))
+                .fuelType(Vehicle.FuelType.GASOLINE)
+                .build();
+    }
+}
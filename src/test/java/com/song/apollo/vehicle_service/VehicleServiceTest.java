@@ -6,11 +6,22 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -21,6 +32,10 @@ public class VehicleServiceTest {
 
     @Mock
     private VehicleRepository vehicleRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
     @InjectMocks
     private VehicleService vehicleService;
     private Vehicle sampleVehicle;
@@ -39,27 +54,27 @@ public class VehicleServiceTest {
     }
 
     @Test
-    void createVehicle_ShouldSave_WhenVinIsUnique() {
+    void createVehicle_ShouldInsert_WithoutExistenceCheck() {
         Vehicle v = Vehicle.builder()
                 .vin("TEST_VIN")
                 .purchasePrice(BigDecimal.TEN)
                 .build();
-        when(vehicleRepository.existsById("TEST_VIN")).thenReturn(false);
-        when(vehicleRepository.save(v)).thenReturn(v);
 
         Vehicle result = vehicleService.createVehicle(v);
 
         assertNotNull(result);
-        verify(vehicleRepository).save(v);
+        verify(vehicleRepository).insert(v);
+        verify(vehicleRepository, never()).existsById(any());
+        verify(vehicleRepository, never()).save(any());
+        verify(eventPublisher).publishEvent(VehicleChangeEvent.created(v));
     }
 
     @Test
     void createVehicle_ShouldThrowException_WhenVinExists() {
         Vehicle v = Vehicle.builder().vin("DUPLICATE_VIN").build();
-        when(vehicleRepository.existsById("DUPLICATE_VIN")).thenReturn(true);
+        doThrow(new DuplicateKeyException("VIN already exists")).when(vehicleRepository).insert(v);
 
-        assertThrows(IllegalArgumentException.class, () -> vehicleService.createVehicle(v));
-        verify(vehicleRepository, never()).save(any());
+        assertThrows(DuplicateKeyException.class, () -> vehicleService.createVehicle(v));
     }
 
     @Test
@@ -71,20 +86,71 @@ public class VehicleServiceTest {
         when(vehicleRepository.findById(vin)).thenReturn(Optional.of(oldVehicle));
         when(vehicleRepository.save(any(Vehicle.class))).thenAnswer(i -> i.getArguments()[0]);
 
-        Optional<Vehicle> result = vehicleService.updateVehicle(vin, newDetails);
+        Optional<Vehicle> result = vehicleService.updateVehicle(vin, newDetails, null);
         assertTrue(result.isPresent());
         assertEquals("NewName", result.get().getManufacturerName());
     }
 
     @Test
-    void getAllVehicles_ShouldReturnListOfVehicles() {
-        when(vehicleRepository.findAll()).thenReturn(Arrays.asList(sampleVehicle));
+    void updateVehicle_ShouldThrow_WhenExpectedVersionIsStale() {
+        String vin = "EXISTING_VIN";
+        Vehicle current = Vehicle.builder().vin(vin).manufacturerName("OldName").version(4L).build();
+        when(vehicleRepository.findById(vin)).thenReturn(Optional.of(current));
+
+        assertThrows(PreconditionFailedException.class,
+                () -> vehicleService.updateVehicle(vin, Vehicle.builder().manufacturerName("NewName").build(), 3L));
+        assertEquals("OldName", current.getManufacturerName());
+        verify(vehicleRepository, never()).save(any());
+    }
+
+    @Test
+    void patchVehicle_ShouldUpdateWithoutReading_AndReport412OnlyWhenVehicleExists() {
+        VehiclePatch patch = new VehiclePatch(Map.of(VehiclePatch.Field.PURCHASE_PRICE, BigDecimal.ONE));
+        Vehicle patched = Vehicle.builder().vin("EXISTING_VIN").purchasePrice(BigDecimal.ONE).version(5L).build();
+        when(vehicleRepository.update("EXISTING_VIN", patch, 4L)).thenReturn(Optional.of(patched));
+        when(vehicleRepository.update("EXISTING_VIN", patch, 3L)).thenReturn(Optional.empty());
+        when(vehicleRepository.existsById("EXISTING_VIN")).thenReturn(true);
+
+        assertEquals(Optional.of(patched), vehicleService.patchVehicle("EXISTING_VIN", patch, 4L));
+        assertThrows(PreconditionFailedException.class, () -> vehicleService.patchVehicle("EXISTING_VIN", patch, 3L));
+        assertTrue(vehicleService.patchVehicle("MISSING_VIN", patch, null).isEmpty());
+        verify(vehicleRepository, never()).findById(any());
+        verify(vehicleRepository, never()).existsById("MISSING_VIN");
+        verify(eventPublisher).publishEvent(VehicleChangeEvent.updated(patched));
+    }
+
+    @Test
+    void getVehicles_ShouldReturnLastPage_WhenNoMoreRows() {
+        when(vehicleRepository.findByOrderByVinAsc(Limit.of(11))).thenReturn(Arrays.asList(sampleVehicle));
 
-        List<Vehicle> vehicles = vehicleService.getAllVehicles();
+        VehiclePage page = vehicleService.getVehicles(null, 10);
 
-        assertThat(vehicles).hasSize(1);
-        assertThat(vehicles.get(0).getVin()).isEqualTo("TEST-VIN-100");
-        verify(vehicleRepository, times(1)).findAll();
+        assertThat(page.vehicles()).hasSize(1);
+        assertThat(page.vehicles().get(0).getVin()).isEqualTo("TEST-VIN-100");
+        assertThat(page.nextCursor()).isNull();
+        verify(vehicleRepository, never()).findAll();
+    }
+
+    @Test
+    void getVehicles_ShouldReturnCursor_WhenMoreRowsExist() {
+        Vehicle a = Vehicle.builder().vin("A").build();
+        Vehicle b = Vehicle.builder().vin("B").build();
+        Vehicle c = Vehicle.builder().vin("C").build();
+        when(vehicleRepository.findByVinGreaterThanOrderByVinAsc("0", Limit.of(3))).thenReturn(List.of(a, b, c));
+
+        VehiclePage page = vehicleService.getVehicles("0", 2);
+
+        assertThat(page.vehicles()).extracting(Vehicle::getVin).containsExactly("A", "B");
+        assertThat(VehiclePage.decodeCursor(page.nextCursor())).isEqualTo("B");
+    }
+
+    @Test
+    void getVehicles_ShouldClampPageSize() {
+        when(vehicleRepository.findByOrderByVinAsc(any())).thenReturn(List.of());
+
+        vehicleService.getVehicles(null, 1_000_000);
+
+        verify(vehicleRepository).findByOrderByVinAsc(Limit.of(VehicleService.MAX_PAGE_SIZE + 1));
     }
 
     @Test
@@ -108,13 +174,300 @@ public class VehicleServiceTest {
         verify(vehicleRepository, times(1)).findById("UNKNOWN-VIN");
     }
 
+    @Test
+    void getVehicleByVin_ShouldShareOneQuery_AcrossConcurrentLookups() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(vehicleRepository.findById("TEST-VIN-100")).thenAnswer(invocation -> {
+            release.await();
+            return Optional.of(sampleVehicle);
+        });
+
+        List<Optional<Vehicle>> results = lookUpConcurrently("TEST-VIN-100", 50, release);
+
+        assertThat(results).hasSize(50).allMatch(r -> r.orElseThrow() == sampleVehicle);
+        verify(vehicleRepository, times(1)).findById("TEST-VIN-100");
+
+        // the key is released once the shared query completes
+        vehicleService.getVehicleByVin("TEST-VIN-100");
+        verify(vehicleRepository, times(2)).findById("TEST-VIN-100");
+    }
+
+    @Test
+    void getVehicleByVin_ShouldShareFailure_AndRetryOnNextLookup() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(vehicleRepository.findById("TEST-VIN-100"))
+                .thenAnswer(invocation -> {
+                    release.await();
+                    throw new QueryTimeoutException("timeout");
+                })
+                .thenReturn(Optional.of(sampleVehicle));
+
+        List<Throwable> failures = new ArrayList<>();
+        List<Thread> threads = startLookups("TEST-VIN-100", 10, null, failures);
+        awaitBlocked(threads);
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(failures).hasSize(10).allMatch(QueryTimeoutException.class::isInstance);
+        assertThat(vehicleService.getVehicleByVin("TEST-VIN-100")).contains(sampleVehicle);
+        verify(vehicleRepository, times(2)).findById("TEST-VIN-100");
+    }
+
+    @Test
+    void getVehicleByVin_ShouldNotJoinQueryStartedBeforeChange() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Vehicle updated = Vehicle.builder().vin("TEST-VIN-100").version(1L).build();
+        when(vehicleRepository.findById("TEST-VIN-100"))
+                .thenAnswer(invocation -> {
+                    release.await();
+                    return Optional.of(sampleVehicle);
+                })
+                .thenReturn(Optional.of(updated));
+
+        List<Optional<Vehicle>> before = new ArrayList<>();
+        List<Thread> threads = startLookups("TEST-VIN-100", 1, before, new ArrayList<>());
+        awaitBlocked(threads);
+        vehicleService.onVehicleChange(VehicleChangeEvent.updated(updated));
+
+        assertThat(vehicleService.getVehicleByVin("TEST-VIN-100")).contains(updated);
+        release.countDown();
+        threads.get(0).join();
+        assertThat(before).containsExactly(Optional.of(sampleVehicle));
+    }
+
+    @Test
+    void getVehiclesByVin_ShouldQueryDistinctVinsInChunks_AndKeepRequestOrder() {
+        List<String> vins = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            vins.add("VIN-" + i);
+        }
+        vins.add("VIN-0");
+        when(vehicleRepository.findAllById(any())).thenAnswer(invocation -> {
+            List<Vehicle> found = new ArrayList<>();
+            for (String vin : invocation.<Iterable<String>>getArgument(0)) {
+                if (!vin.endsWith("7")) {
+                    found.add(0, Vehicle.builder().vin(vin).build());
+                }
+            }
+            return found;
+        });
+
+        List<VehicleLookupResult> results = vehicleService.getVehiclesByVin(vins);
+
+        assertThat(results).extracting(VehicleLookupResult::vin).containsExactlyElementsOf(vins);
+        assertThat(results).allMatch(r -> r.status() == (r.vin().endsWith("7") ? 404 : 200)
+                && (r.vehicle() == null) == r.vin().endsWith("7"));
+        verify(vehicleRepository, times(2)).findAllById(any());
+    }
+
+    @Test
+    void getVehicleByVin_ShouldMergeConcurrentMissesIntoOneQuery_WhenBatchWindowIsSet() throws Exception {
+        vehicleService.setLookupBatchWindow(Duration.ofMillis(500));
+        List<String> requested = new ArrayList<>();
+        when(vehicleRepository.findAllById(any())).thenAnswer(invocation -> {
+            invocation.<Iterable<String>>getArgument(0).forEach(requested::add);
+            return List.of(sampleVehicle);
+        });
+
+        List<Optional<Vehicle>> results = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        threads.addAll(startLookups("TEST-VIN-100", 5, results, failures));
+        threads.addAll(startLookups("OTHER-VIN", 5, results, failures));
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(failures).isEmpty();
+        assertThat(results).containsOnly(Optional.of(sampleVehicle), Optional.empty()).hasSize(10);
+        assertThat(requested).containsExactlyInAnyOrder("TEST-VIN-100", "OTHER-VIN");
+        verify(vehicleRepository, times(1)).findAllById(any());
+        verify(vehicleRepository, never()).findById(any());
+    }
+
     @Test
     void deleteVehicle_ShouldCallRepositoryDelete() {
         String vinToDelete = "TEST-VIN-100";
-        vehicleService.deleteVehicle(vinToDelete);
+        when(vehicleRepository.deleteByVin(vinToDelete)).thenReturn(1);
+
+        vehicleService.deleteVehicle(vinToDelete, null);
 
-        verify(vehicleRepository, times(1)).deleteById(vinToDelete);
+        verify(vehicleRepository, times(1)).deleteByVin(vinToDelete);
+        verify(eventPublisher).publishEvent(VehicleChangeEvent.deleted(vinToDelete));
     }
 
+    @Test
+    void deleteVehicle_ShouldNotPublishEvent_WhenVinDoesNotExist() {
+        when(vehicleRepository.deleteByVin("UNKNOWN-VIN")).thenReturn(0);
+
+        vehicleService.deleteVehicle("UNKNOWN-VIN", null);
+
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void deleteVehicle_ShouldDeleteVersionedEntity_WhenExpectedVersionMatches() {
+        sampleVehicle.setVersion(2L);
+        when(vehicleRepository.findById("TEST-VIN-100")).thenReturn(Optional.of(sampleVehicle));
+
+        vehicleService.deleteVehicle("TEST-VIN-100", 2L);
+
+        verify(vehicleRepository).delete(sampleVehicle);
+        verify(vehicleRepository, never()).deleteByVin(any());
+    }
+
+    @Test
+    void deleteVehicle_ShouldThrow_WhenExpectedVersionIsStaleOrMissing() {
+        sampleVehicle.setVersion(2L);
+        when(vehicleRepository.findById("TEST-VIN-100")).thenReturn(Optional.of(sampleVehicle));
+        when(vehicleRepository.findById("UNKNOWN-VIN")).thenReturn(Optional.empty());
+
+        assertThrows(PreconditionFailedException.class, () -> vehicleService.deleteVehicle("TEST-VIN-100", 1L));
+        assertThrows(PreconditionFailedException.class, () -> vehicleService.deleteVehicle("UNKNOWN-VIN", 1L));
+        verify(vehicleRepository, never()).delete(any(Vehicle.class));
+    }
+
+    @Test
+    void createVehicles_ShouldInsertNewAndReportDuplicates() {
+        Vehicle fresh = Vehicle.builder().vin("NEW").build();
+        Vehicle stored = Vehicle.builder().vin("OLD").build();
+        Vehicle repeated = Vehicle.builder().vin("NEW").build();
+        when(vehicleRepository.findExistingVins(List.of("NEW", "OLD", "NEW"))).thenReturn(Set.of("OLD"));
+
+        List<BatchItemResult> results = vehicleService.createVehicles(List.of(fresh, stored, repeated));
+
+        assertThat(results).extracting(BatchItemResult::status).containsExactly(201, 409, 409);
+        verify(vehicleRepository).insertAll(List.of(fresh));
+        verify(vehicleRepository, never()).existsById(any());
+    }
+
+    @Test
+    void createVehicles_ShouldOnlyReportTheCollidingVin_WhenAConcurrentInsertRollsBackTheChunk() {
+        Vehicle first = Vehicle.builder().vin("A").version(0L).build();
+        Vehicle colliding = Vehicle.builder().vin("B").version(0L).build();
+        Vehicle last = Vehicle.builder().vin("C").version(0L).build();
+        when(vehicleRepository.findExistingVins(List.of("A", "B", "C"))).thenReturn(Set.of());
+        doThrow(new DuplicateKeyException("VIN already exists")).when(vehicleRepository).insertAll(any());
+        doAnswer(invocation -> {
+            if (invocation.getArgument(0) == colliding) {
+                throw new DuplicateKeyException("VIN already exists");
+            }
+            return null;
+        }).when(vehicleRepository).insert(any());
+
+        List<BatchItemResult> results = vehicleService.createVehicles(List.of(first, colliding, last));
+
+        assertThat(results).extracting(BatchItemResult::status).containsExactly(201, 409, 201);
+        assertNull(first.getVersion());
+        verify(vehicleRepository).insert(first);
+        verify(vehicleRepository).insert(last);
+        verify(eventPublisher).publishEvent(VehicleChangeEvent.created(first));
+        verify(eventPublisher, never()).publishEvent(VehicleChangeEvent.created(colliding));
+    }
 
+    @Test
+    void createVehicles_ShouldRetryVinsOfAFailedChunk_WhenTheyRepeatLater() {
+        List<Vehicle> vehicles = new ArrayList<>();
+        for (int i = 0; i < VehicleService.BATCH_CHUNK_SIZE; i++) {
+            vehicles.add(Vehicle.builder().vin("VIN-" + i).build());
+        }
+        Vehicle repeated = Vehicle.builder().vin("VIN-0").build();
+        vehicles.add(repeated);
+        when(vehicleRepository.findExistingVins(any())).thenReturn(Set.of());
+        doThrow(new QueryTimeoutException("timeout")).doNothing().when(vehicleRepository).insertAll(any());
+
+        List<BatchItemResult> results = vehicleService.createVehicles(vehicles);
+
+        assertThat(results.get(0).status()).isEqualTo(500);
+        assertThat(results.get(VehicleService.BATCH_CHUNK_SIZE).status()).isEqualTo(201);
+        verify(vehicleRepository).insertAll(List.of(repeated));
+    }
+
+    @Test
+    void createVehicles_ShouldQueryOncePerChunk() {
+        List<Vehicle> vehicles = new ArrayList<>();
+        for (int i = 0; i < VehicleService.BATCH_CHUNK_SIZE + 1; i++) {
+            vehicles.add(Vehicle.builder().vin("VIN-" + i).build());
+        }
+        when(vehicleRepository.findExistingVins(any())).thenReturn(Set.of());
+
+        List<BatchItemResult> results = vehicleService.createVehicles(vehicles);
+
+        assertThat(results).hasSize(vehicles.size()).allMatch(r -> r.status() == 201);
+        verify(vehicleRepository, times(2)).findExistingVins(any());
+        verify(vehicleRepository, times(2)).insertAll(any());
+    }
+
+    @Test
+    void updateVehicles_ShouldUpdateFoundAndReportMissing() {
+        Vehicle stored = Vehicle.builder().vin("A").manufacturerName("Old").build();
+        Vehicle changeA = Vehicle.builder().vin("A").manufacturerName("New").build();
+        Vehicle changeB = Vehicle.builder().vin("B").manufacturerName("New").build();
+        when(vehicleRepository.findAllById(List.of("A", "B"))).thenReturn(List.of(stored));
+
+        List<BatchItemResult> results = vehicleService.updateVehicles(List.of(changeA, changeB));
+
+        assertThat(results).extracting(BatchItemResult::status).containsExactly(200, 404);
+        assertEquals("New", stored.getManufacturerName());
+    }
+
+    @Test
+    void deleteVehicles_ShouldDeleteExistingInOneStatement() {
+        when(vehicleRepository.findExistingVins(List.of("A", "B"))).thenReturn(Set.of("A"));
+
+        List<BatchItemResult> results = vehicleService.deleteVehicles(List.of("A", "B"));
+
+        assertThat(results).extracting(BatchItemResult::status).containsExactly(204, 404);
+        verify(vehicleRepository).deleteAllByIdInBatch(Set.of("A"));
+    }
+
+    private List<Optional<Vehicle>> lookUpConcurrently(String vin, int threads, CountDownLatch release)
+            throws InterruptedException {
+        List<Optional<Vehicle>> results = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        List<Thread> started = startLookups(vin, threads, results, failures);
+        awaitBlocked(started);
+        release.countDown();
+        for (Thread thread : started) {
+            thread.join();
+        }
+        assertThat(failures).isEmpty();
+        return results;
+    }
+
+    private List<Thread> startLookups(String vin, int count, List<Optional<Vehicle>> results, List<Throwable> failures) {
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    Optional<Vehicle> result = vehicleService.getVehicleByVin(vin);
+                    if (results != null) {
+                        synchronized (results) {
+                            results.add(result);
+                        }
+                    }
+                } catch (RuntimeException ex) {
+                    synchronized (failures) {
+                        failures.add(ex);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        return threads;
+    }
+
+    /**
+     * Waits until every lookup is parked, either in the shared query or waiting for its result.
+     */
+    private static void awaitBlocked(List<Thread> threads) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!threads.stream().allMatch(t -> t.getState() == Thread.State.WAITING)) {
+            assertThat(System.nanoTime()).as("lookups did not block in time").isLessThan(deadline);
+            Thread.sleep(1);
+        }
+    }
 }
@@ -0,0 +1,219 @@
+package com.song.apollo.vehicle_service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class VehicleShardingTest {
+    private static final Pattern VIN_FIELD = Pattern.compile("\"vin\":\"([0-9A-Z]{17})\"");
+    private static final String SECRET = "members-only";
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    void ring_ShouldSpreadVinsEvenly_AndOnlyMoveVinsToAJoiningNode() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("http://a", "http://b", "http://c"), 128);
+        ConsistentHashRing grown = ring.withNodes(List.of("http://a", "http://b", "http://c", "http://d"));
+        Map<String, Integer> shares = new HashMap<>();
+        int moved = 0;
+        for (int i = 0; i < 30_000; i++) {
+            String vin = vin(i);
+            shares.merge(ring.owner(vin), 1, Integer::sum);
+            if (!grown.owner(vin).equals(ring.owner(vin))) {
+                assertThat(grown.owner(vin)).isEqualTo("http://d");
+                moved++;
+            }
+        }
+
+        assertThat(shares.values()).allSatisfy(share -> assertThat(share).isBetween(8_000, 12_000));
+        assertThat(moved).isBetween(5_500, 9_500);
+        assertThat(ring.owner(vin(42))).isEqualTo(
+                new ConsistentHashRing(List.of("http://c", "http://b", "http://a"), 128).owner(vin(42)));
+    }
+
+    @Test
+    void cluster_ShouldRouteByOwner_ScatterGatherPages_AndRebalanceOnJoinAndLeave() throws Exception {
+        try (ConfigurableApplicationContext a = start("sharda");
+             ConfigurableApplicationContext b = start("shardb")) {
+            String urlA = url(a);
+            String urlB = url(b);
+            List<String> vins = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                vins.add(vin(i));
+                assertThat(send(urlA, "POST", "/vehicle", vehicleJson(vin(i), i % 2 == 0 ? "DIESEL" : "ELECTRIC"))
+                        .statusCode()).isEqualTo(201);
+            }
+            assertThat(localVins(a)).containsExactlyInAnyOrderElementsOf(vins);
+
+            // only members may change the ring
+            assertThat(send(urlA, "PUT", "/vehicle/shards", "[\"" + urlA + "\",\"" + urlB + "\"]").statusCode())
+                    .isEqualTo(403);
+            assertThat(send(urlA, "PUT", "/vehicle/shards", "[\"" + urlA + "\",\"" + urlB + "\"]",
+                    VehicleShardRouter.SECRET_HEADER, "guess").statusCode()).isEqualTo(403);
+            assertThat(a.getBean(VehicleShardRouter.class).ring().nodes()).containsExactly(urlA);
+
+            // b joins: a keeps its own VINs and hands the rest to b
+            assertThat(send(urlA, "PUT", "/vehicle/shards", "[\"" + urlA + "\",\"" + urlB + "\"]",
+                    VehicleShardRouter.SECRET_HEADER, SECRET).body()).contains(urlB);
+            ConsistentHashRing ring = a.getBean(VehicleShardRouter.class).ring();
+            assertThat(b.getBean(VehicleShardRouter.class).ring().nodes()).isEqualTo(ring.nodes());
+            assertThat(localVins(a)).isNotEmpty().allMatch(vin -> ring.owner(vin).equals(urlA));
+            assertThat(localVins(b)).isNotEmpty().allMatch(vin -> ring.owner(vin).equals(urlB));
+            for (String vin : vins) {
+                assertThat(send(urlB, "GET", "/vehicle/" + vin, null).statusCode()).isEqualTo(200);
+            }
+
+            // single-VIN writes go to the owner, whichever instance they hit
+            String remoteVin = localVins(b).get(0);
+            HttpResponse<String> patched = send(urlA, "PATCH", "/vehicle/" + remoteVin, "{\"horsePower\": 300}",
+                    "If-Match", "\"0\"");
+            assertThat(patched.statusCode()).isEqualTo(200);
+            assertThat(patched.headers().firstValue("ETag")).contains("\"1\"");
+            String newVin = vin(12);
+            assertThat(send(urlA, "POST", "/vehicle", vehicleJson(newVin, "HYBRID")).statusCode()).isEqualTo(201);
+            assertThat(ring.owner(newVin).equals(urlA) ? localVins(a) : localVins(b)).contains(newVin);
+            vins.add(newVin);
+
+            // a client cannot pose as a member to skip routing
+            assertThat(send(urlA, "GET", "/vehicle/" + remoteVin, null,
+                    VehicleShardRouter.HOP_HEADER, urlB).statusCode()).isEqualTo(403);
+            assertThat(send(urlA, "GET", "/vehicle/" + remoteVin, null,
+                    VehicleShardRouter.HOP_HEADER, urlB, VehicleShardRouter.SECRET_HEADER, "guess").statusCode())
+                    .isEqualTo(403);
+
+            // batch and import only store the VINs of the member that was called
+            String ownVin = vinOwnedBy(ring, urlA, 100);
+            String foreignVin = vinOwnedBy(ring, urlB, 100);
+            HttpResponse<String> batch = send(urlA, "POST", "/vehicle/batch",
+                    "[" + vehicleJson(ownVin, "ELECTRIC") + "," + vehicleJson(foreignVin, "ELECTRIC") + "]");
+            assertThat(batch.body()).contains("\"status\":201", "\"status\":421", "VIN belongs to shard " + urlB);
+            HttpResponse<String> imported = send(urlA, "POST", "/vehicle/import",
+                    vehicleJson(vinOwnedBy(ring, urlA, 200), "GASOLINE") + "\n"
+                            + vehicleJson(vinOwnedBy(ring, urlB, 200), "GASOLINE") + "\n",
+                    "Content-Type", "application/x-ndjson");
+            assertThat(imported.body()).contains("\"imported\":1", "\"rejected\":1", "\"status\":421");
+            assertThat(localVins(a)).contains(ownVin, vinOwnedBy(ring, urlA, 200))
+                    .doesNotContain(foreignVin, vinOwnedBy(ring, urlB, 200));
+            assertThat(localVins(b)).doesNotContain(foreignVin, vinOwnedBy(ring, urlB, 200));
+            HttpResponse<String> deleted = send(urlA, "DELETE", "/vehicle/batch", "[\"" + remoteVin + "\"]");
+            assertThat(deleted.body()).contains("\"status\":421", "VIN belongs to shard " + urlB);
+            assertThat(localVins(b)).contains(remoteVin);
+            vins.add(ownVin);
+            vins.add(vinOwnedBy(ring, urlA, 200));
+
+            // list and search see the whole cluster, a page at a time
+            List<String> paged = new ArrayList<>();
+            String cursor = null;
+            do {
+                HttpResponse<String> page = send(urlB, "GET", "/vehicle?limit=5" + (cursor == null ? "" : "&after=" + cursor), null);
+                assertThat(page.statusCode()).isEqualTo(200);
+                paged.addAll(vins(page.body()));
+                String etag = page.headers().firstValue("ETag").orElseThrow();
+                assertThat(send(urlA, "GET", "/vehicle?limit=5" + (cursor == null ? "" : "&after=" + cursor), null,
+                        "If-None-Match", etag).statusCode()).isEqualTo(304);
+                cursor = page.headers().firstValue("X-Next-Cursor").orElse(null);
+            } while (cursor != null);
+            assertThat(paged).isSorted().containsExactlyInAnyOrderElementsOf(vins);
+            assertThat(vins(send(urlA, "GET", "/vehicle/search?fuelType=DIESEL", null).body()))
+                    .isSorted().containsExactlyInAnyOrder(vin(0), vin(2), vin(4), vin(6), vin(8), vin(10));
+
+            // a copy that b already holds is only dropped from a if b has the same data
+            String sameVin = vinOwnedBy(ring, urlB, 300);
+            String differentVin = vinOwnedBy(ring, urlB, 400);
+            for (ConfigurableApplicationContext shard : List.of(a, b)) {
+                shard.getBean(VehicleService.class).createVehicle(vehicle(sameVin, 190));
+                shard.getBean(VehicleService.class).createVehicle(vehicle(differentVin, shard == a ? 190 : 200));
+            }
+            vins.add(sameVin);
+            vins.add(differentVin);
+
+            // a leaves: everything ends up on b, except the vehicle that differs
+            send(urlB, "PUT", "/vehicle/shards", "[\"" + urlB + "\"]", VehicleShardRouter.SECRET_HEADER, SECRET);
+            assertThat(localVins(a)).containsExactly(differentVin);
+            assertThat(localVins(b)).containsExactlyInAnyOrderElementsOf(vins);
+            assertThat(send(urlA, "GET", "/vehicle/" + remoteVin, null).body()).contains("\"horsePower\":300");
+        }
+    }
+
+    private HttpResponse<String> send(String baseUrl, String method, String path, String body, String... headers)
+            throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body));
+        if (body != null) {
+            request.header("Content-Type", "application/json");
+        }
+        for (int i = 0; i < headers.length; i += 2) {
+            request.setHeader(headers[i], headers[i + 1]);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static List<String> localVins(ConfigurableApplicationContext context) {
+        return context.getBean(VehicleService.class).getVehicles(null, VehicleService.MAX_PAGE_SIZE).vehicles().stream()
+                .map(Vehicle::getVin)
+                .toList();
+    }
+
+    private static List<String> vins(String json) {
+        List<String> vins = new ArrayList<>();
+        Matcher matcher = VIN_FIELD.matcher(json);
+        while (matcher.find()) {
+            vins.add(matcher.group(1));
+        }
+        return vins;
+    }
+
+    private static String url(ConfigurableApplicationContext context) {
+        return "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+    }
+
+    private static ConfigurableApplicationContext start(String database) {
+        return new SpringApplicationBuilder(VehicleServiceApplication.class)
+                .run("--server.port=0", "--spring.datasource.url=jdbc:h2:mem:" + database,
+                        "--vehicle.sharding.enabled=true", "--vehicle.sharding.secret=" + SECRET,
+                        "--spring.devtools.restart.enabled=false");
+    }
+
+    /**
+     * @return the first VIN from {@code vin(from)} on that {@code node} owns.
+     */
+    private static String vinOwnedBy(ConsistentHashRing ring, String node, int from) {
+        for (int i = from; ; i++) {
+            if (ring.owner(vin(i)).equals(node)) {
+                return vin(i);
+            }
+        }
+    }
+
+    /**
+     * A valid VIN with serial {@code 300000 + i}.
+     */
+    private static String vin(int i) {
+        String vin = String.format("1HGCM82603A%06d", 300_000 + i);
+        return vin.substring(0, 8) + VinValidator.checkDigit(vin) + vin.substring(9);
+    }
+
+    private static Vehicle vehicle(String vin, int horsePower) {
+        return Vehicle.builder().vin(vin).manufacturerName("Honda").description("Sedan").horsePower(horsePower)
+                .modelName("Accord").purchasePrice(new BigDecimal("25000.00")).fuelType(Vehicle.FuelType.DIESEL).build();
+    }
+
+    private static String vehicleJson(String vin, String fuelType) {
+        return "{\"vin\":\"" + vin + "\",\"manufacturerName\":\"Honda\",\"description\":\"Sedan\",\"horsePower\":190,"
+                + "\"modelName\":\"Accord\",\"purchasePrice\":25000.00,\"fuelType\":\"" + fuelType + "\"}";
+    }
+}
@@ -0,0 +1,163 @@
+package com.song.apollo.vehicle_service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class VehicleTransferTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private VehicleTransfer vehicleTransfer;
+    @Autowired
+    private VehicleService vehicleService;
+
+    @Test
+    void importCsv_ShouldCreateValidRows_AndReportEachRejectedRow() throws Exception {
+        vehicleService.createVehicle(vehicle("1HGCM82603A000131"));
+        String csv = """
+                vin,manufacturerName,modelName,description,horsePower,purchasePrice,fuelType
+                1HGCM82623A000129,Volvo,XC90,"Family SUV, 7 seats",250,55000.00,HYBRID
+                1HGCM82693A000130,Tesla,Model 3,"Says ""fast""
+                on two lines",283,42000,electric
+                CSV-INVALID,Volvo,XC90,SUV,-5,55000.00,HYBRID
+                CSV-MALFORMED,Volvo,XC90,SUV,250,cheap,HYBRID
+                1HGCM82603A000131,Volvo,XC90,SUV,250,55000.00,HYBRID
+                CSV-SHORT,Volvo
+                """;
+        List<ImportReport.Rejection> streamed = new ArrayList<>();
+
+        ImportReport report = vehicleTransfer.importVehicles(VehicleTransfer.Format.CSV, gzip(csv), streamed::add);
+
+        assertThat(report.imported()).isEqualTo(2);
+        assertThat(report.rejected()).isEqualTo(4);
+        assertThat(report.rejections()).isEqualTo(streamed);
+        assertThat(report.rejections()).extracting(ImportReport.Rejection::row, ImportReport.Rejection::vin,
+                        ImportReport.Rejection::status)
+                .containsExactlyInAnyOrder(
+                        tuple(3L, "CSV-INVALID", 422),
+                        tuple(4L, "CSV-MALFORMED", 400),
+                        tuple(5L, "1HGCM82603A000131", 409),
+                        tuple(6L, "CSV-SHORT", 400));
+        Vehicle quoted = vehicleService.getVehicleByVin("1HGCM82693A000130").orElseThrow();
+        assertThat(quoted.getDescription()).isEqualTo("Says \"fast\"\non two lines");
+        assertThat(quoted.getFuelType()).isEqualTo(Vehicle.FuelType.ELECTRIC);
+    }
+
+    @Test
+    void exportThenImport_ShouldRoundTripBothFormats() throws Exception {
+        Vehicle original = vehicle("1HGCM82643A000133");
+        original.setDescription("Quoted \"name\", with comma");
+        vehicleService.createVehicle(original);
+
+        for (VehicleTransfer.Format format : VehicleTransfer.Format.values()) {
+            ByteArrayOutputStream exported = new ByteArrayOutputStream();
+            long count = vehicleTransfer.exportVehicles(format, exported);
+            assertThat(count).isPositive();
+
+            vehicleService.deleteVehicle("1HGCM82643A000133", null);
+            ImportReport report = vehicleTransfer.importVehicles(format, new ByteArrayInputStream(exported.toByteArray()));
+
+            // every other vehicle is still there and comes back as a duplicate
+            assertThat(report.imported()).as(format.name()).isEqualTo(1);
+            assertThat(report.rejected()).isEqualTo(count - 1);
+            assertThat(vehicleService.getVehicleByVin("1HGCM82643A000133")).get()
+                    .extracting(Vehicle::getDescription, Vehicle::getPurchasePrice)
+                    .containsExactly(original.getDescription(), original.getPurchasePrice());
+        }
+    }
+
+    @Test
+    void exportEndpoint_ShouldStreamGzipAttachment_AndImportEndpointShouldReadIt() throws Exception {
+        vehicleService.createVehicle(vehicle("1HGCM82623A000132"));
+
+        MvcResult started = mockMvc.perform(get("/vehicle/export").param("format", "ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] file = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/gzip"))
+                .andExpect(header().string("Content-Disposition", containsString("vehicles.ndjson.gz")))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertThat(gunzip(file)).contains("\"vin\":\"1HGCM82623A000132\"");
+
+        vehicleService.deleteVehicle("1HGCM82623A000132", null);
+        mockMvc.perform(post("/vehicle/import")
+                        .contentType(VehicleTransferController.APPLICATION_GZIP_VALUE)
+                        .content(file))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.rejections[0].status").value(409));
+        assertThat(vehicleService.getVehicleByVin("1HGCM82623A000132")).isPresent();
+    }
+
+    @Test
+    void endpoints_ShouldRejectUnknownFormatAndColumns() throws Exception {
+        mockMvc.perform(get("/vehicle/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/vehicle/import")
+                        .param("format", "csv")
+                        .contentType("text/csv")
+                        .content("vin,colour\nX,red\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Unknown CSV column: colour"));
+        mockMvc.perform(post("/vehicle/import")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isUnsupportedMediaType());
+    }
+
+    private static Vehicle vehicle(String vin) {
+        return Vehicle.builder()
+                .vin(vin)
+                .manufacturerName("Volvo")
+                .modelName("XC90")
+                .description("SUV")
+                .horsePower(250)
+                .purchasePrice(new BigDecimal("55000.00"))
+                .fuelType(Vehicle.FuelType.HYBRID)
+                .build();
+    }
+
+    private static ByteArrayInputStream gzip(String content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return new ByteArrayInputStream(bytes.toByteArray());
+    }
+
+    private static String gunzip(byte[] content) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(content))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
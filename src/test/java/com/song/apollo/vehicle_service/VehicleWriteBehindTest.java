@@ -0,0 +1,180 @@
+package com.song.apollo.vehicle_service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "vehicle.write-behind.enabled=true",
+        "vehicle.write-behind.flush-interval=1h"})
+@AutoConfigureMockMvc
+public class VehicleWriteBehindTest {
+
+    @TempDir
+    static Path logDirectory;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private VehicleService vehicleService;
+    @Autowired
+    private VehicleRepository vehicleRepository;
+    @Autowired
+    private VehicleWriteBehind writeBehind;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @DynamicPropertySource
+    static void logDirectory(DynamicPropertyRegistry registry) {
+        registry.add("vehicle.write-behind.directory", () -> logDirectory.resolve("app").toString());
+    }
+
+    @Test
+    void asyncUpdates_ShouldBeReadableAtOnce_AndCoalescedIntoOneWrite() throws Exception {
+        vehicleService.createVehicle(vehicle("1HGCM82663A000134", "30000.00"));
+
+        mockMvc.perform(put("/vehicle/1HGCM82663A000134").header("Prefer", "respond-async")
+                        .contentType(MediaType.APPLICATION_JSON).content(body("1HGCM82663A000134", "29000.00")))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Preference-Applied", "respond-async"))
+                .andExpect(header().doesNotExist("ETag"))
+                .andExpect(jsonPath("$.purchasePrice").value(29000.00));
+        mockMvc.perform(put("/vehicle/1HGCM82663A000134").header("Prefer", "respond-async")
+                        .contentType(MediaType.APPLICATION_JSON).content(body("1HGCM82663A000134", "28500.00")))
+                .andExpect(status().isAccepted());
+
+        assertThat(vehicleRepository.findById("1HGCM82663A000134")).get()
+                .extracting(Vehicle::getPurchasePrice).isEqualTo(new BigDecimal("30000.00"));
+        cacheManager.getCache(VehicleCacheConfig.VEHICLES_CACHE).clear();
+        mockMvc.perform(get("/vehicle/1HGCM82663A000134"))
+                .andExpect(jsonPath("$.purchasePrice").value(28500.00))
+                .andExpect(header().string("ETag", "\"0\""));
+        assertThat(meterRegistry.get("vehicle.write-behind.pending").gauge().value()).isEqualTo(1);
+
+        writeBehind.flush();
+
+        Vehicle stored = vehicleRepository.findById("1HGCM82663A000134").orElseThrow();
+        assertThat(stored.getPurchasePrice()).isEqualByComparingTo("28500.00");
+        assertThat(stored.getVersion()).isEqualTo(1L);
+        mockMvc.perform(get("/vehicle/1HGCM82663A000134")).andExpect(header().string("ETag", "\"1\""));
+        assertThat(writeBehind.pending("1HGCM82663A000134")).isNull();
+    }
+
+    @Test
+    void acceptedUpdates_ShouldBeReplayedAfterCrash_UnlessSupersededBySyncWrite() throws Exception {
+        vehicleService.createVehicle(vehicle("1HGCM82683A000135", "10000.00"));
+        vehicleService.createVehicle(vehicle("1HGCM826X3A000136", "20000.00"));
+        Path directory = logDirectory.resolve("crash");
+
+        VehicleWriteBehind crashed = newWriteBehind(directory);
+        crashed.accept(vehicle("1HGCM82683A000135", "9000.00"));
+        crashed.accept(vehicle("1HGCM826X3A000136", "19000.00"));
+        crashed.discard("1HGCM826X3A000136");
+        // no flush and no close: the process dies here
+
+        VehicleWriteBehind restarted = newWriteBehind(directory);
+        assertThat(restarted.pending("1HGCM82683A000135").getPurchasePrice()).isEqualByComparingTo("9000.00");
+        assertThat(restarted.pending("1HGCM826X3A000136")).isNull();
+
+        restarted.flush();
+
+        assertThat(vehicleRepository.findById("1HGCM82683A000135").orElseThrow().getPurchasePrice()).isEqualByComparingTo("9000.00");
+        assertThat(vehicleRepository.findById("1HGCM826X3A000136").orElseThrow().getPurchasePrice()).isEqualByComparingTo("20000.00");
+        assertThat(newWriteBehind(directory).pending("1HGCM82683A000135")).isNull();
+    }
+
+    @Test
+    void writeAheadLog_ShouldStopReplayAtTornRecord_AndDropCheckpointedSegments() throws IOException {
+        Path directory = logDirectory.resolve("log");
+        try (WriteAheadLog log = new WriteAheadLog(directory, 64)) {
+            for (int i = 1; i <= 6; i++) {
+                log.sync(log.append(("record-" + i).getBytes(StandardCharsets.UTF_8)));
+            }
+            log.checkpoint(2);
+        }
+        // 16-byte header + 8-byte payload: two records per 64-byte segment
+        assertThat(segments(directory)).hasSize(2);
+        Path last = segments(directory).get(1);
+        try (RandomAccessFile file = new RandomAccessFile(last.toFile(), "rw")) {
+            file.seek(24 + 16);
+            file.write('X');
+        }
+
+        try (WriteAheadLog log = new WriteAheadLog(directory, 64)) {
+            assertThat(replay(log)).containsExactly("record-3", "record-4", "record-5");
+            assertThat(log.lastSequence()).isEqualTo(5);
+            log.sync(log.append("record-6b".getBytes(StandardCharsets.UTF_8)));
+            assertThat(log.lastSequence()).isEqualTo(6);
+        }
+        try (WriteAheadLog log = new WriteAheadLog(directory, 64)) {
+            assertThat(replay(log)).containsExactly("record-3", "record-4", "record-5", "record-6b");
+        }
+    }
+
+    private VehicleWriteBehind newWriteBehind(Path directory) {
+        return new VehicleWriteBehind(applicationContext.getBeanProvider(VehicleService.class), cacheManager,
+                meterRegistry, directory, DataSize.ofMegabytes(1), Duration.ofHours(1));
+    }
+
+    private static List<String> replay(WriteAheadLog log) throws IOException {
+        List<String> records = new ArrayList<>();
+        log.replay((payload, sequence) -> records.add(new String(payload, StandardCharsets.UTF_8)));
+        return records;
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".wal")).sorted().toList();
+        }
+    }
+
+    private static String body(String vin, String price) {
+        return """
+                {"vin":"%s","manufacturerName":"Volvo","description":"SUV","horsePower":250,
+                 "modelName":"XC90","purchasePrice":%s,"fuelType":"HYBRID"}""".formatted(vin, price);
+    }
+
+    private static Vehicle vehicle(String vin, String price) {
+        return Vehicle.builder()
+                .vin(vin)
+                .manufacturerName("Volvo")
+                .modelName("XC90")
+                .description("SUV")
+                .horsePower(250)
+                .purchasePrice(new BigDecimal(price))
+                .fuelType(Vehicle.FuelType.HYBRID)
+                .build();
+    }
+}
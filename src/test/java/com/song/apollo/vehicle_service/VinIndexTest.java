@@ -0,0 +1,114 @@
+package com.song.apollo.vehicle_service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class VinIndexTest {
+    private static final String ALPHABET = "0123456789ABCDEFGHJKLMNPRSTUVWXYZ";
+
+    private final VehicleRepository vehicleRepository = mock(VehicleRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private VinIndex index;
+
+    @BeforeEach
+    void setUp() {
+        when(vehicleRepository.count()).thenReturn(2L);
+        when(vehicleRepository.streamAllVins()).thenReturn(Stream.of("1M8GDM9AXKP042788", "LEGACY-VIN"));
+        index = new VinIndex(vehicleRepository, mock(PlatformTransactionManager.class), meterRegistry);
+    }
+
+    @Test
+    void mightContain_ShouldAnswerMaybe_UntilLoaded() {
+        assertThat(index.mightContain("1HGCM82633A004352")).isTrue();
+
+        index.afterSingletonsInstantiated();
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.mightContain("1M8GDM9AXKP042788")).isTrue();
+        assertThat(index.mightContain("1HGCM82633A004352")).isFalse();
+        // VINs that cannot be packed are never ruled out
+        assertThat(index.mightContain("LEGACY-VIN")).isTrue();
+        assertThat(meterRegistry.get("vehicle.vin-index.skipped-lookups").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void index_ShouldMatchHashSet_ThroughResizesAndDeletes() {
+        index.afterSingletonsInstantiated();
+        Random random = new Random(42);
+        List<String> vins = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            vins.add(randomVin(random));
+        }
+        Set<String> expected = new HashSet<>(Set.of("1M8GDM9AXKP042788"));
+        for (int i = 0; i < 100_000; i++) {
+            String vin = vins.get(random.nextInt(vins.size()));
+            if (random.nextInt(3) == 0) {
+                index.remove(vin, index.removalStamp(vin));
+                expected.remove(vin);
+            } else {
+                index.add(vin);
+                expected.add(vin);
+            }
+        }
+
+        assertThat(index.size()).isEqualTo(expected.size());
+        for (String vin : vins) {
+            assertThat(index.mightContain(vin)).as(vin).isEqualTo(expected.contains(vin));
+        }
+        assertThat(meterRegistry.get("vehicle.vin-index.memory").gauge().value()).isGreaterThanOrEqualTo(12.0 * 16384);
+    }
+
+    @Test
+    void remove_ShouldKeepVin_WhenCreatedWhileDeleting() {
+        index.afterSingletonsInstantiated();
+        index.add("1HGCM82633A004352");
+
+        long stamp = index.removalStamp("1HGCM82633A004352");
+        // a concurrent create of the same VIN commits after the delete
+        index.add("1HGCM82633A004352");
+        index.remove("1HGCM82633A004352", stamp);
+
+        assertThat(index.mightContain("1HGCM82633A004352")).isTrue();
+        index.remove("1HGCM82633A004352", index.removalStamp("1HGCM82633A004352"));
+        assertThat(index.mightContain("1HGCM82633A004352")).isFalse();
+    }
+
+    @Test
+    void add_ShouldStopRulingVinsOut_WhenFullAtMaxCapacity() {
+        index = new VinIndex(vehicleRepository, mock(PlatformTransactionManager.class), meterRegistry, 1024);
+        index.afterSingletonsInstantiated();
+        Random random = new Random(7);
+        List<String> added = new ArrayList<>();
+        for (int i = 0; i < 1024; i++) {
+            String vin = randomVin(random);
+            index.add(vin);
+            added.add(vin);
+        }
+
+        assertThat(index.size()).isEqualTo(768);
+        assertThat(meterRegistry.get("vehicle.vin-index.memory").gauge().value()).isEqualTo(12.0 * 1024);
+        assertThat(added).allMatch(index::mightContain);
+        assertThat(index.mightContain("1HGCM82633A004352")).isTrue();
+    }
+
+    private static String randomVin(Random random) {
+        StringBuilder vin = new StringBuilder(VinValidator.LENGTH);
+        for (int i = 0; i < VinValidator.LENGTH; i++) {
+            vin.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return vin.toString();
+    }
+}
@@ -0,0 +1,46 @@
+package com.song.apollo.vehicle_service;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class VinMigrationTest {
+
+    @Test
+    void normalizeVins_ShouldCanonicalizeStoredVins_AndReportTheOnesItCannotFix() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:vin-migration;DB_CLOSE_DELAY=-1", "sa", "password");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        flyway(dataSource, "1").migrate();
+        for (String vin : List.of("1m8gdm9axkp042788", " 1HGCM82623A000115 ", "1HGCM82643A000116",
+                "1hgcm82643a000116", "VIN-1", "1HGCM82603A000117")) {
+            jdbc.update("INSERT INTO vehicles (vin, manufacturer_name, description, horse_power, model_name, "
+                    + "purchase_price, fuel_type, version) VALUES (?, 'Saab', 'Sedan', 150, '9-3', 20000.00, 'GASOLINE', 0)", vin);
+        }
+
+        flyway(dataSource, "2").migrate();
+
+        assertThat(jdbc.queryForList("SELECT vin FROM vehicles ORDER BY vin", String.class)).containsExactly(
+                "1HGCM82603A000117", "1HGCM82623A000115", "1HGCM82643A000116", "1M8GDM9AXKP042788",
+                "1hgcm82643a000116", "VIN-1");
+        assertThat(jdbc.queryForList("SELECT vin, normalized_vin, problem FROM vin_migration_report ORDER BY vin"))
+                .containsExactly(
+                        Map.of("VIN", "1HGCM82603A000117", "NORMALIZED_VIN", "1HGCM82603A000117", "PROBLEM", "CHECK_DIGIT"),
+                        Map.of("VIN", "1hgcm82643a000116", "NORMALIZED_VIN", "1HGCM82643A000116", "PROBLEM", "COLLISION"),
+                        Map.of("VIN", "VIN-1", "NORMALIZED_VIN", "VIN-1", "PROBLEM", "MALFORMED"));
+    }
+
+    private static Flyway flyway(DriverManagerDataSource dataSource, String target) {
+        return Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration")
+                .target(target)
+                .load();
+    }
+}
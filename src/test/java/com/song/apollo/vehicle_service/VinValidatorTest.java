@@ -0,0 +1,50 @@
+package com.song.apollo.vehicle_service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class VinValidatorTest {
+
+    @Test
+    void isValid_ShouldVerifyCheckDigit() {
+        assertThat(VinValidator.isValid("1M8GDM9AXKP042788", true)).isTrue();
+        assertThat(VinValidator.isValid("11111111111111111", true)).isTrue();
+        assertThat(VinValidator.isValid("1HGCM82633A004352", true)).isTrue();
+        assertThat(VinValidator.isValid("1HGCM82633A004353", true)).isFalse();
+        assertThat(VinValidator.isValid("1M8GDM9A1KP042788", true)).isFalse();
+        assertThat(VinValidator.isValid("1M8GDM9A1KP042788", false)).isTrue();
+    }
+
+    @Test
+    void isValid_ShouldRejectWrongLengthAndForbiddenCharacters() {
+        assertThat(VinValidator.isValid(null, false)).isFalse();
+        assertThat(VinValidator.isValid("1M8GDM9AXKP04278", false)).isFalse();
+        assertThat(VinValidator.isValid("1M8GDM9AXKP0427888", false)).isFalse();
+        for (char forbidden : "IOQioq-* Éİ".toCharArray()) {
+            assertThat(VinValidator.isValid("1M8GDM9AXKP04278" + forbidden, false)).as("%s", forbidden).isFalse();
+        }
+    }
+
+    @Test
+    void isValid_ShouldAcceptLowerCase() {
+        assertThat(VinValidator.isValid("1m8gdm9axkp042788", true)).isTrue();
+    }
+
+    @Test
+    void checkDigit_ShouldIgnoreCurrentCheckDigit() {
+        assertThat(VinValidator.checkDigit("1M8GDM9A0KP042788")).isEqualTo('X');
+        assertThat(VinValidator.checkDigit("1HGCM82603A004352")).isEqualTo('3');
+        assertThatThrownBy(() -> VinValidator.checkDigit("TOO-SHORT")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void normalize_ShouldTrimAndUpperCase_AndKeepCanonicalInstance() {
+        String canonical = "1M8GDM9AXKP042788";
+
+        assertThat(VinValidator.normalize(canonical)).isSameAs(canonical);
+        assertThat(VinValidator.normalize(" 1m8gdm9axkp042788\t")).isEqualTo(canonical);
+        assertThat(VinValidator.normalize(null)).isNull();
+    }
+}